@@ -1,48 +1,42 @@
+import java.util.concurrent.CompletableFuture;
+
 import javax.swing.SwingUtilities;
 
-import dao.AdminDAO;
+import dao.ChangeLogPoller;
 import dao.DatabaseSetup;
+import dao.ScheduleArchiveJob;
+import dao.ScheduleConsolidationJob;
+import dao.SlotPreviewService;
+import dao.StartupTimer;
+import dao.WaitlistService;
 import views.LoginFormGUI;
 
 public class Main {
     public static void main(String[] args) {
-        // Measure total startup time
-        long appStart = System.nanoTime();
-
-        // Initialize database tables (measured)
-        measure("DatabaseSetup.createTablesIfNotExist", () -> DatabaseSetup.createTablesIfNotExist());
+        // Schema checks (tables, default admin) run in the background behind the
+        // schema version marker; DB-backed screens wait on DatabaseSetup.awaitReady()
+        CompletableFuture<Void> schemaReady = DatabaseSetup.initializeAsync();
+        // Other workstations' changes reach open views through the change log
+        schemaReady.thenRun(ChangeLogPoller::start);
+        // Waitlisted students are promoted as seats free up
+        schemaReady.thenRun(WaitlistService::start);
+        // Periodically merges part-filled sessions of the same exam and time
+        schemaReady.thenRun(ScheduleConsolidationJob::start);
+        // Moves sessions past the retention window out of the hot tables
+        schemaReady.thenRun(ScheduleArchiveJob::start);
+        // Releases expired seat holds and the sessions made for them
+        schemaReady.thenRun(SlotPreviewService::startSweeper);
 
-        // Initialize admin table and create default admin account (measured)
-        AdminDAO adminDAO = new AdminDAO();
-        measure("AdminDAO.createAdminTableIfNotExists", () -> adminDAO.createAdminTableIfNotExists());
-
-        // Launch UI
+        // Launch UI right away
+        CompletableFuture<Void> uiReady = new CompletableFuture<>();
         SwingUtilities.invokeLater(() -> {
-            long uiStart = System.nanoTime();
-            LoginFormGUI login = new LoginFormGUI();
-            login.setVisible(true);
-            long uiEnd = System.nanoTime();
-            System.out.printf("UI init took %.2f ms (%d ns)\n", (uiEnd - uiStart) / 1_000_000.0, (uiEnd - uiStart));
-            // Also print using the requested format
-            System.out.println("Execution time: " + (uiEnd - uiStart) + " nanoseconds (UI init)");
+            StartupTimer.time("LoginFormGUI init", () -> new LoginFormGUI().setVisible(true));
+            uiReady.complete(null);
         });
 
-        long appEnd = System.nanoTime();
-        System.out.printf("Main startup path took %.2f ms (%d ns)\n", (appEnd - appStart) / 1_000_000.0,
-                (appEnd - appStart));
-        // Also print using the requested format
-        System.out.println("Execution time: " + (appEnd - appStart) + " nanoseconds (startup)");
-    }
+        StartupTimer.mark("Main startup path");
 
-    // Simple helper to measure a runnable block
-    private static long measure(String label, Runnable action) {
-        long start = System.nanoTime();
-        try {
-            action.run();
-            return System.nanoTime() - start;
-        } finally {
-            long end = System.nanoTime();
-            System.out.printf("%s took %.2f ms (%d ns)\n", label, (end - start) / 1_000_000.0, (end - start));
-        }
+        // One timing report once both the window and the schema check are done
+        CompletableFuture.allOf(schemaReady, uiReady).whenComplete((v, e) -> StartupTimer.report());
     }
 }
@@ -0,0 +1,572 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dao.AdmissionController;
+import dao.AdmissionRejectedException;
+import dao.ChangeLogPoller;
+import dao.ConnectionPool;
+import dao.DatabaseConnection;
+import dao.DatabaseSetup;
+import dao.EnrollmentService;
+import dao.InsufficientBalanceException;
+import dao.Log;
+import dao.NoCapacityException;
+import dao.PoolExhaustedException;
+import dao.ReplicaRouter;
+import dao.ScheduleConflictException;
+import dao.SchedulingJobQueue;
+import dao.SchedulingService;
+import dao.SlotPreviewService;
+import dao.StorageBackend;
+import dao.StudentDAO;
+import dao.StudentTimetableCache;
+import dao.WaitlistService;
+import models.Student;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP/JSON front end for students, for registration rushes the desktop client
+ * cannot absorb.
+ *
+ * Built on the JDK's HttpServer; every request runs on its own virtual thread,
+ * so thousands of concurrent requests cost little memory. The database is the
+ * real limit: all DAO calls in this JVM go through a bounded
+ * {@link ConnectionPool}, and a request that cannot get a connection in time
+ * is answered 503 with Retry-After instead of piling more load on MySQL.
+ * Enrollments additionally wait their turn in the {@link AdmissionController}:
+ * a client over its rate gets 429, and a request shed because the queue is
+ * too long gets 503, both with Retry-After.
+ *
+ * Endpoints (JSON bodies; authenticated ones take "Authorization: Bearer
+ * token" from /api/login):
+ * POST /api/login {email, password} -> {token, studentId, name}
+ * POST /api/logout
+ * GET /api/exams catalog, with this student's enrollment status when logged in
+ * POST /api/enroll {examId} -> session, or 202 {jobId} in queue mode;
+ *   {holdId} instead enrolls into the held slot
+ * POST /api/checkout {examIds: [..]} -> sessions for all exams, one charge, or none
+ * GET /api/slots?examId=&k= best k slots to choose from, best first
+ * POST /api/slots/hold {examId, scheduleId} or {examId, roomId, date, start}
+ *   -> {holdId, expiresAt}
+ * POST /api/slots/release {holdId}
+ * GET /api/jobs/{id} queued enrollment outcome
+ * POST /api/waitlist {examId} -> {position}
+ * GET /api/balance
+ * GET /api/upcoming booked exams
+ * GET /api/enroll/queue admission queue length, limit and expected wait
+ * GET /api/health pool usage and replica lag
+ *
+ * Run: java api.EnrollmentApiServer [port]
+ * (exam.api.port, default 8080; exam.api.dbPool connections, default 20)
+ */
+public class EnrollmentApiServer {
+
+    private static final Log LOG = Log.get(EnrollmentApiServer.class);
+
+    private static final Duration SESSION_TTL = Duration.ofHours(8);
+    private static final long POOL_WAIT_MS = 2000;
+    private static final int RETRY_AFTER_SECONDS = 2;
+
+    /** Logged-in student behind a bearer token. */
+    record Session(int studentId, String name, Instant expires) {
+    }
+
+    /** A parsed request. */
+    record Request(HttpExchange exchange, Map<String, Object> body, Session session) {
+        int intField(String name) {
+            Object v = body.get(name);
+            if (v instanceof Number n)
+                return n.intValue();
+            if (v instanceof String s) {
+                try {
+                    return Integer.parseInt(s.trim());
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            throw new ApiException(400, "Field '" + name + "' must be a number");
+        }
+
+        List<Integer> intListField(String name) {
+            if (!(body.get(name) instanceof List<?> values) || values.isEmpty())
+                throw new ApiException(400, "Field '" + name + "' must be a non-empty list of numbers");
+            List<Integer> out = new ArrayList<>();
+            for (Object v : values) {
+                if (!(v instanceof Number n))
+                    throw new ApiException(400, "Field '" + name + "' must be a non-empty list of numbers");
+                out.add(n.intValue());
+            }
+            return out;
+        }
+
+        boolean has(String name) {
+            Object v = body.get(name);
+            return v != null && !v.toString().isBlank();
+        }
+
+        String stringField(String name) {
+            Object v = body.get(name);
+            if (v == null || v.toString().isBlank())
+                throw new ApiException(400, "Field '" + name + "' is required");
+            return v.toString();
+        }
+    }
+
+    /** Response with a status other than 200. */
+    record Reply(int status, Object body) {
+    }
+
+    /** Ends a request with the given status and error message. */
+    static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    @FunctionalInterface
+    interface Handler {
+        Object handle(Request request) throws Exception;
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public EnrollmentApiServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        route("/api/login", "POST", false, this::login);
+        route("/api/logout", "POST", true, this::logout);
+        route("/api/exams", "GET", false, this::exams);
+        route("/api/enroll", "POST", true, this::enroll);
+        route("/api/enroll/queue", "GET", false, this::enrollQueue);
+        route("/api/checkout", "POST", true, this::checkout);
+        route("/api/slots", "GET", true, this::slots);
+        route("/api/slots/hold", "POST", true, this::holdSlot);
+        route("/api/slots/release", "POST", true, this::releaseSlot);
+        route("/api/jobs/", "GET", true, this::job);
+        route("/api/waitlist", "POST", true, this::joinWaitlist);
+        route("/api/balance", "GET", true, this::balance);
+        route("/api/upcoming", "GET", true, this::upcoming);
+        route("/api/health", "GET", false, this::health);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : Integer.parseInt(StorageBackend.setting("exam.api.port", "EXAM_API_PORT", "api.port", "8080"));
+        int poolSize = Integer.parseInt(StorageBackend.setting("exam.api.dbPool", "EXAM_API_DB_POOL",
+                "api.dbPool", "20"));
+
+        // Bad exam.admission.* settings fail here, not on every enrollment
+        AdmissionController.enrollment();
+        DatabaseSetup.ensureSchema();
+        DatabaseConnection.usePool(poolSize, POOL_WAIT_MS);
+        // Desktop clients' changes reach the caches here too
+        ChangeLogPoller.start();
+        WaitlistService.start();
+        SlotPreviewService.startSweeper();
+
+        EnrollmentApiServer api = new EnrollmentApiServer(port);
+        api.start();
+        LOG.info("✅ Enrollment API listening on port {} ({} DB connections)", port, poolSize);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // ===== Endpoints =====
+
+    private Object login(Request req) {
+        Student student = new StudentDAO().loginStudent(req.stringField("email"), req.stringField("password"));
+        if (student == null)
+            throw new ApiException(401, "Invalid email or password");
+        String token = UUID.randomUUID().toString();
+        sessions.put(token, new Session(student.getId(), student.getName(), Instant.now().plus(SESSION_TTL)));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("token", token);
+        out.put("studentId", student.getId());
+        out.put("name", student.getName());
+        return out;
+    }
+
+    private Object logout(Request req) {
+        sessions.remove(bearerToken(req.exchange()));
+        return Map.of("loggedOut", true);
+    }
+
+    private Object exams(Request req) throws SQLException {
+        int studentId = req.session() != null ? req.session().studentId() : 0;
+        String sql = """
+                SELECT e.id, e.exam_name, e.course_id, e.duration,
+                       CASE WHEN EXISTS (SELECT 1 FROM student_exams se
+                                         JOIN exam_schedules es ON se.exam_schedule_id = es.id
+                                         WHERE se.student_id = ? AND es.exam_id = e.id)
+                            THEN 1 ELSE 0 END AS enrolled
+                FROM exams e ORDER BY e.id
+                """;
+        List<Map<String, Object>> exams = new ArrayList<>();
+        try (Connection conn = readConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> exam = new LinkedHashMap<>();
+                    exam.put("id", rs.getInt("id"));
+                    exam.put("name", rs.getString("exam_name"));
+                    exam.put("courseId", rs.getInt("course_id"));
+                    exam.put("duration", rs.getString("duration"));
+                    if (studentId > 0)
+                        exam.put("status", rs.getInt("enrolled") == 1 ? "Enrolled" : "Available");
+                    exams.add(exam);
+                }
+            }
+        }
+        return exams;
+    }
+
+    private Object enroll(Request req) throws SQLException {
+        int studentId = req.session().studentId();
+        if (req.has("holdId")) {
+            return assignment(EnrollmentService.enrollHeld("student:" + studentId, studentId, req.intField("holdId"),
+                    EnrollmentService.EXAM_FEE, null));
+        }
+        int examId = req.intField("examId");
+        if (SchedulingJobQueue.enabled()) {
+            long jobId = SchedulingJobQueue.submit(studentId, examId, EnrollmentService.EXAM_FEE);
+            return new Reply(202, Map.of("jobId", jobId, "status", "Queued"));
+        }
+        return assignment(EnrollmentService.enroll("student:" + studentId, studentId, examId,
+                EnrollmentService.EXAM_FEE, null));
+    }
+
+    private Object checkout(Request req) throws SQLException {
+        int studentId = req.session().studentId();
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (SchedulingService.AssignmentResult ar : EnrollmentService.checkout("student:" + studentId, studentId,
+                req.intListField("examIds"), EnrollmentService.EXAM_FEE, null))
+            out.add(assignment(ar));
+        return out;
+    }
+
+    private Object slots(Request req) throws SQLException {
+        int k = req.has("k") ? req.intField("k") : 5;
+        if (k < 1 || k > 50)
+            throw new ApiException(400, "k must be between 1 and 50");
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (SlotPreviewService.SlotOption o : SlotPreviewService.preview(req.session().studentId(),
+                req.intField("examId"), k)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("scheduleId", o.isNew() ? null : o.scheduleId());
+            row.put("newSession", o.isNew());
+            row.put("roomId", o.roomId());
+            row.put("room", o.room());
+            row.put("date", o.date());
+            row.put("start", o.start());
+            row.put("end", o.end());
+            row.put("freeSeats", o.freeSeats());
+            row.put("score", Math.round(o.score() * 100) / 100.0);
+            out.add(row);
+        }
+        return out;
+    }
+
+    private Object holdSlot(Request req) throws SQLException {
+        int studentId = req.session().studentId();
+        int examId = req.intField("examId");
+        SlotPreviewService.SeatHold hold;
+        if (req.has("scheduleId")) {
+            hold = SlotPreviewService.holdSession(studentId, examId, req.intField("scheduleId"));
+        } else {
+            LocalDate date;
+            LocalTime start;
+            try {
+                date = LocalDate.parse(req.stringField("date"));
+                start = LocalTime.parse(req.stringField("start"));
+            } catch (DateTimeParseException e) {
+                throw new ApiException(400, "date must be YYYY-MM-DD and start HH:MM");
+            }
+            hold = SlotPreviewService.holdNewSession(studentId, examId, req.intField("roomId"), date, start);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("holdId", hold.holdId());
+        out.put("scheduleId", hold.scheduleId());
+        out.put("expiresAt", hold.expiresAt());
+        return out;
+    }
+
+    private Object releaseSlot(Request req) throws SQLException {
+        SlotPreviewService.release(req.session().studentId(), req.intField("holdId"));
+        return Map.of("released", true);
+    }
+
+    private Object enrollQueue(Request req) {
+        AdmissionController admission = AdmissionController.enrollment();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("queueLength", admission.queueLength());
+        out.put("inFlight", admission.inFlight());
+        out.put("limit", admission.limit());
+        out.put("expectedWaitMs", admission.expectedWaitMillis());
+        return out;
+    }
+
+    private Object job(Request req) throws SQLException {
+        String path = req.exchange().getRequestURI().getPath();
+        long jobId;
+        try {
+            jobId = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Bad job id");
+        }
+        // Someone else's job answers exactly like a missing one
+        SchedulingJobQueue.JobResult result = SchedulingJobQueue.poll(jobId, req.session().studentId());
+        if (result == null)
+            throw new ApiException(404, "No such job");
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("jobId", jobId);
+        out.put("status", result.status().column());
+        if (result.status() == SchedulingJobQueue.Status.DONE) {
+            out.put("registrationId", result.registrationId());
+            out.put("scheduleId", result.scheduleId());
+            out.put("date", result.date());
+            out.put("start", result.start());
+            out.put("room", result.room());
+        } else if (result.message() != null) {
+            out.put("message", result.message());
+        }
+        return out;
+    }
+
+    private Object joinWaitlist(Request req) throws SQLException {
+        int position = WaitlistService.join(req.session().studentId(), req.intField("examId"),
+                EnrollmentService.EXAM_FEE, 0);
+        return Map.of("position", position);
+    }
+
+    private Object balance(Request req) {
+        return Map.of("balance", new StudentDAO().getBalance(req.session().studentId()));
+    }
+
+    private Object upcoming(Request req) throws SQLException {
+        List<Map<String, Object>> out = new ArrayList<>();
+        try (Connection conn = connection()) {
+            for (StudentTimetableCache.Entry e : StudentTimetableCache.get(req.session().studentId(), conn)
+                    .entries()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("registrationId", e.registrationId());
+                row.put("scheduleId", e.scheduleId());
+                row.put("examId", e.examId());
+                row.put("exam", e.examName());
+                row.put("date", e.start().toLocalDate());
+                row.put("start", e.start().toLocalTime());
+                row.put("end", e.end().toLocalTime());
+                row.put("room", e.room());
+                row.put("status", e.status());
+                row.put("paid", e.paid());
+                out.add(row);
+            }
+        }
+        return out;
+    }
+
+    private Object health(Request req) {
+        ConnectionPool pool = DatabaseConnection.getPool();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("status", "ok");
+        out.put("dbConnectionsInUse", pool != null ? pool.inUse() : 0);
+        out.put("dbConnectionsMax", pool != null ? pool.maxSize() : 0);
+        if (ReplicaRouter.configured()) {
+            out.put("replicaHealthy", ReplicaRouter.healthy());
+            long lag = ReplicaRouter.lagMillis();
+            out.put("replicaLagMs", lag == Long.MAX_VALUE ? null : lag);
+        }
+        return out;
+    }
+
+    private static Map<String, Object> assignment(SchedulingService.AssignmentResult ar) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("registrationId", ar.registrationId);
+        out.put("scheduleId", ar.examScheduleId);
+        out.put("date", ar.date);
+        out.put("start", ar.start);
+        out.put("room", ar.room);
+        return out;
+    }
+
+    // ===== Plumbing =====
+
+    private static Connection connection() throws SQLException {
+        Connection conn = DatabaseConnection.getConnection();
+        if (conn == null)
+            throw new SQLTransientException("No database connection available");
+        return conn;
+    }
+
+    // Catalog-style reads may be served by the replica (see ReplicaRouter)
+    private static Connection readConnection() throws SQLException {
+        Connection conn = DatabaseConnection.getReadConnection();
+        if (conn == null)
+            throw new SQLTransientException("No database connection available");
+        return conn;
+    }
+
+    private void route(String path, String method, boolean authenticated, Handler handler) {
+        server.createContext(path, exchange -> {
+            try {
+                if (!exchange.getRequestMethod().equalsIgnoreCase(method))
+                    throw new ApiException(405, "Use " + method);
+                Session session = session(exchange);
+                if (authenticated && session == null)
+                    throw new ApiException(401, "Login required");
+                Map<String, Object> body = "POST".equals(method) ? Json.parseObject(readBody(exchange))
+                        : query(exchange);
+                Object result = handler.handle(new Request(exchange, body, session));
+                if (result instanceof Reply reply)
+                    send(exchange, reply.status(), reply.body());
+                else
+                    send(exchange, 200, result);
+            } catch (ApiException e) {
+                send(exchange, e.status, error(e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+            } catch (NoCapacityException e) {
+                Map<String, Object> out = error(e.getMessage());
+                out.put("examId", e.getExamId());
+                // A timetable clash is not fixed by waiting for a seat
+                out.put("waitlist", !(e instanceof ScheduleConflictException));
+                send(exchange, 409, out);
+            } catch (InsufficientBalanceException e) {
+                send(exchange, 402, error(e.getMessage()));
+            } catch (AdmissionRejectedException e) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+                Map<String, Object> out = error(e.getMessage());
+                out.put("reason", e.getReason().name());
+                out.put("retryAfterSeconds", e.getRetryAfterSeconds());
+                send(exchange, e.getReason() == AdmissionRejectedException.Reason.RATE_LIMITED ? 429 : 503, out);
+            } catch (SQLTransientException | PoolExhaustedException e) {
+                // Pool exhausted or lock timeout: tell the client to back off
+                backOff(exchange, e.getMessage());
+            } catch (SQLException e) {
+                // Our own checks throw without an SQLState ("already enrolled" etc.)
+                send(exchange, e.getSQLState() == null ? 422 : 500, error(e.getMessage()));
+            } catch (Exception e) {
+                Throwable busy = transientCause(e);
+                if (busy != null) {
+                    backOff(exchange, busy.getMessage());
+                } else {
+                    LOG.error("API {} failed", path, e);
+                    send(exchange, 500, error("Internal error"));
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private static void backOff(HttpExchange exchange, String message) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+        send(exchange, 503, error(message));
+    }
+
+    // Saturation wrapped by a helper (a CompletionException, a listener's
+    // IllegalStateException) is still saturation
+    private static Throwable transientCause(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientException || t instanceof PoolExhaustedException)
+                return t;
+        }
+        return null;
+    }
+
+    private Session session(HttpExchange exchange) {
+        String token = bearerToken(exchange);
+        if (token == null)
+            return null;
+        Session s = sessions.get(token);
+        if (s == null)
+            return null;
+        if (s.expires().isBefore(Instant.now())) {
+            sessions.remove(token);
+            return null;
+        }
+        return s;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7))
+            return null;
+        return header.substring(7).trim();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // GET parameters, read through the same Request field helpers as JSON bodies
+    private static Map<String, Object> query(HttpExchange exchange) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty())
+            return Map.of();
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                out.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("error", message != null ? message : "Error");
+        return out;
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
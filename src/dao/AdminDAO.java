@@ -5,6 +5,8 @@ import java.sql.*;
 
 public class AdminDAO {
 
+    private static final Log LOG = Log.get(AdminDAO.class);
+
     public Admin loginAdmin(String username, String password) {
         String sql = "SELECT * FROM admins WHERE username = ? AND password = ?";
 
@@ -25,8 +27,7 @@ public class AdminDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("Error during admin login: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error during admin login: {}", e.getMessage(), e);
         }
 
         return null;
@@ -46,8 +47,7 @@ public class AdminDAO {
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error creating admin: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating admin: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -67,8 +67,7 @@ public class AdminDAO {
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error updating admin: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating admin: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -85,23 +84,15 @@ public class AdminDAO {
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error deleting admin: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error deleting admin: {}", e.getMessage(), e);
             return false;
         }
     }
 
     // Method to create admin table if it doesn't exist
     public void createAdminTableIfNotExists() {
-        String sql = """
-                    CREATE TABLE IF NOT EXISTS admins (
-                        id INT AUTO_INCREMENT PRIMARY KEY,
-                        username VARCHAR(100) UNIQUE NOT NULL,
-                        password VARCHAR(255) NOT NULL,
-                        role ENUM('admin', 'super_admin') DEFAULT 'admin',
-                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                    )
-                """;
+        String sql = DatabaseSetup.adminsTableSql();
+
 
         try (Connection conn = DatabaseConnection.getConnection();
                 Statement stmt = conn.createStatement()) {
@@ -117,12 +108,11 @@ public class AdminDAO {
                 Admin defaultAdmin = new Admin("admin", "admin123");
                 defaultAdmin.setRole("super_admin");
                 createAdmin(defaultAdmin);
-                System.out.println("✅ Default admin account created: username=admin, password=admin123");
+                LOG.info("✅ Default admin account created: username=admin, password=admin123");
             }
 
         } catch (SQLException e) {
-            System.err.println("Error creating admin table: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating admin table: {}", e.getMessage(), e);
         }
     }
 }
\ No newline at end of file
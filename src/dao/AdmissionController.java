@@ -0,0 +1,341 @@
+package dao;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Admission control in front of enrollment, so a registration-window rush
+ * queues in this JVM instead of on the database.
+ *
+ * - Bounded concurrency: at most limit() enrollments run at once. The limit
+ *   adapts to observed service time (AIMD): it shrinks while the smoothed
+ *   latency is above the SLO and grows again, one step at a time, while latency
+ *   has headroom and the limit is in use.
+ * - Fair queue: requests beyond the limit wait first-come first-served; a
+ *   waiting caller is told its position whenever it changes.
+ * - Rate limits: one token bucket per client (student or address), so a single
+ *   client hammering the button cannot take everyone else's turn.
+ * - Load shedding: a request is rejected immediately when the queue is full or
+ *   its expected wait already exceeds maxWait, and a queued request gives up
+ *   at maxWait; rejection is a cheap {@link AdmissionRejectedException} with a
+ *   retry hint rather than a slow timeout.
+ *
+ * Waiting uses a ReentrantLock with one Condition per waiter, so thousands of
+ * waiting virtual threads neither pin carriers nor wake up all at once.
+ *
+ * Settings (exam.admission.*, see {@link #enrollment()}): maxConcurrent,
+ * minConcurrent, maxQueue, maxWaitMs, latencySloMs, ratePerSec, burst.
+ * ratePerSec, maxWaitMs and latencySloMs must be positive.
+ */
+public final class AdmissionController {
+
+    private static final long POSITION_REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int MAX_BUCKETS = 10_000;
+
+    private static volatile AdmissionController enrollment;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final long sloNanos;
+    private final double ratePerSec;
+    private final double burst;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private int limit;
+    private int inFlight;
+    private double latencyEwmaNanos;
+    private long lastDecreaseNanos;
+
+    private static final class Waiter {
+        final Condition admitted;
+        boolean granted;
+
+        Waiter(Condition admitted) {
+            this.admitted = admitted;
+        }
+    }
+
+    /** Held while the admitted work runs; close it when done. */
+    public final class Permit implements AutoCloseable {
+        private final long startNanos = System.nanoTime();
+        private boolean closed;
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            release(System.nanoTime() - startNanos);
+        }
+    }
+
+    public AdmissionController(int minLimit, int maxLimit, int maxQueue, long maxWaitMillis, long sloMillis,
+            double ratePerSec, double burst) {
+        if (!(ratePerSec > 0) || Double.isInfinite(ratePerSec))
+            throw new IllegalArgumentException("ratePerSec must be a positive number, got " + ratePerSec);
+        if (maxWaitMillis <= 0 || sloMillis <= 0)
+            throw new IllegalArgumentException("maxWaitMs and latencySloMs must be positive");
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.sloNanos = TimeUnit.MILLISECONDS.toNanos(sloMillis);
+        this.ratePerSec = ratePerSec;
+        this.burst = Math.max(1, burst);
+        this.limit = this.maxLimit;
+    }
+
+    /** The controller guarding {@link EnrollmentService}, configured once per JVM. */
+    public static AdmissionController enrollment() {
+        AdmissionController c = enrollment;
+        if (c == null) {
+            synchronized (AdmissionController.class) {
+                if (enrollment == null) {
+                    enrollment = new AdmissionController(
+                            intSetting("minConcurrent", 2),
+                            intSetting("maxConcurrent", 16),
+                            intSetting("maxQueue", 500),
+                            intSetting("maxWaitMs", 10_000),
+                            intSetting("latencySloMs", 500),
+                            Double.parseDouble(setting("ratePerSec", "0.5")),
+                            Double.parseDouble(setting("burst", "3")));
+                }
+                c = enrollment;
+            }
+        }
+        return c;
+    }
+
+    private static String setting(String name, String fallback) {
+        return StorageBackend.setting("exam.admission." + name,
+                "EXAM_ADMISSION_" + name.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(),
+                "admission." + name, fallback);
+    }
+
+    private static int intSetting(String name, int fallback) {
+        return Integer.parseInt(setting(name, String.valueOf(fallback)));
+    }
+
+    /**
+     * Waits for a turn. positionListener (may be null) is called with the
+     * caller's 1-based queue position while it waits, and with 0 once admitted.
+     */
+    public Permit acquire(String clientKey, IntConsumer positionListener) throws AdmissionRejectedException {
+        if (clientKey != null && !bucket(clientKey).tryTake())
+            throw new AdmissionRejectedException(AdmissionRejectedException.Reason.RATE_LIMITED,
+                    (int) Math.min(60, Math.ceil(1 / ratePerSec)), "Too many requests, please slow down");
+
+        Waiter waiter = null;
+        int position = 0;
+        lock.lock();
+        try {
+            if (inFlight < limit && queue.isEmpty()) {
+                inFlight++;
+            } else {
+                position = queue.size() + 1;
+                long expectedWait = expectedWaitNanos(position);
+                if (position > maxQueue || expectedWait > maxWaitNanos) {
+                    throw new AdmissionRejectedException(AdmissionRejectedException.Reason.OVERLOADED,
+                            retryAfterSeconds(expectedWait),
+                            "Enrollment is busy (" + queue.size() + " waiting), please try again shortly");
+                }
+                waiter = new Waiter(lock.newCondition());
+                queue.addLast(waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (waiter != null) {
+            if (positionListener != null)
+                positionListener.accept(position);
+            awaitTurn(waiter, position, positionListener);
+        }
+        if (positionListener != null)
+            positionListener.accept(0);
+        return new Permit();
+    }
+
+    private void awaitTurn(Waiter waiter, int position, IntConsumer positionListener)
+            throws AdmissionRejectedException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (true) {
+            int current;
+            lock.lock();
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (!waiter.granted && remaining > 0) {
+                    try {
+                        waiter.admitted.awaitNanos(Math.min(remaining, POSITION_REFRESH_NANOS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        abandon(waiter, "Interrupted while waiting for enrollment");
+                        return;
+                    }
+                }
+                if (waiter.granted)
+                    return;
+                if (deadline - System.nanoTime() <= 0) {
+                    abandon(waiter, "Timed out waiting for enrollment, please try again");
+                    return;
+                }
+                current = positionOf(waiter);
+            } finally {
+                lock.unlock();
+            }
+            if (positionListener != null && current != position) {
+                position = current;
+                positionListener.accept(position);
+            }
+        }
+    }
+
+    /** Requests waiting for a turn. */
+    public int queueLength() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Current concurrency limit. */
+    public int limit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Expected wait for a request arriving now, in milliseconds. */
+    public long expectedWaitMillis() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMillis(expectedWaitNanos(queue.size() + 1));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===== Internals (lock held unless noted) =====
+
+    // Returns normally only if the turn was granted just as the caller gave up
+    private void abandon(Waiter waiter, String message) throws AdmissionRejectedException {
+        if (waiter.granted)
+            return;
+        queue.remove(waiter);
+        throw new AdmissionRejectedException(AdmissionRejectedException.Reason.TIMED_OUT,
+                retryAfterSeconds(expectedWaitNanos(queue.size() + 1)), message);
+    }
+
+    private int positionOf(Waiter waiter) {
+        int i = 1;
+        for (Iterator<Waiter> it = queue.iterator(); it.hasNext(); i++) {
+            if (it.next() == waiter)
+                return i;
+        }
+        return 0;
+    }
+
+    // Little's law: the queue ahead drains at limit / latency per second
+    private long expectedWaitNanos(int position) {
+        double service = latencyEwmaNanos > 0 ? latencyEwmaNanos : sloNanos / 2.0;
+        return (long) (Math.ceil((double) position / limit) * service);
+    }
+
+    private static int retryAfterSeconds(long waitNanos) {
+        return (int) Math.max(1, Math.min(60, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+    }
+
+    private void release(long serviceNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            adapt(serviceNanos);
+            while (inFlight < limit && !queue.isEmpty()) {
+                Waiter next = queue.pollFirst();
+                next.granted = true;
+                inFlight++;
+                next.admitted.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adapt(long sampleNanos) {
+        latencyEwmaNanos = latencyEwmaNanos == 0 ? sampleNanos : latencyEwmaNanos * 0.9 + sampleNanos * 0.1;
+        long now = System.nanoTime();
+        if (latencyEwmaNanos > sloNanos) {
+            // At most one decrease per observed latency, so a single slow burst
+            // does not collapse the limit
+            if (limit > minLimit && now - lastDecreaseNanos > latencyEwmaNanos) {
+                limit = Math.max(minLimit, (int) (limit * 0.9));
+                lastDecreaseNanos = now;
+            }
+        } else if (latencyEwmaNanos < sloNanos * 0.7 && limit < maxLimit && inFlight + 1 >= limit) {
+            limit++;
+        }
+    }
+
+    private TokenBucket bucket(String clientKey) {
+        if (buckets.size() > MAX_BUCKETS)
+            buckets.values().removeIf(TokenBucket::isFull);
+        return buckets.computeIfAbsent(clientKey, k -> new TokenBucket(ratePerSec, burst));
+    }
+
+    /** Refills at ratePerSec up to burst tokens; one token per request. */
+    static final class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(double ratePerSec, double capacity) {
+            this.ratePerNano = ratePerSec / 1e9;
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        synchronized boolean tryTake() {
+            refill();
+            if (tokens < 1)
+                return false;
+            tokens -= 1;
+            return true;
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNano);
+            refilledAt = now;
+        }
+    }
+}
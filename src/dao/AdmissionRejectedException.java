@@ -0,0 +1,35 @@
+package dao;
+
+import java.sql.SQLTransientException;
+
+/**
+ * Thrown by {@link AdmissionController} when a request is turned away instead
+ * of queued: the client is over its rate, or the queue is too long to finish
+ * within the latency target. Nothing was charged or booked; retry after
+ * {@link #getRetryAfterSeconds()}.
+ */
+public class AdmissionRejectedException extends SQLTransientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        RATE_LIMITED, OVERLOADED, TIMED_OUT
+    }
+
+    private final Reason reason;
+    private final int retryAfterSeconds;
+
+    public AdmissionRejectedException(Reason reason, int retryAfterSeconds, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,71 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Treats rooms as bins: picks the smallest room that seats the expected demand
+ * (best fit), and among those the one that leaves the other rooms able to seat
+ * the most of the larger cohorts still to come (look-ahead, packed first-fit
+ * decreasing). With no room large enough, takes the largest and the exam
+ * overflows into another session.
+ */
+public class BestFitRoomAllocator implements RoomAllocator {
+
+    private static final Comparator<Room> SMALLEST_FIRST = Comparator.comparingInt(Room::capacity)
+            .thenComparingInt(Room::usage);
+
+    @Override
+    public Room choose(List<Room> freeRooms, int demand, List<Integer> lookAhead) {
+        if (freeRooms.isEmpty())
+            return null;
+        List<Room> bySize = new ArrayList<>(freeRooms);
+        bySize.sort(SMALLEST_FIRST);
+
+        Room largest = bySize.get(bySize.size() - 1);
+        if (largest.capacity() < demand)
+            return largest;
+
+        // Only as many future cohorts as the remaining rooms could ever seat
+        List<Integer> others = lookAhead.stream()
+                .sorted(Comparator.reverseOrder())
+                .limit(bySize.size() - 1)
+                .toList();
+
+        Room best = null;
+        int bestPacked = -1;
+        for (Room candidate : bySize) {
+            if (candidate.capacity() < demand)
+                continue;
+            if (others.isEmpty())
+                return candidate; // plain best fit
+            int packed = packedCohorts(others, bySize, candidate);
+            // Strictly greater keeps the smallest room among equally good choices
+            if (packed > bestPacked) {
+                bestPacked = packed;
+                best = candidate;
+            }
+            if (packed == others.size())
+                break;
+        }
+        return best;
+    }
+
+    /** How many cohorts (largest first) fit, one per room, in rooms other than taken. */
+    private static int packedCohorts(List<Integer> cohortsDesc, List<Room> roomsAsc, Room taken) {
+        boolean[] used = new boolean[roomsAsc.size()];
+        used[roomsAsc.indexOf(taken)] = true;
+        int packed = 0;
+        for (int seats : cohortsDesc) {
+            for (int i = 0; i < roomsAsc.size(); i++) {
+                if (!used[i] && roomsAsc.get(i).capacity() >= seats) {
+                    used[i] = true;
+                    packed++;
+                    break;
+                }
+            }
+        }
+        return packed;
+    }
+}
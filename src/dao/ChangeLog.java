@@ -0,0 +1,139 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Durable side of the {@link EventBus}: every published change is also written
+ * to the change_log table, on the same connection (and so in the same
+ * transaction) as the mutation. Other workstations read it back through
+ * {@link ChangeLogPoller} to learn about changes made elsewhere.
+ */
+public final class ChangeLog {
+
+    private static final Log LOG = Log.get(ChangeLog.class);
+
+    /** Identifies this JVM's rows so its own poller can skip them. */
+    public static final String INSTANCE_ID = UUID.randomUUID().toString();
+
+    private static final String INSERT_SQL = "INSERT INTO change_log "
+            + "(event_type, change_kind, entity_id, student_id, ref_id, amount, origin) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static {
+        // Summaries go stale once a change commits, never inside its transaction
+        EventBus.onCommitted(StudentSummary::invalidate);
+    }
+
+    private ChangeLog() {
+    }
+
+    /**
+     * Records the event in change_log and publishes it locally (held until
+     * commit when conn is inside a transaction). Inside a transaction a failed
+     * write throws IllegalStateException: the database may already have rolled
+     * the transaction back (a deadlock does), so the caller must not go on and
+     * commit the rest.
+     */
+    public static void publish(Connection conn, DomainEvent event) {
+        append(conn, event);
+        EventBus.publish(conn, event);
+    }
+
+    static void append(Connection conn, DomainEvent event) {
+        if (conn == null)
+            return;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            ps.setString(1, event.getClass().getSimpleName());
+            ps.setNull(2, Types.VARCHAR);
+            ps.setNull(3, Types.INTEGER);
+            ps.setNull(4, Types.INTEGER);
+            ps.setNull(5, Types.INTEGER);
+            ps.setNull(6, Types.DECIMAL);
+            switch (event) {
+                case DomainEvent.EnrollmentCreated e -> {
+                    ps.setInt(3, e.registrationId());
+                    ps.setInt(4, e.studentId());
+                    ps.setInt(5, e.examScheduleId());
+                }
+                case DomainEvent.EnrollmentCancelled e -> {
+                    ps.setInt(3, e.registrationId());
+                    ps.setInt(4, e.studentId());
+                    ps.setInt(5, e.examScheduleId());
+                }
+                case DomainEvent.ScheduleCreated e -> {
+                    ps.setInt(3, e.scheduleId());
+                    ps.setInt(5, e.examId());
+                }
+                case DomainEvent.ScheduleChanged e -> {
+                    ps.setInt(3, e.scheduleId());
+                    ps.setInt(5, e.examId());
+                }
+                case DomainEvent.ScheduleDeleted e -> ps.setInt(3, e.scheduleId());
+                case DomainEvent.BalanceChanged e -> {
+                    ps.setInt(4, e.studentId());
+                    ps.setDouble(6, e.delta());
+                }
+                case DomainEvent.RoomChanged e -> {
+                    ps.setString(2, e.kind().name());
+                    ps.setInt(3, e.roomId());
+                }
+                case DomainEvent.ExamChanged e -> {
+                    ps.setString(2, e.kind().name());
+                    ps.setInt(3, e.examId());
+                }
+                case DomainEvent.StudentChanged e -> {
+                    ps.setString(2, e.kind().name());
+                    ps.setInt(3, e.studentId());
+                }
+                case DomainEvent.WaitlistJoined e -> {
+                    ps.setInt(3, e.waitlistId());
+                    ps.setInt(4, e.studentId());
+                    ps.setInt(5, e.examId());
+                }
+            }
+            ps.setString(7, INSTANCE_ID);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            if (inTransaction(conn))
+                throw new IllegalStateException("Could not write change_log for " + event + ": " + e.getMessage(), e);
+            // The change itself is already committed; other instances catch up
+            // on their next full refresh
+            LOG.warn("Could not write change_log for {}: {}", event, e.getMessage());
+        }
+    }
+
+    private static boolean inTransaction(Connection conn) {
+        try {
+            return !conn.getAutoCommit();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Rebuilds the event stored in the current change_log row, or null if unknown. */
+    static DomainEvent read(ResultSet rs) throws SQLException {
+        String type = rs.getString("event_type");
+        int entityId = rs.getInt("entity_id");
+        int studentId = rs.getInt("student_id");
+        int refId = rs.getInt("ref_id");
+        String kind = rs.getString("change_kind");
+        DomainEvent.ChangeKind changeKind = kind != null ? DomainEvent.ChangeKind.valueOf(kind) : null;
+        return switch (type) {
+            case "EnrollmentCreated" -> new DomainEvent.EnrollmentCreated(studentId, entityId, refId);
+            case "EnrollmentCancelled" -> new DomainEvent.EnrollmentCancelled(studentId, entityId, refId);
+            case "ScheduleCreated" -> new DomainEvent.ScheduleCreated(entityId, refId);
+            case "ScheduleChanged" -> new DomainEvent.ScheduleChanged(entityId, refId);
+            case "ScheduleDeleted" -> new DomainEvent.ScheduleDeleted(entityId);
+            case "BalanceChanged" -> new DomainEvent.BalanceChanged(studentId, rs.getDouble("amount"));
+            case "RoomChanged" -> new DomainEvent.RoomChanged(changeKind, entityId);
+            case "ExamChanged" -> new DomainEvent.ExamChanged(changeKind, entityId);
+            case "StudentChanged" -> new DomainEvent.StudentChanged(changeKind, entityId);
+            case "WaitlistJoined" -> new DomainEvent.WaitlistJoined(entityId, studentId, refId);
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails change_log and re-publishes other instances' changes on the local
+ * {@link EventBus}, so open views update and caches subscribed to the bus are
+ * invalidated.
+ *
+ * Each poll is a primary-key range scan (id > lowWater), so an idle system costs
+ * one indexed query returning no rows per interval. Staleness is bounded by the
+ * interval (exam.changelog.pollMs, default 2000).
+ *
+ * AUTO_INCREMENT ids can commit out of order, so the poller keeps a low-water
+ * mark below which everything was seen, re-reads above it, and only skips a
+ * missing id after GAP_TIMEOUT_MS (a rolled-back insert leaves a permanent
+ * hole).
+ */
+public final class ChangeLogPoller {
+
+    private static final Log LOG = Log.get(ChangeLogPoller.class);
+
+    private static final long POLL_MS = Long.parseLong(
+            StorageBackend.setting("exam.changelog.pollMs", "EXAM_CHANGELOG_POLL_MS", "changelog.pollMs", "2000"));
+    private static final long GAP_TIMEOUT_MS = 30_000;
+    private static final long RETENTION_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long PRUNE_EVERY_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int BATCH = 500;
+
+    private static ScheduledExecutorService executor;
+
+    private long lowWater = -1;
+    // ids above lowWater already delivered
+    private final TreeSet<Long> seen = new TreeSet<>();
+    // first time each missing id was noticed
+    private final Map<Long, Long> gapSince = new HashMap<>();
+    private long lastPrune;
+
+    private ChangeLogPoller() {
+    }
+
+    /** Starts the background poller once per JVM. */
+    public static synchronized void start() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-log-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        ChangeLogPoller poller = new ChangeLogPoller();
+        executor.scheduleWithFixedDelay(poller::pollSafely, 0, POLL_MS, TimeUnit.MILLISECONDS);
+        LOG.info("✅ Change log poller started (every {} ms)", POLL_MS);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void pollSafely() {
+        List<DomainEvent> events = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                return;
+            if (lowWater < 0) {
+                // Only changes made after this client started are interesting
+                lowWater = currentMaxId(conn);
+                return;
+            }
+            poll(conn, events);
+            pruneIfDue(conn);
+        } catch (SQLException | RuntimeException e) {
+            LOG.error("Change log poll failed: {}", e.getMessage());
+        }
+        // Published with the connection returned: listeners may need one
+        events.forEach(EventBus::publish);
+    }
+
+    private void poll(Connection conn, List<DomainEvent> events) throws SQLException {
+        String sql = "SELECT id, event_type, change_kind, entity_id, student_id, ref_id, amount, origin "
+                + "FROM change_log WHERE id > ? ORDER BY id LIMIT " + BATCH;
+        long maxRead = lowWater;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, lowWater);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong("id");
+                    maxRead = Math.max(maxRead, id);
+                    if (!seen.add(id))
+                        continue;
+                    gapSince.remove(id);
+                    if (ChangeLog.INSTANCE_ID.equals(rs.getString("origin")))
+                        continue; // already published in-process
+                    DomainEvent event = ChangeLog.read(rs);
+                    if (event != null)
+                        events.add(event);
+                }
+            }
+        }
+        advanceLowWater(maxRead);
+    }
+
+    private void advanceLowWater(long maxRead) {
+        long now = System.currentTimeMillis();
+        while (lowWater < maxRead) {
+            long next = lowWater + 1;
+            if (seen.remove(next)) {
+                lowWater = next;
+                continue;
+            }
+            // Hole below rows we have read: wait for a late commit, then give up
+            long since = gapSince.computeIfAbsent(next, k -> now);
+            if (now - since < GAP_TIMEOUT_MS)
+                break;
+            gapSince.remove(next);
+            lowWater = next;
+        }
+    }
+
+    private static long currentMaxId(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM change_log")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void pruneIfDue(Connection conn) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < PRUNE_EVERY_MS)
+            return;
+        lastPrune = now;
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM change_log WHERE created_at < ?")) {
+            ps.setTimestamp(1, new Timestamp(now - RETENTION_MS));
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package dao;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses a slot for every exam in a student's cart at once, so that none of
+ * them overlap each other (or anything already booked). Placing exams one by
+ * one can take the only slot a later exam could use; here each exam gets its
+ * best {@link SlotPreviewService} options and a backtracking search picks one
+ * per exam, minimizing the summed score.
+ *
+ * Exams with the fewest options are placed first, and a branch is cut as soon
+ * as its score reaches the best complete plan found, so the search stays small
+ * for cart-sized inputs. If no combination of the top options works, the
+ * search is repeated once with a wider candidate list before giving up.
+ *
+ * Settings: exam.checkout.candidates options per exam (default 12).
+ */
+public final class CheckoutPlanner {
+
+    private static final int CANDIDATES = Integer.parseInt(StorageBackend.setting("exam.checkout.candidates",
+            "EXAM_CHECKOUT_CANDIDATES", "checkout.candidates", "12"));
+    private static final int WIDEN_FACTOR = 4;
+    // Search nodes per plan; far above what a cart of a few exams needs
+    private static final int MAX_NODES = 200_000;
+
+    private CheckoutPlanner() {
+    }
+
+    /**
+     * One slot per exam, keyed by exam id in the order given. Throws
+     * {@link NoCapacityException} naming the first exam that cannot be fitted
+     * together with the others.
+     */
+    public static Map<Integer, SlotPreviewService.SlotOption> plan(int studentId, List<Integer> examIds)
+            throws SQLException {
+        if (examIds.isEmpty())
+            throw new IllegalArgumentException("The cart is empty");
+        if (examIds.stream().distinct().count() != examIds.size())
+            throw new IllegalArgumentException("An exam is in the cart twice");
+
+        Map<Integer, SlotPreviewService.SlotOption> plan = plan(studentId, examIds, CANDIDATES);
+        if (plan == null)
+            plan = plan(studentId, examIds, CANDIDATES * WIDEN_FACTOR);
+        if (plan == null)
+            throw new NoCapacityException(examIds.get(examIds.size() - 1),
+                    "These exams cannot all be scheduled without overlapping; remove one and try again");
+        return plan;
+    }
+
+    private static Map<Integer, SlotPreviewService.SlotOption> plan(int studentId, List<Integer> examIds, int k)
+            throws SQLException {
+        List<List<SlotPreviewService.SlotOption>> options = new ArrayList<>();
+        for (int examId : examIds) {
+            List<SlotPreviewService.SlotOption> forExam = SlotPreviewService.preview(studentId, examId, k);
+            if (forExam.isEmpty())
+                throw new NoCapacityException(examId, "No slot is available for exam " + examId);
+            options.add(forExam);
+        }
+
+        // Most constrained exam first
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < examIds.size(); i++)
+            order.add(i);
+        order.sort(Comparator.comparingInt(i -> options.get(i).size()));
+
+        Search search = new Search(options, order);
+        search.run(0, 0);
+        if (search.best == null)
+            return null;
+        Map<Integer, SlotPreviewService.SlotOption> plan = new LinkedHashMap<>();
+        for (int i = 0; i < examIds.size(); i++)
+            plan.put(examIds.get(i), search.best[i]);
+        return plan;
+    }
+
+    private static final class Search {
+        final List<List<SlotPreviewService.SlotOption>> options;
+        final List<Integer> order;
+        final SlotPreviewService.SlotOption[] chosen;
+        SlotPreviewService.SlotOption[] best;
+        double bestScore = Double.POSITIVE_INFINITY;
+        int nodes;
+
+        Search(List<List<SlotPreviewService.SlotOption>> options, List<Integer> order) {
+            this.options = options;
+            this.order = order;
+            this.chosen = new SlotPreviewService.SlotOption[options.size()];
+        }
+
+        void run(int depth, double score) {
+            if (score >= bestScore || ++nodes > MAX_NODES)
+                return;
+            if (depth == order.size()) {
+                best = chosen.clone();
+                bestScore = score;
+                return;
+            }
+            int exam = order.get(depth);
+            // Options come best first, so the first complete plan is already good
+            // and bounds the rest of the search
+            for (SlotPreviewService.SlotOption option : options.get(exam)) {
+                if (clashes(option, depth))
+                    continue;
+                chosen[exam] = option;
+                run(depth + 1, score + option.score());
+                chosen[exam] = null;
+            }
+        }
+
+        private boolean clashes(SlotPreviewService.SlotOption option, int depth) {
+            for (int d = 0; d < depth; d++) {
+                SlotPreviewService.SlotOption other = chosen[order.get(d)];
+                if (overlaps(option, other))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    // The student cannot sit two exams at once; this also keeps two new sessions
+    // from claiming the same room at the same time
+    static boolean overlaps(SlotPreviewService.SlotOption a, SlotPreviewService.SlotOption b) {
+        if (!a.date().equals(b.date()))
+            return false;
+        LocalDateTime aStart = a.date().atTime(a.start());
+        LocalDateTime bStart = b.date().atTime(b.start());
+        LocalDateTime aEnd = aStart.plusMinutes(minutes(a));
+        LocalDateTime bEnd = bStart.plusMinutes(minutes(b));
+        return aStart.isBefore(bEnd) && bStart.isBefore(aEnd);
+    }
+
+    private static long minutes(SlotPreviewService.SlotOption o) {
+        long m = java.time.Duration.between(o.start(), o.end()).toMinutes();
+        return m > 0 ? m : m + 24 * 60; // session running past midnight
+    }
+}
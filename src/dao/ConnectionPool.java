@@ -0,0 +1,172 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded pool of JDBC connections.
+ *
+ * At most maxSize connections exist at once; a borrower beyond that waits up
+ * to the borrow timeout and then gets an SQLTransientConnectionException
+ * instead of opening yet another server connection. Borrowers receive a proxy
+ * whose close() hands the physical connection back (rolled back and in
+ * auto-commit mode) rather than closing it, so the DAOs' try-with-resources
+ * blocks work unchanged. Events committed on a borrowed connection are
+ * delivered when it is returned (see {@link EventBus}).
+ *
+ * Only a Semaphore and a lock-free deque guard the pool, so virtual threads
+ * waiting for a connection never pin their carrier.
+ */
+public final class ConnectionPool {
+
+    /** Opens a new physical connection for the pool. */
+    interface Opener {
+        Connection open() throws SQLException;
+    }
+
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final Opener opener;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+
+    /** Pool of connections to the primary database. */
+    public ConnectionPool(int maxSize, long borrowTimeoutMillis) {
+        this(maxSize, borrowTimeoutMillis, DatabaseConnection::openPhysical);
+    }
+
+    ConnectionPool(int maxSize, long borrowTimeoutMillis, Opener opener) {
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.opener = opener;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /** Connections currently lent out. */
+    public int inUse() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /** Borrows a connection; close() it to return it. */
+    public Connection borrow() throws SQLException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException(
+                        "No database connection free within " + borrowTimeoutMillis + " ms (pool of " + maxSize + ")");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection");
+        }
+        try {
+            return wrap(takePhysical());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Closes the idle connections; lent ones close when returned. */
+    public void shutdown() {
+        Connection c;
+        while ((c = idle.pollFirst()) != null)
+            closeQuietly(c);
+    }
+
+    // Most recently returned first: its server session is the least likely to
+    // have timed out
+    private Connection takePhysical() throws SQLException {
+        Connection c;
+        while ((c = idle.pollFirst()) != null) {
+            if (c.isValid(1))
+                return c;
+            closeQuietly(c);
+        }
+        return opener.open();
+    }
+
+    private void giveBack(Connection physical, Connection proxy) {
+        try {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            idle.offerFirst(physical);
+        } catch (SQLException e) {
+            closeQuietly(physical);
+        } finally {
+            // Events held for a transaction the borrower never committed
+            EventBus.discard(proxy);
+            permits.release();
+        }
+        // Committed events wait until the connection is back, so listeners that
+        // borrow one of their own never queue behind their publisher
+        EventBus.released(proxy);
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new Lease(physical));
+    }
+
+    /** True when conn was borrowed from a pool (its close() returns it). */
+    static boolean isPooled(Connection conn) {
+        return conn != null && Proxy.isProxyClass(conn.getClass())
+                && Proxy.getInvocationHandler(conn) instanceof Lease;
+    }
+
+    // One borrow of a physical connection; close() gives it back once
+    private final class Lease implements InvocationHandler {
+        private final Connection physical;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        Lease(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true))
+                        giveBack(physical, (Connection) proxy);
+                    return null;
+                case "isClosed":
+                    return returned.get() || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "pooled " + physical;
+                default:
+                    if (returned.get())
+                        throw new SQLException("Connection already returned to the pool");
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
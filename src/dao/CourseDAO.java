@@ -7,9 +7,11 @@ import java.util.List;
 
 public class CourseDAO {
 
+    private static final Log LOG = Log.get(CourseDAO.class);
+
     public List<Course> getAllCourses() {
         List<Course> list = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             String sql = "SELECT * FROM courses";
             PreparedStatement stmt = conn.prepareStatement(sql);
             ResultSet rs = stmt.executeQuery();
@@ -19,7 +21,7 @@ public class CourseDAO {
             }
 
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("Error fetching courses", e);
         }
         return list;
     }
@@ -36,8 +38,7 @@ public class CourseDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("Error fetching course by ID: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error fetching course by ID: {}", e.getMessage(), e);
         }
         return null;
     }
@@ -0,0 +1,67 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Course id to name dictionary, loaded in one query and shared by the views
+ * that label exams with their course, instead of a getCourseById round-trip
+ * per row.
+ *
+ * Courses are only added through the database, so an unknown id triggers a
+ * reload (at most once per RELOAD_INTERVAL_MS) to pick new ones up.
+ */
+public final class CourseNameCache {
+
+    private static final Log LOG = Log.get(CourseNameCache.class);
+    private static final long RELOAD_INTERVAL_MS = 5_000;
+
+    private static volatile Map<Integer, String> names;
+    private static volatile long loadedAt;
+
+    private CourseNameCache() {
+    }
+
+    /** The course's name, or null when there is no such course. */
+    public static String name(int courseId) {
+        Map<Integer, String> snapshot = names;
+        if (snapshot == null || (!snapshot.containsKey(courseId) && stale())) {
+            snapshot = reload();
+        }
+        return snapshot.get(courseId);
+    }
+
+    /** Drops the dictionary; the next lookup reloads it. */
+    public static void invalidate() {
+        names = null;
+    }
+
+    private static boolean stale() {
+        return System.nanoTime() - loadedAt > TimeUnit.MILLISECONDS.toNanos(RELOAD_INTERVAL_MS);
+    }
+
+    private static synchronized Map<Integer, String> reload() {
+        Map<Integer, String> current = names;
+        if (current != null && !stale())
+            return current; // another thread just reloaded
+        Map<Integer, String> loaded = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement("SELECT id, name FROM courses");
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                loaded.put(rs.getInt("id"), rs.getString("name"));
+            }
+        } catch (SQLException e) {
+            LOG.error("Error loading course names: {}", e.getMessage(), e);
+            return current != null ? current : Map.of();
+        }
+        names = loaded;
+        loadedAt = System.nanoTime();
+        return loaded;
+    }
+}
@@ -3,35 +3,115 @@ package dao;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/exam_enrollment?useSSL=false&serverTimezone=UTC";
-    private static final String USER = "root";
-    private static final String PASSWORD = "";
+
+    private static final Log LOG = Log.get(DatabaseConnection.class);
+    // Backend (MySQL server or embedded H2) is chosen by configuration, see
+    // StorageBackend
+    private static final StorageBackend BACKEND = StorageBackend.active();
+    private static final String URL = BACKEND.url();
+    private static final String USER = BACKEND.user();
+    private static final String PASSWORD = BACKEND.password();
 
     static {
         try {
-            // Try to load the MySQL JDBC Driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            System.out.println("✅ MySQL JDBC Driver loaded successfully!");
+            // Try to load the JDBC Driver for the configured backend
+            Class.forName(BACKEND.getDriverClass());
+            LOG.info("✅ JDBC Driver loaded successfully! ({})", BACKEND);
         } catch (ClassNotFoundException e) {
-            System.out.println("❌ MySQL JDBC Driver not found! Make sure you added the MySQL Connector/J JAR file.");
-            e.printStackTrace();
+            LOG.error("❌ JDBC Driver {} not found! Make sure the driver JAR for the {} backend is on the classpath.",
+                    BACKEND.getDriverClass(), BACKEND, e);
+        }
+    }
+
+    // Set by servers that must bound their connection count (see usePool)
+    private static volatile ConnectionPool pool;
+
+    public static StorageBackend getBackend() {
+        return BACKEND;
+    }
+
+    /**
+     * Routes every getConnection() in this JVM through a bounded pool of
+     * maxSize connections (and replica reads through a second pool of the same
+     * size). Desktop clients keep opening one per call.
+     */
+    public static synchronized ConnectionPool usePool(int maxSize, long borrowTimeoutMillis) {
+        if (pool == null) {
+            pool = new ConnectionPool(maxSize, borrowTimeoutMillis);
+            ReplicaRouter.usePool(maxSize, borrowTimeoutMillis);
         }
+        return pool;
     }
 
+    public static ConnectionPool getPool() {
+        return pool;
+    }
+
+    static Connection openPhysical() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    /**
+     * Opens (or, when pooled, borrows) a connection; null if the database
+     * cannot be reached. A pool with no connection free throws
+     * {@link PoolExhaustedException} instead, so callers can tell saturation
+     * from an outage.
+     */
     public static Connection getConnection() {
+        ConnectionPool p = pool;
+        if (p != null) {
+            try {
+                return p.borrow();
+            } catch (SQLTransientConnectionException e) {
+                LOG.debug("Connection pool exhausted: {}", e.getMessage());
+                throw new PoolExhaustedException(e);
+            } catch (SQLException e) {
+                LOG.error("❌ Database connection failed: {}", e.getMessage());
+                return null;
+            }
+        }
         try {
-            Connection connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("✅ Connected to MySQL database successfully!");
+            Connection connection = openPhysical();
+            // Every DAO call opens a connection: keep this off the console by default
+            LOG.debug("✅ Connected to {} database", BACKEND);
             return connection;
         } catch (SQLException e) {
-            System.out.println("❌ Database connection failed: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("❌ Database connection failed: {}", e.getMessage(), e);
             return null;
         }
     }
 
+    /** Connection to the primary, for anything that writes. Same as getConnection(). */
+    public static Connection getWriteConnection() {
+        return getConnection();
+    }
+
+    /**
+     * Connection for read-only queries (lists, dashboards, history). Goes to the
+     * replica when one is configured and {@link ReplicaRouter} considers it
+     * current enough, otherwise to the primary. Never write through it.
+     */
+    public static Connection getReadConnection() {
+        if (ReplicaRouter.useReplica()) {
+            Connection replica = ReplicaRouter.connect();
+            if (replica != null)
+                return replica;
+        }
+        return getConnection();
+    }
+
+    // Lock wait timeouts, deadlock victims and dropped connections can simply run again
+    static boolean isTransient(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || (state != null && state.startsWith("40"));
+    }
+
     public static void main(String[] args) {
         // Test the connection directly
         Connection conn = getConnection();
@@ -1,41 +1,625 @@
 package dao;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class DatabaseSetup {
 
+    private static final Log LOG = Log.get(DatabaseSetup.class);
+
+    // DDL differences (ENUM columns, date arithmetic) come from the active backend
+    private static final StorageBackend DIALECT = DatabaseConnection.getBackend();
+
+    /**
+     * Bumped whenever the DDL below changes. Startup compares it with the value
+     * stored in app_meta and skips every table/column probe when they match.
+     */
+    public static final int SCHEMA_VERSION = 16;
+
+    private static CompletableFuture<Void> initialization;
+    // Set once a schema check has finished without error
+    private static volatile boolean ready;
+
+    /**
+     * Starts the schema check on a background thread (once per JVM, or again
+     * after one that failed) so the login window can show immediately.
+     */
+    public static synchronized CompletableFuture<Void> initializeAsync() {
+        if (initialization == null || (initialization.isDone() && !ready)) {
+            initialization = CompletableFuture.runAsync(
+                    () -> StartupTimer.time("DatabaseSetup.ensureSchema", DatabaseSetup::ensureSchema),
+                    task -> {
+                        Thread t = new Thread(task, "schema-init");
+                        t.setDaemon(true);
+                        t.start();
+                    });
+        }
+        return initialization;
+    }
+
+    /**
+     * Blocks until the schema check has finished. Call before the first query on
+     * a path that can run during startup (login, registration), off the event
+     * dispatch thread. Returns false if the database could not be reached or
+     * set up; the next call then checks again.
+     */
+    public static boolean awaitReady() {
+        try {
+            initializeAsync().join();
+        } catch (CompletionException e) {
+            LOG.error("❌ Database initialization failed", e.getCause());
+        }
+        return ready;
+    }
+
+    /** Creates/migrates the schema unless the stored version is already current. */
+    public static void ensureSchema() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                return;
+            createMetaTable(conn);
+            int stored = readSchemaVersion(conn);
+            if (stored >= SCHEMA_VERSION) {
+                LOG.info("✅ Schema version {} is current, skipping table checks", stored);
+                ready = true;
+                return;
+            }
+            if (stored < 1) {
+                createTables(conn);
+                new AdminDAO().createAdminTableIfNotExists();
+            }
+            if (stored < 2) {
+                createChangeLogTable(conn);
+            }
+            if (stored < 3) {
+                createWaitlistTable(conn);
+            }
+            if (stored < 4) {
+                createSchedulingJobsTable(conn);
+            }
+            if (stored < 5) {
+                createScheduleLocksTable(conn);
+            }
+            if (stored < 6) {
+                createReplicaHeartbeatTable(conn);
+            }
+            if (stored < 7) {
+                createSeatHoldsTable(conn);
+            }
+            if (stored < 8) {
+                createRoomOutagesTable(conn);
+            }
+            if (stored < 9) {
+                addSeatLimitColumn(conn);
+            }
+            if (stored < 10) {
+                createArchiveTables(conn);
+            }
+            if (stored < 11) {
+                createRevenueTables(conn);
+            }
+            if (stored < 12) {
+                addPaymentReferenceKey(conn);
+            }
+            if (stored < 13) {
+                createStudentSummaryTable(conn);
+            }
+            if (stored < 14) {
+                addSummaryVersionColumns(conn);
+            }
+            if (stored < 15) {
+                addWaitlistOutcomes(conn);
+            }
+            if (stored < 16) {
+                addJobConflictStatus(conn);
+            }
+            writeSchemaVersion(conn, SCHEMA_VERSION);
+            ready = true;
+            LOG.info("✅ Schema upgraded from version {} to {}", stored, SCHEMA_VERSION);
+        } catch (SQLException e) {
+            LOG.error("❌ Error setting up database: {}", e.getMessage(), e);
+        }
+    }
+
     public static void createTablesIfNotExist() {
         try (Connection conn = DatabaseConnection.getConnection()) {
             if (conn != null) {
-                createAdminsTable(conn);
-                createRoomsTable(conn);
-                createExamSchedulesTable(conn);
-                createStudentExamsTable(conn);
-                createPaymentsTable(conn);
-                updateExamsTable(conn);
-                insertSampleData(conn);
-                System.out.println("✅ Database setup completed successfully!");
+                createTables(conn);
             }
         } catch (SQLException e) {
-            System.err.println("❌ Error setting up database: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("❌ Error setting up database: {}", e.getMessage(), e);
         }
     }
 
-    private static void createAdminsTable(Connection conn) throws SQLException {
+    private static void createTables(Connection conn) throws SQLException {
+        createCoursesTable(conn);
+        createExamsTable(conn);
+        createStudentsTable(conn);
+        createAdminsTable(conn);
+        createRoomsTable(conn);
+        createTimeSlotsTable(conn);
+        createExamSchedulesTable(conn);
+        createStudentExamsTable(conn);
+        createPaymentsTable(conn);
+        updateExamsTable(conn);
+        insertSampleData(conn);
+        LOG.info("✅ Database setup completed successfully!");
+    }
+
+    // Read by ChangeLogPoller on every workstation; rows older than a day are pruned
+    private static void createChangeLogTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS change_log (
+                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                        event_type VARCHAR(32) NOT NULL,
+                        change_kind VARCHAR(16),
+                        entity_id INT,
+                        student_id INT,
+                        ref_id INT,
+                        amount DECIMAL(10,2),
+                        origin VARCHAR(64) NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        INDEX idx_change_log_created (created_at)
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Change log table created/verified");
+        }
+    }
+
+    // Students waiting for a seat; WaitlistService promotes them highest priority
+    // first, then in arrival order
+    private static void createWaitlistTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS exam_waitlist (
+                        id INT AUTO_INCREMENT PRIMARY KEY,
+                        exam_id INT NOT NULL,
+                        student_id INT NOT NULL,
+                        priority INT NOT NULL DEFAULT 0,
+                        fee DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+                        status %s NOT NULL DEFAULT 'Waiting',
+                        registration_id INT,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        promoted_at TIMESTAMP NULL,
+                        UNIQUE KEY uq_waitlist_exam_student (exam_id, student_id),
+                        INDEX idx_waitlist_queue (exam_id, status, priority, id),
+                        FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
+                        FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
+                    )
+                """.formatted(DIALECT.enumType("Waiting", "Promoted", "Lapsed", "Cancelled"));
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Exam waitlist table created/verified");
+        }
+    }
+
+    // Enrollment requests for headless SchedulingWorker processes; clients insert
+    // Queued rows and poll them until a worker records the outcome
+    private static void createSchedulingJobsTable(Connection conn) throws SQLException {
         String sql = """
+                    CREATE TABLE IF NOT EXISTS scheduling_jobs (
+                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                        student_id INT NOT NULL,
+                        exam_id INT NOT NULL,
+                        fee DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+                        status %s NOT NULL DEFAULT 'Queued',
+                        worker VARCHAR(64),
+                        attempts INT NOT NULL DEFAULT 0,
+                        registration_id INT,
+                        schedule_id INT,
+                        scheduled_date DATE,
+                        scheduled_time TIME,
+                        room_name VARCHAR(100),
+                        message VARCHAR(255),
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        claimed_at TIMESTAMP NULL,
+                        finished_at TIMESTAMP NULL,
+                        INDEX idx_scheduling_jobs_claim (status, exam_id, id),
+                        FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
+                        FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
+                    )
+                """.formatted(DIALECT.enumType("Queued", "Running", "Done", "NoCapacity", "Failed"));
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Scheduling jobs table created/verified");
+        }
+    }
+
+    // One row per (date, room stripe); ScheduleLocks holds it FOR UPDATE while a
+    // transaction decides whether a room is free and books it
+    private static void createScheduleLocksTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS schedule_locks (
+                        lock_date DATE NOT NULL,
+                        stripe INT NOT NULL,
+                        PRIMARY KEY (lock_date, stripe)
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            // The locked re-check reads a room's sessions for one day
+            addIndexIfMissing(conn, "exam_schedules", "idx_exam_schedules_room_date", "room_id, scheduled_date");
+            LOG.info("✅ Schedule locks table created/verified");
+        }
+    }
+
+    // One row per running instance; ReplicaRouter reads its own row back from the
+    // replica to measure replication lag
+    private static void createReplicaHeartbeatTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS replica_heartbeat (
+                        instance_id VARCHAR(36) PRIMARY KEY,
+                        seq BIGINT NOT NULL,
+                        beat_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Replica heartbeat table created/verified");
+        }
+    }
+
+    // Seats reserved for a few minutes while a student confirms a slot picked
+    // from SlotPreviewService; created_session marks sessions made for the hold
+    private static void createSeatHoldsTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS seat_holds (
+                        id INT AUTO_INCREMENT PRIMARY KEY,
+                        student_id INT NOT NULL,
+                        exam_id INT NOT NULL,
+                        exam_schedule_id INT NOT NULL,
+                        created_session TINYINT NOT NULL DEFAULT 0,
+                        expires_at TIMESTAMP NOT NULL,
+                        UNIQUE KEY uq_seat_holds_student_exam (student_id, exam_id),
+                        INDEX idx_seat_holds_schedule (exam_schedule_id, expires_at),
+                        INDEX idx_seat_holds_expiry (expires_at),
+                        FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE,
+                        FOREIGN KEY (exam_schedule_id) REFERENCES exam_schedules(id) ON DELETE CASCADE
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Seat holds table created/verified");
+        }
+    }
+
+    // Date windows in which a room must not be booked; see RoomRelocationService
+    private static void createRoomOutagesTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS room_outages (
+                        id INT AUTO_INCREMENT PRIMARY KEY,
+                        room_id INT NOT NULL,
+                        from_date DATE NOT NULL,
+                        to_date DATE NOT NULL,
+                        reason VARCHAR(255),
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        INDEX idx_room_outages_room (room_id, from_date),
+                        FOREIGN KEY (room_id) REFERENCES rooms(id) ON DELETE CASCADE
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Room outages table created/verified");
+        }
+    }
+
+    // Session capacity becomes derived from the room (see SessionCapacity);
+    // sessions already smaller than their room keep that size as their limit
+    private static void addSeatLimitColumn(Connection conn) throws SQLException {
+        if (addColumnIfMissing(conn, "exam_schedules", "seat_limit", "INT")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE exam_schedules es SET seat_limit = capacity "
+                        + "WHERE capacity < (SELECT r.capacity FROM rooms r WHERE r.id = es.room_id)");
+            }
+        }
+        int fixed = SessionCapacity.refreshAll(conn);
+        LOG.info("✅ Session seat limits added, {} capacity value(s) corrected", fixed);
+    }
+
+    // Past sessions and their enrollments moved out by ScheduleArchiveJob. No
+    // foreign keys: archived rows outlive deleted exams, rooms and sessions
+    private static void createArchiveTables(Connection conn) throws SQLException {
+        String schedules = """
+                    CREATE TABLE IF NOT EXISTS exam_schedules_archive (
+                        id INT PRIMARY KEY,
+                        exam_id INT NOT NULL,
+                        room_id INT NOT NULL,
+                        scheduled_date DATE NOT NULL,
+                        scheduled_time TIME NOT NULL,
+                        duration_minutes INT NOT NULL,
+                        max_students INT NOT NULL,
+                        capacity INT NOT NULL,
+                        seat_limit INT,
+                        time_slot_id INT,
+                        status VARCHAR(20),
+                        created_at TIMESTAMP NULL,
+                        enrolled INT NOT NULL DEFAULT 0,
+                        archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        INDEX idx_schedules_archive_date (scheduled_date),
+                        INDEX idx_schedules_archive_exam (exam_id)
+                    )
+                """;
+        // schedule_exam_id is the session's exam, which the demand queries
+        // count by; exam_id is whatever the enrollment row carried
+        String enrollments = """
+                    CREATE TABLE IF NOT EXISTS student_exams_archive (
+                        id INT PRIMARY KEY,
+                        student_id INT NOT NULL,
+                        exam_id INT,
+                        exam_schedule_id INT NOT NULL,
+                        schedule_exam_id INT NOT NULL,
+                        scheduled_date DATE NOT NULL,
+                        status VARCHAR(20),
+                        is_paid TINYINT NOT NULL DEFAULT 0,
+                        score INT DEFAULT NULL,
+                        enrollment_date TIMESTAMP NULL,
+                        archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        INDEX idx_enrollments_archive_student (student_id),
+                        INDEX idx_enrollments_archive_exam (schedule_exam_id),
+                        INDEX idx_enrollments_archive_schedule (exam_schedule_id)
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(schedules);
+            stmt.executeUpdate(enrollments);
+            // The archive job and the completed-exam count both range over dates
+            addIndexIfMissing(conn, "exam_schedules", "idx_exam_schedules_date", "scheduled_date");
+            LOG.info("✅ Schedule archive tables created/verified");
+        }
+    }
+
+    // Enrollment fees as charged, and the revenue rollups RevenueRollups keeps
+    // in step with payments and charges; seeded from the existing payments
+    private static void createRevenueTables(Connection conn) throws SQLException {
+        String charges = """
+                    CREATE TABLE IF NOT EXISTS enrollment_charges (
+                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                        student_id INT NOT NULL,
+                        exam_id INT NOT NULL,
+                        amount DECIMAL(10,2) NOT NULL,
+                        charged_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        INDEX idx_enrollment_charges_date (charged_at),
+                        INDEX idx_enrollment_charges_student (student_id)
+                    )
+                """;
+        String rollup = """
+                    CREATE TABLE IF NOT EXISTS %s (
+                        %s DATE NOT NULL,
+                        source VARCHAR(10) NOT NULL,
+                        payment_method VARCHAR(50) NOT NULL DEFAULT '',
+                        exam_id INT NOT NULL DEFAULT 0,
+                        amount DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+                        txn_count INT NOT NULL DEFAULT 0,
+                        PRIMARY KEY (%2$s, source, payment_method, exam_id)
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(charges);
+            stmt.executeUpdate(rollup.formatted("revenue_daily", "revenue_day"));
+            stmt.executeUpdate(rollup.formatted("revenue_monthly", "revenue_month"));
+            addIndexIfMissing(conn, "payments", "idx_payments_created", "created_at");
+        }
+        int days = RevenueRollups.rebuild(conn, null, null);
+        LOG.info("✅ Revenue rollup tables created/verified, {} day(s) seeded", days);
+    }
+
+    // One payment per (method, reference); see PaymentService. Existing references
+    // are normalized first, and later repeats of one are renamed with a #DUP
+    // marker so they stay visible for review instead of blocking the key
+    private static void addPaymentReferenceKey(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE payments SET reference_no = UPPER(REPLACE(TRIM(reference_no), ' ', ''))");
+        }
+        List<Long> repeats = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, payment_method, reference_no FROM payments ORDER BY payment_method, reference_no, id");
+                ResultSet rs = ps.executeQuery()) {
+            String previous = null;
+            while (rs.next()) {
+                String key = rs.getString("payment_method") + "|" + rs.getString("reference_no");
+                if (key.equals(previous))
+                    repeats.add(rs.getLong("id"));
+                previous = key;
+            }
+        }
+        if (!repeats.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE payments SET reference_no = CONCAT(LEFT(reference_no, 70), '#DUP', id) WHERE id = ?")) {
+                for (long id : repeats) {
+                    ps.setLong(1, id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            LOG.warn("⚠️ {} repeated payment reference(s) marked with #DUP for review", repeats.size());
+        }
+        addIndexIfMissing(conn, "payments", "uq_payments_method_ref", "payment_method, reference_no", true);
+        LOG.info("✅ Payment reference key created/verified");
+    }
+
+    // The student dashboard header as one keyed row, see StudentSummary; rows
+    // are built on first read, so nothing is seeded
+    private static void createStudentSummaryTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS student_summary (
+                        student_id INT PRIMARY KEY,
+                        name VARCHAR(150),
+                        course_name VARCHAR(150),
+                        balance DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+                        enrolled INT NOT NULL DEFAULT 0,
+                        completed INT NOT NULL DEFAULT 0,
+                        pending INT NOT NULL DEFAULT 0,
+                        next_exam_name VARCHAR(150),
+                        next_exam_at TIMESTAMP NULL,
+                        next_room VARCHAR(100),
+                        stale_after TIMESTAMP NULL,
+                        version INT NOT NULL DEFAULT 0,
+                        built_version INT,
+                        FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Student summary table created/verified");
+        }
+    }
+
+    // Summaries are invalidated by bumping version after the change commits;
+    // rows from before have no built_version, so each is rebuilt on first read
+    private static void addSummaryVersionColumns(Connection conn) throws SQLException {
+        addColumnIfMissing(conn, "student_summary", "version", "INT NOT NULL DEFAULT 0");
+        addColumnIfMissing(conn, "student_summary", "built_version", "INT");
+        LOG.info("✅ Student summary version columns created/verified");
+    }
+
+    // WaitlistService marks entries whose every slot clashes with the student's
+    // timetable Conflict, and entries that hit a non-transient error Failed,
+    // instead of retrying them forever
+    private static void addWaitlistOutcomes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE exam_waitlist MODIFY status %s NOT NULL DEFAULT 'Waiting'"
+                    .formatted(DIALECT.enumType("Waiting", "Promoted", "Lapsed", "Cancelled", "Conflict", "Failed")));
+            LOG.info("✅ Waitlist outcome statuses added");
+        }
+    }
+
+    // A job whose every slot clashes with the student's timetable, told apart from a full exam
+    private static void addJobConflictStatus(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE scheduling_jobs MODIFY status %s NOT NULL DEFAULT 'Queued'"
+                    .formatted(DIALECT.enumType("Queued", "Running", "Done", "NoCapacity", "Conflict", "Failed")));
+            LOG.info("✅ Scheduling job conflict status added");
+        }
+    }
+
+    private static void createMetaTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS app_meta (
+                        meta_key VARCHAR(64) PRIMARY KEY,
+                        meta_value VARCHAR(255) NOT NULL
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    private static int readSchemaVersion(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT meta_value FROM app_meta WHERE meta_key = 'schema_version'");
+                ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                try {
+                    return Integer.parseInt(rs.getString(1).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static void writeSchemaVersion(Connection conn, int version) throws SQLException {
+        // UPDATE first, INSERT when missing: works on both backends without upsert syntax
+        try (PreparedStatement upd = conn.prepareStatement(
+                "UPDATE app_meta SET meta_value = ? WHERE meta_key = 'schema_version'")) {
+            upd.setString(1, String.valueOf(version));
+            if (upd.executeUpdate() > 0)
+                return;
+        }
+        try (PreparedStatement ins = conn.prepareStatement(
+                "INSERT INTO app_meta (meta_key, meta_value) VALUES ('schema_version', ?)")) {
+            ins.setString(1, String.valueOf(version));
+            ins.executeUpdate();
+        }
+    }
+
+    private static void createCoursesTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS courses (
+                        id INT AUTO_INCREMENT PRIMARY KEY,
+                        name VARCHAR(150) NOT NULL
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Courses table created/verified");
+        }
+    }
+
+    private static void createExamsTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS exams (
+                        id INT AUTO_INCREMENT PRIMARY KEY,
+                        exam_name VARCHAR(150) NOT NULL,
+                        course_id INT,
+                        duration VARCHAR(50),
+                        exam_date DATE,
+                        exam_time TIME
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Exams table created/verified");
+        }
+    }
+
+    static void createStudentsTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS students (
+                        id INT AUTO_INCREMENT PRIMARY KEY,
+                        name VARCHAR(150) NOT NULL,
+                        email VARCHAR(150) UNIQUE NOT NULL,
+                        password VARCHAR(255) NOT NULL,
+                        course_id INT,
+                        balance DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            // Add balance column if older table version
+            addColumnIfMissing(conn, "students", "balance", "DECIMAL(10,2) NOT NULL DEFAULT 0.00");
+            LOG.info("✅ Students table created/verified");
+        }
+    }
+
+    static String adminsTableSql() {
+        return """
                     CREATE TABLE IF NOT EXISTS admins (
                         id INT AUTO_INCREMENT PRIMARY KEY,
                         username VARCHAR(100) UNIQUE NOT NULL,
                         password VARCHAR(255) NOT NULL,
-                        role ENUM('admin', 'super_admin') DEFAULT 'admin',
+                        role %s DEFAULT 'admin',
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
                     )
-                """;
+                """.formatted(DIALECT.enumType("admin", "super_admin"));
+    }
+
+    private static void createAdminsTable(Connection conn) throws SQLException {
+        String sql = adminsTableSql();
 
         try (Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(sql);
-            System.out.println("✅ Admins table created/verified");
+            LOG.info("✅ Admins table created/verified");
         }
     }
 
@@ -51,7 +635,22 @@ public class DatabaseSetup {
 
         try (Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(sql);
-            System.out.println("✅ Rooms table created/verified");
+            LOG.info("✅ Rooms table created/verified");
+        }
+    }
+
+    private static void createTimeSlotsTable(Connection conn) throws SQLException {
+        String sql = """
+                    CREATE TABLE IF NOT EXISTS time_slots (
+                        id INT AUTO_INCREMENT PRIMARY KEY,
+                        start_time TIME NOT NULL,
+                        end_time TIME
+                    )
+                """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+            LOG.info("✅ Time slots table created/verified");
         }
     }
 
@@ -65,16 +664,19 @@ public class DatabaseSetup {
                         scheduled_time TIME NOT NULL,
                         duration_minutes INT NOT NULL DEFAULT 120,
                         max_students INT NOT NULL DEFAULT 30,
-                        status ENUM('Scheduled', 'In Progress', 'Completed', 'Cancelled') DEFAULT 'Scheduled',
+                        capacity INT NOT NULL DEFAULT 30,
+                        seat_limit INT,
+                        time_slot_id INT,
+                        status %s DEFAULT 'Scheduled',
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                         FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
                         FOREIGN KEY (room_id) REFERENCES rooms(id) ON DELETE CASCADE
                     )
-                """;
+                """.formatted(DIALECT.enumType("Scheduled", "In Progress", "Completed", "Cancelled"));
 
         try (Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(sql);
-            System.out.println("✅ Exam schedules table created/verified");
+            LOG.info("✅ Exam schedules table created/verified");
         }
     }
 
@@ -83,19 +685,23 @@ public class DatabaseSetup {
                     CREATE TABLE IF NOT EXISTS student_exams (
                         id INT AUTO_INCREMENT PRIMARY KEY,
                         student_id INT NOT NULL,
-                        exam_id INT NOT NULL,
-                        status ENUM('Pending', 'Approved', 'Completed', 'Cancelled') DEFAULT 'Pending',
+                        exam_id INT,
+                        exam_schedule_id INT,
+                        status %s DEFAULT 'Pending',
+                        is_paid TINYINT NOT NULL DEFAULT 0,
                         score INT DEFAULT NULL,
                         enrollment_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                         FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE,
                         FOREIGN KEY (exam_id) REFERENCES exams(id) ON DELETE CASCADE,
-                        UNIQUE KEY unique_enrollment (student_id, exam_id)
+                        FOREIGN KEY (exam_schedule_id) REFERENCES exam_schedules(id) ON DELETE CASCADE,
+                        UNIQUE KEY unique_enrollment (student_id, exam_id),
+                        INDEX idx_student_exams_schedule (exam_schedule_id)
                     )
-                """;
+                """.formatted(DIALECT.enumType("Pending", "Enrolled", "Approved", "Completed", "Cancelled"));
 
         try (Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(sql);
-            System.out.println("✅ Student exams table created/verified");
+            LOG.info("✅ Student exams table created/verified");
         }
     }
 
@@ -109,38 +715,75 @@ public class DatabaseSetup {
                         reference_no VARCHAR(100) NOT NULL,
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                         FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE,
-                        INDEX idx_payments_student_id (student_id)
+                        INDEX idx_payments_student_id (student_id),
+                        UNIQUE KEY uq_payments_method_ref (payment_method, reference_no)
                     )
                 """;
 
         try (Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(sql);
-            System.out.println("✅ Payments table created/verified");
+            LOG.info("✅ Payments table created/verified");
         }
     }
 
     private static void updateExamsTable(Connection conn) throws SQLException {
-        // Check if course_id column exists
-        String checkSql = """
-                    SELECT COUNT(*)
-                    FROM information_schema.COLUMNS
-                    WHERE TABLE_SCHEMA = DATABASE()
-                    AND TABLE_NAME = 'exams'
-                    AND COLUMN_NAME = 'course_id'
-                """;
+        // Add course_id column if it doesn't exist
+        if (addColumnIfMissing(conn, "exams", "course_id", "INT")) {
+            LOG.info("✅ Added course_id column to exams table");
+        }
+    }
+
+    /**
+     * Checks for a column through JDBC metadata, which works on every backend
+     * (information_schema layouts differ between MySQL and H2).
+     */
+    public static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String t : new String[] { table, table.toUpperCase() }) {
+            try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, t, null)) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME")))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
 
+    /** Adds a column when an older table version lacks it; returns true if added. */
+    public static boolean addColumnIfMissing(Connection conn, String table, String column, String definition)
+            throws SQLException {
+        if (columnExists(conn, table, column))
+            return false;
         try (Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery(checkSql);
-            rs.next();
-            int count = rs.getInt(1);
+            stmt.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+        return true;
+    }
 
-            if (count == 0) {
-                // Add course_id column if it doesn't exist
-                String alterSql = "ALTER TABLE exams ADD COLUMN course_id INT";
-                stmt.executeUpdate(alterSql);
-                System.out.println("✅ Added course_id column to exams table");
+    /** Creates a secondary index unless one with that name already exists. */
+    public static boolean addIndexIfMissing(Connection conn, String table, String index, String columns)
+            throws SQLException {
+        return addIndexIfMissing(conn, table, index, columns, false);
+    }
+
+    /** As above, optionally as a UNIQUE index. */
+    public static boolean addIndexIfMissing(Connection conn, String table, String index, String columns,
+            boolean unique) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String t : new String[] { table, table.toUpperCase() }) {
+            try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, t, false, false)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME")))
+                        return false;
+                }
             }
         }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + index + " ON " + table + " ("
+                    + columns + ")");
+        }
+        return true;
     }
 
     private static void insertSampleData(Connection conn) throws SQLException {
@@ -162,7 +805,7 @@ public class DatabaseSetup {
                             ('Conference Room 2', 15)
                         """;
                 stmt.executeUpdate(insertRooms);
-                System.out.println("✅ Sample rooms inserted");
+                LOG.info("✅ Sample rooms inserted");
             }
         }
     }
@@ -0,0 +1,50 @@
+package dao;
+
+/**
+ * Change notifications published on the {@link EventBus} by the DAOs and
+ * SchedulingService. Each event carries just enough ids for a view to update
+ * the affected row instead of reloading its whole table.
+ */
+public sealed interface DomainEvent {
+
+    enum ChangeKind {
+        ADDED, UPDATED, DELETED
+    }
+
+    /** A student was enrolled into an exam session. */
+    record EnrollmentCreated(int studentId, int registrationId, int examScheduleId) implements DomainEvent {
+    }
+
+    /** An enrollment was cancelled or removed. */
+    record EnrollmentCancelled(int studentId, int registrationId, int examScheduleId) implements DomainEvent {
+    }
+
+    /** A new exam session (exam_schedules row) was created. */
+    record ScheduleCreated(int scheduleId, int examId) implements DomainEvent {
+    }
+
+    /** An exam session moved to another room or had its capacity changed. */
+    record ScheduleChanged(int scheduleId, int examId) implements DomainEvent {
+    }
+
+    /** An exam session was deleted. */
+    record ScheduleDeleted(int scheduleId) implements DomainEvent {
+    }
+
+    /** A student's wallet balance changed by delta. */
+    record BalanceChanged(int studentId, double delta) implements DomainEvent {
+    }
+
+    record RoomChanged(ChangeKind kind, int roomId) implements DomainEvent {
+    }
+
+    record ExamChanged(ChangeKind kind, int examId) implements DomainEvent {
+    }
+
+    record StudentChanged(ChangeKind kind, int studentId) implements DomainEvent {
+    }
+
+    /** A student joined the waitlist of a full exam. */
+    record WaitlistJoined(int waitlistId, int studentId, int examId) implements DomainEvent {
+    }
+}
@@ -0,0 +1,179 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Paid enrollment of a student into an exam: charges the fee and places the
+ * student through {@link SchedulingService#scheduleAndEnrollExam} (or into the
+ * slot they held with {@link SlotPreviewService}) in one transaction, so a
+ * failed placement never keeps the money. Shared by the
+ * Swing enrollment panel and the HTTP API.
+ *
+ * Every enrollment first takes a turn from {@link AdmissionController#enrollment()},
+ * so bursts queue (or are shed) before they reach the database.
+ */
+public final class EnrollmentService {
+
+    /** Fee charged per exam enrollment. */
+    public static final double EXAM_FEE = 150;
+
+    private EnrollmentService() {
+    }
+
+    /**
+     * Enrolls the student, charging fee. Throws {@link NoCapacityException}
+     * when no seat fits (the exam's waitlist can be offered instead) and
+     * {@link InsufficientBalanceException} when the balance is too low.
+     */
+    public static SchedulingService.AssignmentResult enroll(int studentId, int examId, double fee)
+            throws SQLException {
+        return enroll("student:" + studentId, studentId, examId, fee, null);
+    }
+
+    /**
+     * As {@link #enroll(int, int, double)}, rate limited per clientKey;
+     * positionListener hears the queue position while the request waits for
+     * admission (0 once it runs). Throws {@link AdmissionRejectedException}
+     * when the request is shed.
+     */
+    public static SchedulingService.AssignmentResult enroll(String clientKey, int studentId, int examId, double fee,
+            IntConsumer positionListener) throws SQLException {
+        return admitted(clientKey, positionListener, () -> enrollNow(studentId, examId, fee));
+    }
+
+    /**
+     * Enrolls the student into the session held for them by
+     * {@link SlotPreviewService#hold}, charging fee; admitted like
+     * {@link #enroll(String, int, int, double, IntConsumer)}. Fails if the hold
+     * has expired.
+     */
+    public static SchedulingService.AssignmentResult enrollHeld(String clientKey, int studentId, int holdId,
+            double fee, IntConsumer positionListener) throws SQLException {
+        return admitted(clientKey, positionListener, () -> chargeAndPlace(studentId, fee,
+                conn -> List.of(SlotPreviewService.heldExamId(studentId, holdId, conn)),
+                conn -> SlotPreviewService.enrollHeld(studentId, holdId, conn)));
+    }
+
+    /**
+     * Enrolls the student into every exam in examIds at once, charging feeEach
+     * per exam in a single debit. The slots are chosen jointly by
+     * {@link CheckoutPlanner} so no two overlap, then taken in one short
+     * transaction: either all enrollments happen or none. Results are in
+     * examIds order. If a planned seat is taken between planning and commit,
+     * the cart is planned again once on fresh data.
+     */
+    public static List<SchedulingService.AssignmentResult> checkout(String clientKey, int studentId,
+            List<Integer> examIds, double feeEach, IntConsumer positionListener) throws SQLException {
+        return admitted(clientKey, positionListener, () -> {
+            for (int attempt = 1;; attempt++) {
+                Map<Integer, SlotPreviewService.SlotOption> plan = CheckoutPlanner.plan(studentId, examIds);
+                try {
+                    return chargeAndPlace(studentId, feeEach * examIds.size(), conn -> examIds,
+                            conn -> placeAll(studentId, plan, conn));
+                } catch (NoCapacityException e) {
+                    if (attempt >= 2)
+                        throw e;
+                    SlotPreviewService.invalidate();
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Admitted<T> {
+        T run() throws SQLException;
+    }
+
+    // Runs work holding a turn from the enrollment admission controller
+    private static <T> T admitted(String clientKey, IntConsumer positionListener, Admitted<T> work)
+            throws SQLException {
+        AdmissionController.Permit permit = AdmissionController.enrollment().acquire(clientKey, positionListener);
+        try {
+            return work.run();
+        } finally {
+            permit.close();
+        }
+    }
+
+    // Locks in a fixed order, room partitions (date, stripe) before session rows
+    // by id, so two checkouts never wait on each other in a cycle
+    private static List<SchedulingService.AssignmentResult> placeAll(int studentId,
+            Map<Integer, SlotPreviewService.SlotOption> plan, Connection conn) throws SQLException {
+        List<SlotPreviewService.SlotOption> ordered = new ArrayList<>(plan.values());
+        ordered.sort(Comparator.comparing((SlotPreviewService.SlotOption o) -> !o.isNew())
+                .thenComparing(SlotPreviewService.SlotOption::date)
+                .thenComparingInt(o -> ScheduleLocks.stripeOf(o.roomId()))
+                .thenComparingInt(SlotPreviewService.SlotOption::scheduleId));
+        Map<Integer, SchedulingService.AssignmentResult> byExam = new HashMap<>();
+        for (SlotPreviewService.SlotOption option : ordered)
+            byExam.put(option.examId(), SlotPreviewService.place(studentId, option, conn));
+        List<SchedulingService.AssignmentResult> results = new ArrayList<>();
+        for (int examId : plan.keySet())
+            results.add(byExam.get(examId));
+        return results;
+    }
+
+    @FunctionalInterface
+    private interface Placement<T> {
+        T place(Connection conn) throws SQLException;
+    }
+
+    private static SchedulingService.AssignmentResult enrollNow(int studentId, int examId, double fee)
+            throws SQLException {
+        return chargeAndPlace(studentId, fee, conn -> List.of(examId),
+                conn -> SchedulingService.scheduleAndEnrollExam(studentId, examId, conn));
+    }
+
+    // chargedExams names the exams the fee pays for, split evenly, for the revenue rollups
+    private static <T> T chargeAndPlace(int studentId, double fee, Placement<List<Integer>> chargedExams,
+            Placement<T> placement) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            conn.setAutoCommit(false);
+            try {
+                List<Integer> charged = fee > 0 ? chargedExams.place(conn) : List.of();
+                if (fee > 0)
+                    charge(studentId, fee, charged, conn);
+                T placed = placement.place(conn);
+                for (int examId : charged)
+                    RevenueRollups.rollUpCharge(conn, examId, fee / charged.size());
+                conn.commit();
+                // Deliver the held balance/enrollment events now that they are durable
+                EventBus.afterCommit(conn);
+                return placed;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Conditional update: two concurrent enrollments cannot both spend the same balance
+    private static void charge(int studentId, double fee, List<Integer> examIds, Connection conn)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE students SET balance = balance - ? WHERE id = ? AND balance >= ?")) {
+            ps.setDouble(1, fee);
+            ps.setInt(2, studentId);
+            ps.setDouble(3, fee);
+            if (ps.executeUpdate() == 0)
+                throw new InsufficientBalanceException(studentId, "Insufficient balance for the ₱" + fee + " fee");
+        }
+        for (int examId : examIds)
+            RevenueRollups.recordCharge(conn, studentId, examId, fee / examIds.size());
+        ChangeLog.publish(conn, new DomainEvent.BalanceChanged(studentId, -fee));
+    }
+}
@@ -0,0 +1,158 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe for {@link DomainEvent}s.
+ *
+ * Listeners run on the publishing thread, so Swing views should hand events to
+ * the EDT (see views.EventCoalescer). Events raised inside a transaction are held
+ * per connection and only delivered once the owner calls {@link #afterCommit};
+ * {@link #discard} drops them after a rollback, so views never show changes
+ * that did not persist. On a connection borrowed from a {@link ConnectionPool}
+ * committed events are delivered only once it is returned: listeners may
+ * borrow a connection themselves, and must not wait for (or, in a saturated
+ * pool, deadlock on) the one their publisher still holds.
+ */
+public final class EventBus {
+
+    private static final Log LOG = Log.get(EventBus.class);
+
+    /** Handle returned by subscribe; close it to stop receiving events. */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private record Listener<E extends DomainEvent>(Class<E> type, Consumer<? super E> handler) {
+        void deliver(DomainEvent event) {
+            if (type.isInstance(event)) {
+                handler.accept(type.cast(event));
+            }
+        }
+    }
+
+    private static final List<Listener<?>> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Map<Connection, List<DomainEvent>> PENDING = new IdentityHashMap<>();
+    // Committed on a pooled connection, delivered when it is returned
+    private static final Map<Connection, List<DomainEvent>> COMMITTED = new IdentityHashMap<>();
+    private static final List<Consumer<DomainEvent>> DISCARD_HOOKS = new CopyOnWriteArrayList<>();
+    private static final List<BiConsumer<Connection, List<DomainEvent>>> COMMIT_HOOKS = new CopyOnWriteArrayList<>();
+
+    private EventBus() {
+    }
+
+    public static <E extends DomainEvent> Subscription subscribe(Class<E> type, Consumer<? super E> handler) {
+        Listener<E> listener = new Listener<>(type, handler);
+        LISTENERS.add(listener);
+        return () -> LISTENERS.remove(listener);
+    }
+
+    /** Delivers an event for a change that is already committed. */
+    public static void publish(DomainEvent event) {
+        for (Listener<?> listener : LISTENERS) {
+            try {
+                listener.deliver(event);
+            } catch (RuntimeException e) {
+                LOG.error("Event listener failed for {}: {}", event, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Publishes now when conn is in auto-commit mode, otherwise holds the event
+     * until {@link #afterCommit(Connection)}.
+     */
+    public static void publish(Connection conn, DomainEvent event) {
+        boolean autoCommit = true;
+        try {
+            autoCommit = conn == null || conn.getAutoCommit();
+        } catch (SQLException e) {
+            // Closed connection: treat as committed
+        }
+        if (autoCommit) {
+            List<DomainEvent> events = List.of(event);
+            COMMIT_HOOKS.forEach(hook -> hook.accept(conn, events));
+            deliver(conn, events);
+            return;
+        }
+        synchronized (PENDING) {
+            PENDING.computeIfAbsent(conn, c -> new ArrayList<>()).add(event);
+        }
+    }
+
+    /**
+     * Delivers the events held for conn (when a pooled conn is returned).
+     * Call right after conn.commit().
+     */
+    public static void afterCommit(Connection conn) {
+        List<DomainEvent> events;
+        synchronized (PENDING) {
+            events = PENDING.remove(conn);
+        }
+        if (events != null) {
+            COMMIT_HOOKS.forEach(hook -> hook.accept(conn, events));
+            deliver(conn, events);
+        }
+    }
+
+    /** Delivers the events committed on a pooled connection; called once it is returned. */
+    static void released(Connection conn) {
+        List<DomainEvent> events;
+        synchronized (PENDING) {
+            events = COMMITTED.remove(conn);
+        }
+        if (events != null)
+            events.forEach(EventBus::publish);
+    }
+
+    private static void deliver(Connection conn, List<DomainEvent> events) {
+        if (ConnectionPool.isPooled(conn)) {
+            synchronized (PENDING) {
+                COMMITTED.computeIfAbsent(conn, c -> new ArrayList<>()).addAll(events);
+            }
+            return;
+        }
+        events.forEach(EventBus::publish);
+    }
+
+    /** Drops the events held for conn. Call after conn.rollback(). */
+    public static void discard(Connection conn) {
+        List<DomainEvent> events;
+        synchronized (PENDING) {
+            events = PENDING.remove(conn);
+        }
+        if (events != null) {
+            events.forEach(event -> DISCARD_HOOKS.forEach(hook -> hook.accept(event)));
+        }
+    }
+
+    /**
+     * Registers a callback for events dropped by {@link #discard}, for caches that
+     * may have read the rolled-back rows through the same connection.
+     */
+    static void onDiscard(Consumer<DomainEvent> hook) {
+        DISCARD_HOOKS.add(hook);
+    }
+
+    /**
+     * Registers a callback run with the connection and the events whenever this
+     * JVM commits a change it publishes (not for changes re-published from
+     * other instances). It runs at commit, while the publisher still holds the
+     * connection, so it must not borrow another. The connection (null if the
+     * publisher had none) has just committed and may still be out of
+     * auto-commit; a hook that writes through it commits or rolls back its
+     * own work.
+     */
+    static void onCommitted(BiConsumer<Connection, List<DomainEvent>> hook) {
+        COMMIT_HOOKS.add(hook);
+    }
+}
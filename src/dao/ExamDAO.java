@@ -4,13 +4,53 @@ import models.Exam;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class ExamDAO {
 
+    private static final Log LOG = Log.get(ExamDAO.class);
+
+    /** An exam with its course name, as listed in the exam management grid. */
+    public record ExamListing(Exam exam, String courseName) {
+    }
+
+    private static final String LISTING_SQL = """
+            SELECT e.id, e.exam_name, e.course_id, e.duration, c.name AS course_name
+            FROM exams e
+            LEFT JOIN courses c ON c.id = e.course_id
+            ORDER BY e.exam_name
+            """;
+
+    /**
+     * Streams every exam with its course name to the consumer in one query, in
+     * exam name order. The connection is busy until the last row, so the
+     * consumer must not query the database itself.
+     */
+    public void forEachExamListing(Consumer<ExamListing> consumer) {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(LISTING_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(DatabaseConnection.getBackend().streamingFetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Exam exam = new Exam(
+                            rs.getInt("id"),
+                            rs.getString("exam_name"),
+                            rs.getInt("course_id"),
+                            rs.getString("duration"));
+                    String courseName = rs.getString("course_name");
+                    consumer.accept(new ExamListing(exam, courseName != null ? courseName : "Unknown"));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("Error listing exams: {}", e.getMessage(), e);
+        }
+    }
+
     // Get all exams (for admin)
     public List<Exam> getAllExams() {
         List<Exam> exams = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             String sql = "SELECT * FROM exams ORDER BY exam_name";
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(sql);
@@ -24,8 +64,7 @@ public class ExamDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("Error fetching all exams: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error fetching all exams: {}", e.getMessage(), e);
         }
         return exams;
     }
@@ -47,8 +86,7 @@ public class ExamDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("Error fetching exam by ID: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error fetching exam by ID: {}", e.getMessage(), e);
         }
         return null;
     }
@@ -58,18 +96,25 @@ public class ExamDAO {
         String sql = "INSERT INTO exams (exam_name, course_id, duration) VALUES (?, ?, ?)";
 
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, exam.getName());
             stmt.setInt(2, exam.getCourseId());
             stmt.setString(3, exam.getDuration());
 
             int result = stmt.executeUpdate();
+            try (ResultSet gk = stmt.getGeneratedKeys()) {
+                if (gk.next()) {
+                    exam.setId(gk.getInt(1));
+                }
+            }
+            if (result > 0) {
+                ChangeLog.publish(conn, new DomainEvent.ExamChanged(DomainEvent.ChangeKind.ADDED, exam.getId()));
+            }
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error adding exam: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error adding exam: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -87,11 +132,13 @@ public class ExamDAO {
             stmt.setInt(4, exam.getId());
 
             int result = stmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.publish(conn, new DomainEvent.ExamChanged(DomainEvent.ChangeKind.UPDATED, exam.getId()));
+            }
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error updating exam: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating exam: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -106,11 +153,13 @@ public class ExamDAO {
             stmt.setInt(1, examId);
 
             int result = stmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.publish(conn, new DomainEvent.ExamChanged(DomainEvent.ChangeKind.DELETED, examId));
+            }
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error deleting exam: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error deleting exam: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -118,7 +167,7 @@ public class ExamDAO {
     // Get available exams for student's course
     public List<Exam> getAvailableExams(int courseId) {
         List<Exam> exams = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             String sql = "SELECT * FROM exams WHERE course_id = ?";
             PreparedStatement stmt = conn.prepareStatement(sql);
             stmt.setInt(1, courseId);
@@ -132,7 +181,7 @@ public class ExamDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error fetching available exams", e);
         }
         return exams;
     }
@@ -146,21 +195,27 @@ public class ExamDAO {
             stmt.setInt(2, examId);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error registering exam", e);
             return false;
         }
     }
 
-    // Get student's exams with status
+    // Get student's exams with status, including those moved to the archive
     public List<String> getStudentExamHistory(int studentId) {
         List<String> history = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             String sql = "SELECT e.exam_name, e.exam_date, se.status, se.score " +
                     "FROM student_exams se " +
                     "JOIN exams e ON se.exam_id = e.id " +
-                    "WHERE se.student_id = ?";
+                    "WHERE se.student_id = ? " +
+                    "UNION ALL " +
+                    "SELECT e.exam_name, e.exam_date, sa.status, sa.score " +
+                    "FROM student_exams_archive sa " +
+                    "JOIN exams e ON sa.exam_id = e.id " +
+                    "WHERE sa.student_id = ?";
             PreparedStatement stmt = conn.prepareStatement(sql);
             stmt.setInt(1, studentId);
+            stmt.setInt(2, studentId);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -172,7 +227,7 @@ public class ExamDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error fetching exam history", e);
         }
         return history;
     }
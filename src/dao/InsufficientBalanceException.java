@@ -0,0 +1,23 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a student's balance cannot cover a fee. Nothing was charged or
+ * booked; the caller can ask the student to top up.
+ */
+public class InsufficientBalanceException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int studentId;
+
+    public InsufficientBalanceException(int studentId, String message) {
+        super(message);
+        this.studentId = studentId;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+}
@@ -0,0 +1,21 @@
+package dao;
+
+import java.util.List;
+
+/**
+ * The original heuristic: the room with the fewest sessions that day, larger
+ * rooms winning ties. Ignores demand, so small exams often land in large halls.
+ */
+public class LeastUsedRoomAllocator implements RoomAllocator {
+
+    @Override
+    public Room choose(List<Room> freeRooms, int demand, List<Integer> lookAhead) {
+        Room chosen = null;
+        for (Room room : freeRooms) {
+            if (chosen == null || room.usage() < chosen.usage()) {
+                chosen = room;
+            }
+        }
+        return chosen;
+    }
+}
@@ -0,0 +1,465 @@
+package dao;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Application logging. Callers get a logger per class and log with "{}"
+ * placeholders:
+ *
+ * private static final Log LOG = Log.get(RoomDAO.class);
+ * LOG.debug("Loaded {} rooms", rooms.size());
+ * LOG.error("Error loading room {}: {}", id, e.getMessage(), e);
+ *
+ * A Throwable after the last argument a placeholder uses is logged with its
+ * stack trace, as error(String, Throwable) does.
+ *
+ * A disabled level costs one int comparison. An enabled one copies the
+ * template and arguments into a lock-free ring buffer and returns; a single
+ * daemon thread formats the line and writes it to the console and/or a
+ * rolling file, so a slow terminal or disk never stalls a DAO call or the EDT.
+ * When the buffer is full the event is dropped and counted rather than
+ * blocking the caller. Arguments are formatted later on the writer thread, so
+ * pass values that are not mutated afterwards.
+ *
+ * Settings (system property / environment / db.properties, see
+ * {@link StorageBackend#setting}):
+ * - exam.log.level: threshold for all categories (default INFO; an
+ *   unknown level name also means INFO)
+ * - exam.log.level.CATEGORY: per-category switch; categories are class names
+ *   and a package prefix applies to all its classes (exam.log.level.dao=WARN,
+ *   exam.log.level.dao.DatabaseConnection=DEBUG)
+ * - exam.log.console: write to stdout/stderr (default true)
+ * - exam.log.file: rolling log file, e.g. logs/exam.log (default none)
+ * - exam.log.format: text | json for the file (default text)
+ * - exam.log.maxBytes / exam.log.maxFiles: roll size (default 10 MB) and
+ *   rolled files kept (default 5)
+ * - exam.log.bufferSize: ring buffer slots, a power of two (default 8192)
+ */
+public final class Log {
+
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final Map<String, Log> LOGGERS = new ConcurrentHashMap<>();
+    private static final Map<String, Level> OVERRIDES = new ConcurrentHashMap<>();
+
+    private final String category;
+    private volatile int threshold;
+
+    private Log(String category) {
+        this.category = category;
+        this.threshold = resolve(category).ordinal();
+    }
+
+    public static Log get(Class<?> type) {
+        return get(type.getName());
+    }
+
+    public static Log get(String category) {
+        return LOGGERS.computeIfAbsent(category, Log::new);
+    }
+
+    /** Changes a category (or package prefix, or "" for all) at runtime. */
+    public static void setLevel(String category, Level level) {
+        OVERRIDES.put(category, level);
+        for (Log log : LOGGERS.values())
+            log.threshold = resolve(log.category).ordinal();
+    }
+
+    // Most specific switch wins: runtime override, then setting, per prefix
+    private static Level resolve(String category) {
+        String name = category;
+        while (true) {
+            Level override = OVERRIDES.get(name);
+            if (override != null)
+                return override;
+            String key = name.isEmpty() ? "exam.log.level" : "exam.log.level." + name;
+            String v = StorageBackend.setting(key, key.replace('.', '_').toUpperCase(),
+                    key.substring("exam.".length()), null);
+            if (v != null)
+                return parseLevel(key, v);
+            if (name.isEmpty())
+                return Level.INFO;
+            int dot = name.lastIndexOf('.');
+            name = dot < 0 ? "" : name.substring(0, dot);
+        }
+    }
+
+    // A typo in a level setting must not break every class that logs
+    private static Level parseLevel(String key, String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            // Not through a Log: this runs while one is being created
+            Appender.INSTANCE.enqueue(Level.WARN, Log.class.getName(),
+                    "Unknown log level {}={}, using INFO", new Object[] { key, value }, null);
+            return Level.INFO;
+        }
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public boolean isDebugEnabled() {
+        return Level.DEBUG.ordinal() >= threshold;
+    }
+
+    public void trace(String template, Object... args) {
+        if (Level.TRACE.ordinal() >= threshold)
+            log(Level.TRACE, template, args);
+    }
+
+    public void debug(String template, Object... args) {
+        if (Level.DEBUG.ordinal() >= threshold)
+            log(Level.DEBUG, template, args);
+    }
+
+    public void info(String template, Object... args) {
+        if (Level.INFO.ordinal() >= threshold)
+            log(Level.INFO, template, args);
+    }
+
+    public void warn(String template, Object... args) {
+        if (Level.WARN.ordinal() >= threshold)
+            log(Level.WARN, template, args);
+    }
+
+    public void warn(String message, Throwable error) {
+        if (Level.WARN.ordinal() >= threshold)
+            Appender.INSTANCE.enqueue(Level.WARN, category, message, null, error);
+    }
+
+    public void error(String template, Object... args) {
+        if (Level.ERROR.ordinal() >= threshold)
+            log(Level.ERROR, template, args);
+    }
+
+    public void error(String message, Throwable error) {
+        if (Level.ERROR.ordinal() >= threshold)
+            Appender.INSTANCE.enqueue(Level.ERROR, category, message, null, error);
+    }
+
+    // A trailing Throwable that no placeholder takes is the event's error
+    private void log(Level level, String template, Object[] args) {
+        Throwable error = null;
+        if (args != null && args.length > 0 && args[args.length - 1] instanceof Throwable t
+                && placeholders(template) < args.length) {
+            error = t;
+            args = Arrays.copyOf(args, args.length - 1);
+        }
+        Appender.INSTANCE.enqueue(level, category, template, args, error);
+    }
+
+    private static int placeholders(String template) {
+        int count = 0;
+        if (template != null) {
+            for (int at = template.indexOf("{}"); at >= 0; at = template.indexOf("{}", at + 2))
+                count++;
+        }
+        return count;
+    }
+
+    /** Waits (up to timeoutMs) until everything logged so far is written. */
+    public static void flush(long timeoutMs) {
+        Appender.INSTANCE.flush(timeoutMs);
+    }
+
+    /** Logged but not yet written line, held in a ring buffer slot. */
+    private record Event(long timeMillis, Level level, String category, String thread, String template,
+            Object[] args, Throwable error) {
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer ring buffer (per-slot sequence
+     * numbers, as in Vyukov's bounded queue) drained by one writer thread.
+     */
+    private static final class Appender implements Runnable {
+
+        private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+        static final Appender INSTANCE = new Appender();
+
+        private final int mask;
+        private final AtomicReferenceArray<Event> slots;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private long head; // writer thread only
+        private volatile long drained; // events written and flushed so far
+        private final Thread writer;
+        private volatile boolean parked;
+
+        private final boolean console;
+        private final boolean json;
+        private final Path file;
+        private final long maxBytes;
+        private final int maxFiles;
+        private Writer out; // writer thread only
+        private long written;
+
+        private Appender() {
+            int size = Integer.highestOneBit(Math.max(64, Integer.parseInt(setting("bufferSize", "8192"))));
+            mask = size - 1;
+            slots = new AtomicReferenceArray<>(size);
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++)
+                sequences.set(i, i);
+            console = Boolean.parseBoolean(setting("console", "true"));
+            json = "json".equalsIgnoreCase(setting("format", "text"));
+            String path = setting("file", "");
+            file = path.isBlank() ? null : Paths.get(path);
+            maxBytes = Long.parseLong(setting("maxBytes", String.valueOf(10L * 1024 * 1024)));
+            maxFiles = Integer.parseInt(setting("maxFiles", "5"));
+
+            writer = new Thread(this, "log-writer");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(2000), "log-flush"));
+        }
+
+        private static String setting(String name, String fallback) {
+            return StorageBackend.setting("exam.log." + name,
+                    "EXAM_LOG_" + name.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(), "log." + name, fallback);
+        }
+
+        void enqueue(Level level, String category, String template, Object[] args, Throwable error) {
+            long t;
+            while (true) {
+                t = tail.get();
+                int i = (int) (t & mask);
+                long seq = sequences.get(i);
+                if (seq == t) {
+                    if (tail.compareAndSet(t, t + 1))
+                        break;
+                } else if (seq < t) {
+                    dropped.incrementAndGet(); // full
+                    return;
+                }
+                // else another producer claimed t; retry with the new tail
+            }
+            int i = (int) (t & mask);
+            slots.set(i, new Event(System.currentTimeMillis(), level, category, Thread.currentThread().getName(),
+                    template, args, error));
+            sequences.set(i, t + 1);
+            if (parked)
+                LockSupport.unpark(writer);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                boolean any = false;
+                Event e;
+                while ((e = poll()) != null) {
+                    write(e);
+                    any = true;
+                }
+                long lost = dropped.getAndSet(0);
+                if (lost > 0)
+                    write(new Event(System.currentTimeMillis(), Level.WARN, Log.class.getName(),
+                            writer.getName(), "{} log line(s) dropped, buffer full", new Object[] { lost }, null));
+                if (any || lost > 0) {
+                    flushOutputs();
+                    drained = head;
+                    continue;
+                }
+                parked = true;
+                if (sequences.get((int) (head & mask)) != head + 1)
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                parked = false;
+            }
+        }
+
+        private Event poll() {
+            int i = (int) (head & mask);
+            if (sequences.get(i) != head + 1)
+                return null;
+            Event e = slots.get(i);
+            slots.set(i, null);
+            sequences.set(i, head + mask + 1);
+            head++;
+            return e;
+        }
+
+        void flush(long timeoutMs) {
+            long target = tail.get();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            LockSupport.unpark(writer);
+            while (drained < target && System.nanoTime() < deadline)
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+
+        // ===== Output (writer thread) =====
+
+        private void write(Event e) {
+            String message = format(e.template(), e.args());
+            String trace = null;
+            if (e.error() != null) {
+                StringWriter sw = new StringWriter();
+                e.error().printStackTrace(new PrintWriter(sw));
+                trace = sw.toString();
+            }
+            String time = TIME.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(e.timeMillis()),
+                    ZoneId.systemDefault()));
+            String text = time + " " + String.format("%-5s", e.level()) + " [" + e.thread() + "] "
+                    + shortName(e.category()) + " - " + message;
+
+            if (console) {
+                PrintStream stream = e.level().ordinal() >= Level.WARN.ordinal() ? System.err : System.out;
+                stream.println(text);
+                if (trace != null)
+                    stream.print(trace);
+            }
+            if (file != null) {
+                String line = json ? json(e, time, message, trace) : trace == null ? text : text + "\n" + trace;
+                writeFile(line.endsWith("\n") ? line : line + "\n");
+            }
+        }
+
+        private static String shortName(String category) {
+            int dot = category.lastIndexOf('.');
+            return dot < 0 ? category : category.substring(dot + 1);
+        }
+
+        private static String format(String template, Object[] args) {
+            if (template == null)
+                return "null";
+            if (args == null || args.length == 0)
+                return template;
+            StringBuilder sb = new StringBuilder(template.length() + 16 * args.length);
+            int from = 0;
+            int arg = 0;
+            int at;
+            while (arg < args.length && (at = template.indexOf("{}", from)) >= 0) {
+                sb.append(template, from, at).append(args[arg++]);
+                from = at + 2;
+            }
+            return sb.append(template, from, template.length()).toString();
+        }
+
+        private static String json(Event e, String time, String message, String trace) {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append("{\"time\":");
+            quote(time, sb);
+            sb.append(",\"level\":\"").append(e.level()).append("\",\"category\":");
+            quote(e.category(), sb);
+            sb.append(",\"thread\":");
+            quote(e.thread(), sb);
+            sb.append(",\"message\":");
+            quote(message, sb);
+            if (trace != null) {
+                sb.append(",\"error\":");
+                quote(trace, sb);
+            }
+            return sb.append('}').toString();
+        }
+
+        private static void quote(String s, StringBuilder sb) {
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (c < 0x20)
+                            sb.append(String.format("\\u%04x", (int) c));
+                        else
+                            sb.append(c);
+                    }
+                }
+            }
+            sb.append('"');
+        }
+
+        private void writeFile(String line) {
+            try {
+                if (out == null)
+                    open();
+                out.write(line);
+                written += line.length();
+                if (written >= maxBytes)
+                    roll();
+            } catch (IOException ex) {
+                // Nowhere better to report it; keep the console going
+                System.err.println("Log file " + file + " not writable: " + ex.getMessage());
+                closeFile();
+            }
+        }
+
+        private void open() throws IOException {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null)
+                Files.createDirectories(dir);
+            written = Files.exists(file) ? Files.size(file) : 0;
+            out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        }
+
+        // exam.log -> exam.log.1 -> exam.log.2 ... up to maxFiles
+        private void roll() throws IOException {
+            closeFile();
+            for (int n = maxFiles - 1; n >= 1; n--) {
+                Path from = Paths.get(file + "." + n);
+                if (Files.exists(from))
+                    Files.move(from, Paths.get(file + "." + (n + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (maxFiles > 0)
+                Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            else
+                Files.deleteIfExists(file);
+            open();
+        }
+
+        private void flushOutputs() {
+            if (console) {
+                System.out.flush();
+                System.err.flush();
+            }
+            if (out != null) {
+                try {
+                    out.flush();
+                } catch (IOException ex) {
+                    closeFile();
+                }
+            }
+        }
+
+        private void closeFile() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+                out = null;
+            }
+        }
+    }
+}
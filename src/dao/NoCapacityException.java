@@ -0,0 +1,24 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown by the SchedulingService strategies when no session with a free seat
+ * (and no free room for a new one) fits the student. Callers can offer the
+ * exam's waitlist instead of failing the request.
+ */
+public class NoCapacityException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int examId;
+
+    public NoCapacityException(int examId, String message) {
+        super(message);
+        this.examId = examId;
+    }
+
+    public int getExamId() {
+        return examId;
+    }
+}
@@ -0,0 +1,271 @@
+package dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Matches a bank or e-wallet statement against the payments on file for one
+ * payment method.
+ *
+ * The statement is a CSV file with a header row naming at least a reference
+ * column (reference, reference_no, ref) and an amount column; a date column
+ * is optional. References are normalized like {@link PaymentService} and
+ * looked up REF_BATCH at a time through uq_payments_method_ref, so a
+ * statement of tens of thousands of lines takes a few dozen queries. When the
+ * statement has dates, payments recorded in its date range that it does not
+ * list are flagged too.
+ *
+ * java dao.PaymentReconciler METHOD statement.csv [report.csv]
+ */
+public final class PaymentReconciler {
+
+    private static final Log LOG = Log.get(PaymentReconciler.class);
+
+    private static final int REF_BATCH = 1000;
+
+    public enum Status {
+        AMOUNT_MISMATCH, NOT_RECORDED, NOT_ON_STATEMENT, REPEATED_ON_STATEMENT, UNREADABLE
+    }
+
+    /** One reconciled reference; statementAmount or payment is null when that side is missing. */
+    public record Finding(Status status, int line, String reference, Double statementAmount,
+            PaymentService.Payment payment, String note) {
+    }
+
+    /** Matched count plus every line or payment that needs a look. */
+    public record Report(String method, int lines, int matched, List<Finding> flagged) {
+        public String summary() {
+            Map<Status, Integer> counts = new LinkedHashMap<>();
+            for (Finding f : flagged)
+                counts.merge(f.status(), 1, Integer::sum);
+            return method + ": " + lines + " statement line(s), " + matched + " matched"
+                    + (counts.isEmpty() ? "" : ", flagged " + counts);
+        }
+    }
+
+    private record Line(int line, String reference, double amount, LocalDate date) {
+    }
+
+    private PaymentReconciler() {
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 2) {
+            System.err.println("Usage: java dao.PaymentReconciler METHOD statement.csv [report.csv]");
+            System.exit(2);
+        }
+        Report report = reconcile(args[0], Path.of(args[1]));
+        System.out.println(report.summary());
+        if (args.length > 2) {
+            writeReport(report, Path.of(args[2]));
+            System.out.println("Report written to " + args[2]);
+        }
+    }
+
+    public static Report reconcile(String method, Path statement) throws IOException, SQLException {
+        long startNs = System.nanoTime();
+        List<Finding> flagged = new ArrayList<>();
+        List<Line> lines = read(statement, flagged);
+
+        // Repeats on the statement itself are flagged; the first occurrence is matched
+        Map<String, Line> byRef = new LinkedHashMap<>();
+        for (Line l : lines) {
+            Line first = byRef.putIfAbsent(l.reference(), l);
+            if (first != null)
+                flagged.add(new Finding(Status.REPEATED_ON_STATEMENT, l.line(), l.reference(), l.amount(), null,
+                        "Also on line " + first.line()));
+        }
+
+        int matched = 0;
+        LocalDate from = null;
+        LocalDate to = null;
+        // Primary, not the replica: a payment recorded a moment ago must not show as missing
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            List<String> refs = new ArrayList<>(byRef.keySet());
+            for (int i = 0; i < refs.size(); i += REF_BATCH) {
+                List<String> chunk = refs.subList(i, Math.min(refs.size(), i + REF_BATCH));
+                Map<String, PaymentService.Payment> found = lookup(conn, method, chunk);
+                for (String ref : chunk) {
+                    Line l = byRef.get(ref);
+                    PaymentService.Payment p = found.get(ref);
+                    if (p == null) {
+                        flagged.add(new Finding(Status.NOT_RECORDED, l.line(), ref, l.amount(), null,
+                                "No payment with this reference"));
+                    } else if (Math.abs(p.amount() - l.amount()) >= 0.005) {
+                        flagged.add(new Finding(Status.AMOUNT_MISMATCH, l.line(), ref, l.amount(), p,
+                                String.format("Statement ₱%.2f, recorded ₱%.2f", l.amount(), p.amount())));
+                    } else {
+                        matched++;
+                    }
+                }
+            }
+            for (Line l : lines) {
+                if (l.date() == null)
+                    continue;
+                from = from == null || l.date().isBefore(from) ? l.date() : from;
+                to = to == null || l.date().isAfter(to) ? l.date() : to;
+            }
+            if (from != null)
+                flagMissing(conn, method, from, to, byRef, flagged);
+        }
+
+        Report report = new Report(method, lines.size(), matched, flagged);
+        long ms = (System.nanoTime() - startNs) / 1_000_000;
+        LOG.info("✅ Reconciled {} in {} ms: {}", statement.getFileName(), ms, report.summary());
+        return report;
+    }
+
+    /** Writes the flagged findings as CSV. */
+    public static void writeReport(Report report, Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("status,line,reference,statement_amount,payment_id,student_id,recorded_amount,note");
+            for (Finding f : report.flagged()) {
+                PaymentService.Payment p = f.payment();
+                out.println(String.join(",", f.status().name(), f.line() > 0 ? String.valueOf(f.line()) : "",
+                        csv(f.reference()), f.statementAmount() != null ? String.format(Locale.ROOT, "%.2f",
+                                f.statementAmount()) : "",
+                        p != null ? String.valueOf(p.id()) : "", p != null ? String.valueOf(p.studentId()) : "",
+                        p != null ? String.format(Locale.ROOT, "%.2f", p.amount()) : "", csv(f.note())));
+            }
+        }
+    }
+
+    private static Map<String, PaymentService.Payment> lookup(Connection conn, String method, List<String> refs)
+            throws SQLException {
+        Map<String, PaymentService.Payment> found = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, student_id, amount, payment_method, reference_no, created_at FROM payments "
+                        + "WHERE payment_method = ? AND reference_no IN ("
+                        + String.join(",", Collections.nCopies(refs.size(), "?")) + ")")) {
+            ps.setString(1, method);
+            for (int i = 0; i < refs.size(); i++)
+                ps.setString(i + 2, refs.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    PaymentService.Payment p = PaymentService.toPayment(rs);
+                    found.put(p.reference(), p);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Payments of the method in the statement's date range that it does not list
+    private static void flagMissing(Connection conn, String method, LocalDate from, LocalDate to,
+            Map<String, Line> byRef, List<Finding> flagged) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, student_id, amount, payment_method, reference_no, created_at FROM payments "
+                        + "WHERE payment_method = ? AND created_at >= ? AND created_at < ? ORDER BY created_at")) {
+            ps.setString(1, method);
+            ps.setTimestamp(2, java.sql.Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(3, java.sql.Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    PaymentService.Payment p = PaymentService.toPayment(rs);
+                    if (!byRef.containsKey(p.reference()))
+                        flagged.add(new Finding(Status.NOT_ON_STATEMENT, 0, p.reference(), null, p,
+                                "Recorded but not on the statement"));
+                }
+            }
+        }
+    }
+
+    private static List<Line> read(Path statement, List<Finding> flagged) throws IOException {
+        List<Line> lines = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(statement, StandardCharsets.UTF_8)) {
+            String header = in.readLine();
+            if (header == null)
+                return lines;
+            List<String> columns = split(header.replace("\uFEFF", ""));
+            int refCol = column(columns, "reference", "reference_no", "ref", "reference number");
+            int amountCol = column(columns, "amount");
+            int dateCol = column(columns, "date", "transaction_date", "posted");
+            if (refCol < 0 || amountCol < 0)
+                throw new IOException("Statement needs reference and amount columns, found " + columns);
+            String text;
+            int lineNo = 1;
+            while ((text = in.readLine()) != null) {
+                lineNo++;
+                if (text.isBlank())
+                    continue;
+                List<String> cells = split(text);
+                try {
+                    String ref = PaymentService.normalizeReference(cells.get(refCol));
+                    double amount = Double.parseDouble(cells.get(amountCol).replaceAll("[^0-9.\\-]", ""));
+                    LocalDate date = dateCol >= 0 && dateCol < cells.size() && !cells.get(dateCol).isBlank()
+                            ? LocalDate.parse(cells.get(dateCol).trim().substring(0, 10))
+                            : null;
+                    if (ref.isEmpty())
+                        throw new IllegalArgumentException("empty reference");
+                    lines.add(new Line(lineNo, ref, amount, date));
+                } catch (RuntimeException e) {
+                    flagged.add(new Finding(Status.UNREADABLE, lineNo, null, null, null, text));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static int column(List<String> columns, String... names) {
+        for (String name : names) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).trim().equalsIgnoreCase(name))
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    // Comma-separated with optional double quotes ("" inside quotes is a quote)
+    private static List<String> split(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    private static String csv(String value) {
+        if (value == null)
+            return "";
+        return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+}
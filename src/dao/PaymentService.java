@@ -0,0 +1,139 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Wallet cash-ins, recorded at most once per (payment method, reference
+ * number). A reference is a receipt from the bank or e-wallet, so seeing it
+ * twice means a retry or a double-click, not a second payment.
+ *
+ * The payments row is inserted first and carries the unique key
+ * uq_payments_method_ref; only when that insert succeeds is the balance
+ * credited, in the same transaction. A repeat therefore loses on the index
+ * (even when two arrive at once) and credits nothing; the caller gets the
+ * payment already on file instead.
+ */
+public final class PaymentService {
+
+    private static final Log LOG = Log.get(PaymentService.class);
+
+    /** Payment methods offered for cash-in; statements are reconciled per method. */
+    public static final List<String> METHODS = List.of("GCash", "PayMaya", "Credit Card", "Bank Transfer", "Cash");
+
+    /** The stored payment for a reference. */
+    public record Payment(long id, int studentId, double amount, String method, String reference,
+            Timestamp createdAt) {
+    }
+
+    /**
+     * Outcome of {@link #cashIn}: payment is the row on file; duplicate is true
+     * when it was already there and nothing was credited; retry is true when
+     * that duplicate matches the request (same student and amount), so the
+     * caller can treat it as the success it already was.
+     */
+    public record CashInResult(Payment payment, boolean duplicate, boolean retry) {
+    }
+
+    private PaymentService() {
+    }
+
+    /** References compare trimmed and case-insensitively; stored in this form. */
+    public static String normalizeReference(String reference) {
+        return reference.trim().replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Credits amount to the student's wallet unless the reference was already
+     * used with this method.
+     */
+    public static CashInResult cashIn(int studentId, String method, String reference, double amount)
+            throws SQLException {
+        if (amount <= 0)
+            throw new IllegalArgumentException("Amount must be greater than zero");
+        String ref = normalizeReference(reference);
+        if (ref.isEmpty())
+            throw new IllegalArgumentException("A reference number is required");
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            conn.setAutoCommit(false);
+            try {
+                long id;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO payments (student_id, amount, payment_method, reference_no) VALUES (?, ?, ?, ?)",
+                        PreparedStatement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, studentId);
+                    ps.setDouble(2, amount);
+                    ps.setString(3, method);
+                    ps.setString(4, ref);
+                    ps.executeUpdate();
+                    try (ResultSet gk = ps.getGeneratedKeys()) {
+                        gk.next();
+                        id = gk.getLong(1);
+                    }
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    conn.rollback();
+                    Payment existing = find(conn, method, ref);
+                    if (existing == null)
+                        throw e;
+                    LOG.warn("⚠️ Duplicate cash-in ignored: {} {} (payment {})", method, ref, existing.id());
+                    boolean retry = existing.studentId() == studentId
+                            && Math.abs(existing.amount() - amount) < 0.005;
+                    return new CashInResult(existing, true, retry);
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE students SET balance = balance + ? WHERE id = ?")) {
+                    ps.setDouble(1, amount);
+                    ps.setInt(2, studentId);
+                    if (ps.executeUpdate() == 0)
+                        throw new SQLException("Student " + studentId + " not found");
+                }
+                ChangeLog.publish(conn, new DomainEvent.BalanceChanged(studentId, amount));
+                RevenueRollups.rollUpCashIn(conn, method, amount);
+                conn.commit();
+                EventBus.afterCommit(conn);
+                return new CashInResult(new Payment(id, studentId, amount, method, ref,
+                        new Timestamp(System.currentTimeMillis())), false, false);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /** The payment recorded under method and reference, or null; one index lookup. */
+    public static Payment find(String method, String reference) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            return find(conn, method, normalizeReference(reference));
+        }
+    }
+
+    static Payment find(Connection conn, String method, String normalizedRef) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, student_id, amount, payment_method, reference_no, created_at FROM payments "
+                        + "WHERE payment_method = ? AND reference_no = ?")) {
+            ps.setString(1, method);
+            ps.setString(2, normalizedRef);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? toPayment(rs) : null;
+            }
+        }
+    }
+
+    static Payment toPayment(ResultSet rs) throws SQLException {
+        return new Payment(rs.getLong("id"), rs.getInt("student_id"), rs.getDouble("amount"),
+                rs.getString("payment_method"), rs.getString("reference_no"), rs.getTimestamp("created_at"));
+    }
+}
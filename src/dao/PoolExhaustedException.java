@@ -0,0 +1,19 @@
+package dao;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Thrown by {@link DatabaseConnection#getConnection()} when the bounded
+ * connection pool has no connection free within its borrow timeout. Unchecked
+ * so it passes through the DAOs that turn SQLExceptions into default values
+ * (a failed login, a zero balance); servers answer it with 503 and
+ * Retry-After. The pool's {@link SQLTransientConnectionException} is the cause.
+ */
+public class PoolExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PoolExhaustedException(SQLTransientConnectionException cause) {
+        super(cause.getMessage(), cause);
+    }
+}
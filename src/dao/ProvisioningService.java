@@ -0,0 +1,325 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pre-creates exam sessions ahead of registration so live enrollments take the
+ * cheap reuse path in SchedulingService (claim a seat in an existing session)
+ * instead of scanning rooms and inserting a schedule.
+ *
+ * Demand per exam is forecast from course membership and the take rate seen
+ * in student_exams for that course (share of members who enrolled in its
+ * exams). Seats still missing after the free seats of existing future
+ * sessions are covered with new sessions, largest shortfall first, rooms
+ * chosen by the configured {@link RoomAllocator}, spread over the days with
+ * the fewest sessions of the same course. All sessions of a run are inserted
+ * in one batch and one transaction.
+ *
+ * Run from the admin Schedules screen or: java dao.ProvisioningService
+ */
+public final class ProvisioningService {
+
+    private static final Log LOG = Log.get(ProvisioningService.class);
+
+    private static final int HORIZON_DAYS = Integer.parseInt(StorageBackend.setting(
+            "exam.provisioning.horizonDays", "EXAM_PROVISIONING_HORIZON_DAYS", "provisioning.horizonDays", "14"));
+    private static final int MAX_NEW_SESSIONS_PER_EXAM = 10;
+
+    /** Forecast for one exam. */
+    record Forecast(int examId, int courseId, int durationMinutes, int expected, int enrolled, int freeSeats) {
+        int shortfall() {
+            return Math.max(0, expected - enrolled - freeSeats);
+        }
+    }
+
+    /** A session to create. */
+    record PlannedSession(int examId, RoomAllocator.Room room, LocalDate date, SchedulingService.TimeSlotDef slot,
+            int durationMinutes) {
+    }
+
+    private ProvisioningService() {
+    }
+
+    public static void main(String[] args) {
+        DatabaseSetup.ensureSchema();
+        try {
+            provision();
+        } catch (SQLException e) {
+            LOG.error("Provisioning failed: {}", e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Forecasts demand and creates the missing sessions. Returns the number
+     * created; a failed run rolls back and throws.
+     */
+    public static int provision() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            ensureLockRow(conn);
+            conn.setAutoCommit(false);
+            try {
+                // One provisioning run at a time across workstations
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT meta_value FROM app_meta WHERE meta_key = 'provisioning_lock' FOR UPDATE")) {
+                    ps.executeQuery().close();
+                }
+                List<Forecast> forecasts = forecast(conn);
+                List<PlannedSession> plan = claimRooms(plan(forecasts, conn), conn);
+                insertSessions(plan, conn);
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE app_meta SET meta_value = ? WHERE meta_key = 'provisioning_lock'")) {
+                    ps.setString(1, LocalDate.now().toString());
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                EventBus.afterCommit(conn);
+                int seats = plan.stream().mapToInt(p -> p.room().capacity()).sum();
+                LOG.info("✅ Provisioned {} session(s), {} seat(s)", plan.size(), seats);
+                return plan.size();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void ensureLockRow(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO app_meta (meta_key, meta_value) VALUES ('provisioning_lock', 'never')")) {
+            ps.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // already there
+        }
+    }
+
+    /** Expected takers, current enrollments and free future seats for every exam. */
+    static List<Forecast> forecast(Connection conn) throws SQLException {
+        String sql = """
+                SELECT e.id, e.course_id, e.duration,
+                       (SELECT COUNT(*) FROM students s WHERE s.course_id = e.course_id) AS members,
+                       (SELECT COUNT(*) FROM student_exams se
+                        JOIN exam_schedules es ON se.exam_schedule_id = es.id
+                        WHERE es.exam_id = e.id)
+                     + (SELECT COUNT(*) FROM student_exams_archive sa
+                        WHERE sa.schedule_exam_id = e.id) AS enrolled,
+                       (SELECT COALESCE(SUM(es.capacity - (SELECT COUNT(*) FROM student_exams se
+                                                           WHERE se.exam_schedule_id = es.id)), 0)
+                        FROM exam_schedules es
+                        WHERE es.exam_id = e.id AND es.scheduled_date > CURRENT_DATE) AS free_seats
+                FROM exams e
+                """;
+        record Row(int examId, int courseId, int duration, int members, int enrolled, int freeSeats) {
+        }
+        List<Row> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String duration = rs.getString("duration");
+                rows.add(new Row(rs.getInt("id"), rs.getInt("course_id"),
+                        SchedulingService.parseDurationMinutes(duration != null ? duration : "2 hours"),
+                        rs.getInt("members"), rs.getInt("enrolled"), Math.max(0, rs.getInt("free_seats"))));
+            }
+        }
+
+        // Take rate per course: enrollments / (members x exams with any enrollment)
+        Map<Integer, int[]> history = new HashMap<>(); // course -> {enrolled, member-exam pairs}
+        for (Row r : rows) {
+            if (r.members() > 0 && r.enrolled() > 0) {
+                int[] h = history.computeIfAbsent(r.courseId(), k -> new int[2]);
+                h[0] += r.enrolled();
+                h[1] += r.members();
+            }
+        }
+        int allEnrolled = history.values().stream().mapToInt(h -> h[0]).sum();
+        int allPairs = history.values().stream().mapToInt(h -> h[1]).sum();
+        double defaultRate = allPairs > 0 ? (double) allEnrolled / allPairs : 1.0;
+
+        List<Forecast> forecasts = new ArrayList<>();
+        for (Row r : rows) {
+            int[] h = history.get(r.courseId());
+            double rate = h != null ? (double) h[0] / h[1] : defaultRate;
+            int expected = Math.max(r.enrolled(), (int) Math.ceil(r.members() * Math.min(1.0, rate)));
+            forecasts.add(new Forecast(r.examId(), r.courseId(), r.duration(), expected, r.enrolled(),
+                    r.freeSeats()));
+        }
+        return forecasts;
+    }
+
+    /** Chooses date, slot and room for the sessions covering each exam's shortfall. */
+    static List<PlannedSession> plan(List<Forecast> forecasts, Connection conn) throws SQLException {
+        List<Forecast> needing = new ArrayList<>(forecasts.stream().filter(f -> f.shortfall() > 0).toList());
+        if (needing.isEmpty())
+            return List.of();
+        // Largest shortfall first, like first-fit decreasing
+        needing.sort(Comparator.comparingInt(Forecast::shortfall).reversed());
+
+        LocalDate first = LocalDate.now().plusDays(1);
+        LocalDate last = first.plusDays(HORIZON_DAYS - 1);
+        List<SchedulingService.TimeSlotDef> slots = SchedulingService.loadTimeSlots(conn);
+        List<RoomAllocator.Room> rooms = SchedulingService.loadRoomsAligned(conn);
+        Map<Integer, Integer> courseOfExam = new HashMap<>();
+        forecasts.forEach(f -> courseOfExam.put(f.examId(), f.courseId()));
+
+        // date -> room -> booked intervals, and date -> course -> sessions
+        Map<LocalDate, Map<Integer, TreeMap<LocalTime, LocalTime>>> booked = new HashMap<>();
+        Map<LocalDate, Map<Integer, Integer>> courseLoad = new HashMap<>();
+        loadBookings(first, last, conn, booked, courseLoad, courseOfExam);
+
+        List<Integer> remaining = new ArrayList<>();
+        needing.forEach(f -> remaining.add(f.shortfall()));
+
+        List<PlannedSession> plan = new ArrayList<>();
+        for (int i = 0; i < needing.size(); i++) {
+            Forecast f = needing.get(i);
+            int need = remaining.get(i);
+            for (int created = 0; need > 0 && created < MAX_NEW_SESSIONS_PER_EXAM; created++) {
+                List<Integer> lookAhead = remaining.subList(i + 1, remaining.size());
+                PlannedSession session = placeSession(f, need, lookAhead, first, slots, rooms, booked, courseLoad);
+                if (session == null)
+                    break; // horizon full
+                plan.add(session);
+                need -= Math.max(1, session.room().capacity());
+            }
+            remaining.set(i, Math.max(0, need));
+        }
+        return plan;
+    }
+
+    private static PlannedSession placeSession(Forecast f, int need, List<Integer> lookAhead, LocalDate first,
+            List<SchedulingService.TimeSlotDef> slots, List<RoomAllocator.Room> rooms,
+            Map<LocalDate, Map<Integer, TreeMap<LocalTime, LocalTime>>> booked,
+            Map<LocalDate, Map<Integer, Integer>> courseLoad) {
+        // Days with the fewest sessions of this course first, so one student's
+        // exams do not pile up on the same day
+        List<LocalDate> days = new ArrayList<>();
+        for (int d = 0; d < HORIZON_DAYS; d++)
+            days.add(first.plusDays(d));
+        days.sort(Comparator.comparingInt((LocalDate day) -> courseLoad
+                .getOrDefault(day, Map.of()).getOrDefault(f.courseId(), 0)));
+
+        List<Integer> others = new ArrayList<>(lookAhead);
+        others.sort(Comparator.reverseOrder());
+        for (LocalDate day : days) {
+            Map<Integer, TreeMap<LocalTime, LocalTime>> dayRooms = booked.computeIfAbsent(day, k -> new HashMap<>());
+            for (SchedulingService.TimeSlotDef slot : slots) {
+                LocalTime start = slot.start;
+                LocalTime end = start.plusMinutes(f.durationMinutes());
+                List<RoomAllocator.Room> free = new ArrayList<>();
+                for (RoomAllocator.Room room : rooms) {
+                    TreeMap<LocalTime, LocalTime> sched = dayRooms.computeIfAbsent(room.id(), k -> new TreeMap<>());
+                    if (!overlaps(sched, start, end))
+                        free.add(SchedulingService.withUsage(room, sched.size()));
+                }
+                RoomAllocator.Room room = SchedulingService.getRoomAllocator().choose(free, need, others);
+                if (room != null && room.id() > 0) {
+                    dayRooms.get(room.id()).put(start, end);
+                    courseLoad.computeIfAbsent(day, k -> new HashMap<>()).merge(f.courseId(), 1, Integer::sum);
+                    return new PlannedSession(f.examId(), room, day, slot, f.durationMinutes());
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean overlaps(TreeMap<LocalTime, LocalTime> sched, LocalTime start, LocalTime end) {
+        var before = sched.floorEntry(start);
+        if (before != null && before.getValue().isAfter(start))
+            return true;
+        var after = sched.ceilingKey(start);
+        return after != null && end.isAfter(after);
+    }
+
+    private static void loadBookings(LocalDate first, LocalDate last, Connection conn,
+            Map<LocalDate, Map<Integer, TreeMap<LocalTime, LocalTime>>> booked,
+            Map<LocalDate, Map<Integer, Integer>> courseLoad, Map<Integer, Integer> courseOfExam)
+            throws SQLException {
+        String sql = """
+                SELECT es.room_id, es.exam_id, es.scheduled_date, es.scheduled_time, e.duration
+                FROM exam_schedules es
+                JOIN exams e ON e.id = es.exam_id
+                WHERE es.scheduled_date BETWEEN ? AND ?
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, java.sql.Date.valueOf(first));
+            ps.setDate(2, java.sql.Date.valueOf(last));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate day = rs.getDate("scheduled_date").toLocalDate();
+                    LocalTime start = rs.getTime("scheduled_time").toLocalTime();
+                    String duration = rs.getString("duration");
+                    int minutes = SchedulingService.parseDurationMinutes(duration != null ? duration : "2 hours");
+                    booked.computeIfAbsent(day, k -> new HashMap<>())
+                            .computeIfAbsent(rs.getInt("room_id"), k -> new TreeMap<>())
+                            .put(start, start.plusMinutes(minutes));
+                    Integer course = courseOfExam.get(rs.getInt("exam_id"));
+                    if (course != null)
+                        courseLoad.computeIfAbsent(day, k -> new HashMap<>()).merge(course, 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the planned sessions whose room is still free under its (date, room)
+     * lock; enrollments on other workstations may have booked rooms since the
+     * plan was read. Claimed in date/stripe order so two provisioning-sized
+     * lock sets cannot deadlock.
+     */
+    private static List<PlannedSession> claimRooms(List<PlannedSession> plan, Connection conn) throws SQLException {
+        List<PlannedSession> ordered = new ArrayList<>(plan);
+        ordered.sort(Comparator.comparing(PlannedSession::date)
+                .thenComparingInt(p -> ScheduleLocks.stripeOf(p.room().id())));
+        List<PlannedSession> claimed = new ArrayList<>();
+        for (PlannedSession p : ordered) {
+            if (ScheduleLocks.claimRoom(conn, p.room().id(), p.date(), p.slot().start, p.durationMinutes()))
+                claimed.add(p);
+        }
+        return claimed;
+    }
+
+    private static void insertSessions(List<PlannedSession> plan, Connection conn) throws SQLException {
+        if (plan.isEmpty())
+            return;
+        String sql = "INSERT INTO exam_schedules (exam_id, room_id, scheduled_date, scheduled_time, "
+                + "duration_minutes, max_students, capacity, time_slot_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (PlannedSession p : plan) {
+                ps.setInt(1, p.examId());
+                ps.setInt(2, p.room().id());
+                ps.setDate(3, java.sql.Date.valueOf(p.date()));
+                ps.setTime(4, java.sql.Time.valueOf(p.slot().start));
+                ps.setInt(5, p.durationMinutes());
+                ps.setInt(6, p.room().capacity());
+                ps.setInt(7, p.room().capacity());
+                ps.setInt(8, p.slot().id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet gk = ps.getGeneratedKeys()) {
+                int i = 0;
+                while (gk.next() && i < plan.size()) {
+                    ChangeLog.publish(conn, new DomainEvent.ScheduleCreated(gk.getInt(1), plan.get(i++).examId()));
+                }
+            }
+        }
+    }
+}
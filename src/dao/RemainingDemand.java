@@ -0,0 +1,93 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seats each exam still needs: students of the exam's course not yet enrolled
+ * in it (archived enrollments count as enrolled). This is the "known demand"
+ * the best-fit allocator sizes rooms against.
+ *
+ * Counting it means a correlated count per exam over students, student_exams
+ * and the archive, so it is loaded once and shared by every new-session
+ * placement until an enrollment, exam or student change commits (here or on
+ * another instance) or a transaction that may have been read rolls back. It
+ * is a sizing hint, so MAX_AGE_MS bounds any drift the events miss.
+ */
+final class RemainingDemand {
+
+    private static final long MAX_AGE_MS = 60_000;
+
+    private static final String DEMAND_SQL = """
+            SELECT e.id,
+                   (SELECT COUNT(*) FROM students s WHERE s.course_id = e.course_id)
+                 - (SELECT COUNT(*) FROM student_exams se
+                    JOIN exam_schedules es ON se.exam_schedule_id = es.id
+                    WHERE es.exam_id = e.id)
+                 - (SELECT COUNT(*) FROM student_exams_archive sa
+                    WHERE sa.schedule_exam_id = e.id) AS remaining
+            FROM exams e
+            """;
+
+    private static volatile Map<Integer, Integer> demand;
+    private static volatile long loadedAt;
+    /** Bumped by every invalidation, so a load that raced one is not kept. */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    static {
+        EventBus.subscribe(DomainEvent.EnrollmentCreated.class, e -> invalidate());
+        EventBus.subscribe(DomainEvent.EnrollmentCancelled.class, e -> invalidate());
+        EventBus.subscribe(DomainEvent.ScheduleDeleted.class, e -> invalidate());
+        EventBus.subscribe(DomainEvent.ExamChanged.class, e -> invalidate());
+        EventBus.subscribe(DomainEvent.StudentChanged.class, e -> invalidate());
+        // A load on a connection whose enrollments then roll back saw rows that never existed
+        EventBus.onDiscard(e -> invalidate());
+    }
+
+    private RemainingDemand() {
+    }
+
+    /**
+     * Remaining demand per exam id. Loaded through conn when the cached copy
+     * is missing or too old; the map is shared, so callers must not modify it.
+     */
+    static Map<Integer, Integer> get(Connection conn) throws SQLException {
+        Map<Integer, Integer> snapshot = demand;
+        if (snapshot != null && !stale())
+            return snapshot;
+        long generation = GENERATION.get();
+        Map<Integer, Integer> loaded = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(DEMAND_SQL);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                loaded.put(rs.getInt(1), Math.max(0, rs.getInt(2)));
+            }
+        }
+        Map<Integer, Integer> shared = Map.copyOf(loaded);
+        synchronized (RemainingDemand.class) {
+            if (GENERATION.get() == generation) {
+                demand = shared;
+                loadedAt = System.nanoTime();
+            }
+        }
+        return shared;
+    }
+
+    /** Drops the cached demand; the next placement reloads it. */
+    static void invalidate() {
+        synchronized (RemainingDemand.class) {
+            GENERATION.incrementAndGet();
+            demand = null;
+        }
+    }
+
+    private static boolean stale() {
+        return System.nanoTime() - loadedAt > TimeUnit.MILLISECONDS.toNanos(MAX_AGE_MS);
+    }
+}
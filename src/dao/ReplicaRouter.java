@@ -0,0 +1,260 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends read-only queries to a replica database when it is safe to, see
+ * {@link DatabaseConnection#getReadConnection()}.
+ *
+ * Lag is measured with a heartbeat: every check this instance bumps a sequence
+ * number in its replica_heartbeat row on the primary, then reads the row back
+ * from the replica. The newest sequence the replica shows tells how far behind
+ * it is, using only this JVM's clock. Reads fall back to the primary while
+ * - the replica is unreachable or missing the heartbeat table,
+ * - it lags more than exam.db.replica.maxLagMs (default 2000), or
+ * - it has not yet applied this JVM's own last commit, so a user always sees
+ *   what they just saved (exam.db.replica.readYourWrites, default true).
+ *
+ * Settings: exam.db.replica.url (no replica when unset), exam.db.replica.user,
+ * exam.db.replica.password (default to the primary's), exam.db.replica.checkMs
+ * (default 1000).
+ *
+ * To try it locally, point exam.db.url and exam.db.replica.url at two
+ * instances (e.g. MySQL on 3306 replicating to 3307) and run
+ * java dao.ReplicaRouter; it prints the measured lag and where reads go.
+ */
+public final class ReplicaRouter {
+
+    private static final Log LOG = Log.get(ReplicaRouter.class);
+
+    private static final StorageBackend BACKEND = DatabaseConnection.getBackend();
+    private static final String URL = setting("url", "");
+    private static final String USER = setting("user", BACKEND.user());
+    private static final String PASSWORD = setting("password", BACKEND.password());
+    private static final long MAX_LAG_MS = Long.parseLong(setting("maxLagMs", "2000"));
+    private static final long CHECK_MS = Long.parseLong(setting("checkMs", "1000"));
+    private static final boolean READ_YOUR_WRITES = Boolean.parseBoolean(setting("readYourWrites", "true"));
+    private static final long PRUNE_EVERY_MS = TimeUnit.HOURS.toMillis(1);
+    // Heartbeats remembered; a replica further behind than this counts as lost
+    private static final int WINDOW = 256;
+
+    // Written and read by the monitor thread only
+    private static final long[] sentAt = new long[WINDOW];
+    private static long seq;
+    private static long lastPrune;
+
+    private static volatile boolean healthy;
+    private static volatile long lagMillis = Long.MAX_VALUE;
+    // Commits made by this JVM before this nanoTime are visible on the replica
+    private static volatile long caughtUpTo = Long.MIN_VALUE;
+    private static volatile long lastLocalCommit = Long.MIN_VALUE;
+    private static volatile ConnectionPool pool;
+    private static ScheduledExecutorService executor;
+
+    static {
+        EventBus.onCommitted((conn, events) -> lastLocalCommit = System.nanoTime());
+    }
+
+    private ReplicaRouter() {
+    }
+
+    private static String setting(String name, String fallback) {
+        return StorageBackend.setting("exam.db.replica." + name,
+                "EXAM_DB_REPLICA_" + name.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(),
+                "db.replica." + name, fallback);
+    }
+
+    public static boolean configured() {
+        return !URL.isBlank();
+    }
+
+    /** Last measured lag in milliseconds, or Long.MAX_VALUE when unknown. */
+    public static long lagMillis() {
+        return lagMillis;
+    }
+
+    public static boolean healthy() {
+        return healthy;
+    }
+
+    /** Bounds replica connections like {@link DatabaseConnection#usePool}. */
+    static synchronized void usePool(int maxSize, long borrowTimeoutMillis) {
+        if (pool == null && configured())
+            pool = new ConnectionPool(maxSize, borrowTimeoutMillis, ReplicaRouter::openPhysical);
+    }
+
+    /** Whether a read issued now may go to the replica. */
+    static boolean useReplica() {
+        if (!configured())
+            return false;
+        startMonitor();
+        return healthy && lagMillis <= MAX_LAG_MS && (!READ_YOUR_WRITES || lastLocalCommit < caughtUpTo);
+    }
+
+    /**
+     * A replica connection, or null to read from the primary instead. Only a
+     * failed connect marks the replica down; a replica pool with no connection
+     * free is saturation, not an outage, and leaves its health alone.
+     */
+    static Connection connect() {
+        ConnectionPool p = pool;
+        if (p != null) {
+            try {
+                return p.borrow();
+            } catch (SQLTransientConnectionException e) {
+                LOG.debug("Replica pool exhausted, reading from primary: {}", e.getMessage());
+                return null;
+            } catch (SQLException e) {
+                markDown(e);
+                return null;
+            }
+        }
+        try {
+            return openPhysical();
+        } catch (SQLException e) {
+            markDown(e);
+            return null;
+        }
+    }
+
+    private static Connection openPhysical() throws SQLException {
+        Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+        conn.setReadOnly(true);
+        return conn;
+    }
+
+    private static synchronized void startMonitor() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(ReplicaRouter::checkSafely, 0, CHECK_MS, TimeUnit.MILLISECONDS);
+        LOG.info("✅ Replica monitor started for {} (max lag {} ms)", URL, MAX_LAG_MS);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static void checkSafely() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            LOG.error("Replica check failed: {}", e.getMessage());
+        }
+    }
+
+    private static void check() {
+        long s = seq + 1;
+        try (Connection primary = DatabaseConnection.getConnection()) {
+            if (primary == null)
+                return;
+            // Taken before the write: anything committed earlier is on the replica
+            // once this beat is
+            sentAt[(int) (s % WINDOW)] = System.nanoTime();
+            beat(primary, s);
+            seq = s;
+            if (System.currentTimeMillis() - lastPrune > PRUNE_EVERY_MS) {
+                prune(primary);
+                lastPrune = System.currentTimeMillis();
+            }
+        } catch (SQLException e) {
+            LOG.warn("Replica heartbeat could not be written: {}", e.getMessage());
+            return;
+        }
+
+        try (Connection replica = connect()) {
+            if (replica == null)
+                return;
+            long seen = readBeat(replica);
+            long now = System.nanoTime();
+            if (seen <= 0 || seen <= seq - WINDOW) {
+                // Our heartbeat never arrived (replication stopped or not set up)
+                lagMillis = Long.MAX_VALUE;
+            } else {
+                caughtUpTo = sentAt[(int) (seen % WINDOW)];
+                lagMillis = seen >= seq ? 0
+                        : TimeUnit.NANOSECONDS.toMillis(now - sentAt[(int) ((seen + 1) % WINDOW)]);
+            }
+            if (!healthy)
+                LOG.info("✅ Replica reachable, lag {}", describeLag());
+            healthy = true;
+        } catch (SQLException e) {
+            markDown(e);
+        }
+    }
+
+    private static void beat(Connection conn, long s) throws SQLException {
+        String update = "UPDATE replica_heartbeat SET seq = ?, beat_at = CURRENT_TIMESTAMP WHERE instance_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(update)) {
+            ps.setLong(1, s);
+            ps.setString(2, ChangeLog.INSTANCE_ID);
+            if (ps.executeUpdate() > 0)
+                return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO replica_heartbeat (instance_id, seq) VALUES (?, ?)")) {
+            ps.setString(1, ChangeLog.INSTANCE_ID);
+            ps.setLong(2, s);
+            ps.executeUpdate();
+        }
+    }
+
+    private static long readBeat(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT seq FROM replica_heartbeat WHERE instance_id = ?")) {
+            ps.setString(1, ChangeLog.INSTANCE_ID);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    // Rows of instances that stopped a day ago
+    private static void prune(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM replica_heartbeat WHERE beat_at < ?")) {
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+            ps.executeUpdate();
+        }
+    }
+
+    private static void markDown(SQLException e) {
+        if (healthy)
+            LOG.warn("❌ Replica unavailable, reading from primary: {}", e.getMessage());
+        healthy = false;
+    }
+
+    private static String describeLag() {
+        long lag = lagMillis;
+        return lag == Long.MAX_VALUE ? "unknown" : lag + " ms";
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (!configured()) {
+            System.out.println("⚠️ Set exam.db.replica.url to test replica routing");
+            return;
+        }
+        for (int i = 0; i < 10; i++) {
+            boolean replica = useReplica();
+            System.out.println("lag " + describeLag() + ", healthy " + healthy + " -> reads go to "
+                    + (replica ? "replica" : "primary"));
+            Thread.sleep(CHECK_MS);
+        }
+        stop();
+    }
+}
@@ -0,0 +1,320 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-aggregated revenue for the finance reports and the dashboard total.
+ *
+ * Two kinds of money are tracked: cash-ins (payments rows, keyed by payment
+ * method) and enrollment charges (enrollment_charges rows, keyed by exam).
+ * Every cash-in and charge adds its amount to one revenue_daily row and one
+ * revenue_monthly row inside the transaction that moves the money, so the
+ * reports read a few hundred rollup rows instead of scanning payments.
+ * Cash-in rows carry exam_id 0 and charge rows payment_method ''.
+ *
+ * Today's rollup rows are touched by every payment and enrollment, so
+ * {@link #rollUpCharge} and {@link #rollUpCashIn} are the last statements
+ * before commit, each a single INSERT ... ON DUPLICATE KEY UPDATE: the row
+ * locks are held only until the commit, and a day's first insert never takes
+ * the gap lock an UPDATE-then-INSERT would, which can deadlock under
+ * REPEATABLE READ.
+ *
+ * The raw tables stay the source of truth: {@link #rebuild} recomputes the
+ * rollups for a date range from them (backfills, or after payments were
+ * edited by hand). java dao.RevenueRollups [from [to]] rebuilds from the
+ * command line; with no arguments, everything. Run it with the application
+ * stopped: money moved while it runs is counted twice.
+ */
+public final class RevenueRollups {
+
+    private static final Log LOG = Log.get(RevenueRollups.class);
+
+    static final String CASH_IN = "CashIn";
+    static final String CHARGE = "Charge";
+
+    /** Cash-ins and charges booked on one day. */
+    public record DayRevenue(LocalDate day, double cashIn, int cashInCount, double charges, int chargeCount) {
+    }
+
+    /** Cash-ins through one payment method. */
+    public record MethodRevenue(String method, double amount, int count) {
+    }
+
+    /** Enrollment fees charged for one exam. */
+    public record ExamRevenue(int examId, String examName, double amount, int count) {
+    }
+
+    private RevenueRollups() {
+    }
+
+    public static void main(String[] args) throws SQLException {
+        DatabaseSetup.ensureSchema();
+        LocalDate from = args.length > 0 ? LocalDate.parse(args[0]) : null;
+        LocalDate to = args.length > 1 ? LocalDate.parse(args[1]) : null;
+        System.out.println("Rollup days rebuilt: " + rebuild(from, to));
+    }
+
+    /**
+     * Adds a wallet cash-in to today's rollups, inside conn's transaction. Call
+     * it last, right before the commit.
+     */
+    public static void rollUpCashIn(Connection conn, String method, double amount) throws SQLException {
+        add(conn, LocalDate.now(), CASH_IN, method, 0, amount);
+    }
+
+    /**
+     * Records an enrollment fee in enrollment_charges, inside conn's transaction.
+     * The rollups follow with {@link #rollUpCharge} just before the commit.
+     */
+    static void recordCharge(Connection conn, int studentId, int examId, double amount) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO enrollment_charges (student_id, exam_id, amount) VALUES (?, ?, ?)")) {
+            ps.setInt(1, studentId);
+            ps.setInt(2, examId);
+            ps.setDouble(3, amount);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds an enrollment fee recorded by {@link #recordCharge} to today's
+     * rollups, inside conn's transaction. Call it last, right before the commit.
+     */
+    static void rollUpCharge(Connection conn, int examId, double amount) throws SQLException {
+        add(conn, LocalDate.now(), CHARGE, "", examId, amount);
+    }
+
+    /** All cash-ins ever, from the monthly rollup. */
+    public static double totalCashIn(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COALESCE(SUM(amount), 0) FROM revenue_monthly WHERE source = '" + CASH_IN + "'");
+                ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getDouble(1) : 0;
+        }
+    }
+
+    /** Revenue per day in [from, to], oldest first; days without activity are omitted. */
+    public static List<DayRevenue> byDay(LocalDate from, LocalDate to) throws SQLException {
+        String sql = """
+                SELECT revenue_day,
+                       SUM(CASE WHEN source = 'CashIn' THEN amount ELSE 0 END) AS cash_in,
+                       SUM(CASE WHEN source = 'CashIn' THEN txn_count ELSE 0 END) AS cash_in_count,
+                       SUM(CASE WHEN source = 'Charge' THEN amount ELSE 0 END) AS charges,
+                       SUM(CASE WHEN source = 'Charge' THEN txn_count ELSE 0 END) AS charge_count
+                FROM revenue_daily
+                WHERE revenue_day BETWEEN ? AND ?
+                GROUP BY revenue_day
+                ORDER BY revenue_day
+                """;
+        List<DayRevenue> days = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindRange(ps, from, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    days.add(new DayRevenue(rs.getDate("revenue_day").toLocalDate(), rs.getDouble("cash_in"),
+                            rs.getInt("cash_in_count"), rs.getDouble("charges"), rs.getInt("charge_count")));
+                }
+            }
+        }
+        return days;
+    }
+
+    /** Cash-ins per payment method in [from, to], largest first. */
+    public static List<MethodRevenue> byMethod(LocalDate from, LocalDate to) throws SQLException {
+        String sql = """
+                SELECT payment_method, SUM(amount) AS amount, SUM(txn_count) AS txn_count
+                FROM %s
+                WHERE source = 'CashIn' AND %s
+                GROUP BY payment_method
+                ORDER BY amount DESC
+                """.formatted(table(from, to), rangeColumn(from, to));
+        List<MethodRevenue> methods = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindRange(ps, from, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    methods.add(new MethodRevenue(rs.getString("payment_method"), rs.getDouble("amount"),
+                            rs.getInt("txn_count")));
+                }
+            }
+        }
+        return methods;
+    }
+
+    /** Enrollment fees per exam in [from, to], largest first. */
+    public static List<ExamRevenue> byExam(LocalDate from, LocalDate to) throws SQLException {
+        String sql = """
+                SELECT r.exam_id, e.exam_name, SUM(r.amount) AS amount, SUM(r.txn_count) AS txn_count
+                FROM %s r
+                LEFT JOIN exams e ON r.exam_id = e.id
+                WHERE r.source = 'Charge' AND r.%s
+                GROUP BY r.exam_id, e.exam_name
+                ORDER BY amount DESC
+                """.formatted(table(from, to), rangeColumn(from, to));
+        List<ExamRevenue> exams = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindRange(ps, from, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    exams.add(new ExamRevenue(rs.getInt("exam_id"), rs.getString("exam_name"),
+                            rs.getDouble("amount"), rs.getInt("txn_count")));
+                }
+            }
+        }
+        return exams;
+    }
+
+    /**
+     * Recomputes the rollups from payments and enrollment_charges for the whole
+     * months covering [from, to] (null for open ends), in one transaction.
+     * Returns the number of daily rows written. Only for the schema upgrade and
+     * the command line with the application stopped: money moved while it runs
+     * can land in the month twice.
+     */
+    public static int rebuild(LocalDate from, LocalDate to) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            return rebuild(conn, from, to);
+        }
+    }
+
+    /** As {@link #rebuild(LocalDate, LocalDate)} on conn; used by the schema upgrade. */
+    static int rebuild(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        LocalDate start = (from != null ? from : LocalDate.of(1970, 1, 1)).withDayOfMonth(1);
+        LocalDate end = (to != null ? YearMonth.from(to) : YearMonth.now().plusYears(100)).atEndOfMonth();
+        java.sql.Date startDate = java.sql.Date.valueOf(start);
+        java.sql.Date endDate = java.sql.Date.valueOf(end);
+        conn.setAutoCommit(false);
+        try {
+            for (String delete : new String[] { "DELETE FROM revenue_daily WHERE revenue_day BETWEEN ? AND ?",
+                    "DELETE FROM revenue_monthly WHERE revenue_month BETWEEN ? AND ?" }) {
+                try (PreparedStatement ps = conn.prepareStatement(delete)) {
+                    ps.setDate(1, startDate);
+                    ps.setDate(2, endDate);
+                    ps.executeUpdate();
+                }
+            }
+            int days;
+            // Set-based per day; CAST(... AS DATE) is the same on both backends
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    INSERT INTO revenue_daily (revenue_day, source, payment_method, exam_id, amount, txn_count)
+                    SELECT CAST(created_at AS DATE), 'CashIn', payment_method, 0, SUM(amount), COUNT(*)
+                    FROM payments
+                    WHERE CAST(created_at AS DATE) BETWEEN ? AND ?
+                    GROUP BY CAST(created_at AS DATE), payment_method
+                    """)) {
+                ps.setDate(1, startDate);
+                ps.setDate(2, endDate);
+                days = ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    INSERT INTO revenue_daily (revenue_day, source, payment_method, exam_id, amount, txn_count)
+                    SELECT CAST(charged_at AS DATE), 'Charge', '', exam_id, SUM(amount), COUNT(*)
+                    FROM enrollment_charges
+                    WHERE CAST(charged_at AS DATE) BETWEEN ? AND ?
+                    GROUP BY CAST(charged_at AS DATE), exam_id
+                    """)) {
+                ps.setDate(1, startDate);
+                ps.setDate(2, endDate);
+                days += ps.executeUpdate();
+            }
+            rebuildMonths(conn, startDate, endDate);
+            conn.commit();
+            LOG.info("✅ Revenue rollups rebuilt for {} to {}: {} daily row(s)", start, end, days);
+            return days;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Months are summed from the fresh daily rows here rather than in SQL:
+    // truncating a date to its month differs between MySQL and H2
+    private static void rebuildMonths(Connection conn, java.sql.Date start, java.sql.Date end) throws SQLException {
+        record Key(LocalDate month, String source, String method, int examId) {
+        }
+        Map<Key, double[]> months = new LinkedHashMap<>(); // {amount, count}
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT revenue_day, source, payment_method, exam_id, amount, txn_count FROM revenue_daily WHERE revenue_day BETWEEN ? AND ?")) {
+            ps.setDate(1, start);
+            ps.setDate(2, end);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Key key = new Key(rs.getDate("revenue_day").toLocalDate().withDayOfMonth(1), rs.getString("source"),
+                            rs.getString("payment_method"), rs.getInt("exam_id"));
+                    double[] sum = months.computeIfAbsent(key, k -> new double[2]);
+                    sum[0] += rs.getDouble("amount");
+                    sum[1] += rs.getInt("txn_count");
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO revenue_monthly (revenue_month, source, payment_method, exam_id, amount, txn_count) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (Map.Entry<Key, double[]> e : months.entrySet()) {
+                ps.setDate(1, java.sql.Date.valueOf(e.getKey().month()));
+                ps.setString(2, e.getKey().source());
+                ps.setString(3, e.getKey().method());
+                ps.setInt(4, e.getKey().examId());
+                ps.setDouble(5, e.getValue()[0]);
+                ps.setInt(6, (int) e.getValue()[1]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void add(Connection conn, LocalDate day, String source, String method, int examId, double amount)
+            throws SQLException {
+        upsert(conn, "revenue_daily", "revenue_day", day, source, method, examId, amount);
+        upsert(conn, "revenue_monthly", "revenue_month", day.withDayOfMonth(1), source, method, examId, amount);
+    }
+
+    // One statement whether or not the row exists; MODE=MySQL gives H2 the same syntax
+    private static void upsert(Connection conn, String table, String dateColumn, LocalDate date, String source,
+            String method, int examId, double amount) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO " + table + " (" + dateColumn
+                + ", source, payment_method, exam_id, amount, txn_count) VALUES (?, ?, ?, ?, ?, 1)"
+                + " ON DUPLICATE KEY UPDATE amount = amount + ?, txn_count = txn_count + 1")) {
+            ps.setDate(1, java.sql.Date.valueOf(date));
+            ps.setString(2, source);
+            ps.setString(3, method);
+            ps.setInt(4, examId);
+            ps.setDouble(5, amount);
+            ps.setDouble(6, amount);
+            ps.executeUpdate();
+        }
+    }
+
+    // Whole months in the range read the monthly table; anything else the daily one
+    private static boolean monthly(LocalDate from, LocalDate to) {
+        return from.getDayOfMonth() == 1 && to.equals(YearMonth.from(to).atEndOfMonth());
+    }
+
+    private static String table(LocalDate from, LocalDate to) {
+        return monthly(from, to) ? "revenue_monthly" : "revenue_daily";
+    }
+
+    private static String rangeColumn(LocalDate from, LocalDate to) {
+        return (monthly(from, to) ? "revenue_month" : "revenue_day") + " BETWEEN ? AND ?";
+    }
+
+    private static void bindRange(PreparedStatement ps, LocalDate from, LocalDate to) throws SQLException {
+        ps.setDate(1, java.sql.Date.valueOf(from));
+        ps.setDate(2, java.sql.Date.valueOf(to));
+    }
+}
@@ -0,0 +1,49 @@
+package dao;
+
+import java.util.List;
+
+/**
+ * Chooses the room for a new exam session among the rooms that are free for
+ * the whole session. Every {@link SchedulingService} strategy goes through the
+ * configured allocator (exam.roomAllocator: best-fit, the default, or
+ * least-used).
+ */
+public interface RoomAllocator {
+
+    /** A candidate room; usage is the number of sessions it already holds that day. */
+    record Room(int id, String name, int capacity, int usage) {
+    }
+
+    /**
+     * @param freeRooms rooms free for the session, largest first
+     * @param demand    seats the exam is expected to need
+     * @param lookAhead seats still needed by other exams, largest first
+     * @return the chosen room, or null when freeRooms is empty
+     */
+    Room choose(List<Room> freeRooms, int demand, List<Integer> lookAhead);
+
+    static RoomAllocator named(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "least-used" -> new LeastUsedRoomAllocator();
+            case "best-fit" -> new BestFitRoomAllocator();
+            default -> throw new IllegalArgumentException("Unknown room allocator: " + name);
+        };
+    }
+
+    /**
+     * The allocator the settings name. Read once, during class initialization
+     * of the scheduler, so a mistyped name falls back to best-fit with a
+     * warning instead of leaving scheduling unusable.
+     */
+    static RoomAllocator configured() {
+        String name = StorageBackend.setting("exam.roomAllocator", "EXAM_ROOM_ALLOCATOR", "scheduling.roomAllocator",
+                "best-fit");
+        try {
+            return named(name);
+        } catch (IllegalArgumentException e) {
+            Log.get(RoomAllocator.class).warn("⚠️ {}; using best-fit (expected best-fit or least-used)",
+                    e.getMessage());
+            return new BestFitRoomAllocator();
+        }
+    }
+}
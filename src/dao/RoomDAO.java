@@ -7,11 +7,13 @@ import java.util.List;
 
 public class RoomDAO {
 
+    private static final Log LOG = Log.get(RoomDAO.class);
+
     public List<Room> getAllRooms() {
         List<Room> rooms = new ArrayList<>();
         String sql = "SELECT * FROM rooms ORDER BY room_name";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -24,8 +26,7 @@ public class RoomDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("Error fetching rooms: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error fetching rooms: {}", e.getMessage(), e);
         }
 
         return rooms;
@@ -48,8 +49,7 @@ public class RoomDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("Error fetching room by ID: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error fetching room by ID: {}", e.getMessage(), e);
         }
 
         return null;
@@ -59,17 +59,24 @@ public class RoomDAO {
         String sql = "INSERT INTO rooms (room_name, capacity) VALUES (?, ?)";
 
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, room.getRoomName());
             stmt.setInt(2, room.getCapacity());
 
             int result = stmt.executeUpdate();
+            try (ResultSet gk = stmt.getGeneratedKeys()) {
+                if (gk.next()) {
+                    room.setId(gk.getInt(1));
+                }
+            }
+            if (result > 0) {
+                ChangeLog.publish(conn, new DomainEvent.RoomChanged(DomainEvent.ChangeKind.ADDED, room.getId()));
+            }
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error adding room: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error adding room: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -85,29 +92,47 @@ public class RoomDAO {
             stmt.setInt(3, room.getId());
 
             int result = stmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.publish(conn, new DomainEvent.RoomChanged(DomainEvent.ChangeKind.UPDATED, room.getId()));
+                // Future sessions follow the room's new size
+                try {
+                    SessionCapacity.recomputeRoom(room.getId());
+                } catch (SQLException e) {
+                    LOG.error("Room {} updated but its sessions were not recomputed: {}", room.getId(),
+                            e.getMessage(), e);
+                }
+            }
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error updating room: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating room: {}", e.getMessage(), e);
             return false;
         }
     }
 
+    /**
+     * Deletes the room only while no session uses it: the foreign key would
+     * otherwise cascade to its sessions and their enrollments. The admin panel
+     * goes through {@link RoomRelocationService#retire}, which moves upcoming
+     * sessions out and deletes or retires the room in one transaction.
+     */
     public boolean deleteRoom(int roomId) {
-        String sql = "DELETE FROM rooms WHERE id = ?";
+        String sql = "DELETE FROM rooms WHERE id = ? AND NOT EXISTS (SELECT 1 FROM exam_schedules WHERE room_id = ?)";
 
         try (Connection conn = DatabaseConnection.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, roomId);
+            stmt.setInt(2, roomId);
 
             int result = stmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.publish(conn, new DomainEvent.RoomChanged(DomainEvent.ChangeKind.DELETED, roomId));
+            }
             return result > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error deleting room: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error deleting room: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -116,7 +141,7 @@ public class RoomDAO {
         List<Room> rooms = new ArrayList<>();
         String sql = "SELECT * FROM rooms WHERE capacity >= ? ORDER BY capacity, room_name";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, minCapacity);
@@ -131,8 +156,7 @@ public class RoomDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("Error fetching available rooms: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error fetching available rooms: {}", e.getMessage(), e);
         }
 
         return rooms;
@@ -141,7 +165,7 @@ public class RoomDAO {
     public int getTotalRoomCapacity() {
         String sql = "SELECT SUM(capacity) as total_capacity FROM rooms";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -150,8 +174,7 @@ public class RoomDAO {
             }
 
         } catch (SQLException e) {
-            System.err.println("Error calculating total room capacity: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error calculating total room capacity: {}", e.getMessage(), e);
         }
 
         return 0;
@@ -0,0 +1,806 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Moves every session out of a room for a date window (a room outage) and
+ * keeps the room from being booked again in that window.
+ *
+ * One transaction locks every (date, lock stripe) of the affected days, so no
+ * booking can take a room the plan relies on, and reads the sessions, their
+ * enrollments, the other rooms' days, the other sessions of the affected exams
+ * and the affected students' timetables in one query each. Each session, in
+ * start order, is then re-placed by the first step that works:
+ * 1. the whole session moves to a free room at the same time;
+ * 2. it is split over several free rooms at the same time;
+ * 3. the students the free rooms cannot seat move into other sessions of the
+ *    same exam that have seats and do not clash with their timetable, and the
+ *    rest are split as in 2.
+ * Steps 1 and 2 keep everyone's exam time, so they cannot create a conflict.
+ * Students that fit nowhere stay in the old session, which is closed to new
+ * bookings, and are reported so an admin can contact them. A session emptied
+ * this way is deleted, unless a live seat hold is for it: then it too stays,
+ * closed, so the hold can still be checked out.
+ *
+ * {@link #preview} plans the same way and rolls everything back.
+ * {@link #resolveOverflow} reuses the planner for sessions whose room shrank:
+ * only their students beyond capacity move, by steps 2 and 3.
+ */
+public final class RoomRelocationService {
+
+    private static final Log LOG = Log.get(RoomRelocationService.class);
+
+    /** A student left in the unavailable room. */
+    public record Unplaced(int studentId, int registrationId, int scheduleId, int examId, LocalDate date,
+            LocalTime start, String reason) {
+    }
+
+    /** What a relocation did (or would do, when not applied). */
+    public record Report(int sessions, int sessionsMoved, int sessionsSplit, int sessionsRemoved, int studentsMoved,
+            List<Unplaced> unplaced, boolean applied) {
+
+        public String summary() {
+            return sessions + " session(s) affected: " + sessionsMoved + " moved, " + sessionsSplit + " split, "
+                    + sessionsRemoved + " removed; " + studentsMoved + " student(s) moved to another session, "
+                    + unplaced.size() + " could not be placed";
+        }
+    }
+
+    // Times are minutes of the day
+    private record Session(int id, int examId, LocalDate date, int start, int end, int capacity) {
+        boolean overlaps(Session other) {
+            return date.equals(other.date) && start < other.end && other.start < end;
+        }
+    }
+
+    private record Enrollment(int registrationId, int studentId) {
+    }
+
+    /**
+     * The sessions a run works on, as a condition on exam_schedules es. An
+     * outage empties them out of excludedRoom; an overflow run only moves the
+     * students beyond each session's capacity.
+     */
+    private record Scope(String where, List<Object> args, int excludedRoom, boolean relocating) {
+        int bind(PreparedStatement ps, int index) throws SQLException {
+            for (Object arg : args)
+                ps.setObject(index++, arg);
+            return index;
+        }
+    }
+
+    // Another session of an affected exam, with the seats it can still take
+    private static final class Target {
+        final Session session;
+        int free;
+
+        Target(Session session, int free) {
+            this.session = session;
+            this.free = free;
+        }
+    }
+
+    private record RoomMove(int scheduleId, int examId, int roomId) {
+    }
+
+    private record NewSession(int examId, int roomId, Session slot, int capacity) {
+    }
+
+    // Into an existing session (toSchedule), or into created.get(newSession)
+    private record StudentMove(Enrollment enrollment, int fromSchedule, int toSchedule, int newSession) {
+    }
+
+    private static final class Plan {
+        final List<RoomMove> roomMoves = new ArrayList<>();
+        final List<NewSession> created = new ArrayList<>();
+        final List<StudentMove> studentMoves = new ArrayList<>();
+        final List<Session> removed = new ArrayList<>();
+        // Sessions left holding unplaced students
+        final List<Session> closed = new ArrayList<>();
+        final List<Unplaced> unplaced = new ArrayList<>();
+        int sessions;
+        int moved;
+        int split;
+        int movedToOtherSessions;
+    }
+
+    private RoomRelocationService() {
+    }
+
+    /** The relocation {@link #relocate} would make, without changing anything. */
+    public static Report preview(int roomId, LocalDate from, LocalDate to) throws SQLException {
+        return run(roomId, from, to, null, false);
+    }
+
+    /**
+     * Marks the room unavailable from from to to (inclusive) and moves its
+     * sessions in that window elsewhere.
+     */
+    public static Report relocate(int roomId, LocalDate from, LocalDate to, String reason) throws SQLException {
+        return run(roomId, from, to, reason == null ? "" : reason, true);
+    }
+
+    /** What {@link #retire} did with the room once its upcoming sessions moved out. */
+    public record Retirement(Report report, boolean deleted) {
+    }
+
+    /**
+     * Moves all of the room's upcoming sessions elsewhere and then, in the same
+     * transaction, deletes the room. A room that still holds sessions (past
+     * exams, or students who could not be placed) is not deleted, since the
+     * foreign key would cascade to them; it gets an open-ended outage from today
+     * instead, so it is never booked again.
+     */
+    public static Retirement retire(int roomId) throws SQLException {
+        LocalDate today = LocalDate.now();
+        boolean[] deleted = new boolean[1];
+        Scope scope = new Scope("es.room_id = ? AND es.scheduled_date >= ?",
+                List.of(roomId, java.sql.Date.valueOf(today)), roomId, true);
+        Report report = run(scope, conn -> deleted[0] = deleteOrRetire(roomId, today, conn), true);
+        LOG.info("✅ {} room {}: {}", deleted[0] ? "Deleted" : "Retired", roomId, report.summary());
+        return new Retirement(report, deleted[0]);
+    }
+
+    /**
+     * Moves the students beyond capacity out of the given sessions (after their
+     * room shrank, see {@link SessionCapacity}): into new sessions in free rooms
+     * at the same time, else into other sessions of the exam. Anyone left stays
+     * where they are and is reported.
+     */
+    static Report resolveOverflow(List<Integer> scheduleIds) throws SQLException {
+        if (scheduleIds.isEmpty())
+            return new Report(0, 0, 0, 0, 0, List.of(), true);
+        return run(new Scope("es.id IN (" + placeholders(scheduleIds.size()) + ")", List.copyOf(scheduleIds), 0,
+                false), null, true);
+    }
+
+    /** Whether an outage covers the room on the date. */
+    static boolean isUnavailable(Connection conn, int roomId, LocalDate date) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM room_outages WHERE room_id = ? AND ? BETWEEN from_date AND to_date")) {
+            ps.setInt(1, roomId);
+            ps.setDate(2, java.sql.Date.valueOf(date));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /** Outage windows ({from, to}) per room that overlap [from, to]. */
+    static Map<Integer, List<LocalDate[]>> outages(Connection conn, LocalDate from, LocalDate to)
+            throws SQLException {
+        Map<Integer, List<LocalDate[]>> windows = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT room_id, from_date, to_date FROM room_outages WHERE from_date <= ? AND to_date >= ?")) {
+            ps.setDate(1, java.sql.Date.valueOf(to));
+            ps.setDate(2, java.sql.Date.valueOf(from));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    windows.computeIfAbsent(rs.getInt("room_id"), k -> new ArrayList<>()).add(new LocalDate[] {
+                            rs.getDate("from_date").toLocalDate(), rs.getDate("to_date").toLocalDate() });
+                }
+            }
+        }
+        return windows;
+    }
+
+    static boolean covers(List<LocalDate[]> windows, LocalDate date) {
+        if (windows == null)
+            return false;
+        for (LocalDate[] w : windows) {
+            if (!date.isBefore(w[0]) && !date.isAfter(w[1]))
+                return true;
+        }
+        return false;
+    }
+
+    private static Report run(int roomId, LocalDate from, LocalDate to, String reason, boolean apply)
+            throws SQLException {
+        if (to.isBefore(from))
+            throw new IllegalArgumentException("The outage ends before it starts");
+        Scope scope = new Scope("es.room_id = ? AND es.scheduled_date BETWEEN ? AND ?",
+                List.of(roomId, java.sql.Date.valueOf(from), java.sql.Date.valueOf(to)), roomId, true);
+        Step outage = reason == null ? null : conn -> recordOutage(roomId, from, to, reason, conn);
+        Report report = run(scope, outage, apply);
+        if (apply && report.sessions() > 0)
+            LOG.info("✅ Relocated room {} ({} to {}): {}", roomId, from, to, report.summary());
+        return report;
+    }
+
+    // Extra write made in the relocation's transaction
+    private interface Step {
+        void run(Connection conn) throws SQLException;
+    }
+
+    private static Report run(Scope scope, Step after, boolean apply) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            conn.setAutoCommit(false);
+            try {
+                List<RoomAllocator.Room> rooms = SchedulingService.loadRoomsAligned(conn);
+                lockAffectedDays(scope, rooms, conn);
+                Plan plan = plan(scope, rooms, conn);
+                if (apply) {
+                    execute(plan, conn);
+                    if (after != null)
+                        after.run(conn);
+                    conn.commit();
+                    EventBus.afterCommit(conn);
+                } else {
+                    conn.rollback();
+                }
+                return new Report(plan.sessions, plan.moved, plan.split, plan.removed.size(),
+                        plan.movedToOtherSessions, List.copyOf(plan.unplaced), apply);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /*
+     * The days are only known from the sessions, so a first plain read picks
+     * the days to lock; once those are held, a locking read (which sees the
+     * latest commits, not the transaction's snapshot) confirms them. A session
+     * booked on another day in between adds that day and the read repeats.
+     */
+    private static void lockAffectedDays(Scope scope, List<RoomAllocator.Room> rooms, Connection conn)
+            throws SQLException {
+        Set<LocalDate> locked = new TreeSet<>();
+        Set<LocalDate> days = affectedDays(scope, false, conn);
+        while (!locked.containsAll(days)) {
+            days.removeAll(locked);
+            lockDays(days, rooms, conn);
+            locked.addAll(days);
+            days = affectedDays(scope, true, conn);
+        }
+    }
+
+    private static Set<LocalDate> affectedDays(Scope scope, boolean locking, Connection conn) throws SQLException {
+        Set<LocalDate> days = new TreeSet<>();
+        // No DISTINCT: H2 refuses it with FOR UPDATE
+        try (PreparedStatement ps = conn.prepareStatement("SELECT es.scheduled_date FROM exam_schedules es WHERE "
+                + scope.where() + (locking ? " FOR UPDATE" : ""))) {
+            scope.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    days.add(rs.getDate(1).toLocalDate());
+                }
+            }
+        }
+        return days;
+    }
+
+    // Every stripe of every affected day, in date/stripe order like the other multi-room writers
+    private static void lockDays(Set<LocalDate> days, List<RoomAllocator.Room> rooms, Connection conn)
+            throws SQLException {
+        TreeMap<Integer, Integer> stripes = new TreeMap<>();
+        for (RoomAllocator.Room room : rooms) {
+            stripes.putIfAbsent(ScheduleLocks.stripeOf(room.id()), room.id());
+        }
+        for (LocalDate day : days) {
+            for (int roomId : stripes.values()) {
+                ScheduleLocks.lock(conn, day, roomId);
+            }
+        }
+    }
+
+    private static Plan plan(Scope scope, List<RoomAllocator.Room> rooms, Connection conn) throws SQLException {
+        Plan plan = new Plan();
+        List<int[]> sessionRows = loadSessionRows(scope, conn);
+        if (sessionRows.isEmpty())
+            return plan;
+
+        Set<Integer> examIds = new TreeSet<>();
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (int[] r : sessionRows) {
+            examIds.add(r[1]);
+            days.add(LocalDate.ofEpochDay(r[2]));
+        }
+        Map<Integer, List<Enrollment>> enrolled = loadEnrollments(scope, conn);
+        Set<Integer> held = loadHeldSessions(scope, conn);
+        List<int[]> targetRows = loadTargetRows(scope, examIds, conn);
+        List<int[]> timetableRows = loadTimetableRows(scope, conn);
+        List<int[]> occupancyRows = loadOccupancyRows(scope.excludedRoom(), days, conn);
+        Set<Integer> allExams = new TreeSet<>(examIds);
+        timetableRows.forEach(r -> allExams.add(r[1]));
+        occupancyRows.forEach(r -> allExams.add(r[1]));
+        Map<Integer, Integer> minutes = ScheduleLocks.examDurations(allExams, conn);
+
+        Map<Integer, List<Target>> targets = new HashMap<>();
+        for (int[] r : targetRows) {
+            if (r[4] > 0)
+                targets.computeIfAbsent(r[1], k -> new ArrayList<>()).add(new Target(session(r, minutes), r[4]));
+        }
+        Map<Integer, List<Session>> busy = new HashMap<>();
+        for (int[] r : timetableRows) {
+            busy.computeIfAbsent(r[4], k -> new ArrayList<>()).add(session(r, minutes));
+        }
+        // Room -> day -> sessions in it, kept current as the plan books rooms
+        Map<Integer, Map<LocalDate, List<Session>>> occupied = new HashMap<>();
+        for (int[] r : occupancyRows) {
+            Session s = session(r, minutes);
+            occupied.computeIfAbsent(r[4], k -> new HashMap<>()).computeIfAbsent(s.date(), k -> new ArrayList<>())
+                    .add(s);
+        }
+        Map<Integer, List<LocalDate[]>> outages = outages(conn, days.first(), days.last());
+        Map<Integer, Integer> demand = RemainingDemand.get(conn);
+
+        for (int[] r : sessionRows) {
+            Session s = session(r, minutes);
+            List<Enrollment> students = enrolled.getOrDefault(s.id(), List.of());
+            List<RoomAllocator.Room> free = freeRooms(s, scope.excludedRoom(), rooms, occupied, outages);
+            int freeSeats = free.stream().mapToInt(RoomAllocator.Room::capacity).sum();
+
+            if (!scope.relocating()) {
+                // The session keeps its room; the latest registrations beyond
+                // its capacity leave
+                int excess = students.size() - s.capacity();
+                if (excess <= 0)
+                    continue;
+                plan.sessions++;
+                List<Enrollment> extra = students.subList(students.size() - excess, students.size());
+                List<Enrollment> sameTime = extra.subList(0, Math.min(freeSeats, excess));
+                placeElsewhere(plan, s, extra.subList(sameTime.size(), excess), targets, busy,
+                        "Room capacity was reduced and no other seat is free");
+                split(plan, s, sameTime, free, occupied, false);
+                continue;
+            }
+
+            plan.sessions++;
+            RoomAllocator.Room whole = wholeRoom(free, s.examId(), students.size(), demand);
+            if (whole != null) {
+                plan.roomMoves.add(new RoomMove(s.id(), s.examId(), whole.id()));
+                book(occupied, whole.id(), s);
+                plan.moved++;
+                continue;
+            }
+
+            // Only as many students change time as the free rooms cannot seat;
+            // the latest registrations go first
+            List<Enrollment> sameTime = students.subList(0, Math.min(freeSeats, students.size()));
+            int unplaced = placeElsewhere(plan, s, students.subList(sameTime.size(), students.size()), targets,
+                    busy, "No free room at this time and no conflict-free seat in another session");
+
+            if (unplaced > 0) {
+                split(plan, s, sameTime, free, occupied, false);
+                plan.closed.add(s);
+            } else if (sameTime.isEmpty() && held.contains(s.id())) {
+                plan.closed.add(s);
+            } else if (sameTime.isEmpty()) {
+                plan.removed.add(s);
+            } else {
+                split(plan, s, sameTime, free, occupied, true);
+            }
+        }
+        return plan;
+    }
+
+    // Moves each student to the nearest session of the exam they can sit;
+    // returns how many found none
+    private static int placeElsewhere(Plan plan, Session s, List<Enrollment> students,
+            Map<Integer, List<Target>> targets, Map<Integer, List<Session>> busy, String reason) {
+        int unplaced = 0;
+        for (Enrollment e : students) {
+            Target t = findTarget(e, s, targets.get(s.examId()), busy);
+            if (t == null) {
+                plan.unplaced.add(new Unplaced(e.studentId(), e.registrationId(), s.id(), s.examId(), s.date(),
+                        LocalTime.ofSecondOfDay(s.start() * 60L), reason));
+                unplaced++;
+                continue;
+            }
+            t.free--;
+            List<Session> timetable = busy.computeIfAbsent(e.studentId(), k -> new ArrayList<>());
+            timetable.removeIf(b -> b.id() == s.id());
+            timetable.add(t.session);
+            plan.studentMoves.add(new StudentMove(e, s.id(), t.session.id(), -1));
+            plan.movedToOtherSessions++;
+        }
+        return unplaced;
+    }
+
+    private static Session session(int[] r, Map<Integer, Integer> minutes) {
+        return new Session(r[0], r[1], LocalDate.ofEpochDay(r[2]), r[3], r[3] + minutes.getOrDefault(r[1], 120),
+                r.length > 5 ? r[5] : 0);
+    }
+
+    // Other rooms with nothing overlapping the session that day, largest first
+    private static List<RoomAllocator.Room> freeRooms(Session s, int outageRoom, List<RoomAllocator.Room> rooms,
+            Map<Integer, Map<LocalDate, List<Session>>> occupied, Map<Integer, List<LocalDate[]>> outages) {
+        List<RoomAllocator.Room> free = new ArrayList<>();
+        for (RoomAllocator.Room room : rooms) {
+            if (room.id() == outageRoom || room.id() <= 0 || room.capacity() <= 0
+                    || covers(outages.get(room.id()), s.date()))
+                continue;
+            List<Session> day = occupied.getOrDefault(room.id(), Map.of()).getOrDefault(s.date(), List.of());
+            if (day.stream().noneMatch(s::overlaps))
+                free.add(SchedulingService.withUsage(room, day.size()));
+        }
+        return free;
+    }
+
+    private static RoomAllocator.Room wholeRoom(List<RoomAllocator.Room> free, int examId, int students,
+            Map<Integer, Integer> demand) {
+        List<RoomAllocator.Room> fits = new ArrayList<>();
+        for (RoomAllocator.Room room : free) {
+            if (room.capacity() >= students)
+                fits.add(room);
+        }
+        if (fits.isEmpty())
+            return null;
+        List<Integer> others = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : demand.entrySet()) {
+            if (e.getKey() != examId && e.getValue() > 0)
+                others.add(e.getValue());
+        }
+        others.sort(Comparator.reverseOrder());
+        return SchedulingService.getRoomAllocator().choose(fits, Math.max(1, students), others);
+    }
+
+    /**
+     * Seats the students over the free rooms, largest first. The session
+     * itself moves into the first room when keepSession is set; every other
+     * room gets a new session of the same exam at the same time.
+     */
+    private static void split(Plan plan, Session s, List<Enrollment> students, List<RoomAllocator.Room> free,
+            Map<Integer, Map<LocalDate, List<Session>>> occupied, boolean keepSession) {
+        if (students.isEmpty())
+            return;
+        int next = 0;
+        for (RoomAllocator.Room room : free) {
+            if (next >= students.size())
+                break;
+            List<Enrollment> chunk = students.subList(next, Math.min(students.size(), next + room.capacity()));
+            next += chunk.size();
+            book(occupied, room.id(), s);
+            if (keepSession) {
+                plan.roomMoves.add(new RoomMove(s.id(), s.examId(), room.id()));
+                keepSession = false;
+                continue;
+            }
+            plan.created.add(new NewSession(s.examId(), room.id(), s, room.capacity()));
+            int index = plan.created.size() - 1;
+            for (Enrollment e : chunk) {
+                plan.studentMoves.add(new StudentMove(e, s.id(), 0, index));
+            }
+        }
+        plan.split++;
+    }
+
+    // The nearest session in time the student can sit, or null
+    private static Target findTarget(Enrollment e, Session from, List<Target> candidates,
+            Map<Integer, List<Session>> busy) {
+        if (candidates == null)
+            return null;
+        List<Session> timetable = busy.getOrDefault(e.studentId(), List.of());
+        Target best = null;
+        long bestDistance = Long.MAX_VALUE;
+        for (Target t : candidates) {
+            if (t.free <= 0)
+                continue;
+            long distance = Math.abs((t.session.date().toEpochDay() - from.date().toEpochDay()) * 24 * 60
+                    + t.session.start() - from.start());
+            if (distance >= bestDistance)
+                continue;
+            boolean clash = false;
+            for (Session b : timetable) {
+                if (b.id() != from.id() && b.overlaps(t.session)) {
+                    clash = true;
+                    break;
+                }
+            }
+            if (!clash) {
+                best = t;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static void book(Map<Integer, Map<LocalDate, List<Session>>> occupied, int roomId, Session s) {
+        occupied.computeIfAbsent(roomId, k -> new HashMap<>()).computeIfAbsent(s.date(), k -> new ArrayList<>())
+                .add(s);
+    }
+
+    // {id, exam, epochDay, startMinute, 0, capacity}
+    private static List<int[]> loadSessionRows(Scope scope, Connection conn) throws SQLException {
+        List<int[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT es.id, es.exam_id, es.scheduled_date, es.scheduled_time, es.capacity
+                FROM exam_schedules es
+                WHERE %s
+                ORDER BY es.scheduled_date, es.scheduled_time, es.id
+                FOR UPDATE
+                """.formatted(scope.where()))) {
+            scope.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new int[] { rs.getInt("id"), rs.getInt("exam_id"), epochDay(rs),
+                            startMinute(rs), 0, rs.getInt("capacity") });
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Sessions in scope with an unexpired seat hold, counted as SessionCapacity.lockFreeSeats counts them
+    private static Set<Integer> loadHeldSessions(Scope scope, Connection conn) throws SQLException {
+        Set<Integer> held = new TreeSet<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT h.exam_schedule_id
+                FROM seat_holds h
+                JOIN exam_schedules es ON h.exam_schedule_id = es.id
+                WHERE h.expires_at > ? AND %s
+                """.formatted(scope.where()))) {
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            scope.bind(ps, 2);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    held.add(rs.getInt(1));
+            }
+        }
+        return held;
+    }
+
+    private static Map<Integer, List<Enrollment>> loadEnrollments(Scope scope, Connection conn) throws SQLException {
+        Map<Integer, List<Enrollment>> enrolled = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT se.id, se.student_id, se.exam_schedule_id
+                FROM student_exams se
+                JOIN exam_schedules es ON se.exam_schedule_id = es.id
+                WHERE %s
+                ORDER BY se.id
+                """.formatted(scope.where()))) {
+            scope.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    enrolled.computeIfAbsent(rs.getInt("exam_schedule_id"), k -> new ArrayList<>())
+                            .add(new Enrollment(rs.getInt("id"), rs.getInt("student_id")));
+                }
+            }
+        }
+        return enrolled;
+    }
+
+    // Upcoming sessions of the exams elsewhere: {id, exam, epochDay, startMinute, free seats}
+    private static List<int[]> loadTargetRows(Scope scope, Set<Integer> examIds, Connection conn)
+            throws SQLException {
+        String sql = """
+                SELECT es.id, es.exam_id, es.scheduled_date, es.scheduled_time,
+                       es.capacity - (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id)
+                                   - (SELECT COUNT(*) FROM seat_holds h
+                                      WHERE h.exam_schedule_id = es.id AND h.expires_at > ?) AS free_seats
+                FROM exam_schedules es
+                WHERE es.exam_id IN (%s) AND es.scheduled_date >= CURRENT_DATE AND es.scheduled_time IS NOT NULL
+                  AND NOT (%s)
+                FOR UPDATE
+                """.formatted(placeholders(examIds.size()), scope.where());
+        List<int[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            ps.setTimestamp(i++, new Timestamp(System.currentTimeMillis()));
+            for (int id : examIds)
+                ps.setInt(i++, id);
+            scope.bind(ps, i);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new int[] { rs.getInt("id"), rs.getInt("exam_id"), epochDay(rs), startMinute(rs),
+                            rs.getInt("free_seats") });
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Upcoming bookings of every affected student: {schedule id, exam, epochDay, startMinute, student id}
+    private static List<int[]> loadTimetableRows(Scope scope, Connection conn) throws SQLException {
+        List<int[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT se.student_id, b.id, b.exam_id, b.scheduled_date, b.scheduled_time
+                FROM student_exams se
+                JOIN exam_schedules b ON se.exam_schedule_id = b.id
+                WHERE b.scheduled_date >= CURRENT_DATE AND b.scheduled_time IS NOT NULL
+                  AND (se.status IS NULL OR se.status <> 'Cancelled')
+                  AND se.student_id IN (SELECT se2.student_id
+                                        FROM student_exams se2
+                                        JOIN exam_schedules es ON se2.exam_schedule_id = es.id
+                                        WHERE %s)
+                """.formatted(scope.where()))) {
+            scope.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new int[] { rs.getInt("id"), rs.getInt("exam_id"), epochDay(rs), startMinute(rs),
+                            rs.getInt("student_id") });
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Sessions outside the excluded room on the affected days: {id, exam, epochDay, startMinute, room id}
+    private static List<int[]> loadOccupancyRows(int roomId, Set<LocalDate> days, Connection conn)
+            throws SQLException {
+        List<int[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, exam_id, room_id, scheduled_date, scheduled_time "
+                + "FROM exam_schedules WHERE room_id <> ? AND scheduled_time IS NOT NULL "
+                + "AND scheduled_date IN (" + placeholders(days.size()) + ") FOR UPDATE")) {
+            int i = 1;
+            ps.setInt(i++, roomId);
+            for (LocalDate day : days)
+                ps.setDate(i++, java.sql.Date.valueOf(day));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new int[] { rs.getInt("id"), rs.getInt("exam_id"), epochDay(rs), startMinute(rs),
+                            rs.getInt("room_id") });
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void execute(Plan plan, Connection conn) throws SQLException {
+        List<DomainEvent> events = new ArrayList<>();
+
+        List<Integer> createdIds = new ArrayList<>();
+        if (!plan.created.isEmpty()) {
+            String sql = "INSERT INTO exam_schedules (exam_id, room_id, scheduled_date, scheduled_time, "
+                    + "duration_minutes, max_students, capacity) VALUES (?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (NewSession n : plan.created) {
+                    ps.setInt(1, n.examId());
+                    ps.setInt(2, n.roomId());
+                    ps.setDate(3, java.sql.Date.valueOf(n.slot().date()));
+                    ps.setTime(4, java.sql.Time.valueOf(LocalTime.ofSecondOfDay(n.slot().start() * 60L)));
+                    ps.setInt(5, n.slot().end() - n.slot().start());
+                    ps.setInt(6, n.capacity());
+                    ps.setInt(7, n.capacity());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        createdIds.add(keys.getInt(1));
+                    }
+                }
+            }
+            if (createdIds.size() != plan.created.size())
+                throw new SQLException("Expected " + plan.created.size() + " new session ids, got " + createdIds.size());
+            for (int i = 0; i < createdIds.size(); i++) {
+                events.add(new DomainEvent.ScheduleCreated(createdIds.get(i), plan.created.get(i).examId()));
+            }
+        }
+
+        if (!plan.roomMoves.isEmpty()) {
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE exam_schedules SET room_id = ? WHERE id = ?")) {
+                for (RoomMove m : plan.roomMoves) {
+                    ps.setInt(1, m.roomId());
+                    ps.setInt(2, m.scheduleId());
+                    ps.addBatch();
+                    ids.add(m.scheduleId());
+                }
+                ps.executeBatch();
+            }
+            SessionCapacity.refresh(conn, ids);
+            for (RoomMove m : plan.roomMoves) {
+                events.add(new DomainEvent.ScheduleChanged(m.scheduleId(), m.examId()));
+            }
+        }
+
+        if (!plan.studentMoves.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE student_exams SET exam_schedule_id = ? WHERE id = ?")) {
+                for (StudentMove m : plan.studentMoves) {
+                    int to = m.newSession() >= 0 ? createdIds.get(m.newSession()) : m.toSchedule();
+                    ps.setInt(1, to);
+                    ps.setInt(2, m.enrollment().registrationId());
+                    ps.addBatch();
+                    // Views and timetable caches see a move as leave-old + join-new session
+                    events.add(new DomainEvent.EnrollmentCancelled(m.enrollment().studentId(),
+                            m.enrollment().registrationId(), m.fromSchedule()));
+                    events.add(new DomainEvent.EnrollmentCreated(m.enrollment().studentId(),
+                            m.enrollment().registrationId(), to));
+                }
+                ps.executeBatch();
+            }
+        }
+
+        // Sessions still holding unplaced students take nobody new
+        if (!plan.closed.isEmpty()) {
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE exam_schedules SET seat_limit = "
+                    + "(SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = ?) WHERE id = ?")) {
+                for (Session s : plan.closed) {
+                    ps.setInt(1, s.id());
+                    ps.setInt(2, s.id());
+                    ps.addBatch();
+                    ids.add(s.id());
+                    events.add(new DomainEvent.ScheduleChanged(s.id(), s.examId()));
+                }
+                ps.executeBatch();
+            }
+            SessionCapacity.refresh(conn, ids);
+        }
+
+        for (Session s : plan.removed) {
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    DELETE FROM exam_schedules WHERE id = ?
+                      AND NOT EXISTS (SELECT 1 FROM student_exams se WHERE se.exam_schedule_id = ?)
+                      AND NOT EXISTS (SELECT 1 FROM seat_holds h WHERE h.exam_schedule_id = ? AND h.expires_at > ?)
+                    """)) {
+                ps.setInt(1, s.id());
+                ps.setInt(2, s.id());
+                ps.setInt(3, s.id());
+                ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                if (ps.executeUpdate() == 0)
+                    throw new SQLException("Session " + s.id() + " still has enrollments or seat holds");
+            }
+            events.add(new DomainEvent.ScheduleDeleted(s.id()));
+        }
+
+        for (DomainEvent event : events) {
+            ChangeLog.publish(conn, event);
+        }
+    }
+
+    private static void recordOutage(int roomId, LocalDate from, LocalDate to, String reason, Connection conn)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO room_outages (room_id, from_date, to_date, reason) VALUES (?, ?, ?, ?)")) {
+            ps.setInt(1, roomId);
+            ps.setDate(2, java.sql.Date.valueOf(from));
+            ps.setDate(3, java.sql.Date.valueOf(to));
+            ps.setString(4, reason);
+            ps.executeUpdate();
+        }
+        ChangeLog.publish(conn, new DomainEvent.RoomChanged(DomainEvent.ChangeKind.UPDATED, roomId));
+    }
+
+    // Past sessions keep the room for the history; they no longer stop it from being taken out of use
+    private static boolean deleteOrRetire(int roomId, LocalDate today, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM rooms WHERE id = ? AND NOT EXISTS (SELECT 1 FROM exam_schedules WHERE room_id = ?)")) {
+            ps.setInt(1, roomId);
+            ps.setInt(2, roomId);
+            if (ps.executeUpdate() > 0) {
+                ChangeLog.publish(conn, new DomainEvent.RoomChanged(DomainEvent.ChangeKind.DELETED, roomId));
+                return true;
+            }
+        }
+        recordOutage(roomId, today, LocalDate.of(9999, 12, 31), "Room retired", conn);
+        return false;
+    }
+
+    private static int epochDay(ResultSet rs) throws SQLException {
+        return (int) rs.getDate("scheduled_date").toLocalDate().toEpochDay();
+    }
+
+    private static int startMinute(ResultSet rs) throws SQLException {
+        java.sql.Time t = rs.getTime("scheduled_time");
+        return t != null ? t.toLocalTime().toSecondOfDay() / 60 : 0;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
@@ -0,0 +1,240 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves past exam sessions and their enrollments out of the hot tables.
+ *
+ * exam_schedules and student_exams only ever grow, and nearly every query
+ * (booking, timetables, dashboards) is about today and later. Sessions older
+ * than exam.archive.keepDays (default 120) are copied, with their enrollment
+ * count, into exam_schedules_archive, their enrollments into
+ * student_exams_archive, and then deleted, in batches of exam.archive.batch
+ * sessions per transaction so locks stay short. Archive rows keep their
+ * original ids. Reads that show history (exam history, the admin schedule
+ * list with "Include archived", completed counts) union the archive in; the
+ * booking paths never look at it.
+ *
+ * Runs every exam.archive.intervalMin minutes (default 360) once started;
+ * also runnable on its own: java dao.ScheduleArchiveJob
+ */
+public final class ScheduleArchiveJob {
+
+    private static final Log LOG = Log.get(ScheduleArchiveJob.class);
+
+    private static final int KEEP_DAYS = Integer.parseInt(StorageBackend.setting(
+            "exam.archive.keepDays", "EXAM_ARCHIVE_KEEP_DAYS", "archive.keepDays", "120"));
+    private static final int BATCH = Integer.parseInt(StorageBackend.setting(
+            "exam.archive.batch", "EXAM_ARCHIVE_BATCH", "archive.batch", "500"));
+    private static final long INTERVAL_MIN = Long.parseLong(StorageBackend.setting(
+            "exam.archive.intervalMin", "EXAM_ARCHIVE_INTERVAL_MIN", "archive.intervalMin", "360"));
+
+    // app_meta counter of archived sessions, so completed counts need not scan the archive
+    private static final String COUNTER_KEY = "archived_sessions";
+
+    private static ScheduledExecutorService executor;
+
+    private ScheduleArchiveJob() {
+    }
+
+    public static void main(String[] args) {
+        DatabaseSetup.ensureSchema();
+        runOnce();
+    }
+
+    public static synchronized void start() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "schedule-archive");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(ScheduleArchiveJob::runOnce, 1, INTERVAL_MIN, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /** Archives every session older than the retention window. Returns the number of sessions moved. */
+    public static int runOnce() {
+        LocalDate cutoff = LocalDate.now().minusDays(KEEP_DAYS);
+        int sessions = 0;
+        int enrollments = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                return 0;
+            while (true) {
+                List<Integer> ids = findBatch(conn, cutoff);
+                if (ids.isEmpty())
+                    break;
+                int[] moved = archiveBatch(conn, ids, cutoff);
+                sessions += moved[0];
+                enrollments += moved[1];
+                if (ids.size() < BATCH)
+                    break;
+            }
+        } catch (SQLException e) {
+            LOG.error("Schedule archival failed: {}", e.getMessage(), e);
+        }
+        if (sessions > 0)
+            LOG.info("✅ Archived {} session(s) and {} enrollment(s) before {}", sessions, enrollments, cutoff);
+        return sessions;
+    }
+
+    /** Sessions moved to the archive so far, kept as a counter in app_meta. */
+    public static int archivedSessionCount(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT meta_value FROM app_meta WHERE meta_key = '" + COUNTER_KEY + "'");
+                ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? Integer.parseInt(rs.getString(1).trim()) : 0;
+        }
+    }
+
+    private static List<Integer> findBatch(Connection conn, LocalDate cutoff) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id FROM exam_schedules WHERE scheduled_date < ? ORDER BY scheduled_date, id LIMIT ?")) {
+            ps.setDate(1, java.sql.Date.valueOf(cutoff));
+            ps.setInt(2, BATCH);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Copies one batch into the archive and deletes it from the hot tables in one
+     * transaction. Returns {sessions, enrollments} moved.
+     *
+     * No events are published: the sessions are long over, so nothing that
+     * listens for cancellations or deleted sessions (waitlist, timetable cache,
+     * open schedule tables) has anything to update, and an EnrollmentCancelled
+     * here would read as a real cancellation.
+     */
+    private static int[] archiveBatch(Connection conn, List<Integer> candidates, LocalDate cutoff)
+            throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            // Past dates are never booked, so row locks are enough; no schedule_locks stripes
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM exam_schedules WHERE id IN ("
+                    + placeholders(candidates) + ") AND scheduled_date < ? FOR UPDATE")) {
+                int i = bind(ps, candidates, 1);
+                ps.setDate(i, java.sql.Date.valueOf(cutoff));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        ids.add(rs.getInt(1));
+                }
+            }
+            if (ids.isEmpty()) {
+                conn.rollback();
+                return new int[] { 0, 0 };
+            }
+            String in = placeholders(ids);
+
+            int enrollments;
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    INSERT INTO student_exams_archive (id, student_id, exam_id, exam_schedule_id, schedule_exam_id,
+                        scheduled_date, status, is_paid, score, enrollment_date)
+                    SELECT se.id, se.student_id, se.exam_id, se.exam_schedule_id, es.exam_id,
+                        es.scheduled_date, se.status, se.is_paid, se.score, se.enrollment_date
+                    FROM student_exams se
+                    JOIN exam_schedules es ON se.exam_schedule_id = es.id
+                    WHERE es.id IN (%s)
+                    """.formatted(in))) {
+                bind(ps, ids, 1);
+                enrollments = ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    INSERT INTO exam_schedules_archive (id, exam_id, room_id, scheduled_date, scheduled_time,
+                        duration_minutes, max_students, capacity, seat_limit, time_slot_id, status, created_at, enrolled)
+                    SELECT es.id, es.exam_id, es.room_id, es.scheduled_date, es.scheduled_time,
+                        es.duration_minutes, es.max_students, es.capacity, es.seat_limit, es.time_slot_id, es.status,
+                        es.created_at, (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id)
+                    FROM exam_schedules es
+                    WHERE es.id IN (%s)
+                    """.formatted(in))) {
+                bind(ps, ids, 1);
+                ps.executeUpdate();
+            }
+            // Moved enrollments stop counting as unpaid on the student dashboard
+            List<Integer> students = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT DISTINCT student_id FROM student_exams WHERE exam_schedule_id IN (" + in + ")")) {
+                bind(ps, ids, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        students.add(rs.getInt(1));
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "DELETE FROM student_exams WHERE exam_schedule_id IN (" + in + ")")) {
+                bind(ps, ids, 1);
+                if (ps.executeUpdate() != enrollments)
+                    throw new SQLException("Enrollments changed while archiving");
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "DELETE FROM exam_schedules WHERE id IN (" + in + ")")) {
+                bind(ps, ids, 1);
+                ps.executeUpdate();
+            }
+            addToCounter(conn, ids.size());
+            conn.commit();
+            StudentSummary.invalidateStudents(conn, students);
+            return new int[] { ids.size(), enrollments };
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void addToCounter(Connection conn, int sessions) throws SQLException {
+        int current = 0;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT meta_value FROM app_meta WHERE meta_key = '" + COUNTER_KEY + "' FOR UPDATE");
+                ResultSet rs = ps.executeQuery()) {
+            if (rs.next())
+                current = Integer.parseInt(rs.getString(1).trim());
+            else
+                current = -1;
+        }
+        // UPDATE when present, INSERT when missing, as in DatabaseSetup.writeSchemaVersion
+        String sql = current >= 0
+                ? "UPDATE app_meta SET meta_value = ? WHERE meta_key = '" + COUNTER_KEY + "'"
+                : "INSERT INTO app_meta (meta_key, meta_value) VALUES ('" + COUNTER_KEY + "', ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, String.valueOf(Math.max(0, current) + sessions));
+            ps.executeUpdate();
+        }
+    }
+
+    private static String placeholders(List<Integer> ids) {
+        return String.join(",", Collections.nCopies(ids.size(), "?"));
+    }
+
+    private static int bind(PreparedStatement ps, List<Integer> ids, int from) throws SQLException {
+        int i = from;
+        for (int id : ids)
+            ps.setInt(i++, id);
+        return i;
+    }
+}
@@ -0,0 +1,354 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Validates and creates admin-authored exam sessions in bulk.
+ *
+ * A batch of proposals (typed one by one, or expanded from a recurring
+ * pattern with {@link #pattern}) is checked in one transaction:
+ * 1. every (date, lock stripe) the batch touches is locked through
+ *    {@link ScheduleLocks}, in date/stripe order so two batches cannot deadlock;
+ * 2. the rooms' existing sessions in the batch's date range are read with one
+ *    locking query, and exam durations and room capacities with one query each;
+ * 3. per (room, date), an interval sweep in start order rejects proposals
+ *    overlapping an existing session, then keeps the earliest of proposals that
+ *    overlap each other;
+ * 4. the surviving proposals are inserted as one JDBC batch.
+ *
+ * Conflicting proposals are reported, not fatal: the valid ones are created
+ * (or nothing is, when validating only).
+ */
+public final class ScheduleAuthoringService {
+
+    private static final Log LOG = Log.get(ScheduleAuthoringService.class);
+
+    /** A session the admin wants; capacity 0 means the room's capacity. */
+    public record Proposal(int examId, int roomId, LocalDate date, LocalTime start, int capacity) {
+    }
+
+    /** Why a proposal was not created. */
+    public record Conflict(Proposal proposal, String reason) {
+    }
+
+    /** Outcome of a batch: ids of the created sessions and the rejected proposals. */
+    public record Result(List<Integer> createdIds, List<Conflict> conflicts) {
+    }
+
+    // One interval on a room's day; proposal < 0 for an existing session
+    private record Slot(int startMinute, int endMinute, int proposal, int scheduleId, int examId) {
+    }
+
+    private ScheduleAuthoringService() {
+    }
+
+    /**
+     * Expands a recurring pattern: each date in [from, to] falling on one of the
+     * days, in each room, at each start time.
+     */
+    public static List<Proposal> pattern(int examId, List<Integer> roomIds, LocalDate from, LocalDate to,
+            Set<DayOfWeek> days, List<LocalTime> starts, int capacity) {
+        List<Proposal> proposals = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            if (!days.contains(d.getDayOfWeek()))
+                continue;
+            for (int roomId : roomIds) {
+                for (LocalTime start : starts) {
+                    proposals.add(new Proposal(examId, roomId, d, start, capacity));
+                }
+            }
+        }
+        return proposals;
+    }
+
+    /** Checks the batch and reports conflicts without creating anything. */
+    public static Result validate(List<Proposal> proposals) throws SQLException {
+        return run(proposals, false);
+    }
+
+    /** Creates every proposal that does not conflict, in one transaction. */
+    public static Result create(List<Proposal> proposals) throws SQLException {
+        return run(proposals, true);
+    }
+
+    private static Result run(List<Proposal> proposals, boolean insert) throws SQLException {
+        if (proposals.isEmpty())
+            return new Result(List.of(), List.of());
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            conn.setAutoCommit(false);
+            try {
+                lockPartitions(proposals, conn);
+                List<Conflict> conflicts = new ArrayList<>();
+                List<Proposal> accepted = check(proposals, conn, conflicts);
+                List<Integer> created = insert ? insertSessions(accepted, conn) : List.of();
+                if (insert) {
+                    conn.commit();
+                    EventBus.afterCommit(conn);
+                    LOG.info("✅ Created {} session(s), {} conflict(s)", created.size(), conflicts.size());
+                } else {
+                    conn.rollback();
+                }
+                return new Result(created, conflicts);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void lockPartitions(List<Proposal> proposals, Connection conn) throws SQLException {
+        // (date, stripe) -> a room in that stripe
+        TreeMap<LocalDate, TreeMap<Integer, Integer>> partitions = new TreeMap<>();
+        for (Proposal p : proposals) {
+            partitions.computeIfAbsent(p.date(), d -> new TreeMap<>())
+                    .putIfAbsent(ScheduleLocks.stripeOf(p.roomId()), p.roomId());
+        }
+        for (Map.Entry<LocalDate, TreeMap<Integer, Integer>> day : partitions.entrySet()) {
+            for (int roomId : day.getValue().values()) {
+                ScheduleLocks.lock(conn, day.getKey(), roomId);
+            }
+        }
+    }
+
+    // Returns the proposals that may be created, in batch order
+    private static List<Proposal> check(List<Proposal> proposals, Connection conn, List<Conflict> conflicts)
+            throws SQLException {
+        Set<Integer> roomIds = new TreeSet<>();
+        Set<Integer> examIds = new TreeSet<>();
+        LocalDate from = LocalDate.MAX;
+        LocalDate to = LocalDate.MIN;
+        for (Proposal p : proposals) {
+            roomIds.add(p.roomId());
+            examIds.add(p.examId());
+            from = p.date().isBefore(from) ? p.date() : from;
+            to = p.date().isAfter(to) ? p.date() : to;
+        }
+
+        Map<Integer, Integer> roomCapacity = roomCapacities(roomIds, conn);
+        Map<Integer, List<LocalDate[]>> outages = RoomRelocationService.outages(conn, from, to);
+        // Existing sessions, grouped by room and day
+        Map<Integer, Map<LocalDate, List<Slot>>> existing = new HashMap<>();
+        String sql = "SELECT id, exam_id, room_id, scheduled_date, scheduled_time FROM exam_schedules "
+                + "WHERE room_id IN (" + placeholders(roomIds.size()) + ") "
+                + "AND scheduled_date BETWEEN ? AND ? FOR UPDATE";
+        List<int[]> rows = new ArrayList<>(); // {id, exam, room, epochDay, startMinute}
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (int id : roomIds)
+                ps.setInt(i++, id);
+            ps.setDate(i++, java.sql.Date.valueOf(from));
+            ps.setDate(i, java.sql.Date.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    java.sql.Time t = rs.getTime("scheduled_time");
+                    if (t == null)
+                        continue;
+                    int examId = rs.getInt("exam_id");
+                    examIds.add(examId);
+                    rows.add(new int[] { rs.getInt("id"), examId, rs.getInt("room_id"),
+                            (int) rs.getDate("scheduled_date").toLocalDate().toEpochDay(),
+                            t.toLocalTime().toSecondOfDay() / 60 });
+                }
+            }
+        }
+        Map<Integer, Integer> minutes = ScheduleLocks.examDurations(examIds, conn);
+        for (int[] r : rows) {
+            existing.computeIfAbsent(r[2], k -> new HashMap<>())
+                    .computeIfAbsent(LocalDate.ofEpochDay(r[3]), k -> new ArrayList<>())
+                    .add(new Slot(r[4], r[4] + minutes.getOrDefault(r[1], 120), -1, r[0], r[1]));
+        }
+
+        // Proposals that pass the per-row checks, grouped the same way
+        Map<Integer, Map<LocalDate, List<Slot>>> proposed = new HashMap<>();
+        boolean[] rejected = new boolean[proposals.size()];
+        for (int i = 0; i < proposals.size(); i++) {
+            Proposal p = proposals.get(i);
+            String problem = null;
+            if (!minutes.containsKey(p.examId()))
+                problem = "Unknown exam " + p.examId();
+            else if (!roomCapacity.containsKey(p.roomId()))
+                problem = "Unknown room " + p.roomId();
+            else if (p.capacity() > roomCapacity.get(p.roomId()))
+                problem = "Capacity " + p.capacity() + " exceeds the room's " + roomCapacity.get(p.roomId()) + " seats";
+            else if (RoomRelocationService.covers(outages.get(p.roomId()), p.date()))
+                problem = "Room is unavailable on " + p.date();
+            if (problem != null) {
+                rejected[i] = true;
+                conflicts.add(new Conflict(p, problem));
+                continue;
+            }
+            int start = p.start().toSecondOfDay() / 60;
+            int end = start + minutes.get(p.examId());
+            if (end > 24 * 60) {
+                rejected[i] = true;
+                conflicts.add(new Conflict(p, "Session would run past midnight"));
+                continue;
+            }
+            proposed.computeIfAbsent(p.roomId(), k -> new HashMap<>())
+                    .computeIfAbsent(p.date(), k -> new ArrayList<>())
+                    .add(new Slot(start, end, i, 0, p.examId()));
+        }
+
+        for (Map.Entry<Integer, Map<LocalDate, List<Slot>>> room : proposed.entrySet()) {
+            for (Map.Entry<LocalDate, List<Slot>> day : room.getValue().entrySet()) {
+                List<Slot> booked = existing.getOrDefault(room.getKey(), Map.of())
+                        .getOrDefault(day.getKey(), List.of());
+                sweep(booked, day.getValue(), proposals, rejected, conflicts);
+            }
+        }
+
+        List<Proposal> accepted = new ArrayList<>();
+        for (int i = 0; i < proposals.size(); i++) {
+            if (!rejected[i])
+                accepted.add(proposals.get(i));
+        }
+        return accepted;
+    }
+
+    /**
+     * Sweeps one room's day in start order. Pass 1 walks existing sessions and
+     * proposals together, keeping the ones still running in a min-heap by end:
+     * a proposal overlapping any running existing session (or overlapped by one
+     * starting before it ends) is rejected. Pass 2 keeps, among the remaining
+     * proposals, each one that starts after the previously kept one ends.
+     */
+    private static void sweep(List<Slot> booked, List<Slot> candidates, List<Proposal> proposals,
+            boolean[] rejected, List<Conflict> conflicts) {
+        List<Slot> all = new ArrayList<>(booked.size() + candidates.size());
+        all.addAll(booked);
+        all.addAll(candidates);
+        // Existing first on equal starts, so a proposal sees the session it collides with
+        all.sort(Comparator.comparingInt(Slot::startMinute).thenComparingInt(Slot::proposal));
+
+        PriorityQueue<Slot> running = new PriorityQueue<>(Comparator.comparingInt(Slot::endMinute));
+        for (Slot s : all) {
+            while (!running.isEmpty() && running.peek().endMinute() <= s.startMinute())
+                running.poll();
+            for (Slot other : running) {
+                if (s.proposal() >= 0 && other.proposal() < 0) {
+                    reject(s, other, proposals, rejected, conflicts);
+                    break;
+                }
+                if (s.proposal() < 0 && other.proposal() >= 0)
+                    reject(other, s, proposals, rejected, conflicts);
+            }
+            running.add(s);
+        }
+
+        List<Slot> remaining = new ArrayList<>();
+        for (Slot s : candidates) {
+            if (!rejected[s.proposal()])
+                remaining.add(s);
+        }
+        remaining.sort(Comparator.comparingInt(Slot::startMinute).thenComparingInt(Slot::proposal));
+        Slot kept = null;
+        for (Slot s : remaining) {
+            if (kept != null && s.startMinute() < kept.endMinute()) {
+                rejected[s.proposal()] = true;
+                Proposal k = proposals.get(kept.proposal());
+                conflicts.add(new Conflict(proposals.get(s.proposal()),
+                        "Overlaps another proposed session at " + k.start() + " (exam " + k.examId() + ")"));
+            } else {
+                kept = s;
+            }
+        }
+    }
+
+    private static void reject(Slot proposal, Slot session, List<Proposal> proposals, boolean[] rejected,
+            List<Conflict> conflicts) {
+        if (rejected[proposal.proposal()])
+            return;
+        rejected[proposal.proposal()] = true;
+        LocalTime at = LocalTime.ofSecondOfDay(session.startMinute() * 60L);
+        conflicts.add(new Conflict(proposals.get(proposal.proposal()),
+                "Room already booked at " + at + " (session " + session.scheduleId() + ", exam "
+                        + session.examId() + ")"));
+    }
+
+    private static Map<Integer, Integer> roomCapacities(Set<Integer> roomIds, Connection conn) throws SQLException {
+        Map<Integer, Integer> capacity = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, capacity FROM rooms WHERE id IN (" + placeholders(roomIds.size()) + ")")) {
+            int i = 1;
+            for (int id : roomIds)
+                ps.setInt(i++, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    capacity.put(rs.getInt("id"), rs.getInt("capacity"));
+                }
+            }
+        }
+        return capacity;
+    }
+
+    private static List<Integer> insertSessions(List<Proposal> accepted, Connection conn) throws SQLException {
+        if (accepted.isEmpty())
+            return List.of();
+        Set<Integer> roomIds = new TreeSet<>();
+        Set<Integer> examIds = new TreeSet<>();
+        accepted.forEach(p -> {
+            roomIds.add(p.roomId());
+            examIds.add(p.examId());
+        });
+        Map<Integer, Integer> roomCapacity = roomCapacities(roomIds, conn);
+        Map<Integer, Integer> minutes = ScheduleLocks.examDurations(examIds, conn);
+
+        String sql = "INSERT INTO exam_schedules (exam_id, room_id, scheduled_date, scheduled_time, "
+                + "duration_minutes, max_students, capacity, seat_limit) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Proposal p : accepted) {
+                int seats = p.capacity() > 0 ? p.capacity() : roomCapacity.get(p.roomId());
+                ps.setInt(1, p.examId());
+                ps.setInt(2, p.roomId());
+                ps.setDate(3, java.sql.Date.valueOf(p.date()));
+                ps.setTime(4, java.sql.Time.valueOf(p.start()));
+                ps.setInt(5, minutes.getOrDefault(p.examId(), 120));
+                ps.setInt(6, seats);
+                ps.setInt(7, seats);
+                // An explicit capacity is a limit; otherwise the session follows its room
+                if (p.capacity() > 0)
+                    ps.setInt(8, p.capacity());
+                else
+                    ps.setNull(8, java.sql.Types.INTEGER);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet gk = ps.getGeneratedKeys()) {
+                int i = 0;
+                while (gk.next() && i < accepted.size()) {
+                    int id = gk.getInt(1);
+                    ids.add(id);
+                    ChangeLog.publish(conn, new DomainEvent.ScheduleCreated(id, accepted.get(i++).examId()));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
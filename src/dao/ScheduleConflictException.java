@@ -0,0 +1,15 @@
+package dao;
+
+/**
+ * A {@link NoCapacityException} where the exam has room but every slot in the
+ * horizon overlaps the student's own timetable. Waiting for a seat cannot fix
+ * it; the student has to drop or move one of the clashing exams.
+ */
+public class ScheduleConflictException extends NoCapacityException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ScheduleConflictException(int examId, String message) {
+        super(examId, message);
+    }
+}
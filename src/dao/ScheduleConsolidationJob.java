@@ -0,0 +1,359 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background compaction of exam sessions.
+ *
+ * The strategies open a new exam_schedules row whenever reuse fails, which
+ * leaves several part-filled sessions of the same exam at the same date and
+ * time in different rooms. This job groups future sessions by (exam, date,
+ * time), works out the fewest sessions that can seat everyone and, among
+ * those, the set that already holds the most students (fewest moves), then
+ * moves the remaining enrollments and deletes the emptied sessions, one
+ * transaction per group. Nobody's exam time changes, so a move can never
+ * create a timetable conflict. Live seat holds count as taken seats, and a
+ * session with one is always kept: the hold is for that session.
+ *
+ * Runs every exam.consolidation.intervalMin minutes (default 60) once
+ * started; also runnable on its own: java dao.ScheduleConsolidationJob
+ */
+public final class ScheduleConsolidationJob {
+
+    private static final Log LOG = Log.get(ScheduleConsolidationJob.class);
+
+    private static final long INTERVAL_MIN = Long.parseLong(StorageBackend.setting(
+            "exam.consolidation.intervalMin", "EXAM_CONSOLIDATION_INTERVAL_MIN", "consolidation.intervalMin", "60"));
+    // Exhaustive search over which sessions to keep up to this many per group
+    private static final int MAX_EXACT_SESSIONS = 16;
+
+    private static ScheduledExecutorService executor;
+
+    /** A session in a consolidation group; holds counts its unexpired seat holds. */
+    record Session(int id, int capacity, int enrolled, int holds) {
+        /** Seats left for enrolled students once the holds are set aside. */
+        int seats() {
+            return capacity - holds;
+        }
+    }
+
+    /** Move count enrollments from session from into session to. */
+    record Move(int from, int to, int count) {
+    }
+
+    /** Sessions to keep, moves to make and sessions freed for one group. */
+    record Plan(List<Session> keep, List<Move> moves, List<Session> freed) {
+        int movedStudents() {
+            return moves.stream().mapToInt(Move::count).sum();
+        }
+    }
+
+    private ScheduleConsolidationJob() {
+    }
+
+    public static void main(String[] args) {
+        DatabaseSetup.ensureSchema();
+        runOnce();
+    }
+
+    public static synchronized void start() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "schedule-consolidation");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(ScheduleConsolidationJob::runOnce, INTERVAL_MIN, INTERVAL_MIN,
+                TimeUnit.MINUTES);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /** One consolidation pass over all future sessions. Returns the number of sessions freed. */
+    public static int runOnce() {
+        int freed = 0;
+        int moved = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                return 0;
+            ScheduleLocks.prune(conn);
+            for (List<Integer> group : findCandidateGroups(conn)) {
+                Plan plan = consolidateGroup(group, conn);
+                if (plan != null) {
+                    freed += plan.freed().size();
+                    moved += plan.movedStudents();
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("Schedule consolidation failed: {}", e.getMessage(), e);
+        }
+        if (freed > 0)
+            LOG.info("✅ Consolidated sessions: {} freed, {} enrollment(s) moved", freed, moved);
+        return freed;
+    }
+
+    /**
+     * Session ids per (exam, date, time) group that has more than one future
+     * session, read in one pass.
+     */
+    private static List<List<Integer>> findCandidateGroups(Connection conn) throws SQLException {
+        String sql = """
+                SELECT es.id, es.exam_id, es.scheduled_date, es.scheduled_time
+                FROM exam_schedules es
+                JOIN (SELECT exam_id, scheduled_date, scheduled_time
+                      FROM exam_schedules
+                      WHERE scheduled_date > CURRENT_DATE
+                      GROUP BY exam_id, scheduled_date, scheduled_time
+                      HAVING COUNT(*) > 1) g
+                  ON g.exam_id = es.exam_id AND g.scheduled_date = es.scheduled_date
+                 AND g.scheduled_time = es.scheduled_time
+                ORDER BY es.exam_id, es.scheduled_date, es.scheduled_time, es.id
+                """;
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String key = rs.getInt("exam_id") + "|" + rs.getDate("scheduled_date") + "|"
+                        + rs.getTime("scheduled_time");
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(rs.getInt("id"));
+            }
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Locks the group's sessions, re-reads their fill inside the transaction and
+     * applies the merge plan. Returns the applied plan, or null when nothing
+     * could be freed.
+     */
+    private static Plan consolidateGroup(List<Integer> sessionIds, Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        List<DomainEvent> events = new ArrayList<>();
+        try {
+            List<Session> sessions = lockSessions(sessionIds, conn);
+            Plan plan = plan(sessions);
+            if (plan == null) {
+                conn.rollback();
+                return null;
+            }
+            for (Move move : plan.moves()) {
+                moveEnrollments(move, conn, events);
+            }
+            for (Session s : plan.freed()) {
+                try (PreparedStatement ps = conn.prepareStatement("""
+                        DELETE FROM exam_schedules WHERE id = ?
+                          AND NOT EXISTS (SELECT 1 FROM student_exams se WHERE se.exam_schedule_id = ?)
+                          AND NOT EXISTS (SELECT 1 FROM seat_holds h WHERE h.exam_schedule_id = ? AND h.expires_at > ?)
+                        """)) {
+                    ps.setInt(1, s.id());
+                    ps.setInt(2, s.id());
+                    ps.setInt(3, s.id());
+                    ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                    if (ps.executeUpdate() == 0)
+                        throw new SQLException("Session " + s.id() + " still has enrollments or seat holds");
+                }
+                events.add(new DomainEvent.ScheduleDeleted(s.id()));
+            }
+            for (DomainEvent event : events) {
+                ChangeLog.publish(conn, event);
+            }
+            conn.commit();
+            EventBus.afterCommit(conn);
+            return plan;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            EventBus.discard(conn);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static List<Session> lockSessions(List<Integer> ids, Connection conn) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        // Lock the rows so concurrent enrollments and holds wait for the merge, then count
+        try (PreparedStatement lock = conn.prepareStatement(
+                "SELECT id FROM exam_schedules WHERE id IN (" + placeholders + ") FOR UPDATE")) {
+            for (int i = 0; i < ids.size(); i++)
+                lock.setInt(i + 1, ids.get(i));
+            lock.executeQuery().close();
+        }
+        List<Session> sessions = new ArrayList<>();
+        // Holds counted as SessionCapacity.lockFreeSeats counts them
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT es.id, es.capacity,
+                       (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id) AS enrolled,
+                       (SELECT COUNT(*) FROM seat_holds h WHERE h.exam_schedule_id = es.id AND h.expires_at > ?) AS holds
+                FROM exam_schedules es WHERE es.id IN (%s)
+                """.formatted(placeholders))) {
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            for (int i = 0; i < ids.size(); i++)
+                ps.setInt(i + 2, ids.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sessions.add(new Session(rs.getInt("id"), rs.getInt("capacity"), rs.getInt("enrolled"),
+                            rs.getInt("holds")));
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Computes the merge plan for one group: the smallest number of sessions
+     * whose seats hold every student, choosing among those the set already
+     * holding the most students. Sessions with live holds are always kept.
+     * Returns null when no session can be freed.
+     */
+    static Plan plan(List<Session> sessions) {
+        int total = sessions.stream().mapToInt(Session::enrolled).sum();
+        List<Session> held = sessions.stream().filter(s -> s.holds() > 0).toList();
+        List<Session> bySeats = new ArrayList<>(sessions);
+        bySeats.removeAll(held);
+        bySeats.sort(Comparator.comparingInt(Session::seats).reversed());
+        int keepCount = held.size();
+        int seats = held.stream().mapToInt(Session::seats).sum();
+        for (int i = 0; seats < total && i < bySeats.size(); i++) {
+            seats += bySeats.get(i).seats();
+            keepCount++;
+        }
+        keepCount = Math.max(keepCount, 1);
+        if (keepCount >= sessions.size())
+            return null;
+
+        List<Session> keep = sessions.size() <= MAX_EXACT_SESSIONS
+                ? bestKeepSetExact(sessions, keepCount, total)
+                : bestKeepSetGreedy(sessions, held, keepCount, total);
+        if (keep == null)
+            return null;
+
+        List<Session> freed = new ArrayList<>(sessions);
+        freed.removeAll(keep);
+
+        // Fill the kept sessions' free seats from the freed ones, fullest source first
+        List<Move> moves = new ArrayList<>();
+        int[] free = keep.stream().mapToInt(s -> s.seats() - s.enrolled()).toArray();
+        freed.sort(Comparator.comparingInt(Session::enrolled).reversed());
+        int target = 0;
+        for (Session source : freed) {
+            int left = source.enrolled();
+            while (left > 0) {
+                while (free[target] <= 0)
+                    target++;
+                int count = Math.min(left, free[target]);
+                moves.add(new Move(source.id(), keep.get(target).id(), count));
+                free[target] -= count;
+                left -= count;
+            }
+        }
+        return new Plan(keep, moves, freed);
+    }
+
+    // Every keepCount-subset with all held sessions and enough seats; highest enrolled sum wins
+    private static List<Session> bestKeepSetExact(List<Session> sessions, int keepCount, int total) {
+        int n = sessions.size();
+        int heldMask = 0;
+        for (int i = 0; i < n; i++) {
+            if (sessions.get(i).holds() > 0)
+                heldMask |= 1 << i;
+        }
+        int bestMask = -1;
+        int bestKept = -1;
+        for (int mask = 0; mask < (1 << n); mask++) {
+            if (Integer.bitCount(mask) != keepCount || (mask & heldMask) != heldMask)
+                continue;
+            int seats = 0;
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    seats += sessions.get(i).seats();
+                    kept += sessions.get(i).enrolled();
+                }
+            }
+            if (seats >= total && kept > bestKept) {
+                bestKept = kept;
+                bestMask = mask;
+            }
+        }
+        if (bestMask < 0)
+            return null;
+        List<Session> keep = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if ((bestMask & (1 << i)) != 0)
+                keep.add(sessions.get(i));
+        }
+        return keep;
+    }
+
+    // Large groups: keep the held and then the fullest sessions, then swap in
+    // bigger rooms until everyone fits
+    private static List<Session> bestKeepSetGreedy(List<Session> sessions, List<Session> held, int keepCount,
+            int total) {
+        List<Session> byEnrolled = new ArrayList<>(sessions);
+        byEnrolled.removeAll(held);
+        byEnrolled.sort(Comparator.comparingInt(Session::enrolled).reversed()
+                .thenComparing(Comparator.comparingInt(Session::seats).reversed()));
+        int open = keepCount - held.size();
+        List<Session> swappable = new ArrayList<>(byEnrolled.subList(0, open));
+        List<Session> rest = new ArrayList<>(byEnrolled.subList(open, byEnrolled.size()));
+        rest.sort(Comparator.comparingInt(Session::seats).reversed());
+        int heldSeats = held.stream().mapToInt(Session::seats).sum();
+        while (heldSeats + swappable.stream().mapToInt(Session::seats).sum() < total && !rest.isEmpty()
+                && !swappable.isEmpty()) {
+            Session smallest = Collections.min(swappable, Comparator.comparingInt(Session::seats));
+            Session bigger = rest.remove(0);
+            if (bigger.seats() <= smallest.seats())
+                return null;
+            swappable.remove(smallest);
+            swappable.add(bigger);
+        }
+        List<Session> keep = new ArrayList<>(held);
+        keep.addAll(swappable);
+        return keep.stream().mapToInt(Session::seats).sum() >= total ? keep : null;
+    }
+
+    private static void moveEnrollments(Move move, Connection conn, List<DomainEvent> events) throws SQLException {
+        List<int[]> rows = new ArrayList<>(); // {registration id, student id}
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, student_id FROM student_exams WHERE exam_schedule_id = ? ORDER BY id")) {
+            ps.setInt(1, move.from());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && rows.size() < move.count()) {
+                    rows.add(new int[] { rs.getInt("id"), rs.getInt("student_id") });
+                }
+            }
+        }
+        String placeholders = String.join(",", Collections.nCopies(rows.size(), "?"));
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE student_exams SET exam_schedule_id = ? WHERE id IN (" + placeholders + ")")) {
+            ps.setInt(1, move.to());
+            for (int i = 0; i < rows.size(); i++)
+                ps.setInt(i + 2, rows.get(i)[0]);
+            ps.executeUpdate();
+        }
+        // Views and timetable caches see a move as leave-old + join-new session
+        for (int[] row : rows) {
+            events.add(new DomainEvent.EnrollmentCancelled(row[1], row[0], move.from()));
+            events.add(new DomainEvent.EnrollmentCreated(row[1], row[0], move.to()));
+        }
+    }
+}
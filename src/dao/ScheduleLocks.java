@@ -0,0 +1,213 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serializes room bookings per (date, room) across threads and JVMs.
+ *
+ * The strategies pick a free room from an unlocked scan, so two instances can
+ * both see a room free and both book it. Before inserting a session, a
+ * transaction now claims the room: it locks the schedule_locks row for the
+ * date and the room's stripe (SELECT ... FOR UPDATE, held until commit or
+ * rollback) and re-checks the room's sessions for that day with a locking read,
+ * which sees everything committed so far. A second booker for the same room
+ * and day waits on the row and then finds the first booking; bookings for other
+ * days or other stripes never wait.
+ *
+ * A table rather than GET_LOCK(): row locks end with the transaction on both
+ * MySQL and the embedded backend, so a lock can never outlive a rollback.
+ *
+ * The lock row itself is created beforehand on a separate auto-commit
+ * connection, never inside the booking transaction: on InnoDB two
+ * transactions that both miss the row with FOR UPDATE take gap locks, and
+ * their inserts then deadlock one of them.
+ *
+ * Stripes: exam.scheduling.lockStripes (default 64) rows per date; rooms share
+ * a stripe only when their ids are equal modulo that number.
+ * exam.scheduling.roomLocks=false turns claiming off (for comparison runs).
+ * A room under an outage ({@link RoomRelocationService}) is never claimable.
+ */
+public final class ScheduleLocks {
+
+    private static final int STRIPES = Math.max(1, Integer.parseInt(StorageBackend.setting(
+            "exam.scheduling.lockStripes", "EXAM_SCHEDULING_LOCK_STRIPES", "scheduling.lockStripes", "64")));
+    // (date, stripe) rows this JVM knows exist; see seed()
+    private static final Set<Long> SEEDED = ConcurrentHashMap.newKeySet();
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(StorageBackend.setting(
+            "exam.scheduling.roomLocks", "EXAM_SCHEDULING_ROOM_LOCKS", "scheduling.roomLocks", "true"));
+
+    private ScheduleLocks() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    static int stripeOf(int roomId) {
+        return Math.floorMod(roomId, STRIPES);
+    }
+
+    /**
+     * Locks the room's partition for the date until conn's transaction ends.
+     * Must be called with auto-commit off.
+     */
+    public static void lock(Connection conn, LocalDate date, int roomId) throws SQLException {
+        if (!enabled)
+            return;
+        if (conn.getAutoCommit())
+            throw new SQLException("Room locks must be taken inside a transaction");
+        int stripe = stripeOf(roomId);
+        long key = date.toEpochDay() * STRIPES + stripe;
+        if (!SEEDED.contains(key))
+            seed(date, stripe, key);
+        if (selectForUpdate(conn, date, stripe))
+            return;
+        // Pruned since we seeded it (or deleted by hand): create it again
+        SEEDED.remove(key);
+        seed(date, stripe, key);
+        if (!selectForUpdate(conn, date, stripe))
+            throw new SQLException("Could not lock room " + roomId + " on " + date);
+    }
+
+    /**
+     * Creates the (date, stripe) lock row if missing, committed on its own
+     * connection so the booking transaction only ever locks an existing row.
+     * Checks with a plain read first: an INSERT IGNORE that meets the row would
+     * wait for whoever holds it locked, while this thread may hold locks that
+     * holder is waiting for.
+     */
+    private static void seed(LocalDate date, int stripe, long key) throws SQLException {
+        try (Connection own = DatabaseConnection.getConnection()) {
+            if (own == null)
+                throw new SQLTransientConnectionException("No database connection");
+            boolean exists;
+            try (PreparedStatement ps = own.prepareStatement(
+                    "SELECT 1 FROM schedule_locks WHERE lock_date = ? AND stripe = ?")) {
+                ps.setDate(1, java.sql.Date.valueOf(date));
+                ps.setInt(2, stripe);
+                try (ResultSet rs = ps.executeQuery()) {
+                    exists = rs.next();
+                }
+            }
+            if (!exists) {
+                try (PreparedStatement ps = own.prepareStatement(DatabaseConnection.getBackend()
+                        .insertIgnore("schedule_locks", "lock_date, stripe", 2))) {
+                    ps.setDate(1, java.sql.Date.valueOf(date));
+                    ps.setInt(2, stripe);
+                    ps.executeUpdate();
+                }
+            }
+        }
+        // Past dates are pruned from the table; forget them here too
+        long today = LocalDate.now().toEpochDay() * STRIPES;
+        SEEDED.removeIf(k -> k < today);
+        SEEDED.add(key);
+    }
+
+    /**
+     * Locks the room's partition and re-checks, against committed data, that the
+     * room has no session overlapping [start, start + durationMinutes) on the
+     * date. True if the caller may book it; the lock is held either way.
+     */
+    public static boolean claimRoom(Connection conn, int roomId, LocalDate date, LocalTime start, int durationMinutes)
+            throws SQLException {
+        if (RoomRelocationService.isUnavailable(conn, roomId, date))
+            return false;
+        if (!enabled)
+            return true;
+        lock(conn, date, roomId);
+
+        // Locking read: a plain SELECT could answer from a snapshot taken before
+        // the other booker committed
+        List<int[]> sessions = new ArrayList<>(); // {exam_id, start second of day}
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT exam_id, scheduled_time FROM exam_schedules WHERE room_id = ? AND scheduled_date = ? FOR UPDATE")) {
+            ps.setInt(1, roomId);
+            ps.setDate(2, java.sql.Date.valueOf(date));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    java.sql.Time t = rs.getTime("scheduled_time");
+                    if (t != null)
+                        sessions.add(new int[] { rs.getInt("exam_id"), t.toLocalTime().toSecondOfDay() });
+                }
+            }
+        }
+        if (sessions.isEmpty())
+            return true;
+
+        Set<Integer> examIds = new TreeSet<>();
+        sessions.forEach(s -> examIds.add(s[0]));
+        Map<Integer, Integer> minutes = examDurations(examIds, conn);
+        int from = start.toSecondOfDay();
+        int to = from + durationMinutes * 60;
+        for (int[] s : sessions) {
+            int end = s[1] + minutes.getOrDefault(s[0], 120) * 60;
+            if (s[1] < to && from < end)
+                return false;
+        }
+        return true;
+    }
+
+    /** {@link #claimRoom} for a session of the given exam, using the exam's duration. */
+    public static boolean claimRoomForExam(Connection conn, int roomId, int examId, LocalDate date, LocalTime start)
+            throws SQLException {
+        int minutes = examDurations(Set.of(examId), conn).getOrDefault(examId, 120);
+        return claimRoom(conn, roomId, date, start, minutes);
+    }
+
+    /** Drops lock rows for past dates; nothing books them any more. */
+    public static int prune(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM schedule_locks WHERE lock_date < CURRENT_DATE")) {
+            return ps.executeUpdate();
+        }
+    }
+
+    private static boolean selectForUpdate(Connection conn, LocalDate date, int stripe) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT stripe FROM schedule_locks WHERE lock_date = ? AND stripe = ? FOR UPDATE")) {
+            ps.setDate(1, java.sql.Date.valueOf(date));
+            ps.setInt(2, stripe);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    static Map<Integer, Integer> examDurations(Set<Integer> examIds, Connection conn) throws SQLException {
+        Map<Integer, Integer> minutes = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(examIds.size(), "?"));
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, duration FROM exams WHERE id IN (" + placeholders + ")")) {
+            int i = 1;
+            for (int id : examIds)
+                ps.setInt(i++, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String duration = rs.getString("duration");
+                    minutes.put(rs.getInt("id"),
+                            SchedulingService.parseDurationMinutes(duration != null ? duration : "2 hours"));
+                }
+            }
+        }
+        return minutes;
+    }
+}
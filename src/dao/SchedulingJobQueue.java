@@ -0,0 +1,133 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Client side of the scheduling job queue (table scheduling_jobs).
+ *
+ * With scheduling mode "queue" the Swing clients no longer run the scheduling
+ * strategies themselves: they {@link #submit} an enrollment request and
+ * {@link #poll} it until one of the {@link SchedulingWorker} processes has
+ * charged the fee, placed the student and recorded the outcome on the row.
+ *
+ * Mode: system property exam.scheduling.mode (local | queue), environment
+ * variable EXAM_SCHEDULING_MODE or scheduling.mode in db.properties; default
+ * local.
+ */
+public final class SchedulingJobQueue {
+
+    public enum Status {
+        QUEUED("Queued"), RUNNING("Running"), DONE("Done"), NO_CAPACITY("NoCapacity"), CONFLICT("Conflict"),
+        FAILED("Failed");
+
+        private final String column;
+
+        Status(String column) {
+            this.column = column;
+        }
+
+        public String column() {
+            return column;
+        }
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+
+        static Status fromColumn(String value) {
+            for (Status s : values()) {
+                if (s.column.equalsIgnoreCase(value))
+                    return s;
+            }
+            return FAILED;
+        }
+    }
+
+    /** A job as last seen in the table; schedule fields are set once it is DONE. */
+    public record JobResult(long jobId, Status status, int registrationId, int scheduleId, LocalDate date,
+            LocalTime start, String room, String message) {
+    }
+
+    private static final boolean ENABLED = "queue".equalsIgnoreCase(StorageBackend.setting(
+            "exam.scheduling.mode", "EXAM_SCHEDULING_MODE", "scheduling.mode", "local").trim());
+
+    private SchedulingJobQueue() {
+    }
+
+    /** True when enrollments should go through the queue instead of in-process scheduling. */
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    /** Queues an enrollment of the student into the exam and returns the job id. */
+    public static long submit(int studentId, int examId, double fee) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO scheduling_jobs (student_id, exam_id, fee) VALUES (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, studentId);
+                ps.setInt(2, examId);
+                ps.setDouble(3, fee);
+                ps.executeUpdate();
+                try (ResultSet gk = ps.getGeneratedKeys()) {
+                    gk.next();
+                    return gk.getLong(1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Current state of the student's job, or null if it no longer exists or
+     * belongs to another student.
+     */
+    public static JobResult poll(long jobId, int studentId) throws SQLException {
+        String sql = """
+                SELECT status, registration_id, schedule_id, scheduled_date, scheduled_time, room_name, message
+                FROM scheduling_jobs WHERE id = ? AND student_id = ?
+                """;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, jobId);
+                ps.setInt(2, studentId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next())
+                        return null;
+                    java.sql.Date date = rs.getDate("scheduled_date");
+                    java.sql.Time time = rs.getTime("scheduled_time");
+                    return new JobResult(jobId, Status.fromColumn(rs.getString("status")),
+                            rs.getInt("registration_id"), rs.getInt("schedule_id"),
+                            date != null ? date.toLocalDate() : null,
+                            time != null ? time.toLocalTime() : null,
+                            rs.getString("room_name"), rs.getString("message"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Polls the job every intervalMillis until it finishes or timeoutMillis
+     * passes; returns the last state seen. Call off the event dispatch thread.
+     */
+    public static JobResult await(long jobId, int studentId, long intervalMillis, long timeoutMillis)
+            throws SQLException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        JobResult result = poll(jobId, studentId);
+        while (result != null && !result.status().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(intervalMillis);
+            result = poll(jobId, studentId);
+        }
+        return result;
+    }
+}
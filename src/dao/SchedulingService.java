@@ -18,6 +18,8 @@ import java.util.Set;
 
 public final class SchedulingService {
 
+    private static final Log LOG = Log.get(SchedulingService.class);
+
     private SchedulingService() {
     }
 
@@ -27,6 +29,17 @@ public final class SchedulingService {
     private static final LocalTime DAY_START = LocalTime.of(9, 0);
     private static final LocalTime DAY_END = LocalTime.of(17, 0);
 
+    // Room choice for new sessions, shared by every strategy below
+    private static volatile RoomAllocator roomAllocator = RoomAllocator.configured();
+
+    public static RoomAllocator getRoomAllocator() {
+        return roomAllocator;
+    }
+
+    public static void setRoomAllocator(RoomAllocator allocator) {
+        roomAllocator = allocator;
+    }
+
     public static boolean autoScheduleExam(int studentId, int examId) {
         // Schedule every unscheduled row for this (student, exam). If at least one is
         // scheduled or already done, return true.
@@ -54,7 +67,7 @@ public final class SchedulingService {
             }
             return any;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error auto-scheduling exam", e);
             return false;
         }
     }
@@ -105,6 +118,8 @@ public final class SchedulingService {
 
             // 2. Occupancy structure: date -> room -> intervals
             Map<LocalDate, Map<String, List<Interval>>> calendar = new HashMap<>();
+            List<RoomAllocator.Room> rooms = loadRoomsAligned(conn);
+            Map<Integer, Integer> demand = RemainingDemand.get(conn);
 
             while (!heap.isEmpty()) {
                 Candidate c = heap.poll();
@@ -141,15 +156,19 @@ public final class SchedulingService {
                 for (LocalTime cursor = c.baseTime; !cursor.plusMinutes(c.durationMinutes)
                         .isAfter(DAY_END); cursor = cursor.plusMinutes(30)) {
                     LocalTime end = cursor.plusMinutes(c.durationMinutes);
-                    for (String room : ROOMS) {
-                        if (isRoomFree(dayMap, room, cursor, end)) {
-                            chosenStart = cursor;
-                            chosenRoom = room;
-                            break;
+                    List<RoomAllocator.Room> free = new ArrayList<>();
+                    for (RoomAllocator.Room room : rooms) {
+                        if (isRoomFree(dayMap, room.name(), cursor, end)) {
+                            List<Interval> booked = dayMap.get(room.name());
+                            free.add(withUsage(room, booked != null ? booked.size() : 0));
                         }
                     }
-                    if (chosenStart != null)
+                    RoomAllocator.Room picked = chooseRoom(free, c.examId, demand);
+                    if (picked != null) {
+                        chosenStart = cursor;
+                        chosenRoom = picked.name();
                         break;
+                    }
                 }
                 if (chosenStart == null) { // fallback
                     chosenStart = c.baseTime;
@@ -174,7 +193,7 @@ public final class SchedulingService {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error scheduling pending exams", e);
         }
         return scheduledCount;
     }
@@ -250,20 +269,26 @@ public final class SchedulingService {
                 }
             }
 
+            List<RoomAllocator.Room> rooms = loadRoomsAligned(conn);
+            Map<Integer, Integer> demand = RemainingDemand.get(conn);
             LocalTime chosenStart = null;
             String chosenRoom = null;
             for (LocalTime cursor = baseTime; !cursor.plusMinutes(durationMinutes).isAfter(DAY_END); cursor = cursor
                     .plusMinutes(30)) {
                 LocalTime end = cursor.plusMinutes(durationMinutes);
-                for (String room : ROOMS) {
-                    if (roomFree(room, cursor, end, busy)) {
-                        chosenStart = cursor;
-                        chosenRoom = room;
-                        break;
+                List<RoomAllocator.Room> free = new ArrayList<>();
+                for (RoomAllocator.Room room : rooms) {
+                    if (roomFree(room.name(), cursor, end, busy)) {
+                        int usage = (int) busy.stream().filter(in -> in.room.equals(room.name())).count();
+                        free.add(withUsage(room, usage));
                     }
                 }
-                if (chosenStart != null)
+                RoomAllocator.Room picked = chooseRoom(free, examId, demand);
+                if (picked != null) {
+                    chosenStart = cursor;
+                    chosenRoom = picked.name();
                     break;
+                }
             }
             if (chosenStart == null) {
                 chosenStart = baseTime;
@@ -279,7 +304,7 @@ public final class SchedulingService {
                 return upd.executeUpdate() > 0;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error auto-scheduling student exam", e);
             return false;
         }
     }
@@ -339,16 +364,18 @@ public final class SchedulingService {
             if (conn == null)
                 return false;
 
+            int examId = 0;
             LocalDate examDate = null;
             LocalTime baseTime = DAY_START;
             int durationMin = 120;
             boolean already = false;
             try (PreparedStatement ps = conn.prepareStatement(
-                    "SELECT se.scheduled_date, se.scheduled_time, se.room, e.exam_date, e.exam_time, e.duration FROM student_exams se JOIN exams e ON se.exam_id=e.id WHERE se.id=?")) {
+                    "SELECT se.exam_id, se.scheduled_date, se.scheduled_time, se.room, e.exam_date, e.exam_time, e.duration FROM student_exams se JOIN exams e ON se.exam_id=e.id WHERE se.id=?")) {
                 ps.setInt(1, studentExamId);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (!rs.next())
                         return false;
+                    examId = rs.getInt("exam_id");
                     java.sql.Date schedD = rs.getDate("scheduled_date");
                     Time schedT = rs.getTime("scheduled_time");
                     String schedRoom = rs.getString("room");
@@ -372,9 +399,11 @@ public final class SchedulingService {
             if (baseTime.isBefore(DAY_START) || baseTime.isAfter(DAY_END))
                 baseTime = DAY_START;
 
+            List<RoomAllocator.Room> rooms = loadRoomsAligned(conn);
+            Map<Integer, Integer> demand = RemainingDemand.get(conn);
             Map<String, java.util.TreeMap<LocalTime, LocalTime>> roomSchedules = new HashMap<>();
-            for (String r : ROOMS)
-                roomSchedules.put(r, new java.util.TreeMap<>());
+            for (RoomAllocator.Room r : rooms)
+                roomSchedules.put(r.name(), new java.util.TreeMap<>());
             try (PreparedStatement ps = conn.prepareStatement(
                     "SELECT se.scheduled_time, se.room, e.duration FROM student_exams se JOIN exams e ON se.exam_id=e.id WHERE se.scheduled_date=? AND se.scheduled_time IS NOT NULL AND se.room IS NOT NULL AND se.id<>?")) {
                 ps.setDate(1, java.sql.Date.valueOf(examDate));
@@ -387,7 +416,8 @@ public final class SchedulingService {
                         int dMin = parseDurationMinutes(dStr != null ? dStr : "2 hours");
                         if (st != null && room != null) {
                             LocalTime start = st.toLocalTime();
-                            roomSchedules.get(room).put(start, start.plusMinutes(dMin));
+                            roomSchedules.computeIfAbsent(room, r -> new java.util.TreeMap<>())
+                                    .put(start, start.plusMinutes(dMin));
                         }
                     }
                 }
@@ -405,29 +435,17 @@ public final class SchedulingService {
             while (!candidates.isEmpty() && chosenStart == null) {
                 LocalTime start = candidates.poll();
                 LocalTime end = start.plusMinutes(durationMin);
-                int bestLoad = Integer.MAX_VALUE;
-                String bestRoom = null;
-                for (String room : ROOMS) {
-                    java.util.TreeMap<LocalTime, LocalTime> sched = roomSchedules.get(room);
-                    java.util.Map.Entry<LocalTime, LocalTime> before = sched.floorEntry(start);
-                    java.util.Map.Entry<LocalTime, LocalTime> after = sched.ceilingEntry(start);
-                    boolean conflict = false;
-                    if (before != null && before.getValue().isAfter(start))
-                        conflict = true;
-                    if (!conflict && after != null && end.isAfter(after.getKey()))
-                        conflict = true;
-                    if (!conflict) {
-                        int load = sched.size();
-                        if (load < bestLoad) {
-                            bestLoad = load;
-                            bestRoom = room;
-                        }
-                    }
+                List<RoomAllocator.Room> free = new ArrayList<>();
+                for (RoomAllocator.Room room : rooms) {
+                    java.util.TreeMap<LocalTime, LocalTime> sched = roomSchedules.get(room.name());
+                    if (!conflict(sched, start, end))
+                        free.add(withUsage(room, sched.size()));
                 }
-                if (bestRoom != null) {
+                RoomAllocator.Room picked = chooseRoom(free, examId, demand);
+                if (picked != null) {
                     chosenStart = start;
                     chosenEnd = start.plusMinutes(durationMin);
-                    chosenRoom = bestRoom;
+                    chosenRoom = picked.name();
                 }
             }
             if (chosenStart == null) {
@@ -445,7 +463,7 @@ public final class SchedulingService {
                 return upd.executeUpdate() > 0;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error smart-scheduling student exam", e);
             return false;
         } finally {
             if (created && conn != null) {
@@ -466,7 +484,7 @@ public final class SchedulingService {
         public int examScheduleId; // exam_schedules.id
         public LocalDate date; // scheduled_date
         public LocalTime start; // scheduled_time
-        public String room; // room_number
+        public String room; // room name
         public Integer capacity; // optional capacity of the schedule
     }
 
@@ -483,26 +501,28 @@ public final class SchedulingService {
             throw new SQLException("Connection required");
 
         // 1. Check if student is already enrolled in this exam
-        try (PreparedStatement checkPs = conn.prepareStatement(
-                "SELECT 1 FROM student_exams se JOIN exam_schedules es ON se.exam_schedule_id=es.id WHERE se.student_id=? AND es.exam_id=?")) {
-            checkPs.setInt(1, studentId);
-            checkPs.setInt(2, examId);
-            try (ResultSet rs = checkPs.executeQuery()) {
-                if (rs.next()) {
-                    throw new SQLException("Student is already enrolled in this exam");
-                }
-            }
-        }
+        if (isEnrolledInExam(studentId, examId, conn))
+            throw new SQLException("Student is already enrolled in this exam");
 
-        // 2. Get student's existing exam schedule (conflict detection)
-        Set<TimeSlot> studentSchedule = getStudentSchedule(studentId, conn);
+        // 2. Get student's existing exam schedule (conflict detection); cached
+        // per student, so repeat enrollments skip the join
+        StudentTimetableCache.Timetable studentSchedule = StudentTimetableCache.get(studentId, conn);
 
         // 3. Get exam duration for conflict calculations
         int examDurationMinutes = getExamDuration(examId, conn);
 
-        // 4. Try to find a conflict-free existing schedule
-        ConflictFreeSchedule bestSchedule = findConflictFreeSchedule(studentId, examId, studentSchedule,
-                examDurationMinutes, conn);
+        // 4. Try conflict-free existing schedules, best first. The scan is
+        // unlocked: a seat is only taken after the session's row lock confirms
+        // it is still free with held seats counted, as holds do
+        ConflictFreeSchedule bestSchedule = null;
+        PriorityQueue<ConflictFreeSchedule> candidates = findConflictFreeSchedules(studentId, examId,
+                studentSchedule, examDurationMinutes, conn);
+        for (ConflictFreeSchedule c = candidates.poll(); c != null; c = candidates.poll()) {
+            if (SessionCapacity.lockFreeSeats(conn, c.scheduleId, examId) > 0) {
+                bestSchedule = c;
+                break;
+            }
+        }
 
         Integer scheduleId = null;
         String scheduleRoom = null;
@@ -529,8 +549,8 @@ public final class SchedulingService {
         }
 
         if (scheduleId == null) {
-            throw new SQLException(
-                    "❌ Cannot schedule exam - all time slots conflict with your existing exams. Please contact administrator to resolve scheduling conflicts.");
+            throw new NoCapacityException(examId,
+                    "❌ Cannot schedule exam - no free seat or room in the next 30 days.");
         }
 
         // 5. Enroll student in the found/created schedule
@@ -547,6 +567,8 @@ public final class SchedulingService {
                 registrationId = gk.getInt(1);
             }
         }
+        // Delivered once the caller commits (see EventBus.afterCommit)
+        ChangeLog.publish(conn, new DomainEvent.EnrollmentCreated(studentId, registrationId, scheduleId));
 
         AssignmentResult ar = new AssignmentResult();
         ar.registrationId = registrationId;
@@ -560,46 +582,6 @@ public final class SchedulingService {
 
     // ===== CONFLICT RESOLUTION DATA STRUCTURES =====
 
-    /**
-     * TimeSlot represents a time interval for conflict detection
-     * Uses TreeMap internally for efficient interval overlap detection
-     */
-    static class TimeSlot implements Comparable<TimeSlot> {
-        LocalDate date;
-        LocalTime startTime;
-        LocalTime endTime;
-        String examName;
-        String room;
-
-        TimeSlot(LocalDate date, LocalTime start, LocalTime end, String examName, String room) {
-            this.date = date;
-            this.startTime = start;
-            this.endTime = end;
-            this.examName = examName;
-            this.room = room;
-        }
-
-        // Check if this slot overlaps with another
-        boolean overlapsWith(TimeSlot other) {
-            if (!this.date.equals(other.date))
-                return false;
-            return this.startTime.isBefore(other.endTime) && this.endTime.isAfter(other.startTime);
-        }
-
-        @Override
-        public int compareTo(TimeSlot other) {
-            int dateComp = this.date.compareTo(other.date);
-            if (dateComp != 0)
-                return dateComp;
-            return this.startTime.compareTo(other.startTime);
-        }
-
-        @Override
-        public String toString() {
-            return String.format("%s %s-%s (%s in %s)", date, startTime, endTime, examName, room);
-        }
-    }
-
     /**
      * ConflictFreeSchedule represents a schedule slot that doesn't conflict with
      * student's existing exams
@@ -642,39 +624,6 @@ public final class SchedulingService {
 
     // ===== CONFLICT DETECTION & RESOLUTION METHODS =====
 
-    /**
-     * Gets all scheduled exams for a student using TreeSet for efficient conflict
-     * detection
-     */
-    private static Set<TimeSlot> getStudentSchedule(int studentId, Connection conn) throws SQLException {
-        Set<TimeSlot> schedule = new HashSet<>();
-
-        String sql = "SELECT es.scheduled_date, es.scheduled_time, e.exam_name, e.duration, r.room_name " +
-                "FROM student_exams se " +
-                "JOIN exam_schedules es ON se.exam_schedule_id = es.id " +
-                "JOIN exams e ON es.exam_id = e.id " +
-                "JOIN rooms r ON es.room_id = r.id " +
-                "WHERE se.student_id = ? AND es.scheduled_date IS NOT NULL";
-
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, studentId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    LocalDate date = rs.getDate("scheduled_date").toLocalDate();
-                    LocalTime startTime = rs.getTime("scheduled_time").toLocalTime();
-                    String durationStr = rs.getString("duration");
-                    int durationMinutes = parseDurationMinutes(durationStr != null ? durationStr : "2 hours");
-                    LocalTime endTime = startTime.plusMinutes(durationMinutes);
-                    String examName = rs.getString("exam_name");
-                    String roomName = rs.getString("room_name");
-
-                    schedule.add(new TimeSlot(date, startTime, endTime, examName, roomName));
-                }
-            }
-        }
-        return schedule;
-    }
-
     /**
      * Gets exam duration in minutes
      */
@@ -693,11 +642,11 @@ public final class SchedulingService {
     }
 
     /**
-     * Finds a conflict-free existing schedule using PriorityQueue for optimal
-     * selection
+     * Finds the conflict-free existing schedules with free seats, in a
+     * PriorityQueue ordered best first
      */
-    private static ConflictFreeSchedule findConflictFreeSchedule(int studentId, int examId,
-            Set<TimeSlot> studentSchedule,
+    private static PriorityQueue<ConflictFreeSchedule> findConflictFreeSchedules(int studentId, int examId,
+            StudentTimetableCache.Timetable studentSchedule,
             int examDurationMinutes, Connection conn) throws SQLException {
 
         // Priority queue to find best schedule (least enrolled first)
@@ -706,14 +655,20 @@ public final class SchedulingService {
                         .thenComparingInt(s -> -s.availableCapacity) // Higher capacity preferred
         );
 
+        // Seats held for students picking a slot (SlotPreviewService) are taken too
+        String taken = "(SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id) " +
+                "+ (SELECT COUNT(*) FROM seat_holds h WHERE h.exam_schedule_id = es.id AND h.expires_at > ?)";
         String sql = "SELECT es.id, r.room_name, es.scheduled_date, es.scheduled_time, es.capacity, " +
-                "(SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id) AS enrolled " +
+                taken + " AS enrolled " +
                 "FROM exam_schedules es " +
                 "JOIN rooms r ON es.room_id = r.id " +
-                "WHERE es.exam_id = ? AND es.capacity > (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id)";
+                "WHERE es.exam_id = ? AND es.capacity > " + taken;
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, examId);
+            java.sql.Timestamp now = new java.sql.Timestamp(System.currentTimeMillis());
+            ps.setTimestamp(1, now);
+            ps.setInt(2, examId);
+            ps.setTimestamp(3, now);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     int scheduleId = rs.getInt("id");
@@ -723,20 +678,11 @@ public final class SchedulingService {
                     int capacity = rs.getInt("capacity");
                     int enrolled = rs.getInt("enrolled");
 
-                    // Create proposed time slot for this schedule
+                    // Check the proposed slot against student's existing schedule
                     LocalDate date = scheduleDate.toLocalDate();
                     LocalTime startTime = scheduleTime.toLocalTime();
                     LocalTime endTime = startTime.plusMinutes(examDurationMinutes);
-                    TimeSlot proposedSlot = new TimeSlot(date, startTime, endTime, "NEW_EXAM", roomName);
-
-                    // Check for conflicts with student's existing schedule
-                    boolean hasConflict = false;
-                    for (TimeSlot existingSlot : studentSchedule) {
-                        if (proposedSlot.overlapsWith(existingSlot)) {
-                            hasConflict = true;
-                            break;
-                        }
-                    }
+                    boolean hasConflict = studentSchedule.overlaps(date, startTime, endTime);
 
                     if (!hasConflict) {
                         ConflictFreeSchedule candidate = new ConflictFreeSchedule(
@@ -748,14 +694,17 @@ public final class SchedulingService {
             }
         }
 
-        return candidateSchedules.poll(); // Return best candidate or null
+        return candidateSchedules;
     }
 
     /**
      * Creates a new intelligent schedule using TreeMap for time slot management
-     * Implements sophisticated conflict avoidance algorithm
+     * Implements sophisticated conflict avoidance algorithm. Returns null when
+     * no conflict-free slot has a free room; throws ScheduleConflictException
+     * when every slot overlaps the student's own exams
      */
-    private static NewScheduleResult createIntelligentSchedule(int studentId, int examId, Set<TimeSlot> studentSchedule,
+    private static NewScheduleResult createIntelligentSchedule(int studentId, int examId,
+            StudentTimetableCache.Timetable studentSchedule,
             int examDurationMinutes, Connection conn) throws SQLException {
 
         // TreeMap for organized time slot exploration
@@ -776,30 +725,34 @@ public final class SchedulingService {
         }
 
         // Remove conflicting time slots
-        for (TimeSlot studentSlot : studentSchedule) {
-            Set<LocalTime> daySlots = availableSlots.get(studentSlot.date);
-            if (daySlots != null) {
-                // Remove all slots that would overlap
-                daySlots.removeIf(time -> {
-                    LocalTime endTime = time.plusMinutes(examDurationMinutes);
-                    return time.isBefore(studentSlot.endTime) && endTime.isAfter(studentSlot.startTime);
-                });
-            }
+        for (Map.Entry<LocalDate, Set<LocalTime>> day : availableSlots.entrySet()) {
+            day.getValue().removeIf(
+                    time -> studentSchedule.overlaps(day.getKey(), time, time.plusMinutes(examDurationMinutes)));
+        }
+        if (availableSlots.values().stream().allMatch(Set::isEmpty)) {
+            throw new ScheduleConflictException(examId,
+                    "❌ Cannot schedule exam - all time slots conflict with your existing exams. Please contact administrator to resolve scheduling conflicts.");
         }
 
         // Find best available slot with room
+        List<RoomAllocator.Room> rooms = loadRoomsAligned(conn);
+        Map<Integer, Integer> demand = RemainingDemand.get(conn);
         for (Map.Entry<LocalDate, Set<LocalTime>> entry : availableSlots.entrySet()) {
             LocalDate date = entry.getKey();
             for (LocalTime time : entry.getValue()) {
                 // Find available room for this time slot
-                String availableRoom = findAvailableRoom(date, time, examDurationMinutes, conn);
-                if (availableRoom != null) {
+                RoomAllocator.Room availableRoom = findAvailableRoom(rooms, examId, demand, date, time,
+                        examDurationMinutes, conn);
+                // The scan above is unlocked; book only if the (date, room) lock
+                // confirms nobody else took the room meanwhile
+                if (availableRoom != null
+                        && ScheduleLocks.claimRoom(conn, availableRoom.id(), date, time, examDurationMinutes)) {
                     // Create new schedule
-                    int newScheduleId = createNewSchedule(examId, availableRoom, date, time, conn);
+                    int newScheduleId = createNewSchedule(examId, availableRoom.name(), date, time, conn);
                     if (newScheduleId > 0) {
                         return new NewScheduleResult(
                                 newScheduleId,
-                                availableRoom,
+                                availableRoom.name(),
                                 java.sql.Date.valueOf(date),
                                 java.sql.Time.valueOf(time));
                     }
@@ -811,17 +764,20 @@ public final class SchedulingService {
     }
 
     /**
-     * Finds an available room for a specific date and time
+     * Finds an available room for a specific date and time, chosen by the
+     * configured {@link RoomAllocator}
      */
-    private static String findAvailableRoom(LocalDate date, LocalTime time, int durationMinutes, Connection conn)
+    private static RoomAllocator.Room findAvailableRoom(List<RoomAllocator.Room> rooms, int examId,
+            Map<Integer, Integer> demand, LocalDate date, LocalTime time, int durationMinutes, Connection conn)
             throws SQLException {
         // Check each room for availability
-        for (String room : ROOMS) {
-            if (isRoomAvailable(room, date, time, durationMinutes, conn)) {
-                return room;
+        List<RoomAllocator.Room> free = new ArrayList<>();
+        for (RoomAllocator.Room room : rooms) {
+            if (isRoomAvailable(room.name(), date, time, durationMinutes, conn)) {
+                free.add(room);
             }
         }
-        return null;
+        return chooseRoom(free, examId, demand);
     }
 
     /**
@@ -831,10 +787,14 @@ public final class SchedulingService {
             Connection conn) throws SQLException {
         LocalTime endTime = startTime.plusMinutes(durationMinutes);
 
+        // Date arithmetic differs between MySQL and the embedded backend
+        StorageBackend dialect = DatabaseConnection.getBackend();
+        String examMinutes = "(SELECT " + dialect.leadingInt("e.duration", 120)
+                + " FROM exams e WHERE e.id = es.exam_id)";
         String sql = "SELECT COUNT(*) FROM exam_schedules es " +
                 "JOIN rooms r ON es.room_id = r.id " +
                 "WHERE r.room_name = ? AND es.scheduled_date = ? " +
-                "AND ((es.scheduled_time < ? AND DATE_ADD(es.scheduled_time, INTERVAL (SELECT COALESCE(NULLIF(SUBSTRING_INDEX(e.duration, ' ', 1), ''), '120') FROM exams e WHERE e.id = es.exam_id) MINUTE) > ?) "
+                "AND ((es.scheduled_time < ? AND " + dialect.addMinutes("es.scheduled_time", examMinutes) + " > ?) "
                 +
                 "OR (es.scheduled_time < ? AND es.scheduled_time >= ?))";
 
@@ -860,14 +820,16 @@ public final class SchedulingService {
      */
     private static int createNewSchedule(int examId, String roomName, LocalDate date, LocalTime time, Connection conn)
             throws SQLException {
-        // Get room ID
+        // Get room ID; the session seats as many as the room the allocator chose
         int roomId = 0;
-        String getRoomIdSql = "SELECT id FROM rooms WHERE room_name = ?";
+        int roomCapacity = 30;
+        String getRoomIdSql = "SELECT id, capacity FROM rooms WHERE room_name = ?";
         try (PreparedStatement ps = conn.prepareStatement(getRoomIdSql)) {
             ps.setString(1, roomName);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
                     roomId = rs.getInt("id");
+                    roomCapacity = rs.getInt("capacity");
                 }
             }
         }
@@ -883,92 +845,27 @@ public final class SchedulingService {
             ps.setInt(2, roomId);
             ps.setDate(3, java.sql.Date.valueOf(date));
             ps.setTime(4, java.sql.Time.valueOf(time));
-            ps.setInt(5, 30); // Default capacity
+            ps.setInt(5, roomCapacity);
 
             ps.executeUpdate();
             try (ResultSet gk = ps.getGeneratedKeys()) {
                 if (gk.next()) {
-                    return gk.getInt(1);
+                    int scheduleId = gk.getInt(1);
+                    ChangeLog.publish(conn, new DomainEvent.ScheduleCreated(scheduleId, examId));
+                    return scheduleId;
                 }
             }
         }
         return 0;
     }
 
-    // ---- Capacity column support helpers ----
-    // Note: Database now has capacity column built-in, these are legacy methods
-    private static boolean capacityCheckDone = false;
-    private static boolean hasCapacityColumn = true; // Always true now
-
-    private static synchronized void ensureCapacityColumnIfNeeded(Connection conn) {
-        // No-op: capacity column is guaranteed to exist in aligned schema
-        capacityCheckDone = true;
-        hasCapacityColumn = true;
-    }
-
-    private static boolean studentHasSlot(int studentId, LocalDate date, int slotId, Connection conn)
-            throws SQLException {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "SELECT 1 FROM exam_schedules es JOIN student_exams se ON se.exam_schedule_id=es.id WHERE se.student_id=? AND es.scheduled_date=? AND es.time_slot_id=? LIMIT 1")) {
-            ps.setInt(1, studentId);
-            ps.setDate(2, java.sql.Date.valueOf(date));
-            ps.setInt(3, slotId);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
-
-    private static String pickAvailableRoom(LocalDate date, int slotId, LocalTime start, int durationMin,
-            Connection conn)
-            throws SQLException {
-        // Rooms already occupied in this slot/date
-        Map<String, Boolean> occupied = new HashMap<>();
-        try (PreparedStatement ps = conn.prepareStatement(
-                "SELECT r.room_name FROM exam_schedules es JOIN rooms r ON r.id=es.room_id WHERE es.scheduled_date=?")) {
-            ps.setDate(1, java.sql.Date.valueOf(date));
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    occupied.put(rs.getString(1), true);
-                }
-            }
-        }
-        // Choose a room not yet used this slot; prefer lowest current usage that day
-        String chosen = null;
-        int bestUsage = Integer.MAX_VALUE;
-        try (PreparedStatement ps = conn.prepareStatement(
-                "SELECT r.room_name, (SELECT COUNT(*) FROM exam_schedules es WHERE es.room_id=r.id AND es.scheduled_date=?) AS usage_count FROM rooms r ORDER BY r.capacity DESC")) {
-            ps.setDate(1, java.sql.Date.valueOf(date));
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    String rn = rs.getString(1);
-                    int usage = rs.getInt(2);
-                    if (occupied.containsKey(rn))
-                        continue;
-                    if (usage < bestUsage) {
-                        bestUsage = usage;
-                        chosen = rn;
-                    }
-                }
-            }
-        }
-        return chosen; // null if none free
-    }
-
-    private static int fetchExamDurationMinutes(int examId, Connection conn) throws SQLException {
-        try (PreparedStatement ps = conn.prepareStatement("SELECT duration FROM exams WHERE id=?")) {
-            ps.setInt(1, examId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    String dur = rs.getString(1);
-                    return parseDurationMinutes(dur != null ? dur : "2 hours");
-                }
-            }
-        }
-        return 120;
+    private static String pickAvailableRoom(int examId, LocalDate date, Connection conn) throws SQLException {
+        RoomAllocator.Room room = pickAvailableRoomAligned(examId, date, conn);
+        return room != null ? room.name() : null; // null if none free
     }
 
-    private static int parseDurationMinutes(String txt) {
+    /** Minutes in an exams.duration text such as "120 minutes" or "2 hours". */
+    public static int parseDurationMinutes(String txt) {
         String d = txt.toLowerCase();
         // basic patterns like "2 hours", "1.5 hours" etc.
         if (d.contains("1.5"))
@@ -1003,15 +900,9 @@ public final class SchedulingService {
         }
     }
 
-    private static class RoomInfo {
-        int id;
-        String name;
-        int capacity;
-    }
-
-    private static RoomInfo pickAvailableRoomAligned(LocalDate date, int slotId, Connection conn)
+    private static RoomAllocator.Room pickAvailableRoomAligned(int examId, LocalDate date, Connection conn)
             throws SQLException {
-        // Get rooms not yet used in this specific time slot on this date
+        // Rooms not yet used on this date, with their session count for the day
         Set<Integer> occupiedRoomIds = new HashSet<>();
         try (PreparedStatement ps = conn.prepareStatement(
                 "SELECT DISTINCT room_id FROM exam_schedules WHERE scheduled_date=?")) {
@@ -1022,229 +913,14 @@ public final class SchedulingService {
                 }
             }
         }
-
-        // Choose available room with lowest usage count for the day
-        RoomInfo chosen = null;
-        int bestUsage = Integer.MAX_VALUE;
-        try (PreparedStatement ps = conn.prepareStatement(
-                "SELECT r.id, r.room_name, r.capacity, " +
-                        "(SELECT COUNT(*) FROM exam_schedules es WHERE es.room_id=r.id AND es.scheduled_date=?) AS usage_count "
-                        +
-                        "FROM rooms r ORDER BY r.capacity DESC")) {
-            ps.setDate(1, java.sql.Date.valueOf(date));
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    int roomId = rs.getInt("id");
-                    if (occupiedRoomIds.contains(roomId))
-                        continue; // room already used in some slot this day
-
-                    int usage = rs.getInt("usage_count");
-                    if (usage < bestUsage) {
-                        bestUsage = usage;
-                        chosen = new RoomInfo();
-                        chosen.id = roomId;
-                        chosen.name = rs.getString("room_name");
-                        chosen.capacity = rs.getInt("capacity");
-                    }
-                }
-            }
+        List<RoomAllocator.Room> free = new ArrayList<>();
+        for (RoomAllocator.Room room : loadRoomsAligned(conn)) {
+            if (!occupiedRoomIds.contains(room.id()))
+                free.add(room);
         }
-        return chosen; // null if none free
+        return chooseRoom(free, examId, RemainingDemand.get(conn)); // null if none free
     }
 
-    // ==============================================================
-    // ADVANCED TESTING-CENTER SCHEDULER (FAIR / LOAD-BALANCED VERSION)
-    // ==============================================================
-    // This method is an alternative to scheduleAndEnrollExam focused on:
-    // - Reusing existing schedules until capacity is reached
-    // - Balancing room usage (fewest occupied slots first)
-    // - Preventing overlapping sessions for the same student per day
-    // - Using TreeMap<LocalTime, LocalTime> per room (fast neighbor conflict check)
-    // - Searching forward day-by-day up to a horizon (default 30 days)
-    // - Respecting time_slots table; if empty, falls back to 4 canonical slots
-    // - Minimal new schedule creation – only when no capacity remains
-    // - Capacity comes from exam_schedules.capacity (if column) else rooms.capacity
-    // Call this instead of scheduleAndEnrollExam if you want the newer strategy.
-    public static AssignmentResult scheduleExamTestingCenter(int studentId, int examId, Connection external)
-            throws SQLException {
-        boolean created = false;
-        Connection conn = external;
-        if (conn == null) {
-            conn = DatabaseConnection.getConnection();
-            created = true;
-        }
-        try {
-            if (conn == null)
-                throw new SQLException("No connection");
-            ensureCapacityColumnIfNeeded(conn);
-            int durationMin = fetchExamDurationMinutes(examId, conn);
-            List<TimeSlotDef> slots = loadTimeSlots(conn);
-            LocalDate today = LocalDate.now();
-            int horizonDays = 30;
-
-            for (int offset = 0; offset < horizonDays; offset++) {
-                LocalDate date = today.plusDays(offset);
-                // Skip date if student already has all slots occupied (quick check)
-                if (studentFullyBookedAllSlots(studentId, date, conn, slots))
-                    continue;
-
-                // Build room usage + schedules for that date using TreeMaps for conflicts
-                Map<String, java.util.TreeMap<LocalTime, LocalTime>> roomMaps = new HashMap<>();
-                Map<String, Integer> roomUsage = new HashMap<>();
-                List<String> rooms = loadRooms(conn);
-                for (String r : rooms) {
-                    roomMaps.put(r, new java.util.TreeMap<>());
-                    roomUsage.put(r, 0);
-                }
-
-                // Load existing schedules for the day
-                try (PreparedStatement ps = conn.prepareStatement(
-                        hasCapacityColumn
-                                ? "SELECT es.id, es.exam_id, es.room_number, es.scheduled_time, COALESCE(es.capacity, r.capacity) AS capacity, (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id=es.id) AS enrolled, es.time_slot_id FROM exam_schedules es JOIN rooms r ON r.room_name=es.room_number WHERE es.scheduled_date=?"
-                                : "SELECT es.id, es.exam_id, es.room_number, es.scheduled_time, r.capacity AS capacity, (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id=es.id) AS enrolled, es.time_slot_id FROM exam_schedules es JOIN rooms r ON r.room_name=es.room_number WHERE es.scheduled_date=?")) {
-                    ps.setDate(1, java.sql.Date.valueOf(date));
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next()) {
-                            String room = rs.getString("room_number");
-                            Time st = rs.getTime("scheduled_time");
-                            if (room != null && st != null) {
-                                LocalTime start = st.toLocalTime();
-                                roomMaps.get(room).put(start, start.plusMinutes(durationMin));
-                                roomUsage.put(room, roomUsage.get(room) + 1);
-                            }
-                        }
-                    }
-                }
-
-                for (TimeSlotDef slot : slots) {
-                    // Skip if student already has exam in this slot/date
-                    if (studentHasSlot(studentId, date, slot.id, conn))
-                        continue;
-
-                    // 1. Try to reuse an existing schedule for SAME exam & slot with free capacity
-                    Integer reuseScheduleId = null;
-                    String reuseRoom = null;
-                    Integer reuseCapacity = null;
-                    try (PreparedStatement ps = conn.prepareStatement(
-                            hasCapacityColumn
-                                    ? "SELECT es.id, es.room_number, COALESCE(es.capacity, r.capacity) AS capacity, (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id=es.id) AS enrolled FROM exam_schedules es JOIN rooms r ON r.room_name=es.room_number WHERE es.exam_id=? AND es.scheduled_date=? AND es.time_slot_id=? ORDER BY enrolled ASC"
-                                    : "SELECT es.id, es.room_number, r.capacity AS capacity, (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id=es.id) AS enrolled FROM exam_schedules es JOIN rooms r ON r.room_name=es.room_number WHERE es.exam_id=? AND es.scheduled_date=? AND es.time_slot_id=? ORDER BY enrolled ASC")) {
-                        ps.setInt(1, examId);
-                        ps.setDate(2, java.sql.Date.valueOf(date));
-                        ps.setInt(3, slot.id);
-                        try (ResultSet rs = ps.executeQuery()) {
-                            while (rs.next()) {
-                                int cap = rs.getInt("capacity");
-                                int enrolled = rs.getInt("enrolled");
-                                if (enrolled < cap) {
-                                    reuseScheduleId = rs.getInt("id");
-                                    reuseRoom = rs.getString("room_number");
-                                    reuseCapacity = cap;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    if (reuseScheduleId != null) {
-                        // Enroll directly WITHOUT changing any schedule fields
-                        // Read the actual schedule date/time from DB to avoid any mismatch
-                        LocalDate actualDate = date;
-                        LocalTime actualTime = slot.start;
-                        try (PreparedStatement ps2 = conn.prepareStatement(
-                                "SELECT scheduled_date, scheduled_time FROM exam_schedules WHERE id=?")) {
-                            ps2.setInt(1, reuseScheduleId);
-                            try (ResultSet rs2 = ps2.executeQuery()) {
-                                if (rs2.next()) {
-                                    java.sql.Date d = rs2.getDate("scheduled_date");
-                                    java.sql.Time t = rs2.getTime("scheduled_time");
-                                    if (d != null)
-                                        actualDate = d.toLocalDate();
-                                    if (t != null)
-                                        actualTime = t.toLocalTime();
-                                }
-                            }
-                        }
-
-                        int regId = enrollStudentIntoSchedule(studentId, reuseScheduleId, conn);
-                        AssignmentResult ar = new AssignmentResult();
-                        ar.registrationId = regId;
-                        ar.examScheduleId = reuseScheduleId;
-                        ar.date = actualDate;
-                        ar.start = actualTime;
-                        ar.room = reuseRoom;
-                        ar.capacity = reuseCapacity;
-                        return ar;
-                    }
-
-                    // 2. Create a new schedule if a room is free at this slot
-                    LocalTime desiredStart = slot.start;
-                    // Choose best room = conflict-free & lowest current usage
-                    String bestRoom = null;
-                    int bestLoad = Integer.MAX_VALUE;
-                    for (String room : rooms) {
-                        java.util.TreeMap<LocalTime, LocalTime> map = roomMaps.get(room);
-                        if (conflict(map, desiredStart, desiredStart.plusMinutes(durationMin)))
-                            continue;
-                        int load = roomUsage.get(room);
-                        if (load < bestLoad) {
-                            bestLoad = load;
-                            bestRoom = room;
-                        }
-                    }
-                    if (bestRoom == null)
-                        continue; // all rooms busy at this slot -> next slot
-
-                    // Determine capacity from room
-                    int cap = fetchRoomCapacity(bestRoom, conn);
-                    Integer newScheduleId;
-                    try (PreparedStatement ins = conn.prepareStatement(
-                            hasCapacityColumn
-                                    ? "INSERT INTO exam_schedules (student_id, exam_id, room_number, scheduled_date, scheduled_time, time_slot_id, capacity) VALUES (?,?,?,?,?,?,?)"
-                                    : "INSERT INTO exam_schedules (student_id, exam_id, room_number, scheduled_date, scheduled_time, time_slot_id) VALUES (?,?,?,?,?,?)",
-                            PreparedStatement.RETURN_GENERATED_KEYS)) {
-                        ins.setInt(1, studentId); // creator
-                        ins.setInt(2, examId);
-                        ins.setString(3, bestRoom);
-                        ins.setDate(4, java.sql.Date.valueOf(date));
-                        ins.setTime(5, Time.valueOf(desiredStart));
-                        ins.setInt(6, slot.id);
-                        if (hasCapacityColumn)
-                            ins.setInt(7, cap);
-                        ins.executeUpdate();
-                        try (ResultSet gk = ins.getGeneratedKeys()) {
-                            gk.next();
-                            newScheduleId = gk.getInt(1);
-                        }
-                    }
-                    // Update structures for fairness if more scheduling happens same invocation
-                    roomMaps.get(bestRoom).put(desiredStart, desiredStart.plusMinutes(durationMin));
-                    roomUsage.put(bestRoom, roomUsage.get(bestRoom) + 1);
-
-                    // Enroll (creator may or may not already be implicitly enrolled; we keep
-                    // explicit)
-                    int regId = enrollStudentIntoSchedule(studentId, newScheduleId, conn);
-                    AssignmentResult ar = new AssignmentResult();
-                    ar.registrationId = regId;
-                    ar.examScheduleId = newScheduleId;
-                    ar.date = date;
-                    ar.start = desiredStart;
-                    ar.room = bestRoom;
-                    ar.capacity = cap;
-                    return ar;
-                }
-            }
-            throw new SQLException("No capacity available in the next " + horizonDays + " days");
-        } finally {
-            if (created && conn != null) {
-                try {
-                    conn.close();
-                } catch (SQLException ignored) {
-                }
-            }
-        }
-    }
-
-    // ---------- Helpers for advanced scheduler ----------
     private static boolean conflict(java.util.TreeMap<LocalTime, LocalTime> sched, LocalTime start, LocalTime end) {
         var before = sched.floorEntry(start);
         if (before != null && before.getValue().isAfter(start))
@@ -1255,68 +931,36 @@ public final class SchedulingService {
         return false;
     }
 
-    private static int enrollStudentIntoSchedule(int studentId, int scheduleId, Connection conn) throws SQLException {
-        try (PreparedStatement insSe = conn.prepareStatement(
-                "INSERT INTO student_exams (student_id, exam_schedule_id, status, is_paid) VALUES (?,?, 'Enrolled', 1)",
-                PreparedStatement.RETURN_GENERATED_KEYS)) {
-            insSe.setInt(1, studentId);
-            insSe.setInt(2, scheduleId);
-            insSe.executeUpdate();
-            try (ResultSet gk = insSe.getGeneratedKeys()) {
-                gk.next();
-                int registrationId = gk.getInt(1);
-
-                // Manually decrease capacity since trigger doesn't exist
-                try (PreparedStatement updateCap = conn.prepareStatement(
-                        "UPDATE exam_schedules SET capacity = capacity - 1 WHERE id = ? AND capacity > 0")) {
-                    updateCap.setInt(1, scheduleId);
-                    updateCap.executeUpdate();
-                }
-
-                return registrationId;
-            }
-        }
-    }
-
-    private static int fetchRoomCapacity(String roomName, Connection conn) throws SQLException {
-        try (PreparedStatement ps = conn.prepareStatement("SELECT capacity FROM rooms WHERE room_name=?")) {
-            ps.setString(1, roomName);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next())
-                    return rs.getInt(1);
-            }
-        }
-        return 0;
-    }
-
-    private static boolean studentFullyBookedAllSlots(int studentId, LocalDate date, Connection conn,
-            List<TimeSlotDef> slots)
-            throws SQLException {
-        // Quick heuristic: count distinct time_slot_id for that date for student
-        try (PreparedStatement ps = conn.prepareStatement(
-                "SELECT COUNT(DISTINCT es.time_slot_id) FROM exam_schedules es JOIN student_exams se ON se.exam_schedule_id=es.id WHERE se.student_id=? AND es.scheduled_date=?")) {
+    /**
+     * Whether the student is enrolled in the exam, including sessions already
+     * moved to the archive (see ScheduleArchiveJob), so nobody is charged again
+     * for an exam they sat.
+     */
+    static boolean isEnrolledInExam(int studentId, int examId, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT 1 FROM student_exams se JOIN exam_schedules es ON se.exam_schedule_id = es.id
+                WHERE se.student_id = ? AND es.exam_id = ?
+                UNION ALL
+                SELECT 1 FROM student_exams_archive sa WHERE sa.student_id = ? AND sa.schedule_exam_id = ?
+                """)) {
             ps.setInt(1, studentId);
-            ps.setDate(2, java.sql.Date.valueOf(date));
+            ps.setInt(2, examId);
+            ps.setInt(3, studentId);
+            ps.setInt(4, examId);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    int count = rs.getInt(1);
-                    // If slots table empty we treat 4 default; else number of actual slots
-                    int totalSlots = slots.isEmpty() ? 4 : slots.size();
-                    return count >= totalSlots;
-                }
+                return rs.next();
             }
         }
-        return false;
     }
 
     // Structure for loaded time slots
-    private static class TimeSlotDef {
+    static class TimeSlotDef {
         int id;
         LocalTime start;
         LocalTime end;
     }
 
-    private static List<TimeSlotDef> loadTimeSlots(Connection conn) throws SQLException {
+    static List<TimeSlotDef> loadTimeSlots(Connection conn) throws SQLException {
         List<TimeSlotDef> list = new ArrayList<>();
         try (PreparedStatement ps = conn
                 .prepareStatement("SELECT id, start_time FROM time_slots ORDER BY start_time")) {
@@ -1346,23 +990,6 @@ public final class SchedulingService {
         return list;
     }
 
-    private static List<String> loadRooms(Connection conn) throws SQLException {
-        List<String> rooms = new ArrayList<>();
-        try (PreparedStatement ps = conn.prepareStatement("SELECT room_name FROM rooms ORDER BY capacity DESC")) {
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    rooms.add(rs.getString(1));
-                }
-            }
-        }
-        if (rooms.isEmpty()) {
-            // fallback to constant list
-            for (String r : ROOMS)
-                rooms.add(r);
-        }
-        return rooms;
-    }
-
     private static boolean studentFullyBookedAllSlotsAligned(int studentId, LocalDate date, Connection conn)
             throws SQLException {
         // Check if student has any exam on this date
@@ -1377,20 +1004,38 @@ public final class SchedulingService {
         }
     }
 
-    private static List<RoomInfo> loadRoomsAligned(Connection conn) throws SQLException {
-        List<RoomInfo> rooms = new ArrayList<>();
+    static List<RoomAllocator.Room> loadRoomsAligned(Connection conn) throws SQLException {
+        List<RoomAllocator.Room> rooms = new ArrayList<>();
         try (PreparedStatement ps = conn
                 .prepareStatement("SELECT id, room_name, capacity FROM rooms ORDER BY capacity DESC")) {
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    RoomInfo room = new RoomInfo();
-                    room.id = rs.getInt("id");
-                    room.name = rs.getString("room_name");
-                    room.capacity = rs.getInt("capacity");
-                    rooms.add(room);
+                    rooms.add(new RoomAllocator.Room(rs.getInt("id"), rs.getString("room_name"),
+                            rs.getInt("capacity"), 0));
                 }
             }
         }
+        if (rooms.isEmpty()) {
+            // fallback to constant list (capacity unknown)
+            for (String r : ROOMS)
+                rooms.add(new RoomAllocator.Room(0, r, 0, 0));
+        }
         return rooms;
     }
+
+    static RoomAllocator.Room withUsage(RoomAllocator.Room room, int usage) {
+        return new RoomAllocator.Room(room.id(), room.name(), room.capacity(), usage);
+    }
+
+    static RoomAllocator.Room chooseRoom(List<RoomAllocator.Room> free, int examId,
+            Map<Integer, Integer> demand) {
+        int need = Math.max(1, demand.getOrDefault(examId, 1));
+        List<Integer> others = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : demand.entrySet()) {
+            if (e.getKey() != examId && e.getValue() > 0)
+                others.add(e.getValue());
+        }
+        others.sort(Comparator.reverseOrder());
+        return roomAllocator.choose(free, need, others);
+    }
 }
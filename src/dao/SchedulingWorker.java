@@ -0,0 +1,338 @@
+package dao;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless scheduling worker: claims enrollment jobs from scheduling_jobs and
+ * runs them through {@link SchedulingService#scheduleAndEnrollExam}.
+ *
+ * Any number of worker threads and JVMs can share one database. A claim locks
+ * Queued rows with SELECT ... FOR UPDATE SKIP LOCKED, so concurrent claimers
+ * never wait on each other or take the same job. Work is partitioned by exam:
+ * a claim takes a batch of jobs for a single exam and passes over exams that
+ * another worker is already running, because jobs of the same exam compete for
+ * the same sessions and seats while different exams rarely touch the same rows.
+ *
+ * Each job is enrolled, charged and marked Done in one transaction that only
+ * commits while this worker still owns the job. A job that hits a transient
+ * database error (deadlock, lock wait timeout, lost connection) goes back to
+ * the queue, as does one left Running by a worker that died (after
+ * LEASE_MINUTES); either fails once it has been claimed MAX_ATTEMPTS times.
+ *
+ * Run: java dao.SchedulingWorker [threads]
+ * (default exam.worker.threads / EXAM_WORKER_THREADS / worker.threads, or 4)
+ */
+public final class SchedulingWorker {
+
+    private static final Log LOG = Log.get(SchedulingWorker.class);
+
+    private static final int BATCH = 20;
+    private static final int LEASE_MINUTES = 5;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long MIN_IDLE_MS = 200;
+    private static final long MAX_IDLE_MS = 2000;
+    private static final long RECOVERY_INTERVAL_MS = 60_000;
+
+    /** A claimed job; attempts counts this claim. */
+    record Job(long id, int studentId, int examId, double fee, int attempts) {
+    }
+
+    private final String workerId;
+    private long lastRecovery;
+
+    private static ExecutorService executor;
+
+    SchedulingWorker(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+                : Integer.parseInt(StorageBackend.setting("exam.worker.threads", "EXAM_WORKER_THREADS",
+                        "worker.threads", "4"));
+        DatabaseSetup.ensureSchema();
+        start(threads);
+        LOG.info("✅ Scheduling worker {} running with {} thread(s)", processName(), threads);
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /** Starts the given number of claim loops in this JVM (once). */
+    public static synchronized void start(int threads) {
+        if (executor != null)
+            return;
+        executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "scheduling-worker"));
+        String process = processName();
+        for (int i = 0; i < threads; i++) {
+            SchedulingWorker worker = new SchedulingWorker(process + "#" + i);
+            executor.execute(worker::run);
+        }
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static String processName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "worker";
+        }
+        String name = host + ":" + ProcessHandle.current().pid();
+        return name.length() > 60 ? name.substring(name.length() - 60) : name;
+    }
+
+    // ===== Claim loop =====
+
+    void run() {
+        long idle = MIN_IDLE_MS;
+        while (!Thread.currentThread().isInterrupted()) {
+            int processed = 0;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                if (conn == null)
+                    throw new SQLException("No connection");
+                recoverAbandoned(conn);
+                for (Job job : claim(conn)) {
+                    process(job, conn);
+                    processed++;
+                }
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("Scheduling worker {} failed: {}", workerId, e.getMessage());
+            }
+            if (processed > 0) {
+                idle = MIN_IDLE_MS;
+                continue;
+            }
+            try {
+                Thread.sleep(idle);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            idle = Math.min(MAX_IDLE_MS, idle * 2);
+        }
+    }
+
+    /**
+     * Claims up to BATCH queued jobs of one exam. The exam is the one with the
+     * oldest queued job that no other worker is currently running.
+     */
+    List<Job> claim(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            int examId;
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT j.exam_id FROM scheduling_jobs j
+                    WHERE j.status = 'Queued'
+                      AND NOT EXISTS (SELECT 1 FROM scheduling_jobs r
+                                      WHERE r.exam_id = j.exam_id AND r.status = 'Running' AND r.worker <> ?)
+                    ORDER BY j.id
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED
+                    """)) {
+                ps.setString(1, workerId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return Collections.emptyList();
+                    }
+                    examId = rs.getInt(1);
+                }
+            }
+
+            List<Job> jobs = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT id, student_id, exam_id, fee, attempts FROM scheduling_jobs
+                    WHERE status = 'Queued' AND exam_id = ?
+                    ORDER BY id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                    """)) {
+                ps.setInt(1, examId);
+                ps.setInt(2, BATCH);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        jobs.add(new Job(rs.getLong("id"), rs.getInt("student_id"), rs.getInt("exam_id"),
+                                rs.getDouble("fee"), rs.getInt("attempts") + 1));
+                    }
+                }
+            }
+
+            if (!jobs.isEmpty()) {
+                String placeholders = String.join(",", Collections.nCopies(jobs.size(), "?"));
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE scheduling_jobs SET status = 'Running', worker = ?, attempts = attempts + 1, "
+                                + "claimed_at = CURRENT_TIMESTAMP WHERE id IN (" + placeholders + ")")) {
+                    ps.setString(1, workerId);
+                    int i = 2;
+                    for (Job job : jobs)
+                        ps.setLong(i++, job.id());
+                    ps.executeUpdate();
+                }
+            }
+            conn.commit();
+            return jobs;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // ===== Job execution =====
+
+    private void process(Job job, Connection conn) throws SQLException {
+        // Another JVM may have enrolled this student since the timetable was cached
+        StudentTimetableCache.invalidate(job.studentId());
+        conn.setAutoCommit(false);
+        try {
+            if (job.fee() > 0 && !charge(job, conn)) {
+                conn.rollback();
+                finish(job, "Failed", "Insufficient balance", conn);
+                conn.commit();
+                return;
+            }
+            SchedulingService.AssignmentResult ar = SchedulingService.scheduleAndEnrollExam(job.studentId(),
+                    job.examId(), conn);
+            if (!complete(job, ar, conn)) {
+                // Lease expired and the job was requeued; the new owner will run it
+                conn.rollback();
+                EventBus.discard(conn);
+                return;
+            }
+            if (job.fee() > 0)
+                RevenueRollups.rollUpCharge(conn, job.examId(), job.fee());
+            conn.commit();
+            EventBus.afterCommit(conn);
+        } catch (ScheduleConflictException e) {
+            // Waiting for a seat cannot fix a timetable clash
+            conn.rollback();
+            EventBus.discard(conn);
+            finish(job, "Conflict", e.getMessage(), conn);
+            conn.commit();
+        } catch (NoCapacityException e) {
+            conn.rollback();
+            EventBus.discard(conn);
+            finish(job, "NoCapacity", e.getMessage(), conn);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            EventBus.discard(conn);
+            if (DatabaseConnection.isTransient(e) && job.attempts() < MAX_ATTEMPTS) {
+                LOG.warn("Scheduling job {} will be retried (attempt {}): {}", job.id(), job.attempts(),
+                        e.getMessage());
+                requeue(job, e.getMessage(), conn);
+            } else {
+                finish(job, "Failed", e.getMessage(), conn);
+            }
+            conn.commit();
+        } catch (RuntimeException e) {
+            conn.rollback();
+            EventBus.discard(conn);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static boolean charge(Job job, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE students SET balance = balance - ? WHERE id = ? AND balance >= ?")) {
+            ps.setDouble(1, job.fee());
+            ps.setInt(2, job.studentId());
+            ps.setDouble(3, job.fee());
+            if (ps.executeUpdate() == 0)
+                return false;
+        }
+        RevenueRollups.recordCharge(conn, job.studentId(), job.examId(), job.fee());
+        ChangeLog.publish(conn, new DomainEvent.BalanceChanged(job.studentId(), -job.fee()));
+        return true;
+    }
+
+    private boolean complete(Job job, SchedulingService.AssignmentResult ar, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                UPDATE scheduling_jobs
+                SET status = 'Done', registration_id = ?, schedule_id = ?, scheduled_date = ?, scheduled_time = ?,
+                    room_name = ?, message = NULL, finished_at = CURRENT_TIMESTAMP
+                WHERE id = ? AND status = 'Running' AND worker = ?
+                """)) {
+            ps.setInt(1, ar.registrationId);
+            ps.setInt(2, ar.examScheduleId);
+            ps.setDate(3, java.sql.Date.valueOf(ar.date));
+            ps.setTime(4, java.sql.Time.valueOf(ar.start));
+            ps.setString(5, ar.room);
+            ps.setLong(6, job.id());
+            ps.setString(7, workerId);
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    private void finish(Job job, String status, String message, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                UPDATE scheduling_jobs SET status = ?, message = ?, finished_at = CURRENT_TIMESTAMP
+                WHERE id = ? AND status = 'Running' AND worker = ?
+                """)) {
+            ps.setString(1, status);
+            ps.setString(2, message != null && message.length() > 255 ? message.substring(0, 255) : message);
+            ps.setLong(3, job.id());
+            ps.setString(4, workerId);
+            ps.executeUpdate();
+        }
+    }
+
+    // Back to Queued for any worker's next claim; the message says why it is being retried
+    private void requeue(Job job, String message, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                UPDATE scheduling_jobs SET status = 'Queued', worker = NULL, message = ?
+                WHERE id = ? AND status = 'Running' AND worker = ?
+                """)) {
+            ps.setString(1, message != null && message.length() > 255 ? message.substring(0, 255) : message);
+            ps.setLong(2, job.id());
+            ps.setString(3, workerId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Requeues jobs whose worker stopped before finishing them (at most once a
+     * minute per worker; any live worker does it).
+     */
+    private void recoverAbandoned(Connection conn) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastRecovery < RECOVERY_INTERVAL_MS)
+            return;
+        lastRecovery = now;
+        String expired = "status = 'Running' AND claimed_at < "
+                + DatabaseConnection.getBackend().addMinutes("CURRENT_TIMESTAMP", String.valueOf(-LEASE_MINUTES));
+        int requeued;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE scheduling_jobs SET status = 'Queued', worker = NULL WHERE " + expired
+                        + " AND attempts < ?")) {
+            ps.setInt(1, MAX_ATTEMPTS);
+            requeued = ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE scheduling_jobs SET status = 'Failed', message = 'Abandoned by worker', "
+                        + "finished_at = CURRENT_TIMESTAMP WHERE " + expired + " AND attempts >= ?")) {
+            ps.setInt(1, MAX_ATTEMPTS);
+            ps.executeUpdate();
+        }
+        if (requeued > 0)
+            LOG.warn("⚠️ Requeued {} abandoned scheduling job(s)", requeued);
+    }
+}
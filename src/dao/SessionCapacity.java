@@ -0,0 +1,190 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The seats an exam session offers: its room's capacity, or less when the
+ * session has a seat_limit (set by an admin when authoring it, or when a
+ * relocation closes it). rooms.capacity and seat_limit are the only inputs;
+ * exam_schedules.capacity and max_students are copies of the result, kept for
+ * the many queries that read them and only ever written through here. Free
+ * seats are always capacity minus the session's student_exams rows; nothing
+ * adjusts capacity per enrollment.
+ *
+ * After a room changes, {@link #recomputeRoom} brings every future session in
+ * it back in line with one set-based UPDATE and publishes ScheduleChanged for
+ * each, which wakes the waitlist for sessions that grew. Sessions that shrank
+ * below their enrollment hand the excess students to
+ * {@link RoomRelocationService#resolveOverflow}, which seats them in free rooms
+ * at the same time or in other sessions of the exam and reports anyone left.
+ *
+ * java dao.SessionCapacity reconciles all future sessions.
+ */
+public final class SessionCapacity {
+
+    private static final Log LOG = Log.get(SessionCapacity.class);
+
+    /** The seats of exam_schedules es, as a subquery over its room. */
+    static final String SEATS_SQL = "(SELECT LEAST(r.capacity, COALESCE(es.seat_limit, r.capacity)) "
+            + "FROM rooms r WHERE r.id = es.room_id)";
+
+    /** Outcome of a recompute: sessions updated, and how their overflow was handled. */
+    public record Result(int changed, int grown, int shrunk, RoomRelocationService.Report overflow) {
+    }
+
+    private SessionCapacity() {
+    }
+
+    public static void main(String[] args) throws SQLException {
+        DatabaseSetup.ensureSchema();
+        Result result = recomputeAll();
+        System.out.println("Sessions updated: " + result.changed() + " (" + result.grown() + " grown, "
+                + result.shrunk() + " shrunk)");
+        System.out.println(result.overflow().summary());
+    }
+
+    /** Reconciles the room's future sessions with its current capacity. */
+    public static Result recomputeRoom(int roomId) throws SQLException {
+        return recompute("es.room_id = ?", List.of(roomId));
+    }
+
+    /** Reconciles every future session. */
+    public static Result recomputeAll() throws SQLException {
+        return recompute("1 = 1", List.of());
+    }
+
+    /**
+     * Locks the session's row and returns its free seats: capacity minus its
+     * enrollments and live seat holds. Every writer that takes a seat in an
+     * existing session checks here first, so the row lock keeps two of them
+     * from selling the same last seat. -1 if no such session of the exam.
+     */
+    static int lockFreeSeats(Connection conn, int scheduleId, int examId) throws SQLException {
+        int capacity;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT capacity FROM exam_schedules WHERE id = ? AND exam_id = ? FOR UPDATE")) {
+            ps.setInt(1, scheduleId);
+            ps.setInt(2, examId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    return -1;
+                capacity = rs.getInt(1);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT (SELECT COUNT(*) FROM student_exams WHERE exam_schedule_id = ?)
+                     + (SELECT COUNT(*) FROM seat_holds WHERE exam_schedule_id = ? AND expires_at > ?)
+                """)) {
+            ps.setInt(1, scheduleId);
+            ps.setInt(2, scheduleId);
+            ps.setTimestamp(3, new java.sql.Timestamp(System.currentTimeMillis()));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return Math.max(0, capacity - rs.getInt(1));
+            }
+        }
+    }
+
+    /** Recomputes the given sessions inside conn's transaction; returns the rows changed. */
+    static int refresh(Connection conn, Collection<Integer> scheduleIds) throws SQLException {
+        if (scheduleIds.isEmpty())
+            return 0;
+        try (PreparedStatement ps = conn.prepareStatement(update("es.id IN ("
+                + String.join(",", Collections.nCopies(scheduleIds.size(), "?")) + ")"))) {
+            int i = 1;
+            for (int id : scheduleIds)
+                ps.setInt(i++, id);
+            return ps.executeUpdate();
+        }
+    }
+
+    /** Recomputes every session inside conn; used by the schema upgrade. */
+    static int refreshAll(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(update("es.capacity <> " + SEATS_SQL))) {
+            return ps.executeUpdate();
+        }
+    }
+
+    // Both copies from the same subquery: MySQL and H2 differ on whether a later
+    // SET sees an earlier one
+    private static String update(String where) {
+        return "UPDATE exam_schedules es SET capacity = " + SEATS_SQL + ", max_students = " + SEATS_SQL
+                + " WHERE " + where;
+    }
+
+    private static Result recompute(String where, List<Object> args) throws SQLException {
+        String scope = where + " AND es.scheduled_date >= CURRENT_DATE AND es.capacity <> " + SEATS_SQL;
+        List<Integer> overflowing = new ArrayList<>();
+        int changed = 0;
+        int grown = 0;
+        int shrunk = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            conn.setAutoCommit(false);
+            try {
+                List<int[]> rows = new ArrayList<>(); // {id, exam, old capacity, seats, enrolled}
+                try (PreparedStatement ps = conn.prepareStatement("SELECT es.id, es.exam_id, es.capacity, "
+                        + SEATS_SQL + " AS seats, "
+                        + "(SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id) AS enrolled "
+                        + "FROM exam_schedules es WHERE " + scope + " FOR UPDATE")) {
+                    bind(ps, args);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            rows.add(new int[] { rs.getInt("id"), rs.getInt("exam_id"), rs.getInt("capacity"),
+                                    rs.getInt("seats"), rs.getInt("enrolled") });
+                        }
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    try (PreparedStatement ps = conn.prepareStatement(update(scope))) {
+                        bind(ps, args);
+                        changed = ps.executeUpdate();
+                    }
+                    for (int[] r : rows) {
+                        if (r[3] > r[2])
+                            grown++;
+                        else
+                            shrunk++;
+                        if (r[4] > r[3])
+                            overflowing.add(r[0]);
+                        ChangeLog.publish(conn, new DomainEvent.ScheduleChanged(r[0], r[1]));
+                    }
+                }
+                conn.commit();
+                EventBus.afterCommit(conn);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        // Separate transaction: relocation takes the room partition locks
+        // before session rows, like every other booker
+        RoomRelocationService.Report overflow = RoomRelocationService.resolveOverflow(overflowing);
+        if (changed > 0)
+            LOG.info("✅ Session capacity recomputed: {} session(s), {} grown, {} shrunk", changed, grown, shrunk);
+        if (!overflowing.isEmpty())
+            LOG.info("Overflow after capacity change: {}", overflow.summary());
+        for (RoomRelocationService.Unplaced u : overflow.unplaced()) {
+            LOG.warn("⚠️ Student {} is over capacity in session {} ({} {}): {}", u.studentId(), u.scheduleId(),
+                    u.date(), u.start(), u.reason());
+        }
+        return new Result(changed, grown, shrunk, overflow);
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> args) throws SQLException {
+        for (int i = 0; i < args.size(); i++)
+            ps.setObject(i + 1, args.get(i));
+    }
+}
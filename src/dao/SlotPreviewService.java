@@ -0,0 +1,681 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets a student choose their slot instead of taking whatever auto-assignment
+ * picks: {@link #preview} returns the best K conflict-free options, and
+ * {@link #hold} reserves a seat in one for a few minutes while the student
+ * confirms and pays ({@link EnrollmentService#enrollHeld}).
+ *
+ * Options are existing sessions of the exam with a free seat, and new sessions
+ * that could be created on the same 30-minute grid and room choice
+ * ({@link RoomAllocator}) auto-assignment uses. They are computed from an
+ * in-memory snapshot of rooms, exam durations, remaining demand and upcoming
+ * sessions with their taken seats, so a preview normally runs no query at all.
+ * Schedule, enrollment, room and exam events mark the snapshot stale; the next
+ * preview reloads it, at most once per RELOAD_INTERVAL_MS. Ranking keeps the K
+ * lowest {@link Scorer} scores in a bounded heap.
+ *
+ * The snapshot may be a moment behind, so a hold re-checks against the
+ * database: a seat in an existing session under the session's row lock, a new
+ * session through {@link ScheduleLocks#claimRoomForExam}, which also creates it.
+ * Held seats count as taken everywhere until they expire. Expired holds are
+ * released by a background sweep ({@link #startSweeper}, every
+ * exam.preview.sweepSeconds), together with any session created for them that
+ * nobody joined; holds themselves never wait on that cleanup.
+ *
+ * Settings (exam.preview.*): horizonDays (default 30), holdSeconds (120),
+ * sweepSeconds (30), and
+ * the default scorer's weights perDay (1), newSession (3), crowding (2),
+ * offPeak (0.5) around preferredHour (10).
+ */
+public final class SlotPreviewService {
+
+    private static final Log LOG = Log.get(SlotPreviewService.class);
+
+    private static final long RELOAD_INTERVAL_MS = 1_000;
+    // Holds made by other instances publish no events; reload now and then anyway
+    private static final long MAX_AGE_MS = 30_000;
+    private static final int GRID_MINUTES = 30;
+    private static final int DAY_START_MINUTE = 9 * 60;
+    private static final int DAY_END_MINUTE = 17 * 60;
+
+    private static final int HORIZON_DAYS = Integer.parseInt(setting("horizonDays", "30"));
+    private static final int HOLD_SECONDS = Integer.parseInt(setting("holdSeconds", "120"));
+    private static final int SWEEP_SECONDS = Integer.parseInt(setting("sweepSeconds", "30"));
+
+    private static ScheduledExecutorService sweeper;
+
+    /**
+     * One choice for the student: an existing session (scheduleId > 0) or a new
+     * session in the given room. Lower scores rank first.
+     */
+    public record SlotOption(int scheduleId, int examId, int roomId, String room, LocalDate date, LocalTime start,
+            LocalTime end, int freeSeats, int capacity, double score) {
+
+        public boolean isNew() {
+            return scheduleId == 0;
+        }
+
+        SlotOption withScore(double s) {
+            return new SlotOption(scheduleId, examId, roomId, room, date, start, end, freeSeats, capacity, s);
+        }
+    }
+
+    /** Ranks slot options; lower is better. */
+    @FunctionalInterface
+    public interface Scorer {
+        double score(SlotOption option, LocalDate today);
+    }
+
+    /** A seat reserved in a session for the student until expiresAt. */
+    public record SeatHold(int holdId, int studentId, int examId, int scheduleId, Instant expiresAt) {
+    }
+
+    // One upcoming session; end is exclusive, both in minutes of the day
+    private record Session(int id, int examId, int roomId, LocalDate date, int start, int end, int capacity,
+            int taken) {
+    }
+
+    private static final class Snapshot {
+        final long loadedAt = System.nanoTime();
+        final List<RoomAllocator.Room> rooms = new ArrayList<>(); // largest first
+        final Map<Integer, Integer> examMinutes = new HashMap<>();
+        Map<Integer, Integer> demand = Map.of();
+        final Map<Integer, List<Session>> byExam = new HashMap<>();
+        final Map<Long, List<Session>> byRoomDay = new HashMap<>();
+
+        List<Session> roomDay(int roomId, LocalDate date) {
+            return byRoomDay.getOrDefault(roomDayKey(roomId, date), List.of());
+        }
+
+        void add(Session s) {
+            byExam.computeIfAbsent(s.examId(), k -> new ArrayList<>()).add(s);
+            byRoomDay.computeIfAbsent(roomDayKey(s.roomId(), s.date()), k -> new ArrayList<>()).add(s);
+        }
+    }
+
+    private static volatile Scorer scorer = weighted(
+            Double.parseDouble(setting("perDay", "1")),
+            Double.parseDouble(setting("newSession", "3")),
+            Double.parseDouble(setting("crowding", "2")),
+            Double.parseDouble(setting("offPeak", "0.5")),
+            Integer.parseInt(setting("preferredHour", "10")));
+    private static volatile Snapshot snapshot;
+    private static volatile boolean stale;
+
+    static {
+        EventBus.subscribe(DomainEvent.ScheduleCreated.class, e -> stale = true);
+        EventBus.subscribe(DomainEvent.ScheduleChanged.class, e -> stale = true);
+        EventBus.subscribe(DomainEvent.ScheduleDeleted.class, e -> stale = true);
+        EventBus.subscribe(DomainEvent.EnrollmentCreated.class, e -> stale = true);
+        EventBus.subscribe(DomainEvent.EnrollmentCancelled.class, e -> stale = true);
+        EventBus.subscribe(DomainEvent.RoomChanged.class, e -> stale = true);
+        EventBus.subscribe(DomainEvent.ExamChanged.class, e -> stale = true);
+    }
+
+    private SlotPreviewService() {
+    }
+
+    private static String setting(String name, String fallback) {
+        return StorageBackend.setting("exam.preview." + name,
+                "EXAM_PREVIEW_" + name.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(),
+                "preview." + name, fallback);
+    }
+
+    /**
+     * The default scorer: days until the exam, a penalty for opening a new
+     * session, how full the session already is, and hours away from the
+     * preferred start, each times its weight.
+     */
+    public static Scorer weighted(double perDay, double newSession, double crowding, double offPeak,
+            int preferredHour) {
+        return (o, today) -> perDay * ChronoUnit.DAYS.between(today, o.date())
+                + (o.isNew() ? newSession : 0)
+                + crowding * (1 - (double) o.freeSeats() / Math.max(1, o.capacity()))
+                + offPeak * Math.abs(o.start().toSecondOfDay() / 3600.0 - preferredHour);
+    }
+
+    public static Scorer getScorer() {
+        return scorer;
+    }
+
+    public static void setScorer(Scorer s) {
+        scorer = s;
+    }
+
+    /** How long a hold keeps its seat. */
+    public static int holdSeconds() {
+        return HOLD_SECONDS;
+    }
+
+    /** Forces the next preview to reload the snapshot. */
+    public static void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * The k best slots for the student to take the exam, best first. Excludes
+     * anything overlapping the student's booked exams.
+     */
+    public static List<SlotOption> preview(int studentId, int examId, int k) throws SQLException {
+        if (k <= 0)
+            throw new IllegalArgumentException("k must be positive");
+        StudentTimetableCache.Timetable timetable = timetable(studentId);
+        for (StudentTimetableCache.Entry e : timetable.entries()) {
+            if (e.examId() == examId)
+                throw new SQLException("Student is already enrolled in this exam");
+        }
+        Snapshot snap = current();
+        Integer minutes = snap.examMinutes.get(examId);
+        if (minutes == null)
+            throw new SQLException("Exam not found: " + examId);
+
+        LocalDate today = LocalDate.now();
+        Scorer s = scorer;
+        // Max-heap on score holding the best k seen so far
+        PriorityQueue<SlotOption> best = new PriorityQueue<>(
+                Comparator.comparingDouble(SlotOption::score).reversed());
+
+        for (Session session : snap.byExam.getOrDefault(examId, List.of())) {
+            int free = session.capacity() - session.taken();
+            if (free <= 0 || session.date().isBefore(today))
+                continue;
+            LocalTime start = minuteOfDay(session.start());
+            LocalTime end = start.plusMinutes(minutes);
+            if (timetable.overlaps(session.date(), start, end))
+                continue;
+            RoomAllocator.Room room = roomById(snap, session.roomId());
+            offer(best, k, s, today, new SlotOption(session.id(), examId, session.roomId(),
+                    room != null ? room.name() : null, session.date(), start, end, free, session.capacity(), 0));
+        }
+
+        // New sessions: one room per (date, start), chosen as auto-assignment would
+        int need = Math.max(1, snap.demand.getOrDefault(examId, 1));
+        List<Integer> others = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : snap.demand.entrySet()) {
+            if (e.getKey() != examId && e.getValue() > 0)
+                others.add(e.getValue());
+        }
+        others.sort(Comparator.reverseOrder());
+        RoomAllocator allocator = SchedulingService.getRoomAllocator();
+        for (int d = 1; d <= HORIZON_DAYS; d++) {
+            LocalDate date = today.plusDays(d);
+            for (int from = DAY_START_MINUTE; from + minutes <= DAY_END_MINUTE; from += GRID_MINUTES) {
+                LocalTime start = minuteOfDay(from);
+                LocalTime end = start.plusMinutes(minutes);
+                if (timetable.overlaps(date, start, end))
+                    continue;
+                List<RoomAllocator.Room> free = new ArrayList<>();
+                for (RoomAllocator.Room room : snap.rooms) {
+                    List<Session> booked = snap.roomDay(room.id(), date);
+                    if (isFree(booked, from, from + minutes))
+                        free.add(SchedulingService.withUsage(room, booked.size()));
+                }
+                RoomAllocator.Room picked = allocator.choose(free, need, others);
+                if (picked != null) {
+                    offer(best, k, s, today, new SlotOption(0, examId, picked.id(), picked.name(), date, start, end,
+                            picked.capacity(), picked.capacity(), 0));
+                }
+            }
+        }
+
+        List<SlotOption> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble(SlotOption::score));
+        return ranked;
+    }
+
+    /** Holds a seat in the option's session, creating the session for a new-session option. */
+    public static SeatHold hold(int studentId, SlotOption option) throws SQLException {
+        return option.isNew()
+                ? holdNewSession(studentId, option.examId(), option.roomId(), option.date(), option.start())
+                : holdSession(studentId, option.examId(), option.scheduleId());
+    }
+
+    /** Holds a seat in an existing session of the exam. */
+    public static SeatHold holdSession(int studentId, int examId, int scheduleId) throws SQLException {
+        return inTransaction(studentId, examId, false, conn -> {
+            reserveSeat(examId, scheduleId, conn);
+            return scheduleId;
+        });
+    }
+
+    /** Creates a session of the exam in the room and holds a seat in it. */
+    public static SeatHold holdNewSession(int studentId, int examId, int roomId, LocalDate date, LocalTime start)
+            throws SQLException {
+        return inTransaction(studentId, examId, true, conn -> createSession(examId, roomId, date, start, conn));
+    }
+
+    /** Gives up the student's hold early. */
+    public static void release(int studentId, int holdId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            conn.setAutoCommit(false);
+            try {
+                release("id = ? AND student_id = ?", conn, holdId, studentId);
+                conn.commit();
+                EventBus.afterCommit(conn);
+                stale = true;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /** Starts releasing expired holds in the background, once per JVM. */
+    public static synchronized void startSweeper() {
+        if (sweeper != null)
+            return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-hold-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(SlotPreviewService::sweepSafely, SWEEP_SECONDS, SWEEP_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopSweeper() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    private static void sweepSafely() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                return;
+            conn.setAutoCommit(false);
+            try {
+                release("expires_at <= ?", conn, new Timestamp(System.currentTimeMillis()));
+                conn.commit();
+                EventBus.afterCommit(conn);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("Seat hold sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /** The exam of the student's live hold, on conn's transaction. */
+    static int heldExamId(int studentId, int holdId, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT exam_id FROM seat_holds WHERE id = ? AND student_id = ? AND expires_at > ?")) {
+            ps.setInt(1, holdId);
+            ps.setInt(2, studentId);
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    throw new SQLException("Your seat hold has expired, please pick a slot again");
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Enrolls the student into the session their live hold is for and drops the
+     * hold, on conn's transaction. Charging is left to the caller.
+     */
+    static SchedulingService.AssignmentResult enrollHeld(int studentId, int holdId, Connection conn)
+            throws SQLException {
+        int scheduleId;
+        int examId;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT exam_id, exam_schedule_id FROM seat_holds WHERE id = ? AND student_id = ? AND expires_at > ? FOR UPDATE")) {
+            ps.setInt(1, holdId);
+            ps.setInt(2, studentId);
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    throw new SQLException("Your seat hold has expired, please pick a slot again");
+                examId = rs.getInt("exam_id");
+                scheduleId = rs.getInt("exam_schedule_id");
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM seat_holds WHERE id = ?")) {
+            ps.setInt(1, holdId);
+            ps.executeUpdate();
+        }
+        return enrollInto(studentId, examId, scheduleId, conn);
+    }
+
+    /**
+     * Takes a seat in the option's session (creating the session for a new-session
+     * option) and enrolls the student there, on conn's transaction. Throws
+     * {@link NoCapacityException} if the seat or room was taken since the
+     * snapshot the option came from.
+     */
+    static SchedulingService.AssignmentResult place(int studentId, SlotOption option, Connection conn)
+            throws SQLException {
+        int scheduleId;
+        if (option.isNew()) {
+            scheduleId = createSession(option.examId(), option.roomId(), option.date(), option.start(), conn);
+        } else {
+            reserveSeat(option.examId(), option.scheduleId(), conn);
+            scheduleId = option.scheduleId();
+        }
+        return enrollInto(studentId, option.examId(), scheduleId, conn);
+    }
+
+    private static SchedulingService.AssignmentResult enrollInto(int studentId, int examId, int scheduleId,
+            Connection conn) throws SQLException {
+        if (SchedulingService.isEnrolledInExam(studentId, examId, conn))
+            throw new SQLException("Student is already enrolled in this exam");
+
+        int registrationId;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO student_exams (student_id, exam_schedule_id, status, is_paid) VALUES (?, ?, 'Enrolled', 1)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, studentId);
+            ps.setInt(2, scheduleId);
+            ps.executeUpdate();
+            try (ResultSet gk = ps.getGeneratedKeys()) {
+                gk.next();
+                registrationId = gk.getInt(1);
+            }
+        }
+        ChangeLog.publish(conn, new DomainEvent.EnrollmentCreated(studentId, registrationId, scheduleId));
+
+        SchedulingService.AssignmentResult ar = new SchedulingService.AssignmentResult();
+        ar.registrationId = registrationId;
+        ar.examScheduleId = scheduleId;
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT es.scheduled_date, es.scheduled_time, es.capacity, r.room_name
+                FROM exam_schedules es JOIN rooms r ON es.room_id = r.id
+                WHERE es.id = ?
+                """)) {
+            ps.setInt(1, scheduleId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    ar.date = rs.getDate("scheduled_date").toLocalDate();
+                    ar.start = rs.getTime("scheduled_time").toLocalTime();
+                    ar.room = rs.getString("room_name");
+                    ar.capacity = rs.getInt("capacity");
+                }
+            }
+        }
+        return ar;
+    }
+
+    // ===== Holds =====
+
+    @FunctionalInterface
+    private interface SeatSource {
+        int scheduleFor(Connection conn) throws SQLException;
+    }
+
+    private static SeatHold inTransaction(int studentId, int examId, boolean createsSession, SeatSource source)
+            throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            conn.setAutoCommit(false);
+            try {
+                // One hold per student and exam: picking again replaces the last pick
+                release("student_id = ? AND exam_id = ?", conn, studentId, examId);
+                int scheduleId = source.scheduleFor(conn);
+                Instant expires = Instant.now().plusSeconds(HOLD_SECONDS);
+                int holdId;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO seat_holds (student_id, exam_id, exam_schedule_id, created_session, expires_at) VALUES (?, ?, ?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, studentId);
+                    ps.setInt(2, examId);
+                    ps.setInt(3, scheduleId);
+                    ps.setInt(4, createsSession ? 1 : 0);
+                    ps.setTimestamp(5, Timestamp.from(expires));
+                    ps.executeUpdate();
+                    try (ResultSet gk = ps.getGeneratedKeys()) {
+                        gk.next();
+                        holdId = gk.getInt(1);
+                    }
+                }
+                conn.commit();
+                EventBus.afterCommit(conn);
+                stale = true;
+                LOG.debug("Seat hold {} for student {} in session {} until {}", holdId, studentId, scheduleId,
+                        expires);
+                return new SeatHold(holdId, studentId, examId, scheduleId, expires);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // The session row lock serializes holds and enrollments for the same session
+    private static void reserveSeat(int examId, int scheduleId, Connection conn) throws SQLException {
+        int free = SessionCapacity.lockFreeSeats(conn, scheduleId, examId);
+        if (free < 0)
+            throw new NoCapacityException(examId, "That session no longer exists, please pick another slot");
+        if (free == 0)
+            throw new NoCapacityException(examId, "That session just filled up, please pick another slot");
+    }
+
+    private static int createSession(int examId, int roomId, LocalDate date, LocalTime start, Connection conn)
+            throws SQLException {
+        if (!ScheduleLocks.claimRoomForExam(conn, roomId, examId, date, start))
+            throw new NoCapacityException(examId, "That room was just booked, please pick another slot");
+        int capacity;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT capacity FROM rooms WHERE id = ?")) {
+            ps.setInt(1, roomId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    throw new SQLException("Room not found: " + roomId);
+                capacity = rs.getInt("capacity");
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO exam_schedules (exam_id, room_id, scheduled_date, scheduled_time, capacity) VALUES (?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, examId);
+            ps.setInt(2, roomId);
+            ps.setDate(3, java.sql.Date.valueOf(date));
+            ps.setTime(4, java.sql.Time.valueOf(start));
+            ps.setInt(5, capacity);
+            ps.executeUpdate();
+            try (ResultSet gk = ps.getGeneratedKeys()) {
+                gk.next();
+                int scheduleId = gk.getInt(1);
+                ChangeLog.publish(conn, new DomainEvent.ScheduleCreated(scheduleId, examId));
+                return scheduleId;
+            }
+        }
+    }
+
+    /**
+     * Deletes the holds matching where (a condition on seat_holds columns) and
+     * any session created for one of them that nobody else has joined.
+     */
+    private static void release(String where, Connection conn, Object... args) throws SQLException {
+        List<Integer> holdIds = new ArrayList<>();
+        List<Integer> createdSessions = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, exam_schedule_id, created_session FROM seat_holds WHERE " + where + " FOR UPDATE")) {
+            for (int i = 0; i < args.length; i++)
+                ps.setObject(i + 1, args[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    holdIds.add(rs.getInt("id"));
+                    if (rs.getInt("created_session") == 1)
+                        createdSessions.add(rs.getInt("exam_schedule_id"));
+                }
+            }
+        }
+        if (holdIds.isEmpty())
+            return;
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM seat_holds WHERE id = ?")) {
+            for (int id : holdIds) {
+                ps.setInt(1, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("""
+                DELETE FROM exam_schedules WHERE id = ?
+                  AND NOT EXISTS (SELECT 1 FROM student_exams WHERE exam_schedule_id = ?)
+                  AND NOT EXISTS (SELECT 1 FROM seat_holds WHERE exam_schedule_id = ?)
+                """)) {
+            for (int scheduleId : createdSessions) {
+                ps.setInt(1, scheduleId);
+                ps.setInt(2, scheduleId);
+                ps.setInt(3, scheduleId);
+                if (ps.executeUpdate() > 0)
+                    ChangeLog.publish(conn, new DomainEvent.ScheduleDeleted(scheduleId));
+            }
+        }
+        LOG.debug("Released {} seat hold(s), {} held session(s) checked", holdIds.size(), createdSessions.size());
+    }
+
+    // ===== Snapshot =====
+
+    private static StudentTimetableCache.Timetable timetable(int studentId) throws SQLException {
+        StudentTimetableCache.Timetable cached = StudentTimetableCache.cached(studentId);
+        if (cached != null)
+            return cached;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            return StudentTimetableCache.get(studentId, conn);
+        }
+    }
+
+    private static Snapshot current() throws SQLException {
+        Snapshot snap = snapshot;
+        if (snap == null || (stale && age(snap) > RELOAD_INTERVAL_MS) || age(snap) > MAX_AGE_MS)
+            snap = reload();
+        return snap;
+    }
+
+    private static long age(Snapshot snap) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - snap.loadedAt);
+    }
+
+    private static synchronized Snapshot reload() throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null && age(current) <= RELOAD_INTERVAL_MS)
+            return current; // another thread just reloaded
+        stale = false; // events arriving from here on make the next preview reload again
+        long started = System.nanoTime();
+        Snapshot snap = new Snapshot();
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            for (RoomAllocator.Room room : SchedulingService.loadRoomsAligned(conn)) {
+                if (room.id() > 0)
+                    snap.rooms.add(room);
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id, duration FROM exams");
+                    ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String duration = rs.getString("duration");
+                    snap.examMinutes.put(rs.getInt("id"),
+                            SchedulingService.parseDurationMinutes(duration != null ? duration : "2 hours"));
+                }
+            }
+            snap.demand = RemainingDemand.get(conn);
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT es.id, es.exam_id, es.room_id, es.scheduled_date, es.scheduled_time, es.capacity,
+                           (SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id)
+                         + (SELECT COUNT(*) FROM seat_holds h WHERE h.exam_schedule_id = es.id AND h.expires_at > ?)
+                           AS taken
+                    FROM exam_schedules es
+                    WHERE es.scheduled_date >= ?
+                    """)) {
+                ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                ps.setDate(2, java.sql.Date.valueOf(LocalDate.now()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        java.sql.Time t = rs.getTime("scheduled_time");
+                        if (t == null)
+                            continue;
+                        int examId = rs.getInt("exam_id");
+                        int start = t.toLocalTime().toSecondOfDay() / 60;
+                        snap.add(new Session(rs.getInt("id"), examId, rs.getInt("room_id"),
+                                rs.getDate("scheduled_date").toLocalDate(), start,
+                                start + snap.examMinutes.getOrDefault(examId, 120), rs.getInt("capacity"),
+                                rs.getInt("taken")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            stale = true;
+            if (current != null) {
+                LOG.warn("Slot snapshot reload failed, using the previous one: {}", e.getMessage());
+                return current;
+            }
+            throw e;
+        }
+        snapshot = snap;
+        LOG.debug("Slot snapshot loaded in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return snap;
+    }
+
+    private static boolean isFree(List<Session> booked, int start, int end) {
+        for (Session s : booked) {
+            if (s.start() < end && start < s.end())
+                return false;
+        }
+        return true;
+    }
+
+    private static RoomAllocator.Room roomById(Snapshot snap, int roomId) {
+        for (RoomAllocator.Room room : snap.rooms) {
+            if (room.id() == roomId)
+                return room;
+        }
+        return null;
+    }
+
+    private static void offer(PriorityQueue<SlotOption> best, int k, Scorer s, LocalDate today, SlotOption option) {
+        SlotOption scored = option.withScore(s.score(option, today));
+        if (best.size() < k) {
+            best.add(scored);
+        } else if (scored.score() < best.peek().score()) {
+            best.poll();
+            best.add(scored);
+        }
+    }
+
+    private static LocalTime minuteOfDay(int minute) {
+        return LocalTime.ofSecondOfDay(minute * 60L);
+    }
+
+    private static long roomDayKey(int roomId, LocalDate date) {
+        return ((long) roomId << 32) | (date.toEpochDay() & 0xffffffffL);
+    }
+}
@@ -0,0 +1,73 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Collects named startup phases (from the EDT and from background threads) and
+ * prints them as one report once startup settles, instead of each step printing
+ * its own timing line.
+ */
+public final class StartupTimer {
+
+    private static final Log LOG = Log.get(StartupTimer.class);
+
+    private record Phase(String label, String thread, long offsetNs, long durationNs) {
+    }
+
+    // Loaded by the first caller in Main, so offsets are relative to app start
+    private static final long ORIGIN = System.nanoTime();
+    private static final List<Phase> PHASES = new ArrayList<>();
+
+    private StartupTimer() {
+    }
+
+    public static void time(String label, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(label, start);
+        }
+    }
+
+    public static <T> T time(String label, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(label, start);
+        }
+    }
+
+    /** Records a phase that started at startNs and ends now. */
+    public static void record(String label, long startNs) {
+        long now = System.nanoTime();
+        synchronized (PHASES) {
+            PHASES.add(new Phase(label, Thread.currentThread().getName(), startNs - ORIGIN, now - startNs));
+        }
+    }
+
+    /** Records a checkpoint measured from app start. */
+    public static void mark(String label) {
+        record(label, ORIGIN);
+    }
+
+    public static void report() {
+        List<Phase> snapshot;
+        synchronized (PHASES) {
+            snapshot = new ArrayList<>(PHASES);
+        }
+        snapshot.sort((a, b) -> Long.compare(a.offsetNs, b.offsetNs));
+
+        long total = System.nanoTime() - ORIGIN;
+        StringBuilder sb = new StringBuilder("---- Startup timing ----\n");
+        for (Phase p : snapshot) {
+            sb.append(String.format("  +%8.2f ms  %-40s %9.2f ms  [%s]%n",
+                    p.offsetNs / 1_000_000.0, p.label, p.durationNs / 1_000_000.0, p.thread));
+        }
+        sb.append(String.format("  total until settled: %.2f ms (%d ns)", total / 1_000_000.0, total));
+        LOG.info(sb.toString());
+    }
+}
@@ -0,0 +1,221 @@
+package dao;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Storage backends the DAOs can run on. Each constant carries the JDBC defaults
+ * for the engine plus the few SQL fragments that differ between dialects, so
+ * DAOs only ask the active backend instead of hardcoding MySQL syntax.
+ *
+ * Selection (first match wins):
+ * 1. system property exam.db.backend (mysql | embedded)
+ * 2. environment variable EXAM_DB_BACKEND
+ * 3. key db.backend in ./db.properties
+ * 4. mysql
+ *
+ * exam.db.url / exam.db.user / exam.db.password (or db.url, db.user, db.password
+ * in db.properties) override the backend defaults.
+ */
+public enum StorageBackend {
+
+    MYSQL("com.mysql.cj.jdbc.Driver",
+            "jdbc:mysql://localhost:3306/exam_enrollment?useSSL=false&serverTimezone=UTC",
+            "root", "") {
+        @Override
+        public String enumType(String... values) {
+            StringBuilder sb = new StringBuilder("ENUM(");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0)
+                    sb.append(", ");
+                sb.append('\'').append(values[i]).append('\'');
+            }
+            return sb.append(')').toString();
+        }
+
+        @Override
+        public String addMinutes(String timeExpr, String minutesExpr) {
+            return "DATE_ADD(" + timeExpr + ", INTERVAL (" + minutesExpr + ") MINUTE)";
+        }
+
+        @Override
+        public String leadingInt(String textExpr, int fallback) {
+            return "COALESCE(NULLIF(SUBSTRING_INDEX(" + textExpr + ", ' ', 1), ''), '" + fallback + "')";
+        }
+
+        @Override
+        public int streamingFetchSize() {
+            // Connector/J streams row by row only for this value
+            return Integer.MIN_VALUE;
+        }
+
+        @Override
+        public String insertIgnore(String table, String columns, int values) {
+            return "INSERT IGNORE INTO " + table + " (" + columns + ") VALUES (" + params(values) + ")";
+        }
+    },
+
+    /**
+     * In-process H2 database in MySQL compatibility mode. Data lives under
+     * ./data next to the working directory; DB_CLOSE_DELAY keeps the engine warm
+     * between connections so each getConnection() is a local call.
+     */
+    EMBEDDED("org.h2.Driver",
+            "jdbc:h2:./data/exam_enrollment;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+            "sa", "") {
+        @Override
+        public String enumType(String... values) {
+            // Plain VARCHAR keeps the column writable by both dialects' DML
+            return "VARCHAR(32)";
+        }
+
+        @Override
+        public String addMinutes(String timeExpr, String minutesExpr) {
+            return "DATEADD(MINUTE, " + minutesExpr + ", " + timeExpr + ")";
+        }
+
+        @Override
+        public String leadingInt(String textExpr, int fallback) {
+            return "COALESCE(CAST(REGEXP_SUBSTR(" + textExpr + ", '^[0-9]+') AS INT), " + fallback + ")";
+        }
+
+        @Override
+        public int streamingFetchSize() {
+            return 500;
+        }
+
+        @Override
+        public String insertIgnore(String table, String columns, int values) {
+            // MERGE without KEY matches on the primary key and leaves an existing row as it is
+            return "MERGE INTO " + table + " (" + columns + ") VALUES (" + params(values) + ")";
+        }
+    };
+
+    private static final String CONFIG_FILE = "db.properties";
+
+    private final String driverClass;
+    private final String defaultUrl;
+    private final String defaultUser;
+    private final String defaultPassword;
+
+    StorageBackend(String driverClass, String defaultUrl, String defaultUser, String defaultPassword) {
+        this.driverClass = driverClass;
+        this.defaultUrl = defaultUrl;
+        this.defaultUser = defaultUser;
+        this.defaultPassword = defaultPassword;
+    }
+
+    public String getDriverClass() {
+        return driverClass;
+    }
+
+    /** Column type for an enumerated status column. */
+    public abstract String enumType(String... values);
+
+    /** SQL expression adding a number of minutes to a TIME expression. */
+    public abstract String addMinutes(String timeExpr, String minutesExpr);
+
+    /**
+     * SQL expression for the leading integer of a text column such as
+     * exams.duration ("120 minutes"), or the fallback when there is none.
+     */
+    public abstract String leadingInt(String textExpr, int fallback);
+
+    /**
+     * Fetch size that makes a forward-only query stream its rows instead of
+     * buffering the whole result in the driver.
+     */
+    public abstract int streamingFetchSize();
+
+    /**
+     * INSERT of one row with the given number of ? parameters that does
+     * nothing when a row with the same primary key already exists.
+     */
+    public abstract String insertIgnore(String table, String columns, int values);
+
+    private static String params(int count) {
+        return String.join(", ", java.util.Collections.nCopies(count, "?"));
+    }
+
+    // ---- configuration ----
+
+    private static volatile StorageBackend active;
+    private static Properties fileConfig;
+
+    /** The backend selected by configuration, resolved once per JVM. */
+    public static StorageBackend active() {
+        StorageBackend b = active;
+        if (b == null) {
+            synchronized (StorageBackend.class) {
+                if (active == null)
+                    active = fromName(setting("exam.db.backend", "EXAM_DB_BACKEND", "db.backend", "mysql"));
+                b = active;
+            }
+        }
+        return b;
+    }
+
+    /**
+     * The backend for a configured name: mysql (also when blank), embedded or
+     * h2. Anything else is rejected rather than quietly pointing the
+     * application at a MySQL server it was not meant to use.
+     */
+    public static StorageBackend fromName(String name) {
+        String n = name == null ? "" : name.trim().toLowerCase();
+        return switch (n) {
+            case "", "mysql" -> MYSQL;
+            case "embedded", "h2" -> EMBEDDED;
+            default -> throw new IllegalArgumentException(
+                    "Unknown database backend: " + name + " (expected mysql, embedded or h2)");
+        };
+    }
+
+    public String url() {
+        return setting("exam.db.url", "EXAM_DB_URL", "db.url", defaultUrl);
+    }
+
+    public String user() {
+        return setting("exam.db.user", "EXAM_DB_USER", "db.user", defaultUser);
+    }
+
+    public String password() {
+        return setting("exam.db.password", "EXAM_DB_PASSWORD", "db.password", defaultPassword);
+    }
+
+    /**
+     * Looks a setting up in system properties, then the environment, then
+     * ./db.properties.
+     */
+    public static String setting(String sysProp, String envVar, String fileKey, String fallback) {
+        String v = System.getProperty(sysProp);
+        if (v != null && !v.isBlank())
+            return v;
+        v = System.getenv(envVar);
+        if (v != null && !v.isBlank())
+            return v;
+        v = loadFileConfig().getProperty(fileKey);
+        if (v != null && !v.isBlank())
+            return v;
+        return fallback;
+    }
+
+    private static synchronized Properties loadFileConfig() {
+        if (fileConfig == null) {
+            fileConfig = new Properties();
+            Path path = Paths.get(CONFIG_FILE);
+            if (Files.isRegularFile(path)) {
+                try (InputStream in = new FileInputStream(path.toFile())) {
+                    fileConfig.load(in);
+                } catch (IOException e) {
+                    System.err.println("Could not read " + CONFIG_FILE + ": " + e.getMessage());
+                }
+            }
+        }
+        return fileConfig;
+    }
+}
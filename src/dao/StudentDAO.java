@@ -7,35 +7,11 @@ import java.util.List;
 
 public class StudentDAO {
 
-    // Ensure table exists (adds balance column if missing)
-    public StudentDAO() {
-        ensureTable();
-    }
+    private static final Log LOG = Log.get(StudentDAO.class);
 
-    private void ensureTable() {
-        String create = """
-                CREATE TABLE IF NOT EXISTS students (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    name VARCHAR(150) NOT NULL,
-                    email VARCHAR(150) UNIQUE NOT NULL,
-                    password VARCHAR(255) NOT NULL,
-                    course_id INT,
-                    balance DECIMAL(10,2) NOT NULL DEFAULT 0.00,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                )
-                """;
-        try (Connection conn = DatabaseConnection.getConnection(); Statement st = conn.createStatement()) {
-            st.executeUpdate(create);
-            // Add balance column if older table version
-            try (ResultSet rs = st.executeQuery(
-                    "SELECT * FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME='students' AND COLUMN_NAME='balance'")) {
-                if (!rs.next()) {
-                    st.executeUpdate("ALTER TABLE students ADD COLUMN balance DECIMAL(10,2) NOT NULL DEFAULT 0.00");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error ensuring students table: " + e.getMessage());
-        }
+    // Table creation/migration happens once in DatabaseSetup; only wait for it
+    public StudentDAO() {
+        DatabaseSetup.awaitReady();
     }
 
     public Student loginStudent(String emailOrUsername, String password) {
@@ -56,29 +32,43 @@ public class StudentDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error logging in student: " + e.getMessage());
+            LOG.error("Error logging in student: {}", e.getMessage());
         }
         return null;
     }
 
     public boolean registerStudent(Student student) {
         String sql = "INSERT INTO students (name, email, password, course_id, balance) VALUES (?, ?, ?, ?, 0.00)";
-        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, student.getName());
             ps.setString(2, student.getEmail());
             ps.setString(3, student.getPassword());
             ps.setInt(4, student.getCourseId());
-            return ps.executeUpdate() > 0;
+            return publishAdded(ps);
         } catch (SQLException e) {
             if (e.getMessage() != null && e.getMessage().toLowerCase().contains("duplicate")) {
-                System.err.println("Registration failed: email already exists");
+                LOG.warn("Registration failed: email already exists");
             } else {
-                System.err.println("Error registering student: " + e.getMessage());
+                LOG.error("Error registering student: {}", e.getMessage());
             }
             return false;
         }
     }
 
+    // Executes an INSERT INTO students and announces the new row
+    private boolean publishAdded(PreparedStatement ps) throws SQLException {
+        if (ps.executeUpdate() == 0)
+            return false;
+        try (ResultSet gk = ps.getGeneratedKeys()) {
+            if (gk.next()) {
+                ChangeLog.publish(ps.getConnection(),
+                        new DomainEvent.StudentChanged(DomainEvent.ChangeKind.ADDED, gk.getInt(1)));
+            }
+        }
+        return true;
+    }
+
     public List<Student> getAllStudents() {
         List<Student> list = new ArrayList<>();
         String sql = """
@@ -88,7 +78,7 @@ public class StudentDAO {
                 LEFT JOIN courses c ON s.course_id = c.id
                 ORDER BY s.id
                 """;
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -103,7 +93,7 @@ public class StudentDAO {
                 list.add(student);
             }
         } catch (SQLException e) {
-            System.err.println("Error fetching students: " + e.getMessage());
+            LOG.error("Error fetching students: {}", e.getMessage());
         }
         return list;
     }
@@ -133,7 +123,7 @@ public class StudentDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error fetching student by ID: " + e.getMessage());
+            LOG.error("Error fetching student by ID: {}", e.getMessage());
         }
         return null;
     }
@@ -141,18 +131,18 @@ public class StudentDAO {
     public boolean addStudent(Student student) {
         String sql = "INSERT INTO students (name, email, password, course_id, balance) VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
+                PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, student.getName());
             ps.setString(2, student.getEmail());
             ps.setString(3, student.getPassword());
             ps.setInt(4, student.getCourseId());
             ps.setDouble(5, student.getBalance());
-            return ps.executeUpdate() > 0;
+            return publishAdded(ps);
         } catch (SQLException e) {
             if (e.getMessage() != null && e.getMessage().toLowerCase().contains("duplicate")) {
-                System.err.println("Add student failed: email already exists");
+                LOG.warn("Add student failed: email already exists");
             } else {
-                System.err.println("Error adding student: " + e.getMessage());
+                LOG.error("Error adding student: {}", e.getMessage());
             }
             return false;
         }
@@ -167,9 +157,14 @@ public class StudentDAO {
             ps.setInt(3, student.getCourseId());
             ps.setDouble(4, student.getBalance());
             ps.setInt(5, student.getId());
-            return ps.executeUpdate() > 0;
+            if (ps.executeUpdate() > 0) {
+                ChangeLog.publish(conn,
+                        new DomainEvent.StudentChanged(DomainEvent.ChangeKind.UPDATED, student.getId()));
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
-            System.err.println("Error updating student: " + e.getMessage());
+            LOG.error("Error updating student: {}", e.getMessage());
             return false;
         }
     }
@@ -191,14 +186,25 @@ public class StudentDAO {
                 }
             }
 
+            // Archived enrollments have no foreign key to cascade from
+            try (PreparedStatement archivePs = conn.prepareStatement(
+                    "DELETE FROM student_exams_archive WHERE student_id = ?")) {
+                archivePs.setInt(1, id);
+                archivePs.executeUpdate();
+            }
+
             // Now delete the student
             String deleteSql = "DELETE FROM students WHERE id = ?";
             try (PreparedStatement deletePs = conn.prepareStatement(deleteSql)) {
                 deletePs.setInt(1, id);
-                return deletePs.executeUpdate() > 0;
+                if (deletePs.executeUpdate() > 0) {
+                    ChangeLog.publish(conn, new DomainEvent.StudentChanged(DomainEvent.ChangeKind.DELETED, id));
+                    return true;
+                }
+                return false;
             }
         } catch (SQLException e) {
-            System.err.println("Error deleting student: " + e.getMessage());
+            LOG.error("Error deleting student: {}", e.getMessage());
             return false;
         }
     }
@@ -208,9 +214,13 @@ public class StudentDAO {
         try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setDouble(1, delta);
             ps.setInt(2, studentId);
-            return ps.executeUpdate() > 0;
+            if (ps.executeUpdate() > 0) {
+                ChangeLog.publish(conn, new DomainEvent.BalanceChanged(studentId, delta));
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
-            System.err.println("Error updating balance: " + e.getMessage());
+            LOG.error("Error updating balance: {}", e.getMessage());
             return false;
         }
     }
@@ -224,7 +234,7 @@ public class StudentDAO {
                     return rs.getDouble(1);
             }
         } catch (SQLException e) {
-            System.err.println("Error getting balance: " + e.getMessage());
+            LOG.error("Error getting balance: {}", e.getMessage());
         }
         return 0.0;
     }
@@ -0,0 +1,395 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * What the student dashboard opens with (name, course, balance, exam counts
+ * and the next exam), kept as one student_summary row per student so opening
+ * the dashboard is a single primary-key lookup.
+ *
+ * Rows are recomputed from students, student_exams and the archive, never
+ * patched. Each row carries a version and the version it was built at. Right
+ * after a change published through {@link ChangeLog} commits, the JVM that
+ * made it bumps the version of the affected students' rows on the same
+ * connection, as a short transaction of its own (and retries in the
+ * background if that fails); the next {@link #get} rebuilds them. A rebuild
+ * reads the version before the source tables and only stores if it is still
+ * the same, so a change that commits mid-rebuild is never overwritten by the
+ * older result. The counts also depend on today's date, so a row carries
+ * stale_after (its next exam's start or the end of its earliest upcoming exam
+ * day) and is rebuilt once that passes.
+ */
+public final class StudentSummary {
+
+    private static final Log LOG = Log.get(StudentSummary.class);
+
+    /** One student's dashboard header; nextExam* are null when nothing is upcoming. */
+    public record Summary(int studentId, String name, String course, double balance, int enrolled, int completed,
+            int pending, String nextExam, LocalDateTime nextExamAt, String nextRoom) {
+    }
+
+    /** Dashboard data loading in the background since login. */
+    public record Prefetch(CompletableFuture<Summary> summary, CompletableFuture<Void> timetable) {
+    }
+
+    // A student's first row can collide with a concurrent first insert; read it again
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+    private static final int MAX_INVALIDATE_ATTEMPTS = 3;
+    private static final long INVALIDATE_RETRY_MS = 500;
+
+    private static final String BY_STUDENT = "student_id = ?";
+    private static final String BY_SCHEDULE = """
+            student_id IN (SELECT se.student_id FROM student_exams se WHERE se.exam_schedule_id = ?)
+            """;
+    private static final String BY_ROOM = """
+            student_id IN (SELECT se.student_id FROM student_exams se
+                           JOIN exam_schedules es ON se.exam_schedule_id = es.id WHERE es.room_id = ?)
+            """;
+    private static final String BY_EXAM = """
+            student_id IN (SELECT se.student_id FROM student_exams se
+                           JOIN exam_schedules es ON se.exam_schedule_id = es.id WHERE es.exam_id = ?)
+            """;
+
+    // The rows to mark stale: a condition on student_summary and its argument
+    private record Stale(String where, int id) {
+    }
+
+    private static final ExecutorService PREFETCH = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "student-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Retries of failed invalidations; one thread, so they reach the table in order
+    private static final ExecutorService INVALIDATOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "student-summary-invalidator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private StudentSummary() {
+    }
+
+    /**
+     * The student's summary: one keyed read when the stored row is current,
+     * otherwise recomputed and stored first. Null if the student does not exist.
+     */
+    public static Summary get(int studentId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT student_id, name, course_name, balance, enrolled, completed, pending,
+                           next_exam_name, next_exam_at, next_room, stale_after, version, built_version
+                    FROM student_summary WHERE student_id = ?
+                    """)) {
+                ps.setInt(1, studentId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && isCurrent(rs))
+                        return read(rs);
+                }
+            }
+            return refresh(conn, studentId);
+        }
+    }
+
+    /** Recomputes and stores the student's summary regardless of the stored row. */
+    public static Summary refresh(int studentId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            return refresh(conn, studentId);
+        }
+    }
+
+    /**
+     * Starts loading the summary and the upcoming-exam timetable in parallel, on
+     * their own connections, so both are ready by the time the dashboard opens.
+     */
+    public static Prefetch prefetch(int studentId) {
+        CompletableFuture<Summary> summary = CompletableFuture.supplyAsync(() -> {
+            try {
+                return get(studentId);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }, PREFETCH);
+        CompletableFuture<Void> timetable = CompletableFuture.runAsync(() -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                if (conn != null)
+                    StudentTimetableCache.get(studentId, conn);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }, PREFETCH);
+        return new Prefetch(summary, timetable);
+    }
+
+    /**
+     * Marks the summary rows the committed events may have changed as stale,
+     * through conn, which has just committed them. Registered with the
+     * {@link EventBus} by {@link ChangeLog}, so it sees only this JVM's commits
+     * and each change is invalidated once, by whoever made it.
+     */
+    static void invalidate(Connection conn, List<DomainEvent> events) {
+        List<Stale> stale = new ArrayList<>();
+        for (DomainEvent event : events) {
+            switch (event) {
+                case DomainEvent.EnrollmentCreated e -> stale.add(new Stale(BY_STUDENT, e.studentId()));
+                case DomainEvent.EnrollmentCancelled e -> stale.add(new Stale(BY_STUDENT, e.studentId()));
+                case DomainEvent.BalanceChanged e -> stale.add(new Stale(BY_STUDENT, e.studentId()));
+                case DomainEvent.StudentChanged e -> stale.add(new Stale(BY_STUDENT, e.studentId()));
+                case DomainEvent.ScheduleChanged e -> stale.add(new Stale(BY_SCHEDULE, e.scheduleId()));
+                case DomainEvent.RoomChanged e -> stale.add(new Stale(BY_ROOM, e.roomId()));
+                case DomainEvent.ExamChanged e -> stale.add(new Stale(BY_EXAM, e.examId()));
+                // Sessions are only deleted empty, or with an EnrollmentCancelled
+                // published for each student they held
+                case DomainEvent.ScheduleDeleted e -> {
+                }
+                case DomainEvent.ScheduleCreated e -> {
+                }
+                case DomainEvent.WaitlistJoined e -> {
+                }
+            }
+        }
+        if (!stale.isEmpty())
+            markStale(conn, stale);
+    }
+
+    /**
+     * As {@link #invalidate(Connection, List)} for students changed without an
+     * event (archiving). Call right after conn commits the change.
+     */
+    static void invalidateStudents(Connection conn, Collection<Integer> studentIds) {
+        List<Stale> stale = new ArrayList<>();
+        for (int id : studentIds)
+            stale.add(new Stale(BY_STUDENT, id));
+        if (!stale.isEmpty())
+            markStale(conn, stale);
+    }
+
+    // Before the caller moves on, so a process that exits right after a change
+    // leaves no stale row looking current; only a failed bump goes to the background
+    private static void markStale(Connection conn, List<Stale> stale) {
+        if (conn != null) {
+            try {
+                bump(conn, stale);
+                if (!conn.getAutoCommit())
+                    conn.commit();
+                return;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    if (!conn.getAutoCommit())
+                        conn.rollback();
+                } catch (SQLException ignored) {
+                    // The change itself is committed; the retry below still runs
+                }
+                LOG.warn("Invalidating student summaries failed, retrying in the background: {}", e.getMessage());
+            }
+        }
+        INVALIDATOR.execute(() -> retryMarkStale(stale));
+    }
+
+    private static void retryMarkStale(List<Stale> stale) {
+        for (int attempt = 1; attempt <= MAX_INVALIDATE_ATTEMPTS; attempt++) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                if (conn == null)
+                    throw new SQLException("No database connection");
+                bump(conn, stale);
+                return;
+            } catch (SQLException | RuntimeException e) {
+                if (attempt == MAX_INVALIDATE_ATTEMPTS) {
+                    LOG.error("❌ Could not invalidate {} student summary set(s): {}", stale.size(),
+                            e.getMessage(), e);
+                    return;
+                }
+                LOG.warn("Invalidating student summaries failed (attempt {}): {}", attempt, e.getMessage());
+                try {
+                    Thread.sleep(INVALIDATE_RETRY_MS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void bump(Connection conn, List<Stale> stale) throws SQLException {
+        for (Stale st : stale) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE student_summary SET version = version + 1 WHERE " + st.where())) {
+                ps.setInt(1, st.id());
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static boolean isCurrent(ResultSet rs) throws SQLException {
+        int built = rs.getInt("built_version");
+        if (rs.wasNull() || built != rs.getInt("version"))
+            return false;
+        Timestamp staleAfter = rs.getTimestamp("stale_after");
+        return staleAfter == null || LocalDateTime.now().isBefore(staleAfter.toLocalDateTime());
+    }
+
+    /** Recomputes the student's row from the source tables and stores it. */
+    static Summary refresh(Connection conn, int studentId) throws SQLException {
+        // Before any source read: an invalidation from here on changes it
+        Integer version = version(conn, studentId);
+        if (version == null)
+            return null;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+
+        String name;
+        String course;
+        double balance;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT s.name, c.name AS course_name, s.balance FROM students s LEFT JOIN courses c ON s.course_id = c.id WHERE s.id = ?")) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    return null;
+                name = rs.getString("name");
+                course = rs.getString("course_name");
+                balance = rs.getDouble("balance");
+            }
+        }
+
+        // Same categories as the dashboard always showed: upcoming Enrolled,
+        // Completed or past, and unpaid
+        int enrolled = 0;
+        int completed = 0;
+        int pending = 0;
+        String nextExam = null;
+        LocalDateTime nextExamAt = null;
+        String nextRoom = null;
+        LocalDateTime staleAfter = null;
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT se.status, se.is_paid, es.scheduled_date, es.scheduled_time, e.exam_name, r.room_name
+                FROM student_exams se
+                JOIN exam_schedules es ON se.exam_schedule_id = es.id
+                LEFT JOIN exams e ON es.exam_id = e.id
+                LEFT JOIN rooms r ON es.room_id = r.id
+                WHERE se.student_id = ?
+                """)) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String status = rs.getString("status");
+                    LocalDate date = rs.getDate("scheduled_date").toLocalDate();
+                    java.sql.Time time = rs.getTime("scheduled_time");
+                    LocalDateTime start = time != null ? date.atTime(time.toLocalTime()) : date.atStartOfDay();
+                    boolean upcoming = !date.isBefore(today);
+                    if ("Enrolled".equals(status) && upcoming)
+                        enrolled++;
+                    if ("Completed".equals(status) || !upcoming)
+                        completed++;
+                    if (rs.getInt("is_paid") == 0)
+                        pending++;
+                    if (upcoming) {
+                        // Counts shift when this exam's day is over
+                        LocalDateTime dayOver = date.plusDays(1).atStartOfDay();
+                        staleAfter = staleAfter == null || dayOver.isBefore(staleAfter) ? dayOver : staleAfter;
+                    }
+                    if (start.isAfter(now) && !"Cancelled".equals(status)
+                            && (nextExamAt == null || start.isBefore(nextExamAt))) {
+                        nextExamAt = start;
+                        nextExam = rs.getString("exam_name");
+                        nextRoom = rs.getString("room_name");
+                    }
+                }
+            }
+        }
+        if (nextExamAt != null && (staleAfter == null || nextExamAt.isBefore(staleAfter)))
+            staleAfter = nextExamAt;
+        // Archived sessions are all past, so all completed
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COUNT(*) FROM student_exams_archive WHERE student_id = ?")) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    completed += rs.getInt(1);
+            }
+        }
+
+        Summary summary = new Summary(studentId, name, course, balance, enrolled, completed, pending, nextExam,
+                nextExamAt, nextRoom);
+        store(conn, summary, staleAfter, version);
+        return summary;
+    }
+
+    // The row's current version, creating an unbuilt row first; null if the student does not exist
+    private static Integer version(Connection conn, int studentId) throws SQLException {
+        for (int attempt = 0; attempt < MAX_INSERT_ATTEMPTS; attempt++) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT version FROM student_summary WHERE student_id = ?")) {
+                ps.setInt(1, studentId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next())
+                        return rs.getInt(1);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO student_summary (student_id) SELECT id FROM students WHERE id = ?")) {
+                ps.setInt(1, studentId);
+                return ps.executeUpdate() > 0 ? 0 : null;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Someone else created it meanwhile; read theirs
+            }
+        }
+        throw new SQLException("Could not create the summary row of student " + studentId);
+    }
+
+    // Only over the version the rebuild started from; a newer one means the result is already stale
+    private static void store(Connection conn, Summary s, LocalDateTime staleAfter, int version) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                UPDATE student_summary SET name = ?, course_name = ?, balance = ?, enrolled = ?, completed = ?,
+                    pending = ?, next_exam_name = ?, next_exam_at = ?, next_room = ?, stale_after = ?,
+                    built_version = ?
+                WHERE student_id = ? AND version = ?
+                """)) {
+            int i = bind(ps, s, staleAfter);
+            ps.setInt(i++, version);
+            ps.setInt(i++, s.studentId());
+            ps.setInt(i, version);
+            if (ps.executeUpdate() == 0)
+                LOG.debug("Summary of student {} changed while rebuilding; left for the next read", s.studentId());
+        }
+    }
+
+    private static int bind(PreparedStatement ps, Summary s, LocalDateTime staleAfter) throws SQLException {
+        ps.setString(1, s.name());
+        ps.setString(2, s.course());
+        ps.setDouble(3, s.balance());
+        ps.setInt(4, s.enrolled());
+        ps.setInt(5, s.completed());
+        ps.setInt(6, s.pending());
+        ps.setString(7, s.nextExam());
+        ps.setTimestamp(8, s.nextExamAt() != null ? Timestamp.valueOf(s.nextExamAt()) : null);
+        ps.setString(9, s.nextRoom());
+        ps.setTimestamp(10, staleAfter != null ? Timestamp.valueOf(staleAfter) : null);
+        return 11;
+    }
+
+    private static Summary read(ResultSet rs) throws SQLException {
+        Timestamp next = rs.getTimestamp("next_exam_at");
+        return new Summary(rs.getInt("student_id"), rs.getString("name"), rs.getString("course_name"),
+                rs.getDouble("balance"), rs.getInt("enrolled"), rs.getInt("completed"), rs.getInt("pending"),
+                rs.getString("next_exam_name"), next != null ? next.toLocalDateTime() : null,
+                rs.getString("next_room"));
+    }
+}
@@ -0,0 +1,210 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Per-student timetable of booked exams, loaded from the database once per
+ * session and then kept current from {@link EventBus} enrollment events.
+ *
+ * Each timetable is indexed by start time, so an overlap check is a range
+ * lookup (O(log n)) instead of a scan over every booked exam. Shared by the
+ * scheduling strategies and the student dashboard.
+ */
+public final class StudentTimetableCache {
+
+    private static final Log LOG = Log.get(StudentTimetableCache.class);
+
+    /** One booked exam in a student's timetable. */
+    public record Entry(int registrationId, int scheduleId, int examId, String examName, LocalDateTime start,
+            LocalDateTime end, String room, String duration, String status, boolean paid) {
+    }
+
+    private static final String TIMETABLE_SQL = """
+            SELECT se.id AS reg_id, es.id AS schedule_id, e.id AS exam_id, e.exam_name,
+                   es.scheduled_date, es.scheduled_time, r.room_name, e.duration, se.status, se.is_paid
+            FROM student_exams se
+            JOIN exam_schedules es ON se.exam_schedule_id = es.id
+            JOIN exams e ON es.exam_id = e.id
+            JOIN rooms r ON es.room_id = r.id
+            WHERE se.student_id = ? AND es.scheduled_date IS NOT NULL
+              AND (se.status IS NULL OR se.status <> 'Cancelled')
+            """;
+
+    private static final Map<Integer, Timetable> CACHE = new ConcurrentHashMap<>();
+
+    static {
+        EventBus.subscribe(DomainEvent.EnrollmentCreated.class, StudentTimetableCache::onEnrollmentCreated);
+        EventBus.subscribe(DomainEvent.EnrollmentCancelled.class,
+                e -> withCached(e.studentId(), t -> t.remove(e.registrationId())));
+        EventBus.subscribe(DomainEvent.ScheduleDeleted.class,
+                e -> CACHE.values().removeIf(t -> t.holdsSchedule(e.scheduleId())));
+        EventBus.subscribe(DomainEvent.ScheduleChanged.class,
+                e -> CACHE.values().removeIf(t -> t.holdsSchedule(e.scheduleId())));
+        // Renamed rooms or re-timed exams change entries in place; reload lazily
+        EventBus.subscribe(DomainEvent.RoomChanged.class, e -> CACHE.clear());
+        EventBus.subscribe(DomainEvent.ExamChanged.class, e -> CACHE.clear());
+        EventBus.subscribe(DomainEvent.StudentChanged.class, e -> CACHE.remove(e.studentId()));
+        // A timetable loaded inside a transaction that then rolled back may hold
+        // rows that never committed
+        EventBus.onDiscard(e -> {
+            if (e instanceof DomainEvent.EnrollmentCreated ec)
+                CACHE.remove(ec.studentId());
+        });
+    }
+
+    private StudentTimetableCache() {
+    }
+
+    /** Returns the student's timetable, running the join only on first use. */
+    public static Timetable get(int studentId, Connection conn) throws SQLException {
+        Timetable cached = CACHE.get(studentId);
+        if (cached != null)
+            return cached;
+        Timetable loaded = new Timetable();
+        try (PreparedStatement ps = conn.prepareStatement(TIMETABLE_SQL)) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    loaded.add(read(rs));
+                }
+            }
+        }
+        // Another thread may have loaded (and updated) it meanwhile; keep that one
+        Timetable previous = CACHE.putIfAbsent(studentId, loaded);
+        return previous != null ? previous : loaded;
+    }
+
+    /** The student's timetable if it is already loaded, else null. */
+    static Timetable cached(int studentId) {
+        return CACHE.get(studentId);
+    }
+
+    /** Drops the student's timetable so the next {@link #get} reloads it. */
+    public static void invalidate(int studentId) {
+        CACHE.remove(studentId);
+    }
+
+    private static void onEnrollmentCreated(DomainEvent.EnrollmentCreated e) {
+        Timetable timetable = CACHE.get(e.studentId());
+        if (timetable == null || timetable.contains(e.registrationId()))
+            return; // loaded on first use, already including this row
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(TIMETABLE_SQL + " AND se.id = ?")) {
+            ps.setInt(1, e.studentId());
+            ps.setInt(2, e.registrationId());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    timetable.add(read(rs));
+                }
+            }
+        } catch (SQLException | RuntimeException ex) {
+            LOG.error("Timetable refresh failed for student {}: {}", e.studentId(), ex.getMessage());
+            CACHE.remove(e.studentId());
+        }
+    }
+
+    private static void withCached(int studentId, Consumer<Timetable> action) {
+        Timetable timetable = CACHE.get(studentId);
+        if (timetable != null)
+            action.accept(timetable);
+    }
+
+    private static Entry read(ResultSet rs) throws SQLException {
+        LocalDate date = rs.getDate("scheduled_date").toLocalDate();
+        java.sql.Time time = rs.getTime("scheduled_time");
+        LocalDateTime start = date.atTime(time != null ? time.toLocalTime() : LocalTime.MIDNIGHT);
+        String duration = rs.getString("duration");
+        int minutes = SchedulingService.parseDurationMinutes(duration != null ? duration : "2 hours");
+        return new Entry(rs.getInt("reg_id"), rs.getInt("schedule_id"), rs.getInt("exam_id"),
+                rs.getString("exam_name"), start, start.plusMinutes(minutes), rs.getString("room_name"),
+                duration, rs.getString("status"), rs.getInt("is_paid") == 1);
+    }
+
+    /**
+     * A student's booked exams ordered by start time. Overlap queries only look
+     * at entries starting within the longest booked duration before the
+     * candidate, which the start-time index finds directly.
+     */
+    public static final class Timetable {
+        private final TreeMap<LocalDateTime, List<Entry>> byStart = new TreeMap<>();
+        private final Map<Integer, Entry> byRegistration = new HashMap<>();
+        private long longestMinutes;
+
+        private Timetable() {
+        }
+
+        /**
+         * Builds a timetable from entries that are already known, e.g. a
+         * candidate timetable that is not stored.
+         */
+        public static Timetable of(List<Entry> entries) {
+            Timetable timetable = new Timetable();
+            entries.forEach(timetable::add);
+            return timetable;
+        }
+
+        synchronized void add(Entry entry) {
+            if (byRegistration.putIfAbsent(entry.registrationId(), entry) != null)
+                return;
+            byStart.computeIfAbsent(entry.start(), k -> new ArrayList<>(1)).add(entry);
+            longestMinutes = Math.max(longestMinutes,
+                    Duration.between(entry.start(), entry.end()).toMinutes());
+        }
+
+        synchronized void remove(int registrationId) {
+            Entry entry = byRegistration.remove(registrationId);
+            if (entry == null)
+                return;
+            List<Entry> sameStart = byStart.get(entry.start());
+            sameStart.remove(entry);
+            if (sameStart.isEmpty())
+                byStart.remove(entry.start());
+        }
+
+        synchronized boolean contains(int registrationId) {
+            return byRegistration.containsKey(registrationId);
+        }
+
+        synchronized boolean holdsSchedule(int scheduleId) {
+            return byRegistration.values().stream().anyMatch(e -> e.scheduleId() == scheduleId);
+        }
+
+        /**
+         * True if any booked exam overlaps [start, end) starting on the given
+         * date. An end at or before start (start + duration wrapped past
+         * midnight) is on the next day.
+         */
+        public synchronized boolean overlaps(LocalDate date, LocalTime start, LocalTime end) {
+            LocalDateTime from = date.atTime(start);
+            LocalDateTime to = end.isAfter(start) ? date.atTime(end) : date.plusDays(1).atTime(end);
+            for (List<Entry> entries : byStart.subMap(from.minusMinutes(longestMinutes), false, to, false).values()) {
+                for (Entry e : entries) {
+                    if (e.end().isAfter(from))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        /** Snapshot of the booked exams in date/time order. */
+        public synchronized List<Entry> entries() {
+            List<Entry> all = new ArrayList<>(byRegistration.size());
+            byStart.values().forEach(all::addAll);
+            return all;
+        }
+    }
+}
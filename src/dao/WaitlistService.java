@@ -0,0 +1,456 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-exam waitlist for students who could not get a seat.
+ *
+ * Waiting rows live in exam_waitlist and are mirrored in an in-memory index
+ * (exam -> students in promotion order: highest priority first, then first
+ * come), so a freed seat in an exam nobody waits for costs nothing. Seat-freeing
+ * events (new session, cancelled enrollment, room change, removed student) mark
+ * the exam dirty; one background thread drains the dirty exams in batches and
+ * enrolls waiting students through {@link SchedulingService}.
+ *
+ * A promotion first flips its row from Waiting to Promoted with a conditional
+ * UPDATE inside the enrollment transaction, so two threads or two workstations
+ * can never promote the same student twice.
+ *
+ * A student whose timetable clashes with every slot is marked Conflict and
+ * told so in the log instead of being retried; a transient database error
+ * (or a drain that fails outright) leaves the exam queued for another drain
+ * a few seconds later; any other error marks the entry Failed.
+ */
+public final class WaitlistService {
+
+    private static final Log LOG = Log.get(WaitlistService.class);
+
+    /** A waiting student. */
+    record Waiter(int id, int studentId, int examId, int priority, double fee) {
+    }
+
+    private enum Outcome {
+        /** Enrolled; the entry is done. */
+        PROMOTED,
+        /** No seat fits yet; stays queued for the next freed seat. */
+        NO_SEAT,
+        /** Lock timeout, deadlock or lost connection; stays queued, the exam is retried after RETRY_DELAY_MS. */
+        RETRY,
+        /** Every slot clashes with the student's own exams; marked Conflict and dropped. */
+        CONFLICT,
+        /** Promoted elsewhere, cancelled, lapsed or failed; dropped from the queue. */
+        GONE
+    }
+
+    private static final Comparator<Waiter> PROMOTION_ORDER = Comparator
+            .comparingInt((Waiter w) -> -w.priority())
+            .thenComparingInt(Waiter::id);
+
+    // Promotions attempted per exam per drain; the rest wait for the next round
+    private static final int BATCH = 50;
+    // Each failed attempt runs the full slot search, so a full exam gives up early
+    private static final int MAX_CONSECUTIVE_MISSES = 3;
+    // Pause before draining again after a database error, instead of spinning on it
+    private static final long RETRY_DELAY_MS = 5_000;
+
+    private static final Map<Integer, NavigableSet<Waiter>> QUEUES = new ConcurrentHashMap<>();
+    private static final Map<Integer, Waiter> BY_ID = new ConcurrentHashMap<>();
+    private static final Set<Integer> DIRTY_EXAMS = ConcurrentHashMap.newKeySet();
+    private static final Set<Integer> DIRTY_SCHEDULES = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean DRAIN_SCHEDULED = new AtomicBoolean();
+
+    private static ScheduledExecutorService executor;
+
+    private WaitlistService() {
+    }
+
+    /** Loads the waiting students and starts listening for freed seats (once per JVM). */
+    public static synchronized void start() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "waitlist-promoter");
+            t.setDaemon(true);
+            return t;
+        });
+        loadWaiting();
+
+        EventBus.subscribe(DomainEvent.ScheduleCreated.class, e -> signalExam(e.examId()));
+        EventBus.subscribe(DomainEvent.EnrollmentCancelled.class, e -> signalSchedule(e.examScheduleId()));
+        // A room may have grown; cheap when nobody waits
+        EventBus.subscribe(DomainEvent.RoomChanged.class, e -> signalAll());
+        EventBus.subscribe(DomainEvent.ScheduleChanged.class, e -> signalExam(e.examId()));
+        EventBus.subscribe(DomainEvent.StudentChanged.class, e -> {
+            if (e.kind() == DomainEvent.ChangeKind.DELETED) {
+                new ArrayList<>(BY_ID.values()).stream()
+                        .filter(w -> w.studentId() == e.studentId())
+                        .forEach(WaitlistService::unindex);
+                signalAll(); // the student's enrollments were deleted too
+            }
+        });
+        // Joins made on other workstations arrive through the change log
+        EventBus.subscribe(DomainEvent.WaitlistJoined.class, e -> {
+            if (!BY_ID.containsKey(e.waitlistId()))
+                executor.execute(() -> loadWaiter(e.waitlistId()));
+        });
+
+        // Seats may have freed while no client was running
+        signalAll();
+        LOG.info("✅ Waitlist service started ({} waiting)", BY_ID.size());
+    }
+
+    /**
+     * Puts the student on the exam's waitlist; fee is charged only when a seat
+     * is found. Returns the student's position (1 = next in line).
+     */
+    public static int join(int studentId, int examId, double fee, int priority) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            // One row per exam and student: a lapsed or cancelled entry is replaced
+            // so the student rejoins at the back
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "DELETE FROM exam_waitlist WHERE exam_id = ? AND student_id = ? AND status <> 'Waiting'")) {
+                ps.setInt(1, examId);
+                ps.setInt(2, studentId);
+                ps.executeUpdate();
+            }
+            int id;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO exam_waitlist (exam_id, student_id, priority, fee) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, examId);
+                ps.setInt(2, studentId);
+                ps.setInt(3, priority);
+                ps.setDouble(4, fee);
+                ps.executeUpdate();
+                try (ResultSet gk = ps.getGeneratedKeys()) {
+                    gk.next();
+                    id = gk.getInt(1);
+                }
+            } catch (SQLIntegrityConstraintViolationException e) {
+                throw new SQLException("You are already on the waitlist for this exam", e);
+            }
+            Waiter waiter = new Waiter(id, studentId, examId, priority, fee);
+            index(waiter);
+            ChangeLog.publish(conn, new DomainEvent.WaitlistJoined(id, studentId, examId));
+            // A seat may have freed between the failed enrollment and now
+            signalExam(examId);
+            return QUEUES.get(examId).headSet(waiter, true).size();
+        }
+    }
+
+    /** Removes the student from the exam's waitlist. */
+    public static void leave(int studentId, int examId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLTransientConnectionException("No database connection");
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE exam_waitlist SET status = 'Cancelled' WHERE exam_id = ? AND student_id = ? AND status = 'Waiting'")) {
+                ps.setInt(1, examId);
+                ps.setInt(2, studentId);
+                ps.executeUpdate();
+            }
+        }
+        // Other workstations drop it when their promotion claim fails
+        new ArrayList<>(BY_ID.values()).stream()
+                .filter(w -> w.studentId() == studentId && w.examId() == examId)
+                .forEach(WaitlistService::unindex);
+    }
+
+    /** Number of students currently waiting for the exam. */
+    public static int waitingCount(int examId) {
+        NavigableSet<Waiter> queue = QUEUES.get(examId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    // ===== Index maintenance =====
+
+    private static void index(Waiter waiter) {
+        if (BY_ID.putIfAbsent(waiter.id(), waiter) == null) {
+            QUEUES.computeIfAbsent(waiter.examId(), k -> new ConcurrentSkipListSet<>(PROMOTION_ORDER)).add(waiter);
+        }
+    }
+
+    private static void unindex(Waiter waiter) {
+        if (BY_ID.remove(waiter.id()) != null) {
+            NavigableSet<Waiter> queue = QUEUES.get(waiter.examId());
+            if (queue != null)
+                queue.remove(waiter);
+        }
+    }
+
+    private static void loadWaiting() {
+        String sql = "SELECT id, exam_id, student_id, priority, fee FROM exam_waitlist WHERE status = 'Waiting'";
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                index(readWaiter(rs));
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("Could not load waitlist: {}", e.getMessage());
+        }
+    }
+
+    private static void loadWaiter(int id) {
+        String sql = "SELECT id, exam_id, student_id, priority, fee FROM exam_waitlist WHERE id = ? AND status = 'Waiting'";
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Waiter waiter = readWaiter(rs);
+                    index(waiter);
+                    signalExam(waiter.examId());
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("Could not load waitlist entry {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static Waiter readWaiter(ResultSet rs) throws SQLException {
+        return new Waiter(rs.getInt("id"), rs.getInt("student_id"), rs.getInt("exam_id"), rs.getInt("priority"),
+                rs.getDouble("fee"));
+    }
+
+    // ===== Promotion =====
+
+    private static void signalExam(int examId) {
+        if (waitingCount(examId) == 0)
+            return;
+        DIRTY_EXAMS.add(examId);
+        scheduleDrain();
+    }
+
+    private static void signalSchedule(int scheduleId) {
+        if (BY_ID.isEmpty())
+            return;
+        DIRTY_SCHEDULES.add(scheduleId);
+        scheduleDrain();
+    }
+
+    private static void signalAll() {
+        QUEUES.forEach((examId, queue) -> {
+            if (!queue.isEmpty())
+                DIRTY_EXAMS.add(examId);
+        });
+        scheduleDrain();
+    }
+
+    // Many signals during a burst collapse into one pass on the promoter thread
+    private static void scheduleDrain() {
+        if (executor != null && DRAIN_SCHEDULED.compareAndSet(false, true)) {
+            executor.execute(WaitlistService::drain);
+        }
+    }
+
+    // Signals arriving meanwhile join this pass rather than run ahead of it
+    private static void drainLater() {
+        if (executor != null && DRAIN_SCHEDULED.compareAndSet(false, true)) {
+            executor.schedule(WaitlistService::drain, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void drain() {
+        DRAIN_SCHEDULED.set(false);
+        Set<Integer> untried = take(DIRTY_EXAMS);
+        Set<Integer> schedules = take(DIRTY_SCHEDULES);
+        if (untried.isEmpty() && schedules.isEmpty())
+            return;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No database connection");
+            untried.addAll(examsOf(schedules, conn));
+            schedules.clear();
+            for (int examId : List.copyOf(untried)) {
+                promote(examId, conn);
+                untried.remove(examId);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Put back what this pass did not finish, or those seats stay unfilled until the next signal
+            DIRTY_EXAMS.addAll(untried);
+            DIRTY_SCHEDULES.addAll(schedules);
+            LOG.error("Waitlist promotion failed, retrying in {} ms: {}", RETRY_DELAY_MS, e.getMessage());
+            drainLater();
+        }
+    }
+
+    private static Set<Integer> take(Set<Integer> dirty) {
+        Set<Integer> taken = new HashSet<>();
+        for (Integer id : dirty) {
+            if (dirty.remove(id))
+                taken.add(id);
+        }
+        return taken;
+    }
+
+    private static Set<Integer> examsOf(Set<Integer> scheduleIds, Connection conn) throws SQLException {
+        Set<Integer> exams = new HashSet<>();
+        if (scheduleIds.isEmpty())
+            return exams;
+        String placeholders = String.join(",", Collections.nCopies(scheduleIds.size(), "?"));
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT DISTINCT exam_id FROM exam_schedules WHERE id IN (" + placeholders + ")")) {
+            int i = 1;
+            for (int id : scheduleIds)
+                ps.setInt(i++, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    exams.add(rs.getInt(1));
+            }
+        }
+        return exams;
+    }
+
+    private static void promote(int examId, Connection conn) throws SQLException {
+        NavigableSet<Waiter> queue = QUEUES.get(examId);
+        if (queue == null || queue.isEmpty())
+            return;
+        List<Waiter> batch = new ArrayList<>();
+        for (Waiter w : queue) {
+            batch.add(w);
+            if (batch.size() == BATCH)
+                break;
+        }
+        int promoted = 0;
+        int misses = 0;
+        for (Waiter waiter : batch) {
+            // A waiter with no conflict-free seat stays queued; the next one may fit
+            Outcome outcome = tryPromote(waiter, conn);
+            if (outcome == Outcome.RETRY) {
+                // The database is struggling; try the exam again after a pause
+                DIRTY_EXAMS.add(examId);
+                drainLater();
+                break;
+            }
+            if (outcome != Outcome.NO_SEAT)
+                unindex(waiter);
+            if (outcome == Outcome.PROMOTED)
+                promoted++;
+            misses = outcome == Outcome.NO_SEAT ? misses + 1 : 0;
+            if (misses == MAX_CONSECUTIVE_MISSES)
+                break;
+        }
+        if (promoted > 0)
+            LOG.info("✅ Promoted {} waitlisted student(s) for exam {}", promoted, examId);
+        // A full batch went through: there may be more free seats
+        if (promoted == BATCH)
+            signalExam(examId);
+    }
+
+    private static Outcome tryPromote(Waiter waiter, Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            // Claim the row; a concurrent promoter blocks here and then updates nothing
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE exam_waitlist SET status = 'Promoted', promoted_at = CURRENT_TIMESTAMP WHERE id = ? AND status = 'Waiting'")) {
+                ps.setInt(1, waiter.id());
+                if (ps.executeUpdate() == 0) {
+                    conn.rollback();
+                    return Outcome.GONE;
+                }
+            }
+            if (isEnrolled(waiter, conn)) {
+                setStatus(waiter, "Cancelled", conn);
+                conn.commit();
+                return Outcome.GONE;
+            }
+            if (waiter.fee() > 0 && !charge(waiter, conn)) {
+                setStatus(waiter, "Lapsed", conn);
+                conn.commit();
+                LOG.warn("⚠️ Waitlist entry {} lapsed: insufficient balance", waiter.id());
+                return Outcome.GONE;
+            }
+            SchedulingService.AssignmentResult ar = SchedulingService.scheduleAndEnrollExam(waiter.studentId(),
+                    waiter.examId(), conn);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE exam_waitlist SET registration_id = ? WHERE id = ?")) {
+                ps.setInt(1, ar.registrationId);
+                ps.setInt(2, waiter.id());
+                ps.executeUpdate();
+            }
+            if (waiter.fee() > 0)
+                RevenueRollups.rollUpCharge(conn, waiter.examId(), waiter.fee());
+            conn.commit();
+            EventBus.afterCommit(conn);
+            return Outcome.PROMOTED;
+        } catch (ScheduleConflictException e) {
+            conn.rollback();
+            EventBus.discard(conn);
+            setStatus(waiter, "Conflict", conn);
+            conn.commit();
+            LOG.warn("⚠️ Waitlist entry {} for student {} skipped: every slot conflicts with their other exams",
+                    waiter.id(), waiter.studentId());
+            return Outcome.CONFLICT;
+        } catch (NoCapacityException e) {
+            conn.rollback();
+            EventBus.discard(conn);
+            return Outcome.NO_SEAT;
+        } catch (SQLException e) {
+            conn.rollback();
+            EventBus.discard(conn);
+            if (DatabaseConnection.isTransient(e)) {
+                LOG.warn("Waitlist entry {} will be retried: {}", waiter.id(), e.getMessage());
+                return Outcome.RETRY;
+            }
+            setStatus(waiter, "Failed", conn);
+            conn.commit();
+            LOG.error("❌ Could not promote waitlist entry {}: {}", waiter.id(), e.getMessage(), e);
+            return Outcome.GONE;
+        } catch (RuntimeException e) {
+            conn.rollback();
+            EventBus.discard(conn);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static boolean isEnrolled(Waiter waiter, Connection conn) throws SQLException {
+        return SchedulingService.isEnrolledInExam(waiter.studentId(), waiter.examId(), conn);
+    }
+
+    private static boolean charge(Waiter waiter, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE students SET balance = balance - ? WHERE id = ? AND balance >= ?")) {
+            ps.setDouble(1, waiter.fee());
+            ps.setInt(2, waiter.studentId());
+            ps.setDouble(3, waiter.fee());
+            if (ps.executeUpdate() == 0)
+                return false;
+        }
+        RevenueRollups.recordCharge(conn, waiter.studentId(), waiter.examId(), waiter.fee());
+        ChangeLog.publish(conn, new DomainEvent.BalanceChanged(waiter.studentId(), -waiter.fee()));
+        return true;
+    }
+
+    private static void setStatus(Waiter waiter, String status, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE exam_waitlist SET status = ? WHERE id = ?")) {
+            ps.setString(1, status);
+            ps.setInt(2, waiter.id());
+            ps.executeUpdate();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package views;
 
+import dao.Log;
 import dao.*;
 import models.*;
 import javax.swing.*;
@@ -10,10 +11,17 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.math.BigDecimal;
 import java.sql.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class AdminDashboard extends JFrame {
 
+    private static final Log LOG = Log.get(AdminDashboard.class);
+
     // Color scheme for modern UI
     private static final Color PRIMARY_COLOR = new Color(45, 52, 68); // Dark blue-gray
     private static final Color SECONDARY_COLOR = new Color(66, 73, 91); // Lighter blue-gray
@@ -38,6 +46,43 @@ public class AdminDashboard extends JFrame {
     private JPanel contentPanel;
     private CardLayout cardLayout;
 
+    // Cards are built on first navigation; keep direct references instead of
+    // digging through contentPanel's component tree
+    private final Set<String> builtCards = new HashSet<>();
+    private JPanel dashboardStatsPanel;
+    private JTable studentsTable;
+    private JTable schedulesTable;
+    private boolean schedulesLoaded;
+    private JComboBox<String> financeRangeBox;
+    private JTable financeDayTable;
+    private JTable financeMethodTable;
+    private JTable financeExamTable;
+    private JCheckBox includeArchivedBox;
+
+    // Row-level updates for the schedules/students tables (see applyChanges)
+    private EventCoalescer changeEvents;
+    // Ids whose rows changed since the last row refresh; EDT only
+    private final Set<Integer> dirtySchedules = new HashSet<>();
+    private final Set<Integer> dirtyStudents = new HashSet<>();
+    private boolean rowRefreshRunning;
+
+    private static final String SCHEDULE_SQL = "SELECT es.id, e.exam_name, r.room_name, es.scheduled_date, " +
+            "es.scheduled_time, es.capacity, " +
+            "(SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id) AS enrolled, " +
+            "CASE WHEN es.scheduled_date < CURDATE() THEN 'Completed' " +
+            "     WHEN es.scheduled_date = CURDATE() AND es.scheduled_time <= CURTIME() THEN 'In Progress' " +
+            "     ELSE 'Scheduled' END AS status " +
+            "FROM exam_schedules es " +
+            "JOIN exams e ON es.exam_id = e.id " +
+            "JOIN rooms r ON es.room_id = r.id ";
+
+    // Same columns over exam_schedules_archive; the exam or room may have been deleted since
+    private static final String ARCHIVED_SCHEDULE_SQL = "SELECT a.id, e.exam_name, r.room_name, a.scheduled_date, " +
+            "a.scheduled_time, a.capacity, a.enrolled, 'Archived' AS status " +
+            "FROM exam_schedules_archive a " +
+            "LEFT JOIN exams e ON a.exam_id = e.id " +
+            "LEFT JOIN rooms r ON a.room_id = r.id ";
+
     // Current admin
     private Admin currentAdmin;
 
@@ -50,6 +95,24 @@ public class AdminDashboard extends JFrame {
 
         initializeUI();
         loadDashboard();
+
+        changeEvents = new EventCoalescer(this::applyChanges)
+                .listen(DomainEvent.ScheduleCreated.class)
+                .listen(DomainEvent.ScheduleChanged.class)
+                .listen(DomainEvent.ScheduleDeleted.class)
+                .listen(DomainEvent.EnrollmentCreated.class)
+                .listen(DomainEvent.EnrollmentCancelled.class)
+                .listen(DomainEvent.StudentChanged.class)
+                .listen(DomainEvent.BalanceChanged.class);
+    }
+
+    @Override
+    public void dispose() {
+        if (changeEvents != null) {
+            changeEvents.close();
+            changeEvents = null;
+        }
+        super.dispose();
     }
 
     private void initializeUI() {
@@ -103,6 +166,7 @@ public class AdminDashboard extends JFrame {
         addNavigationButton("🏢 Manage Rooms", "rooms", false);
         addNavigationButton("👥 Manage Students", "students", false);
         addNavigationButton("📅 View Schedules", "schedules", false);
+        addNavigationButton("💰 Finance", "finance", false);
 
         sidebarPanel.add(Box.createVerticalGlue());
 
@@ -193,7 +257,8 @@ public class AdminDashboard extends JFrame {
             resetNavigationButtons();
             // Set this button as selected
             button.setBackground(SECONDARY_COLOR);
-            // Show the corresponding panel
+            // Build the panel on first visit, then show it
+            ensureCard(cardName);
             cardLayout.show(contentPanel, cardName);
 
             // Load specific data for each panel
@@ -203,6 +268,7 @@ public class AdminDashboard extends JFrame {
                 case "rooms" -> loadRoomsPanel();
                 case "students" -> loadStudentsPanel();
                 case "schedules" -> loadSchedulesPanel();
+                case "finance" -> loadFinancePanel();
             }
         });
 
@@ -228,16 +294,28 @@ public class AdminDashboard extends JFrame {
         contentPanel = new JPanel(cardLayout);
         contentPanel.setBackground(LIGHT_COLOR);
 
-        // Create all panels
-        contentPanel.add(createDashboardPanel(), "dashboard");
-        contentPanel.add(createExamsPanel(), "exams");
-        contentPanel.add(createRoomsPanel(), "rooms");
-        contentPanel.add(createStudentsPanel(), "students");
-        contentPanel.add(createSchedulesPanel(), "schedules");
+        // Only the landing card is built up front; the rest on first navigation
+        ensureCard("dashboard");
 
         mainPanel.add(contentPanel, BorderLayout.CENTER);
     }
 
+    private void ensureCard(String cardName) {
+        if (!builtCards.add(cardName)) {
+            return;
+        }
+        JPanel card = switch (cardName) {
+            case "dashboard" -> createDashboardPanel();
+            case "exams" -> createExamsPanel();
+            case "rooms" -> createRoomsPanel();
+            case "students" -> createStudentsPanel();
+            case "schedules" -> createSchedulesPanel();
+            case "finance" -> createFinancePanel();
+            default -> createGenericPanel(cardName, "");
+        };
+        contentPanel.add(card, cardName);
+    }
+
     private JPanel createDashboardPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(LIGHT_COLOR);
@@ -261,97 +339,81 @@ public class AdminDashboard extends JFrame {
 
         panel.add(headerPanel, BorderLayout.NORTH);
 
-        // Stats cards
-        JPanel statsPanel = createStatsPanel();
-        panel.add(statsPanel, BorderLayout.CENTER);
+        // Stats cards (filled in by loadDashboard)
+        dashboardStatsPanel = createStatsPanel();
+        panel.add(dashboardStatsPanel, BorderLayout.CENTER);
 
         return panel;
     }
 
     private JPanel createStatsPanel() {
-        System.out.println("🔄 Creating stats panel...");
+        LOG.debug("🔄 Creating stats panel...");
         JPanel panel = new JPanel(new GridLayout(2, 4, 20, 20));
         panel.setBackground(LIGHT_COLOR);
         panel.setBorder(new EmptyBorder(30, 0, 0, 0));
 
-        // Load real statistics from database and create cards
-        loadDashboardStats(panel);
+        JLabel loadingLabel = new JLabel("Loading statistics...", SwingConstants.CENTER);
+        loadingLabel.setFont(new Font("Segoe UI", Font.ITALIC, 16));
+        loadingLabel.setForeground(MUTED_COLOR);
+        panel.add(loadingLabel);
         return panel;
     }
 
+    private record DashboardStats(int totalStudents, int totalExams, int availableRooms, double totalRevenue,
+            int pendingSchedules, int completedExams, int adminUsers) {
+    }
+
     /**
-     * Loads real-time statistics from database and creates stats cards
+     * Loads real-time statistics from database. Runs off the EDT.
      */
-    private void loadDashboardStats(JPanel panel) {
+    private DashboardStats queryDashboardStats() throws Exception {
         long startNs = System.nanoTime();
-        try {
-            System.out.println("🔄 Loading dashboard statistics from database...");
-
-            // Get database connection
-            java.sql.Connection conn = DatabaseConnection.getConnection();
-
-            // Get total students
-            int totalStudents = getTotalStudents(conn);
-            System.out.println("📊 Total Students: " + totalStudents);
-
-            // Get total scheduled exams (matches your database: 40 scheduled exams)
-            int totalExams = getTotalScheduledExams(conn);
-            System.out.println("📊 Total Scheduled Exams: " + totalExams);
-
-            // Get total rooms and currently available rooms (free today)
-            int totalRooms = getTotalRooms(conn);
-            int availableRooms = getAvailableRooms(conn);
-            System.out.println("📊 Total Rooms: " + totalRooms);
-            System.out.println("📊 Available Rooms Today: " + availableRooms);
-
-            // Get pending schedules (pending enrollments)
-            int pendingSchedules = getPendingSchedules(conn);
-            System.out.println("📊 Pending Schedules: " + pendingSchedules);
-
-            // Get completed exams (past schedules)
-            int completedExams = getCompletedExams(conn);
-            System.out.println("📊 Completed Exams: " + completedExams);
-
-            // Calculate total revenue from student enrollments
-            double totalRevenue = calculateTotalRevenue(conn);
-            System.out.println("📊 Total Revenue: ₱" + totalRevenue);
-
-            // Get admin users count (matches your database: 1 admin)
-            int adminUsers = getAdminUsers(conn);
-            System.out.println("📊 Admin Users: " + adminUsers);
-
-            System.out.println("✅ Database queries completed successfully!");
+        LOG.debug("🔄 Loading dashboard statistics from database...");
+        try (java.sql.Connection conn = DatabaseConnection.getReadConnection()) {
+            DashboardStats stats = new DashboardStats(
+                    getTotalStudents(conn),
+                    getTotalScheduledExams(conn),
+                    getAvailableRooms(conn),
+                    calculateTotalRevenue(conn),
+                    getPendingSchedules(conn),
+                    getCompletedExams(conn),
+                    getAdminUsers(conn));
+            LOG.debug("✅ Dashboard statistics loaded: {}", stats);
+            return stats;
+        } finally {
+            LOG.debug("queryDashboardStats() took {} ms", (System.nanoTime() - startNs) / 1_000_000.0);
+        }
+    }
 
-            // Create stats cards with real data
-            panel.add(createStatsCard("Total Students", String.valueOf(totalStudents),
+    /**
+     * Creates the stats cards from loaded statistics (null when loading failed).
+     */
+    private void renderDashboardStats(JPanel panel, DashboardStats stats) {
+        panel.removeAll();
+        if (stats == null) {
+            // Show placeholder cards if database fails
+            panel.add(createStatsCard("Error", "N/A", "Database connection failed", DANGER_COLOR, "❌"));
+        } else {
+            panel.add(createStatsCard("Total Students", String.valueOf(stats.totalStudents()),
                     "Active enrollments", ACCENT_COLOR, "👥"));
-            panel.add(createStatsCard("Active Exams", String.valueOf(totalExams),
+            panel.add(createStatsCard("Active Exams", String.valueOf(stats.totalExams()),
                     "Upcoming distinct", SUCCESS_COLOR, "📝"));
-            panel.add(createStatsCard("Available Rooms", String.valueOf(availableRooms),
+            panel.add(createStatsCard("Available Rooms", String.valueOf(stats.availableRooms()),
                     "Free today", WARNING_COLOR, "🏢"));
-            panel.add(createStatsCard("Total Revenue", String.format("₱%,.0f", totalRevenue),
+            panel.add(createStatsCard("Total Revenue", String.format("₱%,.0f", stats.totalRevenue()),
                     "From paid exams", SUCCESS_COLOR, "💰"));
 
-            panel.add(createStatsCard("Pending Schedules", String.valueOf(pendingSchedules),
+            panel.add(createStatsCard("Pending Schedules", String.valueOf(stats.pendingSchedules()),
                     "Status: Pending", DANGER_COLOR, "⏳"));
-            panel.add(createStatsCard("Completed Exams", String.valueOf(completedExams),
+            panel.add(createStatsCard("Completed Exams", String.valueOf(stats.completedExams()),
                     "Already held", SUCCESS_COLOR, "✅"));
             panel.add(createStatsCard("System Uptime", "99.9%",
                     "Service availability", SUCCESS_COLOR, "⚡"));
-            panel.add(createStatsCard("Admin Users", String.valueOf(adminUsers),
+            panel.add(createStatsCard("Admin Users", String.valueOf(stats.adminUsers()),
                     "Active administrators", ACCENT_COLOR, "👤"));
-
-        } catch (Exception e) {
-            System.err.println("Error loading dashboard stats: " + e.getMessage());
-            e.printStackTrace();
-
-            // Show placeholder cards if database fails
-            panel.add(createStatsCard("Error", "N/A", "Database connection failed", DANGER_COLOR, "❌"));
-        } finally {
-            long endNs = System.nanoTime();
-            System.out.printf("loadDashboardStats() took %.2f ms (%d ns)\n", (endNs - startNs) / 1_000_000.0,
-                    (endNs - startNs));
         }
+        panel.revalidate();
+        panel.repaint();
     }
 
     // Database query methods for real statistics
@@ -385,16 +447,12 @@ public class AdminDashboard extends JFrame {
     }
 
     private double calculateTotalRevenue(java.sql.Connection conn) throws Exception {
-        // Prefer payments table if it exists; otherwise, fall back to counting paid
-        // enrollments
-        try (var stmt = conn.createStatement()) {
-            try (var rs = stmt.executeQuery("SELECT COALESCE(SUM(amount),0) FROM payments")) {
-                if (rs.next()) {
-                    return rs.getDouble(1);
-                }
-            }
+        // Cash-ins from the monthly rollup (a few rows per month); fall back to
+        // counting paid enrollments if the rollups don't exist yet
+        try {
+            return RevenueRollups.totalCashIn(conn);
         } catch (Exception ignore) {
-            // Fall back to old logic if payments table doesn't exist yet
+            // Fall back to old logic
         }
 
         String sql = "SELECT COUNT(*) FROM student_exams WHERE is_paid = 1";
@@ -419,7 +477,9 @@ public class AdminDashboard extends JFrame {
     }
 
     private int getPaidEnrollments(java.sql.Connection conn) throws Exception {
-        String sql = "SELECT COUNT(*) FROM student_exams WHERE is_paid = 1";
+        // Enrollments of archived sessions were paid too; count both tables
+        String sql = "SELECT (SELECT COUNT(*) FROM student_exams WHERE is_paid = 1)"
+                + " + (SELECT COUNT(*) FROM student_exams_archive WHERE is_paid = 1)";
         try (var ps = conn.prepareStatement(sql); var rs = ps.executeQuery()) {
             return rs.next() ? rs.getInt(1) : 0;
         }
@@ -433,9 +493,10 @@ public class AdminDashboard extends JFrame {
     }
 
     private int getCompletedExams(java.sql.Connection conn) throws Exception {
+        // Recent past sessions are still hot; older ones are only counted by the archive job
         String sql = "SELECT COUNT(*) FROM exam_schedules WHERE scheduled_date < CURDATE()";
         try (var ps = conn.prepareStatement(sql); var rs = ps.executeQuery()) {
-            return rs.next() ? rs.getInt(1) : 0;
+            return (rs.next() ? rs.getInt(1) : 0) + ScheduleArchiveJob.archivedSessionCount(conn);
         }
     }
 
@@ -616,7 +677,7 @@ public class AdminDashboard extends JFrame {
             }
         };
 
-        JTable studentsTable = new JTable(model);
+        studentsTable = new JTable(model);
         styleTable(studentsTable);
 
         // Set specific column widths
@@ -660,14 +721,29 @@ public class AdminDashboard extends JFrame {
         buttonPanel.setBackground(LIGHT_COLOR);
 
         JButton addScheduleBtn = createStyledButton("➕ Add Schedule", SUCCESS_COLOR);
+        JButton bulkAddBtn = createStyledButton("🗓️ Bulk Add", SUCCESS_COLOR);
         JButton refreshBtn = createStyledButton("🔄 Refresh", ACCENT_COLOR);
 
+        JButton provisionBtn = createStyledButton("📦 Provision Sessions", PRIMARY_COLOR);
+
         addScheduleBtn.addActionListener(e -> showAddScheduleDialog());
+        bulkAddBtn.addActionListener(e -> showBulkScheduleDialog());
         refreshBtn.addActionListener(e -> loadScheduleData());
+        provisionBtn.addActionListener(e -> provisionSessions(provisionBtn));
+
+        includeArchivedBox = new JCheckBox("📜 Include archived");
+        includeArchivedBox.setBackground(LIGHT_COLOR);
+        includeArchivedBox.addActionListener(e -> loadScheduleData());
 
         buttonPanel.add(addScheduleBtn);
         buttonPanel.add(Box.createHorizontalStrut(10));
+        buttonPanel.add(bulkAddBtn);
+        buttonPanel.add(Box.createHorizontalStrut(10));
+        buttonPanel.add(provisionBtn);
+        buttonPanel.add(Box.createHorizontalStrut(10));
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(Box.createHorizontalStrut(10));
+        buttonPanel.add(includeArchivedBox);
 
         headerPanel.add(titleLabel, BorderLayout.WEST);
         headerPanel.add(buttonPanel, BorderLayout.EAST);
@@ -678,11 +754,12 @@ public class AdminDashboard extends JFrame {
         DefaultTableModel tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
-                return column == 8; // Only actions column is editable
+                // Only actions column is editable; archived sessions are read-only
+                return column == 8 && !"Archived".equals(getValueAt(row, 7));
             }
         };
 
-        JTable schedulesTable = new JTable(tableModel);
+        schedulesTable = new JTable(tableModel);
         styleTable(schedulesTable);
 
         // Add action buttons to table
@@ -696,14 +773,80 @@ public class AdminDashboard extends JFrame {
         panel.add(headerPanel, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
 
-        // Load initial data
-        loadScheduleData();
+        // Data is loaded by loadSchedulesPanel() each time the card is shown
 
         return panel;
     }
 
     private JPanel createFinancePanel() {
-        return createGenericPanel("💰 Financial Reports", "Track payments and generate financial reports");
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBackground(LIGHT_COLOR);
+        panel.setBorder(new EmptyBorder(20, 20, 20, 20));
+
+        // Header
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.setBackground(LIGHT_COLOR);
+        headerPanel.setBorder(new EmptyBorder(0, 0, 20, 0));
+
+        JLabel titleLabel = new JLabel("💰 Financial Reports");
+        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 28));
+        titleLabel.setForeground(PRIMARY_COLOR);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.setBackground(LIGHT_COLOR);
+
+        financeRangeBox = new JComboBox<>(new String[] { "Last 7 days", "Last 30 days", "This month",
+                "Last 12 months" });
+        JButton refreshBtn = createStyledButton("🔄 Refresh", ACCENT_COLOR);
+        JButton reconcileBtn = createStyledButton("🧾 Reconcile Statement", SUCCESS_COLOR);
+
+        financeRangeBox.addActionListener(e -> loadFinancePanel());
+        refreshBtn.addActionListener(e -> loadFinancePanel());
+        reconcileBtn.addActionListener(e -> reconcileStatement(reconcileBtn));
+
+        buttonPanel.add(financeRangeBox);
+        buttonPanel.add(Box.createHorizontalStrut(10));
+        buttonPanel.add(reconcileBtn);
+        buttonPanel.add(Box.createHorizontalStrut(10));
+        buttonPanel.add(refreshBtn);
+
+        headerPanel.add(titleLabel, BorderLayout.WEST);
+        headerPanel.add(buttonPanel, BorderLayout.EAST);
+
+        financeDayTable = createReportTable("Date", "Cash-Ins (₱)", "Cash-Ins", "Exam Fees (₱)", "Enrollments");
+        financeMethodTable = createReportTable("Payment Method", "Amount (₱)", "Transactions");
+        financeExamTable = createReportTable("Exam", "Fees (₱)", "Enrollments");
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("📅 By Day", reportScrollPane(financeDayTable));
+        tabs.addTab("💳 By Method", reportScrollPane(financeMethodTable));
+        tabs.addTab("📝 By Exam", reportScrollPane(financeExamTable));
+
+        panel.add(headerPanel, BorderLayout.NORTH);
+        panel.add(tabs, BorderLayout.CENTER);
+
+        // Data is loaded by loadFinancePanel() each time the card is shown
+
+        return panel;
+    }
+
+    private JTable createReportTable(String... columnNames) {
+        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(model);
+        styleTable(table);
+        return table;
+    }
+
+    private JScrollPane reportScrollPane(JTable table) {
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(new LineBorder(new Color(220, 220, 220), 1));
+        scrollPane.getViewport().setBackground(Color.WHITE);
+        return scrollPane;
     }
 
     private JPanel createSettingsPanel() {
@@ -758,17 +901,24 @@ public class AdminDashboard extends JFrame {
     // Replace the current loadDashboard() method with this one:
 
     private void loadDashboard() {
-        // Load actual statistics from database
-        SwingUtilities.invokeLater(() -> {
-            JPanel statsPanel = (JPanel) ((JPanel) contentPanel.getComponent(0)).getComponent(1);
-            statsPanel.removeAll();
-
-            // Load real data from database
-            loadDashboardStats(statsPanel);
+        // Query statistics in the background so the window paints immediately
+        new SwingWorker<DashboardStats, Void>() {
+            @Override
+            protected DashboardStats doInBackground() throws Exception {
+                return queryDashboardStats();
+            }
 
-            statsPanel.revalidate();
-            statsPanel.repaint();
-        });
+            @Override
+            protected void done() {
+                DashboardStats stats = null;
+                try {
+                    stats = get();
+                } catch (Exception e) {
+                    LOG.error("Error loading dashboard stats: {}", e.getMessage(), e);
+                }
+                renderDashboardStats(dashboardStatsPanel, stats);
+            }
+        }.execute();
     }
 
     private void loadExamsPanel() {
@@ -785,7 +935,11 @@ public class AdminDashboard extends JFrame {
 
     private void loadSchedulesPanel() {
         cardLayout.show(contentPanel, "schedules");
-        loadScheduleData(); // Load fresh data when panel is shown
+        // Full load on first visit only; afterwards rows are kept current by
+        // applyChanges and the Refresh button
+        if (!schedulesLoaded) {
+            loadScheduleData();
+        }
     }
 
     // Schedule Management Methods
@@ -794,47 +948,225 @@ public class AdminDashboard extends JFrame {
             DefaultTableModel model = (DefaultTableModel) getScheduleTable().getModel();
             model.setRowCount(0); // Clear existing data
 
-            String sql = "SELECT es.id, e.exam_name, r.room_name, es.scheduled_date, " +
-                    "es.scheduled_time, es.capacity, " +
-                    "(SELECT COUNT(*) FROM student_exams se WHERE se.exam_schedule_id = es.id) AS enrolled, " +
-                    "CASE WHEN es.scheduled_date < CURDATE() THEN 'Completed' " +
-                    "     WHEN es.scheduled_date = CURDATE() AND es.scheduled_time <= CURTIME() THEN 'In Progress' " +
-                    "     ELSE 'Scheduled' END AS status " +
-                    "FROM exam_schedules es " +
-                    "JOIN exams e ON es.exam_id = e.id " +
-                    "JOIN rooms r ON es.room_id = r.id " +
-                    "ORDER BY es.scheduled_date, es.scheduled_time";
-
-            try (java.sql.Connection conn = DatabaseConnection.getConnection();
+            // Archived sessions only when asked for; the hot table holds the retention window
+            String sql = includeArchivedBox.isSelected()
+                    ? SCHEDULE_SQL + "UNION ALL " + ARCHIVED_SCHEDULE_SQL + "ORDER BY scheduled_date, scheduled_time"
+                    : SCHEDULE_SQL + "ORDER BY es.scheduled_date, es.scheduled_time";
+
+            try (java.sql.Connection conn = DatabaseConnection.getReadConnection();
                     java.sql.PreparedStatement ps = conn.prepareStatement(sql);
                     java.sql.ResultSet rs = ps.executeQuery()) {
 
                 while (rs.next()) {
-                    Object[] row = {
-                            rs.getInt("id"),
-                            rs.getString("exam_name"),
-                            rs.getString("room_name"),
-                            rs.getDate("scheduled_date"),
-                            rs.getTime("scheduled_time"),
-                            rs.getInt("capacity"),
-                            rs.getInt("enrolled"),
-                            rs.getString("status"),
-                            "Actions" // Placeholder for action buttons
-                    };
-                    model.addRow(row);
+                    model.addRow(toScheduleRow(rs));
                 }
             }
+            schedulesLoaded = true;
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Error loading schedule data: " + e.getMessage(),
                     "Database Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    private Object[] toScheduleRow(ResultSet rs) throws SQLException {
+        return new Object[] {
+                rs.getInt("id"),
+                rs.getString("exam_name"),
+                rs.getString("room_name"),
+                rs.getDate("scheduled_date"),
+                rs.getTime("scheduled_time"),
+                rs.getInt("capacity"),
+                rs.getInt("enrolled"),
+                rs.getString("status"),
+                "Actions" // Placeholder for action buttons
+        };
+    }
+
+    // Forecast-driven session creation; new rows arrive through ScheduleCreated events
+    private void provisionSessions(JButton button) {
+        button.setEnabled(false);
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws SQLException {
+                return ProvisioningService.provision();
+            }
+
+            @Override
+            protected void done() {
+                button.setEnabled(true);
+                try {
+                    JOptionPane.showMessageDialog(AdminDashboard.this,
+                            "📦 " + get() + " session(s) created for forecast demand.",
+                            "Provisioning", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    LOG.error("Provisioning failed", cause);
+                    JOptionPane.showMessageDialog(AdminDashboard.this,
+                            "❌ Provisioning failed: " + cause.getMessage(),
+                            "Provisioning", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    // ---- Incremental updates from EventBus ----
+
+    /**
+     * Applies a batch of change events to whichever tables have been built,
+     * touching only the affected rows. The rows are reloaded off the EDT.
+     */
+    private void applyChanges(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (event instanceof DomainEvent.ScheduleCreated sc) {
+                dirtySchedules.add(sc.scheduleId());
+            } else if (event instanceof DomainEvent.ScheduleChanged sc) {
+                dirtySchedules.add(sc.scheduleId());
+            } else if (event instanceof DomainEvent.ScheduleDeleted sd) {
+                // Reloading finds nothing and drops the row, in order with any refresh in flight
+                dirtySchedules.add(sd.scheduleId());
+            } else if (event instanceof DomainEvent.EnrollmentCreated ec) {
+                dirtySchedules.add(ec.examScheduleId());
+                dirtyStudents.add(ec.studentId());
+            } else if (event instanceof DomainEvent.EnrollmentCancelled ec) {
+                dirtySchedules.add(ec.examScheduleId());
+                dirtyStudents.add(ec.studentId());
+            } else if (event instanceof DomainEvent.StudentChanged sc) {
+                dirtyStudents.add(sc.studentId());
+            } else if (event instanceof DomainEvent.BalanceChanged bc) {
+                dirtyStudents.add(bc.studentId());
+            }
+        }
+        refreshDirtyRows();
+    }
+
+    // Rows reloaded in the background; null values are rows that no longer exist
+    private record RowUpdates(Map<Integer, Object[]> schedules, Map<Integer, Object[]> students) {
+    }
+
+    /**
+     * Reloads the dirty rows in a SwingWorker and applies them on the EDT. One
+     * refresh runs at a time, so a later change is never overwritten by an
+     * earlier load; ids dirtied meanwhile go in the next one.
+     */
+    private void refreshDirtyRows() {
+        if (rowRefreshRunning)
+            return;
+        Set<Integer> schedules = schedulesTable != null && schedulesLoaded ? new HashSet<>(dirtySchedules)
+                : Set.of();
+        Set<Integer> students = studentsTable != null ? new HashSet<>(dirtyStudents) : Set.of();
+        // Tables not built yet get these changes from their full load
+        dirtySchedules.clear();
+        dirtyStudents.clear();
+        if (schedules.isEmpty() && students.isEmpty())
+            return;
+        rowRefreshRunning = true;
+        new SwingWorker<RowUpdates, Void>() {
+            @Override
+            protected RowUpdates doInBackground() throws Exception {
+                return new RowUpdates(loadScheduleRows(schedules), loadStudentRows(students));
+            }
+
+            @Override
+            protected void done() {
+                rowRefreshRunning = false;
+                try {
+                    RowUpdates updates = get();
+                    updates.schedules().forEach(AdminDashboard.this::applyScheduleRow);
+                    updates.students().forEach(AdminDashboard.this::applyStudentRow);
+                } catch (Exception e) {
+                    LOG.error("Error refreshing changed rows", e);
+                }
+                refreshDirtyRows();
+            }
+        }.execute();
+    }
+
+    private Map<Integer, Object[]> loadScheduleRows(Set<Integer> scheduleIds) throws SQLException {
+        Map<Integer, Object[]> rows = new HashMap<>();
+        if (scheduleIds.isEmpty())
+            return rows;
+        scheduleIds.forEach(id -> rows.put(id, null));
+        String placeholders = String.join(",", Collections.nCopies(scheduleIds.size(), "?"));
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SCHEDULE_SQL + "WHERE es.id IN (" + placeholders + ")")) {
+            int i = 1;
+            for (int id : scheduleIds)
+                ps.setInt(i++, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(rs.getInt("id"), toScheduleRow(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private Map<Integer, Object[]> loadStudentRows(Set<Integer> studentIds) {
+        Map<Integer, Object[]> rows = new HashMap<>();
+        for (int studentId : studentIds) {
+            Student student = studentDAO.getStudentById(studentId);
+            rows.put(studentId, student == null ? null
+                    : toStudentRow(student, getStudentEnrollmentCount(studentId)));
+        }
+        return rows;
+    }
+
+    private void applyScheduleRow(int scheduleId, Object[] values) {
+        DefaultTableModel model = (DefaultTableModel) schedulesTable.getModel();
+        int row = findRowById(schedulesTable, scheduleId);
+        if (values == null) {
+            if (row >= 0)
+                model.removeRow(row);
+            return;
+        }
+        if (row >= 0) {
+            for (int col = 1; col < values.length - 1; col++) {
+                model.setValueAt(values[col], row, col);
+            }
+        } else {
+            // Keep date/time order of the full load
+            String key = values[3] + " " + values[4];
+            int pos = 0;
+            while (pos < model.getRowCount()
+                    && (model.getValueAt(pos, 3) + " " + model.getValueAt(pos, 4)).compareTo(key) <= 0) {
+                pos++;
+            }
+            model.insertRow(pos, values);
+        }
+    }
+
+    private void applyStudentRow(int studentId, Object[] values) {
+        DefaultTableModel model = (DefaultTableModel) studentsTable.getModel();
+        int row = findRowById(studentsTable, studentId);
+        if (values == null) {
+            if (row >= 0)
+                model.removeRow(row);
+            return;
+        }
+        if (row >= 0) {
+            for (int col = 1; col < values.length - 1; col++) {
+                model.setValueAt(values[col], row, col);
+            }
+        } else {
+            // Students are listed by id, so new ones go to the end
+            model.addRow(values);
+        }
+    }
+
+    private static int findRowById(JTable table, int id) {
+        if (table == null)
+            return -1;
+        TableModel model = table.getModel();
+        for (int i = 0; i < model.getRowCount(); i++) {
+            if (Integer.valueOf(id).equals(model.getValueAt(i, 0)))
+                return i;
+        }
+        return -1;
+    }
+
     private JTable getScheduleTable() {
-        // Find the schedules table in the schedules panel
-        JPanel schedulesPanel = (JPanel) contentPanel.getComponent(4); // schedules is 5th component
-        JScrollPane scrollPane = (JScrollPane) schedulesPanel.getComponent(1);
-        return (JTable) scrollPane.getViewport().getView();
+        ensureCard("schedules");
+        return schedulesTable;
     }
 
     private void showAddScheduleDialog() {
@@ -902,7 +1234,6 @@ public class AdminDashboard extends JFrame {
             try {
                 saveNewSchedule(examCombo, roomCombo, dateField, timeField, capacitySpinner);
                 dialog.dispose();
-                loadScheduleData(); // Refresh the table
                 JOptionPane.showMessageDialog(this, "Schedule created successfully!",
                         "Success", JOptionPane.INFORMATION_MESSAGE);
             } catch (Exception ex) {
@@ -921,10 +1252,189 @@ public class AdminDashboard extends JFrame {
         dialog.setVisible(true);
     }
 
+    // Recurring pattern: each selected weekday between the dates, in each room, at each time
+    private void showBulkScheduleDialog() {
+        JDialog dialog = new JDialog(this, "Bulk Add Exam Sessions", true);
+        dialog.setSize(620, 640);
+        dialog.setLocationRelativeTo(this);
+        dialog.setLayout(new BorderLayout());
+
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBorder(new EmptyBorder(20, 20, 10, 20));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(6, 10, 6, 10);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        formPanel.add(new JLabel("Exam:"), gbc);
+        JComboBox<String> examCombo = new JComboBox<>();
+        loadExamCombo(examCombo);
+        gbc.gridx = 1;
+        formPanel.add(examCombo, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.anchor = GridBagConstraints.NORTHWEST;
+        formPanel.add(new JLabel("Rooms:"), gbc);
+        JComboBox<String> roomSource = new JComboBox<>();
+        loadRoomCombo(roomSource);
+        DefaultListModel<String> roomModel = new DefaultListModel<>();
+        for (int i = 0; i < roomSource.getItemCount(); i++)
+            roomModel.addElement(roomSource.getItemAt(i));
+        JList<String> roomList = new JList<>(roomModel);
+        roomList.setVisibleRowCount(5);
+        gbc.gridx = 1;
+        formPanel.add(new JScrollPane(roomList), gbc);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        formPanel.add(new JLabel("From (YYYY-MM-DD):"), gbc);
+        JTextField fromField = new JTextField(java.time.LocalDate.now().plusDays(1).toString(), 15);
+        gbc.gridx = 1;
+        formPanel.add(fromField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        formPanel.add(new JLabel("To (YYYY-MM-DD):"), gbc);
+        JTextField toField = new JTextField(java.time.LocalDate.now().plusDays(14).toString(), 15);
+        gbc.gridx = 1;
+        formPanel.add(toField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        formPanel.add(new JLabel("Days:"), gbc);
+        JPanel daysPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 2, 0));
+        java.util.Map<java.time.DayOfWeek, JCheckBox> dayBoxes = new java.util.EnumMap<>(java.time.DayOfWeek.class);
+        for (java.time.DayOfWeek day : java.time.DayOfWeek.values()) {
+            JCheckBox box = new JCheckBox(day.getDisplayName(java.time.format.TextStyle.SHORT, java.util.Locale.ENGLISH),
+                    day.getValue() <= 5);
+            dayBoxes.put(day, box);
+            daysPanel.add(box);
+        }
+        gbc.gridx = 1;
+        formPanel.add(daysPanel, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        formPanel.add(new JLabel("Times (HH:MM, comma separated):"), gbc);
+        JTextField timesField = new JTextField("09:00, 13:00", 15);
+        gbc.gridx = 1;
+        formPanel.add(timesField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 6;
+        formPanel.add(new JLabel("Capacity (0 = room size):"), gbc);
+        JSpinner capacitySpinner = new JSpinner(new SpinnerNumberModel(0, 0, 500, 1));
+        gbc.gridx = 1;
+        formPanel.add(capacitySpinner, gbc);
+
+        JTextArea reportArea = new JTextArea(8, 50);
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JScrollPane reportScroll = new JScrollPane(reportArea);
+        reportScroll.setBorder(new EmptyBorder(0, 20, 0, 20));
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        JButton checkBtn = createStyledButton("🔍 Check", ACCENT_COLOR);
+        JButton createBtn = createStyledButton("💾 Create", SUCCESS_COLOR);
+        JButton cancelBtn = createStyledButton("❌ Cancel", DANGER_COLOR);
+
+        java.util.function.Supplier<List<ScheduleAuthoringService.Proposal>> proposals = () -> {
+            String examSelection = (String) examCombo.getSelectedItem();
+            if (examSelection == null)
+                throw new IllegalArgumentException("Select an exam");
+            List<Integer> roomIds = new java.util.ArrayList<>();
+            for (String room : roomList.getSelectedValuesList())
+                roomIds.add(Integer.parseInt(room.split(" - ")[0]));
+            if (roomIds.isEmpty())
+                throw new IllegalArgumentException("Select at least one room");
+            Set<java.time.DayOfWeek> days = java.util.EnumSet.noneOf(java.time.DayOfWeek.class);
+            dayBoxes.forEach((day, box) -> {
+                if (box.isSelected())
+                    days.add(day);
+            });
+            List<java.time.LocalTime> starts = new java.util.ArrayList<>();
+            for (String t : timesField.getText().split(",")) {
+                if (!t.isBlank())
+                    starts.add(java.time.LocalTime.parse(t.trim()));
+            }
+            return ScheduleAuthoringService.pattern(Integer.parseInt(examSelection.split(" - ")[0]), roomIds,
+                    java.time.LocalDate.parse(fromField.getText().trim()),
+                    java.time.LocalDate.parse(toField.getText().trim()), days, starts,
+                    (Integer) capacitySpinner.getValue());
+        };
+
+        java.util.function.Consumer<Boolean> run = create -> {
+            List<ScheduleAuthoringService.Proposal> batch;
+            try {
+                batch = proposals.get();
+            } catch (RuntimeException ex) {
+                reportArea.setText("⚠️ " + ex.getMessage());
+                return;
+            }
+            if (batch.isEmpty()) {
+                reportArea.setText("⚠️ The pattern produces no sessions");
+                return;
+            }
+            checkBtn.setEnabled(false);
+            createBtn.setEnabled(false);
+            reportArea.setText((create ? "Creating " : "Checking ") + batch.size() + " session(s)…");
+            new SwingWorker<ScheduleAuthoringService.Result, Void>() {
+                @Override
+                protected ScheduleAuthoringService.Result doInBackground() throws Exception {
+                    return create ? ScheduleAuthoringService.create(batch)
+                            : ScheduleAuthoringService.validate(batch);
+                }
+
+                @Override
+                protected void done() {
+                    checkBtn.setEnabled(true);
+                    createBtn.setEnabled(true);
+                    try {
+                        ScheduleAuthoringService.Result result = get();
+                        StringBuilder sb = new StringBuilder();
+                        int ok = batch.size() - result.conflicts().size();
+                        sb.append(create ? "✅ Created " + result.createdIds().size() : "✅ " + ok + " can be created")
+                                .append(" of ").append(batch.size()).append(" session(s), ")
+                                .append(result.conflicts().size()).append(" conflict(s)\n");
+                        for (ScheduleAuthoringService.Conflict c : result.conflicts()) {
+                            ScheduleAuthoringService.Proposal p = c.proposal();
+                            sb.append("❌ room ").append(p.roomId()).append(' ').append(p.date()).append(' ')
+                                    .append(p.start()).append(": ").append(c.reason()).append('\n');
+                        }
+                        reportArea.setText(sb.toString());
+                        reportArea.setCaretPosition(0);
+                    } catch (Exception ex) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        reportArea.setText("❌ " + cause.getMessage());
+                    }
+                }
+            }.execute();
+        };
+
+        checkBtn.addActionListener(e -> run.accept(false));
+        createBtn.addActionListener(e -> run.accept(true));
+        cancelBtn.addActionListener(e -> dialog.dispose());
+
+        buttonPanel.add(checkBtn);
+        buttonPanel.add(createBtn);
+        buttonPanel.add(cancelBtn);
+
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(reportScroll, BorderLayout.CENTER);
+        south.add(buttonPanel, BorderLayout.SOUTH);
+
+        dialog.add(formPanel, BorderLayout.CENTER);
+        dialog.add(south, BorderLayout.SOUTH);
+        dialog.setVisible(true);
+    }
+
     private void loadExamCombo(JComboBox<String> combo) {
         try {
             String sql = "SELECT id, exam_name FROM exams ORDER BY exam_name";
-            try (java.sql.Connection conn = DatabaseConnection.getConnection();
+            try (java.sql.Connection conn = DatabaseConnection.getReadConnection();
                     java.sql.PreparedStatement ps = conn.prepareStatement(sql);
                     java.sql.ResultSet rs = ps.executeQuery()) {
 
@@ -940,7 +1450,7 @@ public class AdminDashboard extends JFrame {
     private void loadRoomCombo(JComboBox<String> combo) {
         try {
             String sql = "SELECT id, room_name, capacity FROM rooms ORDER BY room_name";
-            try (java.sql.Connection conn = DatabaseConnection.getConnection();
+            try (java.sql.Connection conn = DatabaseConnection.getReadConnection();
                     java.sql.PreparedStatement ps = conn.prepareStatement(sql);
                     java.sql.ResultSet rs = ps.executeQuery()) {
 
@@ -964,20 +1474,15 @@ public class AdminDashboard extends JFrame {
         int examId = Integer.parseInt(examSelection.split(" - ")[0]);
         int roomId = Integer.parseInt(roomSelection.split(" - ")[0]);
 
-        String sql = "INSERT INTO exam_schedules (exam_id, room_id, scheduled_date, scheduled_time, capacity) " +
-                "VALUES (?, ?, ?, ?, ?)";
-
-        try (java.sql.Connection conn = DatabaseConnection.getConnection();
-                java.sql.PreparedStatement ps = conn.prepareStatement(sql)) {
+        java.time.LocalDate date = java.sql.Date.valueOf(dateField.getText()).toLocalDate();
+        java.time.LocalTime time = java.sql.Time.valueOf(timeField.getText() + ":00").toLocalTime();
 
-            ps.setInt(1, examId);
-            ps.setInt(2, roomId);
-            ps.setDate(3, java.sql.Date.valueOf(dateField.getText()));
-            ps.setTime(4, java.sql.Time.valueOf(timeField.getText() + ":00"));
-            ps.setInt(5, (Integer) capacitySpinner.getValue());
-
-            ps.executeUpdate();
-        }
+        // Same validation as bulk authoring: room bookings, room size, lock order
+        ScheduleAuthoringService.Result result = ScheduleAuthoringService.create(List.of(
+                new ScheduleAuthoringService.Proposal(examId, roomId, date, time,
+                        (Integer) capacitySpinner.getValue())));
+        if (!result.conflicts().isEmpty())
+            throw new Exception(result.conflicts().get(0).reason());
     }
 
     private void styleTable(JTable table) {
@@ -995,8 +1500,104 @@ public class AdminDashboard extends JFrame {
         header.setBorder(new LineBorder(PRIMARY_COLOR));
     }
 
+    private record FinanceReport(List<RevenueRollups.DayRevenue> days, List<RevenueRollups.MethodRevenue> methods,
+            List<RevenueRollups.ExamRevenue> exams) {
+    }
+
+    // Reads the revenue rollups, never the payments table, off the EDT
     private void loadFinancePanel() {
-        // Implementation for financial reports
+        ensureCard("finance");
+        java.time.LocalDate today = java.time.LocalDate.now();
+        java.time.LocalDate from = switch (financeRangeBox.getSelectedIndex()) {
+            case 0 -> today.minusDays(6);
+            case 1 -> today.minusDays(29);
+            case 2 -> today.withDayOfMonth(1);
+            default -> today.minusMonths(11).withDayOfMonth(1);
+        };
+        // Whole months read the monthly rollup
+        java.time.LocalDate to = financeRangeBox.getSelectedIndex() >= 2
+                ? java.time.YearMonth.from(today).atEndOfMonth()
+                : today;
+        new SwingWorker<FinanceReport, Void>() {
+            @Override
+            protected FinanceReport doInBackground() throws Exception {
+                return new FinanceReport(RevenueRollups.byDay(from, to), RevenueRollups.byMethod(from, to),
+                        RevenueRollups.byExam(from, to));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    FinanceReport report = get();
+                    DefaultTableModel dayModel = (DefaultTableModel) financeDayTable.getModel();
+                    dayModel.setRowCount(0);
+                    for (RevenueRollups.DayRevenue d : report.days()) {
+                        dayModel.addRow(new Object[] { d.day(), String.format("%,.2f", d.cashIn()), d.cashInCount(),
+                                String.format("%,.2f", d.charges()), d.chargeCount() });
+                    }
+                    DefaultTableModel methodModel = (DefaultTableModel) financeMethodTable.getModel();
+                    methodModel.setRowCount(0);
+                    for (RevenueRollups.MethodRevenue m : report.methods()) {
+                        methodModel.addRow(new Object[] { m.method(), String.format("%,.2f", m.amount()), m.count() });
+                    }
+                    DefaultTableModel examModel = (DefaultTableModel) financeExamTable.getModel();
+                    examModel.setRowCount(0);
+                    for (RevenueRollups.ExamRevenue x : report.exams()) {
+                        String name = x.examName() != null ? x.examName() : "Exam #" + x.examId();
+                        examModel.addRow(new Object[] { name, String.format("%,.2f", x.amount()), x.count() });
+                    }
+                } catch (Exception e) {
+                    LOG.error("Error loading finance reports", e);
+                    JOptionPane.showMessageDialog(AdminDashboard.this,
+                            "Error loading financial reports: " + e.getMessage(), "Database Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    // Matches a bank/e-wallet statement CSV against recorded payments; flagged
+    // lines go to a report file next to the statement
+    private void reconcileStatement(JButton button) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Select statement (CSV)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        String method = (String) JOptionPane.showInputDialog(this, "Payment method of this statement:",
+                "Reconcile Statement", JOptionPane.QUESTION_MESSAGE, null,
+                PaymentService.METHODS.toArray(), PaymentService.METHODS.get(0));
+        if (method == null) {
+            return;
+        }
+        java.nio.file.Path statement = chooser.getSelectedFile().toPath();
+        java.nio.file.Path reportFile = statement.resolveSibling(
+                statement.getFileName().toString().replaceFirst("\\.[^.]*$", "") + "-reconciliation.csv");
+        button.setEnabled(false);
+        new SwingWorker<PaymentReconciler.Report, Void>() {
+            @Override
+            protected PaymentReconciler.Report doInBackground() throws Exception {
+                PaymentReconciler.Report report = PaymentReconciler.reconcile(method, statement);
+                PaymentReconciler.writeReport(report, reportFile);
+                return report;
+            }
+
+            @Override
+            protected void done() {
+                button.setEnabled(true);
+                try {
+                    PaymentReconciler.Report report = get();
+                    JOptionPane.showMessageDialog(AdminDashboard.this,
+                            "🧾 " + report.summary() + "\n\nReport: " + reportFile,
+                            "Reconciliation", report.flagged().isEmpty() ? JOptionPane.INFORMATION_MESSAGE
+                                    : JOptionPane.WARNING_MESSAGE);
+                } catch (Exception ex) {
+                    LOG.error("Reconciliation failed", ex);
+                    JOptionPane.showMessageDialog(AdminDashboard.this,
+                            "Error reconciling statement: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 
     private void loadSettingsPanel() {
@@ -1104,7 +1705,6 @@ public class AdminDashboard extends JFrame {
             if (confirm == JOptionPane.YES_OPTION) {
                 try {
                     deleteScheduleFromDB(scheduleId);
-                    loadScheduleData(); // Refresh table
                     JOptionPane.showMessageDialog(AdminDashboard.this,
                             "Schedule deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 } catch (Exception ex) {
@@ -1124,11 +1724,40 @@ public class AdminDashboard extends JFrame {
     }
 
     private void deleteScheduleFromDB(int scheduleId) throws Exception {
-        String sql = "DELETE FROM exam_schedules WHERE id = ?";
-        try (java.sql.Connection conn = DatabaseConnection.getConnection();
-                java.sql.PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, scheduleId);
-            ps.executeUpdate();
+        try (java.sql.Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // The delete cascades to the session's enrollments: announce each,
+                // so those students' timetables and summaries are refreshed
+                List<DomainEvent> events = new java.util.ArrayList<>();
+                try (java.sql.PreparedStatement ps = conn.prepareStatement(
+                        "SELECT id, student_id FROM student_exams WHERE exam_schedule_id = ? FOR UPDATE")) {
+                    ps.setInt(1, scheduleId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next())
+                            events.add(new DomainEvent.EnrollmentCancelled(rs.getInt("student_id"), rs.getInt("id"),
+                                    scheduleId));
+                    }
+                }
+                try (java.sql.PreparedStatement ps = conn.prepareStatement("DELETE FROM exam_schedules WHERE id = ?")) {
+                    ps.setInt(1, scheduleId);
+                    if (ps.executeUpdate() > 0)
+                        events.add(new DomainEvent.ScheduleDeleted(scheduleId));
+                    else
+                        events.clear();
+                }
+                for (DomainEvent event : events) {
+                    ChangeLog.publish(conn, event);
+                }
+                conn.commit();
+                EventBus.afterCommit(conn);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
@@ -1138,44 +1767,14 @@ public class AdminDashboard extends JFrame {
             try {
                 List<Student> students = studentDAO.getAllStudents();
 
-                // Find the students table
-                JPanel studentsPanel = null;
-                for (Component comp : contentPanel.getComponents()) {
-                    if (comp instanceof JPanel) {
-                        JPanel panel = (JPanel) comp;
-                        if (panel.getComponentCount() > 0 &&
-                                panel.getComponent(0) instanceof JPanel) {
-                            JPanel headerPanel = (JPanel) panel.getComponent(0);
-                            if (headerPanel.getComponentCount() > 0 &&
-                                    headerPanel.getComponent(0) instanceof JLabel) {
-                                JLabel titleLabel = (JLabel) headerPanel.getComponent(0);
-                                if ("👥 Student Management".equals(titleLabel.getText())) {
-                                    studentsPanel = panel;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                }
-
-                if (studentsPanel != null && studentsPanel.getComponentCount() > 1) {
-                    JScrollPane scrollPane = (JScrollPane) studentsPanel.getComponent(1);
-                    JTable studentsTable = (JTable) scrollPane.getViewport().getView();
+                if (studentsTable != null) {
                     DefaultTableModel model = (DefaultTableModel) studentsTable.getModel();
 
                     model.setRowCount(0);
 
                     for (Student student : students) {
                         int enrollmentCount = getStudentEnrollmentCount(student.getId());
-                        model.addRow(new Object[] {
-                                student.getId(),
-                                student.getName(),
-                                student.getEmail(),
-                                student.getCourse(),
-                                String.format("₱%.2f", student.getBalance()),
-                                enrollmentCount,
-                                "Actions"
-                        });
+                        model.addRow(toStudentRow(student, enrollmentCount));
                     }
                 }
             } catch (Exception e) {
@@ -1185,9 +1784,21 @@ public class AdminDashboard extends JFrame {
         });
     }
 
+    private Object[] toStudentRow(Student student, int enrollmentCount) {
+        return new Object[] {
+                student.getId(),
+                student.getName(),
+                student.getEmail(),
+                student.getCourse(),
+                String.format("₱%.2f", student.getBalance()),
+                enrollmentCount,
+                "Actions"
+        };
+    }
+
     private int getStudentEnrollmentCount(int studentId) {
         String query = "SELECT COUNT(*) FROM student_exams WHERE student_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
                 PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setInt(1, studentId);
@@ -1197,7 +1808,7 @@ public class AdminDashboard extends JFrame {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error counting student enrollments", e);
         }
         return 0;
     }
@@ -1311,7 +1922,6 @@ public class AdminDashboard extends JFrame {
                     JOptionPane.showMessageDialog(dialog, "Student added successfully!",
                             "Success", JOptionPane.INFORMATION_MESSAGE);
                     dialog.dispose();
-                    loadStudentData();
                 } else {
                     JOptionPane.showMessageDialog(dialog, "Failed to add student",
                             "Error", JOptionPane.ERROR_MESSAGE);
@@ -1440,7 +2050,6 @@ public class AdminDashboard extends JFrame {
                         JOptionPane.showMessageDialog(dialog, "Student updated successfully!",
                                 "Success", JOptionPane.INFORMATION_MESSAGE);
                         dialog.dispose();
-                        loadStudentData();
                     } else {
                         JOptionPane.showMessageDialog(dialog, "Failed to update student",
                                 "Error", JOptionPane.ERROR_MESSAGE);
@@ -1481,7 +2090,6 @@ public class AdminDashboard extends JFrame {
                 if (studentDAO.deleteStudent(studentId)) {
                     JOptionPane.showMessageDialog(this, "Student deleted successfully!",
                             "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadStudentData();
                 } else {
                     JOptionPane.showMessageDialog(this, "Failed to delete student",
                             "Error", JOptionPane.ERROR_MESSAGE);
@@ -0,0 +1,62 @@
+package views;
+
+import dao.DomainEvent;
+import dao.EventBus;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Bridges {@link EventBus} to a Swing view. Events arriving from any thread are
+ * queued and handed to the view on the EDT as one de-duplicated batch per
+ * event-loop turn, so a burst of changes costs a single table update.
+ */
+class EventCoalescer implements AutoCloseable {
+
+    private final Consumer<List<DomainEvent>> batchHandler;
+    private final List<EventBus.Subscription> subscriptions = new ArrayList<>();
+    private final LinkedHashSet<DomainEvent> pending = new LinkedHashSet<>();
+    private boolean flushScheduled;
+    private volatile boolean closed;
+
+    EventCoalescer(Consumer<List<DomainEvent>> batchHandler) {
+        this.batchHandler = batchHandler;
+    }
+
+    EventCoalescer listen(Class<? extends DomainEvent> type) {
+        subscriptions.add(EventBus.subscribe(type, this::offer));
+        return this;
+    }
+
+    private void offer(DomainEvent event) {
+        synchronized (pending) {
+            // Records compare by value, so repeated identical events collapse here
+            pending.add(event);
+            if (flushScheduled)
+                return;
+            flushScheduled = true;
+        }
+        SwingUtilities.invokeLater(this::flush);
+    }
+
+    private void flush() {
+        List<DomainEvent> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            flushScheduled = false;
+        }
+        if (!closed && !batch.isEmpty()) {
+            batchHandler.accept(batch);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        subscriptions.forEach(EventBus.Subscription::close);
+        subscriptions.clear();
+    }
+}
@@ -1,9 +1,13 @@
 package views;
 
 import dao.DatabaseConnection;
+import dao.DomainEvent;
 import java.awt.*;
 import java.sql.*;
+import dao.Log;
 import dao.SchedulingService;
+import dao.StudentSummary;
+import dao.StudentTimetableCache;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
@@ -14,9 +18,13 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ExamEnrollmentSystem extends JFrame {
 
+    private static final Log LOG = Log.get(ExamEnrollmentSystem.class);
+
     private final int studentId;
     private Connection conn;
 
@@ -48,15 +56,59 @@ public class ExamEnrollmentSystem extends JFrame {
 
     private static final int EXAM_FEE = 300; // Default exam fee
 
+    // Registration id of each row in tblUpcoming, for row-level updates
+    private final List<Integer> upcomingRegIds = new ArrayList<>();
+    private EventCoalescer studentEvents;
+    // Last summary shown; the header and stats cards mirror it
+    private StudentSummary.Summary summary;
+
+    private static final DateTimeFormatter NEXT_EXAM_FORMAT = DateTimeFormatter.ofPattern("MMM d, h:mm a");
+
     public ExamEnrollmentSystem(int studentId) {
+        this(studentId, StudentSummary.prefetch(studentId));
+    }
+
+    /**
+     * Opens the dashboard with data the login screen started loading: the
+     * summary and the upcoming-exam timetable, fetched in parallel.
+     */
+    public ExamEnrollmentSystem(int studentId, StudentSummary.Prefetch prefetch) {
         this.studentId = studentId;
         initializeDb();
         initUI();
-        loadStudentInfo();
-        loadBalance();
-        loadUpcomingExams(); // Load exam data immediately
-        updateStatsCards(); // Update statistics
-        showDashboardView();
+        // The window opens right away; each part fills in on the EDT once its
+        // prefetch is done, never waiting for it here
+        prefetch.summary().whenComplete((s, ex) -> SwingUtilities.invokeLater(() -> {
+            if (ex != null) {
+                LOG.error("Error loading student summary: {}", ex.getMessage(), ex);
+                loadSummary();
+            } else if (summary == null) {
+                // A change event may already have shown a newer one
+                applySummary(s);
+            }
+        }));
+        prefetch.timetable().whenComplete((v, ex) -> SwingUtilities.invokeLater(() -> {
+            if (ex != null) {
+                // loadUpcomingExams loads it on this connection instead
+                LOG.warn("Timetable prefetch failed: {}", ex.getMessage());
+            }
+            loadUpcomingExams();
+        }));
+        cardLayout.show(mainContent, "dashboard");
+        // From here on, enrollment/balance changes arrive as events
+        studentEvents = new EventCoalescer(this::applyStudentChanges)
+                .listen(DomainEvent.EnrollmentCreated.class)
+                .listen(DomainEvent.EnrollmentCancelled.class)
+                .listen(DomainEvent.BalanceChanged.class);
+    }
+
+    @Override
+    public void dispose() {
+        if (studentEvents != null) {
+            studentEvents.close();
+            studentEvents = null;
+        }
+        super.dispose();
     }
 
     private void initializeDb() {
@@ -470,8 +522,9 @@ public class ExamEnrollmentSystem extends JFrame {
 
         JButton refreshBtn = createStyledButton("🔄 Refresh", ACCENT_COLOR);
         refreshBtn.addActionListener(e -> {
+            StudentTimetableCache.invalidate(studentId);
             loadUpcomingExams();
-            updateStatsCards();
+            refreshSummary();
         });
 
         headerPanel.add(titleLabel, BorderLayout.WEST);
@@ -588,129 +641,54 @@ public class ExamEnrollmentSystem extends JFrame {
 
     // =================== LOADERS ===================
 
-    private void loadStudentInfo() {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "SELECT s.name, c.name AS course_name FROM students s LEFT JOIN courses c ON s.course_id=c.id WHERE s.id=?")) {
-            ps.setInt(1, studentId);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                lblName.setText(rs.getString("name"));
-                lblCourse.setText(rs.getString("course_name"));
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
-    }
-
-    private void loadBalance() {
-        try (PreparedStatement ps = conn.prepareStatement("SELECT balance FROM students WHERE id=?")) {
-            ps.setInt(1, studentId);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                lblBalance.setText(String.format("₱%.2f", rs.getDouble("balance")));
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            lblBalance.setText("₱0.00");
-        }
-    }
-
     /**
-     * Updates statistics cards with real data from database
-     * Replaces the old updateExamStatistics method with visual updates
+     * Shows the student's summary (header, balance and stats cards) from
+     * StudentSummary: one keyed lookup instead of a query per label.
      */
-    private void updateStatsCards() {
+    private void loadSummary() {
         try {
-            // Get student's current balance
-            double balance = getStudentBalance();
-
-            // Count exams by status - using final variables for lambda access
-            final int[] counts = new int[3]; // [enrolled, completed, pending]
-
-            // Enhanced query to properly categorize exam statuses
-            String sql = "SELECT " +
-                    "    SUM(CASE WHEN se.status = 'Enrolled' AND es.scheduled_date >= CURDATE() THEN 1 ELSE 0 END) as enrolled, "
-                    +
-                    "    SUM(CASE WHEN se.status = 'Completed' OR es.scheduled_date < CURDATE() THEN 1 ELSE 0 END) as completed, "
-                    +
-                    "    SUM(CASE WHEN se.is_paid = 0 THEN 1 ELSE 0 END) as pending " +
-                    "FROM student_exams se " +
-                    "JOIN exam_schedules es ON se.exam_schedule_id = es.id " +
-                    "WHERE se.student_id = ?";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, studentId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        counts[0] = rs.getInt("enrolled");
-                        counts[1] = rs.getInt("completed");
-                        counts[2] = rs.getInt("pending");
-                    }
-                }
-            }
-
-            // Update the UI labels with real data
-            SwingUtilities.invokeLater(() -> {
-                if (balanceValueLabel != null) {
-                    balanceValueLabel.setText(String.format("₱%.2f", balance));
-                }
-                if (enrolledValueLabel != null) {
-                    enrolledValueLabel.setText(String.valueOf(counts[0]));
-                }
-                if (completedValueLabel != null) {
-                    completedValueLabel.setText(String.valueOf(counts[1]));
-                }
-                if (pendingValueLabel != null) {
-                    pendingValueLabel.setText(String.valueOf(counts[2]));
-                }
-            });
-
-            // Debug output
-            System.out.printf("[REAL STATS] Balance: ₱%.2f, Enrolled: %d, Completed: %d, Pending: %d%n",
-                    balance, counts[0], counts[1], counts[2]);
-
+            applySummary(StudentSummary.get(studentId));
         } catch (SQLException ex) {
-            System.err.println("Error updating stats: " + ex.getMessage());
-            ex.printStackTrace();
+            LOG.error("Error loading student summary: {}", ex.getMessage(), ex);
         }
     }
 
-    /**
-     * Gets student's current balance from the database
-     */
-    private double getStudentBalance() throws SQLException {
-        String sql = "SELECT balance FROM students WHERE id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, studentId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getDouble("balance");
-                }
-            }
+    private void applySummary(StudentSummary.Summary s) {
+        if (s == null)
+            return;
+        summary = s;
+        lblName.setText(s.name());
+        lblCourse.setText(s.course());
+        lblBalance.setText(String.format("₱%.2f", s.balance()));
+        if (balanceValueLabel != null) {
+            balanceValueLabel.setText(String.format("₱%.2f", s.balance()));
         }
-        return 1000.0; // Default balance if not found
+        if (enrolledValueLabel != null) {
+            enrolledValueLabel.setText(String.valueOf(s.enrolled()));
+            enrolledValueLabel.setToolTipText(s.nextExamAt() == null ? null
+                    : "Next: " + s.nextExam() + " on " + s.nextExamAt().format(NEXT_EXAM_FORMAT)
+                            + (s.nextRoom() != null ? " in " + s.nextRoom() : ""));
+        }
+        if (completedValueLabel != null) {
+            completedValueLabel.setText(String.valueOf(s.completed()));
+        }
+        if (pendingValueLabel != null) {
+            pendingValueLabel.setText(String.valueOf(s.pending()));
+        }
+        LOG.debug("Stats: balance {}, enrolled {}, completed {}, pending {}", s.balance(), s.enrolled(),
+                s.completed(), s.pending());
     }
 
     private void updateExamStatistics() {
-        // Legacy method - now calls the new updateStatsCards method
-        updateStatsCards();
+        // Legacy method - the stats cards come from the student summary now
+        loadSummary();
     }
 
     private void loadUpcomingExams() {
         try {
-            // Updated query to match the proper exam_schedules schema
-            String sql = "SELECT se.id AS reg_id, e.id AS exam_id, e.exam_name, "
-                    + "es.scheduled_date, es.scheduled_time, r.room_name, e.duration, "
-                    + "se.status, se.is_paid "
-                    + "FROM student_exams se "
-                    + "JOIN exam_schedules es ON se.exam_schedule_id = es.id "
-                    + "JOIN exams e ON es.exam_id = e.id "
-                    + "JOIN rooms r ON r.id = es.room_id "
-                    + "WHERE se.student_id=? AND se.status <> 'Cancelled' "
-                    + "ORDER BY es.scheduled_date, es.scheduled_time";
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setInt(1, studentId);
-            ResultSet rs = ps.executeQuery();
+            // Served from the shared per-student timetable; the join runs once per
+            // session and enroll/cancel events keep it current
+            List<StudentTimetableCache.Entry> entries = StudentTimetableCache.get(studentId, conn).entries();
 
             DefaultTableModel model = new DefaultTableModel(
                     new Object[] { "Exam", "Date", "Time", "Room", "Duration", "Status", "Payment" },
@@ -722,24 +700,12 @@ public class ExamEnrollmentSystem extends JFrame {
             };
 
             int rows = 0;
-            while (rs.next()) {
-                String examName = rs.getString("exam_name");
-                Date scheduledDate = rs.getDate("scheduled_date");
-                Time scheduledTime = rs.getTime("scheduled_time");
-                String roomName = rs.getString("room_name");
-                String duration = rs.getString("duration");
-                String status = rs.getString("status");
-                boolean paid = rs.getInt("is_paid") == 1;
-
-                model.addRow(new Object[] {
-                        examName,
-                        scheduledDate != null ? scheduledDate.toString() : "TBA",
-                        scheduledTime != null ? scheduledTime.toString() : "TBA",
-                        roomName != null ? roomName : "TBA",
-                        duration != null ? duration : "TBA",
-                        status != null ? status : "Unknown",
-                        paid ? "✅ Paid" : "❌ Unpaid"
-                });
+            upcomingRegIds.clear();
+            for (StudentTimetableCache.Entry entry : entries) {
+                if (entry.status() == null)
+                    continue;
+                model.addRow(toUpcomingRow(entry));
+                upcomingRegIds.add(entry.registrationId());
                 rows++;
             }
 
@@ -752,9 +718,79 @@ public class ExamEnrollmentSystem extends JFrame {
             if (tblUpcoming.getColumnCount() > 6) {
                 tblUpcoming.getColumnModel().getColumn(6).setCellRenderer(new PaymentCellRenderer());
             }
-            System.out.println("[DEBUG] loadUpcomingExams: rows returned=" + rows + " for studentId=" + studentId);
+            LOG.debug("loadUpcomingExams: {} row(s) for student {}", rows, studentId);
+        } catch (SQLException ex) {
+            LOG.error("Error loading upcoming exams", ex);
+        }
+    }
+
+    private Object[] toUpcomingRow(StudentTimetableCache.Entry entry) {
+        String roomName = entry.room();
+        String duration = entry.duration();
+        String status = entry.status();
+
+        return new Object[] {
+                entry.examName(),
+                entry.start().toLocalDate().toString(),
+                Time.valueOf(entry.start().toLocalTime()).toString(),
+                roomName != null ? roomName : "TBA",
+                duration != null ? duration : "TBA",
+                status != null ? status : "Unknown",
+                entry.paid() ? "✅ Paid" : "❌ Unpaid"
+        };
+    }
+
+    /**
+     * Applies a batch of change events for this student: inserts/removes only the
+     * affected upcoming rows and refreshes the summary once per batch.
+     */
+    private void applyStudentChanges(List<DomainEvent> events) {
+        boolean balanceChanged = false;
+        boolean enrollmentsChanged = false;
+        for (DomainEvent event : events) {
+            if (event instanceof DomainEvent.BalanceChanged bc && bc.studentId() == studentId) {
+                balanceChanged = true;
+            } else if (event instanceof DomainEvent.EnrollmentCreated ec && ec.studentId() == studentId) {
+                insertUpcomingRow(ec.registrationId());
+                enrollmentsChanged = true;
+            } else if (event instanceof DomainEvent.EnrollmentCancelled ec && ec.studentId() == studentId) {
+                int row = upcomingRegIds.indexOf(ec.registrationId());
+                if (row >= 0) {
+                    ((DefaultTableModel) tblUpcoming.getModel()).removeRow(row);
+                    upcomingRegIds.remove(row);
+                }
+                enrollmentsChanged = true;
+            }
+        }
+        if (balanceChanged || enrollmentsChanged) {
+            // Rebuilt outright: the stored row may still look current if the
+            // change's invalidation had to be retried in the background
+            refreshSummary();
+        }
+    }
+
+    private void insertUpcomingRow(int registrationId) {
+        if (upcomingRegIds.contains(registrationId) || !(tblUpcoming.getModel() instanceof DefaultTableModel model)) {
+            return;
+        }
+        try {
+            // The timetable cache has already picked this enrollment up from the event
+            for (StudentTimetableCache.Entry entry : StudentTimetableCache.get(studentId, conn).entries()) {
+                if (entry.registrationId() != registrationId || entry.status() == null)
+                    continue;
+                Object[] row = toUpcomingRow(entry);
+                // Keep date/time order; both columns are ISO strings
+                String key = row[1] + " " + row[2];
+                int pos = 0;
+                while (pos < model.getRowCount()
+                        && (model.getValueAt(pos, 1) + " " + model.getValueAt(pos, 2)).compareTo(key) <= 0) {
+                    pos++;
+                }
+                model.insertRow(pos, row);
+                upcomingRegIds.add(pos, registrationId);
+            }
         } catch (SQLException ex) {
-            ex.printStackTrace();
+            LOG.error("Error loading upcoming exam row", ex);
         }
     }
 
@@ -849,34 +885,35 @@ public class ExamEnrollmentSystem extends JFrame {
     // =================== BUTTON LOGIC ===================
 
     private void refreshData() {
-        loadBalance();
+        StudentTimetableCache.invalidate(studentId);
         loadUpcomingExams();
-        updateStatsCards();
+        refreshSummary();
         JOptionPane.showMessageDialog(this, "Data refreshed successfully!", "Refresh Complete",
                 JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void openCashIn() {
-        try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM students WHERE id=?")) {
-            ps.setInt(1, studentId);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                String name = rs.getString("name");
-                PaymentForm pf = new PaymentForm(this, studentId, name, 0);
-                pf.setVisible(true);
-                loadBalance();
-                updateStatsCards();
-            }
+        if (summary == null)
+            return;
+        // Balance label and stats update from the BalanceChanged event
+        // PaymentForm publishes after its commit
+        PaymentForm pf = new PaymentForm(this, studentId, summary.name(), 0);
+        pf.setVisible(true);
+    }
+
+    // Recomputes the summary instead of trusting the stored row
+    private void refreshSummary() {
+        try {
+            applySummary(StudentSummary.refresh(studentId));
         } catch (SQLException ex) {
-            ex.printStackTrace();
+            LOG.error("Error refreshing student summary: {}", ex.getMessage(), ex);
         }
     }
 
     private void showDashboardView() {
         cardLayout.show(mainContent, "dashboard");
-        loadBalance();
+        loadSummary();
         loadUpcomingExams();
-        updateStatsCards();
     }
 
     private void showMyExamsView() {
@@ -27,6 +27,7 @@ public class ExamManagementPanel extends JPanel {
     private JTextField durationField;
     private JComboBox<Course> courseCombo;
     private JButton addButton, editButton, deleteButton, refreshButton;
+    private EventCoalescer examEvents;
 
     public ExamManagementPanel() {
         this.examDAO = new ExamDAO();
@@ -36,6 +37,24 @@ public class ExamManagementPanel extends JPanel {
         loadExams();
     }
 
+    // Subscribe while the panel is on screen; ExamDAO publishes every change
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (examEvents == null) {
+            examEvents = new EventCoalescer(this::applyExamChanges).listen(DomainEvent.ExamChanged.class);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (examEvents != null) {
+            examEvents.close();
+            examEvents = null;
+        }
+        super.removeNotify();
+    }
+
     private void initializePanel() {
         setLayout(new BorderLayout());
         setBackground(Color.WHITE);
@@ -227,23 +246,72 @@ public class ExamManagementPanel extends JPanel {
         }
     }
 
+    // One joined query for the whole grid, whatever the catalog size
     private void loadExams() {
         tableModel.setRowCount(0);
-        List<Exam> exams = examDAO.getAllExams();
-
-        for (Exam exam : exams) {
-            Course course = courseDAO.getCourseById(exam.getCourseId());
-            String courseName = course != null ? course.getName() : "Unknown";
-
-            Object[] row = {
-                    exam.getId(),
-                    exam.getExamName(),
-                    courseName,
-                    exam.getDuration(),
-                    "Actions" // This will be replaced by buttons
-            };
-            tableModel.addRow(row);
+        examDAO.forEachExamListing(listing -> tableModel.addRow(toRow(listing.exam(), listing.courseName())));
+    }
+
+    // Single-row refreshes take the course name from the shared dictionary
+    private Object[] toRow(Exam exam) {
+        String courseName = CourseNameCache.name(exam.getCourseId());
+        return toRow(exam, courseName != null ? courseName : "Unknown");
+    }
+
+    private Object[] toRow(Exam exam, String courseName) {
+        return new Object[] {
+                exam.getId(),
+                exam.getExamName(),
+                courseName,
+                exam.getDuration(),
+                "Actions" // This will be replaced by buttons
+        };
+    }
+
+    /**
+     * Applies exam changes row by row instead of reloading the table.
+     */
+    private void applyExamChanges(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (!(event instanceof DomainEvent.ExamChanged change))
+                continue;
+            int row = findRow(change.examId());
+            if (change.kind() == DomainEvent.ChangeKind.DELETED) {
+                if (row >= 0)
+                    tableModel.removeRow(row);
+                continue;
+            }
+            Exam exam = examDAO.getExamById(change.examId());
+            if (exam == null) {
+                if (row >= 0)
+                    tableModel.removeRow(row);
+            } else if (row >= 0) {
+                Object[] values = toRow(exam);
+                for (int col = 1; col < values.length - 1; col++) {
+                    tableModel.setValueAt(values[col], row, col);
+                }
+            } else {
+                tableModel.insertRow(sortedPosition(exam.getExamName()), toRow(exam));
+            }
+        }
+    }
+
+    // Table is ordered by exam name (same as ExamDAO.getAllExams)
+    private int sortedPosition(String examName) {
+        int i = 0;
+        while (i < tableModel.getRowCount()
+                && ((String) tableModel.getValueAt(i, 1)).compareToIgnoreCase(examName) <= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private int findRow(int examId) {
+        for (int i = 0; i < tableModel.getRowCount(); i++) {
+            if ((Integer) tableModel.getValueAt(i, 0) == examId)
+                return i;
         }
+        return -1;
     }
 
     private void addExam() {
@@ -263,7 +331,6 @@ public class ExamManagementPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Exam added successfully!",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
             clearForm();
-            loadExams();
         } else {
             JOptionPane.showMessageDialog(this, "Failed to add exam.",
                     "Error", JOptionPane.ERROR_MESSAGE);
@@ -295,7 +362,6 @@ public class ExamManagementPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Exam updated successfully!",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
             clearForm();
-            loadExams();
             resetFormForAdd();
         } else {
             JOptionPane.showMessageDialog(this, "Failed to update exam.",
@@ -321,7 +387,6 @@ public class ExamManagementPanel extends JPanel {
             if (examDAO.deleteExam(examId)) {
                 JOptionPane.showMessageDialog(this, "Exam deleted successfully!",
                         "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadExams();
                 resetFormForAdd();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete exam.",
@@ -341,9 +406,11 @@ public class ExamManagementPanel extends JPanel {
         // Set the correct course in combo box
         Exam exam = examDAO.getExamById(examId);
         if (exam != null) {
-            Course examCourse = courseDAO.getCourseById(exam.getCourseId());
-            if (examCourse != null) {
-                courseCombo.setSelectedItem(examCourse);
+            for (int i = 0; i < courseCombo.getItemCount(); i++) {
+                if (courseCombo.getItemAt(i).getId() == exam.getCourseId()) {
+                    courseCombo.setSelectedIndex(i);
+                    break;
+                }
             }
         }
 
@@ -2,7 +2,9 @@ package views;
 
 import dao.AdminDAO;
 import dao.CourseDAO;
+import dao.DatabaseSetup;
 import dao.StudentDAO;
+import dao.StudentSummary;
 import java.awt.*;
 import java.util.List;
 import javax.swing.*;
@@ -94,7 +96,7 @@ public class LoginFormGUI extends JFrame {
         registerButton.setFocusPainted(false);
         registerButton.setPreferredSize(new Dimension(300, 35));
         registerButton.setMaximumSize(new Dimension(300, 35));
-        registerButton.addActionListener(event -> openRegisterDialog());
+        registerButton.addActionListener(event -> whenDatabaseReady(registerButton, this::openRegisterDialog));
         mainPanel.add(registerButton);
 
         add(mainPanel, BorderLayout.CENTER);
@@ -110,11 +112,52 @@ public class LoginFormGUI extends JFrame {
             return;
         }
 
-        if (adminCheckbox.isSelected()) {
-            // Admin login
+        boolean asAdmin = adminCheckbox.isSelected();
+        whenDatabaseReady(loginButton, () -> login(emailOrUsername, password, asAdmin));
+    }
+
+    /**
+     * Schema checks run in the background from Main; waits for them off the EDT
+     * with both buttons disabled, then runs next, or reports that the database
+     * is unavailable.
+     */
+    private void whenDatabaseReady(JButton pressed, Runnable next) {
+        String label = pressed.getText();
+        pressed.setText("Connecting...");
+        loginButton.setEnabled(false);
+        registerButton.setEnabled(false);
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                return DatabaseSetup.awaitReady();
+            }
+
+            @Override
+            protected void done() {
+                pressed.setText(label);
+                loginButton.setEnabled(true);
+                registerButton.setEnabled(true);
+                boolean ready;
+                try {
+                    ready = get();
+                } catch (Exception e) {
+                    ready = false;
+                }
+                if (!ready) {
+                    JOptionPane.showMessageDialog(LoginFormGUI.this,
+                            "Could not connect to the database. Please check the connection and try again.",
+                            "Database Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                next.run();
+            }
+        }.execute();
+    }
+
+    private void login(String emailOrUsername, String password, boolean asAdmin) {
+        if (asAdmin) {
+            // Admin login (admin table and default account are created by DatabaseSetup)
             AdminDAO adminDAO = new AdminDAO();
-            // Create admin table if it doesn't exist
-            adminDAO.createAdminTableIfNotExists();
 
             Admin admin = adminDAO.loginAdmin(emailOrUsername, password);
 
@@ -133,10 +176,12 @@ public class LoginFormGUI extends JFrame {
             Student student = studentDAO.loginStudent(emailOrUsername, password);
 
             if (student != null) {
+                // Dashboard data loads in the background while the welcome dialog is up
+                StudentSummary.Prefetch prefetch = StudentSummary.prefetch(student.getId());
                 JOptionPane.showMessageDialog(this, "Login successful! Welcome, " + student.getName(),
                         "Success", JOptionPane.INFORMATION_MESSAGE);
                 dispose();
-                new ExamEnrollmentSystem(student.getId()).setVisible(true);
+                new ExamEnrollmentSystem(student.getId(), prefetch).setVisible(true);
             } else {
                 JOptionPane.showMessageDialog(this, "Invalid email or password.",
                         "Login Failed", JOptionPane.ERROR_MESSAGE);
@@ -1,7 +1,14 @@
 package views;
 
+import dao.AdmissionRejectedException;
 import dao.DatabaseConnection;
+import dao.EnrollmentService;
+import dao.Log;
+import dao.NoCapacityException;
+import dao.ScheduleConflictException;
+import dao.SchedulingJobQueue;
 import dao.SchedulingService; // SchedulingService uses TreeMap + PriorityQueue (see scheduleAndEnrollExam)
+import dao.WaitlistService;
 import java.awt.*;
 import java.sql.*;
 import javax.swing.*;
@@ -10,12 +17,14 @@ import javax.swing.table.*;
 
 public class ManageExamsPanel extends JPanel {
 
+    private static final Log LOG = Log.get(ManageExamsPanel.class);
+
     private final int studentId;
     private Connection conn;
     private JTable examTable;
     private JTextField searchField;
     private JButton btnProceed;
-    private static final int EXAM_FEE = 150;
+    private static final int EXAM_FEE = (int) EnrollmentService.EXAM_FEE;
 
     public ManageExamsPanel(int studentId) {
         this.studentId = studentId;
@@ -71,6 +80,8 @@ public class ManageExamsPanel extends JPanel {
                             return "Exam is full or no longer available";
                         case "Ongoing":
                             return "Exam is currently in progress";
+                        case "Pending":
+                            return "Your enrollment is being scheduled";
                     }
                 }
                 return super.getToolTipText(e);
@@ -79,7 +90,8 @@ public class ManageExamsPanel extends JPanel {
 
         examTable.setRowHeight(28);
         examTable.setFont(new Font("Arial", Font.PLAIN, 14));
-        examTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Several rows at once go through checkout as one cart
+        examTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         // Color-coded rows
         examTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
@@ -168,7 +180,7 @@ public class ManageExamsPanel extends JPanel {
             examTable.setModel(model);
             examTable.removeColumn(examTable.getColumnModel().getColumn(0)); // hide id
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error loading exams", e);
         }
     }
 
@@ -200,7 +212,7 @@ public class ManageExamsPanel extends JPanel {
             examTable.setModel(model);
             examTable.removeColumn(examTable.getColumnModel().getColumn(0));
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error searching exams", e);
         }
     }
 
@@ -211,6 +223,10 @@ public class ManageExamsPanel extends JPanel {
                     JOptionPane.WARNING_MESSAGE);
             return;
         }
+        if (examTable.getSelectedRowCount() > 1) {
+            proceedCart(examTable.getSelectedRows());
+            return;
+        }
 
         int modelRow = examTable.convertRowIndexToModel(row);
         DefaultTableModel model = (DefaultTableModel) examTable.getModel();
@@ -248,51 +264,274 @@ public class ManageExamsPanel extends JPanel {
                         "Pay ₱" + EXAM_FEE + " for " + subject + " exam?\nYour balance: ₱" + balance,
                         "Confirm Enrollment", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    enrollAndSchedule(examId, subject);
+                    if (SchedulingJobQueue.enabled())
+                        submitEnrollment(examId, subject);
+                    else
+                        enrollAndSchedule(examId, subject);
                 }
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error("Error checking exam before enrollment", e);
         }
     }
 
-    private void enrollAndSchedule(int examId, String subject) {
-        try {
-            conn.setAutoCommit(false);
-            // Deduct fee
-            PreparedStatement updBal = conn.prepareStatement("UPDATE students SET balance = balance - ? WHERE id = ?");
-            updBal.setDouble(1, EXAM_FEE);
-            updBal.setInt(2, studentId);
-            updBal.executeUpdate();
-            // Use SchedulingService to REUSE or CREATE schedule then enroll (TreeMap +
-            // PriorityQueue inside)
-            SchedulingService.AssignmentResult ar = SchedulingService.scheduleAndEnrollExam(studentId, examId, conn);
-            if (ar == null)
-                throw new SQLException("Scheduling failed");
-            JOptionPane.showMessageDialog(this,
-                    "✅ Enrollment successful!\n\nExam: " + subject +
-                            "\nScheduled Date: " + ar.date +
-                            "\nStart Time: " + ar.start +
-                            "\nRoom: " + ar.room +
-                            "\nSchedule ID: " + ar.examScheduleId,
-                    "Exam Scheduled", JOptionPane.INFORMATION_MESSAGE);
-            conn.commit();
-            loadExams(); // refresh UI
+    // Several exams in one payment; slots are planned jointly so they never overlap
+    private void proceedCart(int[] rows) {
+        DefaultTableModel model = (DefaultTableModel) examTable.getModel();
+        java.util.List<Integer> examIds = new java.util.ArrayList<>();
+        java.util.List<String> subjects = new java.util.ArrayList<>();
+        java.util.List<String> skipped = new java.util.ArrayList<>();
+        for (int row : rows) {
+            int modelRow = examTable.convertRowIndexToModel(row);
+            String subject = model.getValueAt(modelRow, 1).toString();
+            if ("Available".equals(model.getValueAt(modelRow, 2).toString())) {
+                examIds.add(Integer.parseInt(model.getValueAt(modelRow, 0).toString()));
+                subjects.add(subject);
+            } else {
+                skipped.add(subject);
+            }
+        }
+        if (examIds.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "None of the selected exams is available right now.", "Unavailable",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
 
+        int total = EXAM_FEE * examIds.size();
+        double balance;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT balance FROM students WHERE id = ?")) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    return;
+                balance = rs.getDouble("balance");
+            }
         } catch (SQLException e) {
-            try {
-                conn.rollback();
-            } catch (SQLException ex) {
-                ex.printStackTrace();
+            LOG.error("Error checking balance before checkout", e);
+            return;
+        }
+        if (balance < total) {
+            JOptionPane.showMessageDialog(this,
+                    "❌ Insufficient balance. You need ₱" + (total - balance) + " more.",
+                    "Not Enough Balance", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        String message = "Pay ₱" + total + " for " + examIds.size() + " exams?\n• " + String.join("\n• ", subjects)
+                + (skipped.isEmpty() ? "" : "\n\nSkipped (not available): " + String.join(", ", skipped))
+                + "\nYour balance: ₱" + balance;
+        if (JOptionPane.showConfirmDialog(this, message, "Confirm Enrollment",
+                JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION)
+            return;
+
+        btnProceed.setEnabled(false);
+        new SwingWorker<java.util.List<SchedulingService.AssignmentResult>, Integer>() {
+            @Override
+            protected java.util.List<SchedulingService.AssignmentResult> doInBackground() throws Exception {
+                return EnrollmentService.checkout("student:" + studentId, studentId, examIds, EXAM_FEE,
+                        this::publish);
+            }
+
+            @Override
+            protected void process(java.util.List<Integer> positions) {
+                int position = positions.get(positions.size() - 1);
+                for (int examId : examIds)
+                    markStatus(examId, position > 0 ? "Queued #" + position : "Enrolling…");
+            }
+
+            @Override
+            protected void done() {
+                btnProceed.setEnabled(true);
+                try {
+                    java.util.List<SchedulingService.AssignmentResult> results = get();
+                    StringBuilder sb = new StringBuilder("✅ Enrollment successful!\n");
+                    for (int i = 0; i < results.size(); i++) {
+                        SchedulingService.AssignmentResult ar = results.get(i);
+                        sb.append("\n").append(subjects.get(i)).append(": ").append(ar.date).append(' ')
+                                .append(ar.start).append(", ").append(ar.room);
+                        markEnrolled(examIds.get(i));
+                    }
+                    JOptionPane.showMessageDialog(ManageExamsPanel.this, sb.toString(), "Exams Scheduled",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } catch (java.util.concurrent.ExecutionException e) {
+                    for (int examId : examIds)
+                        markStatus(examId, "Available");
+                    Throwable cause = e.getCause();
+                    if (cause instanceof AdmissionRejectedException busy) {
+                        JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                                "⏳ " + busy.getMessage() + "\nPlease try again in " + busy.getRetryAfterSeconds()
+                                        + " second(s).",
+                                "Enrollment Busy", JOptionPane.WARNING_MESSAGE);
+                    } else {
+                        // Nothing was charged or booked
+                        JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                                "Could not enroll in these exams together: " + cause.getMessage(),
+                                "Enrollment Failed", JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }.execute();
+    }
+
+    // Runs off the EDT: during a rush the request may wait for admission, and the
+    // row shows the student's place in line meanwhile
+    private void enrollAndSchedule(int examId, String subject) {
+        btnProceed.setEnabled(false);
+        new SwingWorker<SchedulingService.AssignmentResult, Integer>() {
+            @Override
+            protected SchedulingService.AssignmentResult doInBackground() throws Exception {
+                // Charge + REUSE or CREATE schedule + enroll in one transaction (TreeMap +
+                // PriorityQueue inside SchedulingService)
+                return EnrollmentService.enroll("student:" + studentId, studentId, examId, EXAM_FEE,
+                        this::publish);
+            }
+
+            @Override
+            protected void process(java.util.List<Integer> positions) {
+                int position = positions.get(positions.size() - 1);
+                markStatus(examId, position > 0 ? "Queued #" + position : "Enrolling…");
+            }
+
+            @Override
+            protected void done() {
+                btnProceed.setEnabled(true);
+                try {
+                    SchedulingService.AssignmentResult ar = get();
+                    JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                            "✅ Enrollment successful!\n\nExam: " + subject +
+                                    "\nScheduled Date: " + ar.date +
+                                    "\nStart Time: " + ar.start +
+                                    "\nRoom: " + ar.room +
+                                    "\nSchedule ID: " + ar.examScheduleId,
+                            "Exam Scheduled", JOptionPane.INFORMATION_MESSAGE);
+                    markEnrolled(examId);
+                } catch (java.util.concurrent.ExecutionException e) {
+                    markStatus(examId, "Available");
+                    Throwable cause = e.getCause();
+                    if (cause instanceof ScheduleConflictException) {
+                        JOptionPane.showMessageDialog(ManageExamsPanel.this, cause.getMessage(),
+                                "Scheduling Conflict", JOptionPane.WARNING_MESSAGE);
+                    } else if (cause instanceof NoCapacityException) {
+                        offerWaitlist(examId, subject);
+                    } else if (cause instanceof AdmissionRejectedException busy) {
+                        JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                                "⏳ " + busy.getMessage() + "\nPlease try again in " + busy.getRetryAfterSeconds()
+                                        + " second(s).",
+                                "Enrollment Busy", JOptionPane.WARNING_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                                "Error during enrollment: " + cause.getMessage(),
+                                "Database Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
+        }.execute();
+    }
+
+    // Queue mode: a SchedulingWorker charges and places the student; poll for the
+    // outcome off the EDT
+    private void submitEnrollment(int examId, String subject) {
+        long jobId;
+        try {
+            jobId = SchedulingJobQueue.submit(studentId, examId, EXAM_FEE);
+        } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Error during enrollment: " + e.getMessage(),
                     "Database Error", JOptionPane.ERROR_MESSAGE);
-        } finally {
-            try {
-                conn.setAutoCommit(true);
-            } catch (SQLException ex) {
-                ex.printStackTrace();
+            return;
+        }
+        markStatus(examId, "Pending");
+        new SwingWorker<SchedulingJobQueue.JobResult, Void>() {
+            @Override
+            protected SchedulingJobQueue.JobResult doInBackground() throws Exception {
+                return SchedulingJobQueue.await(jobId, studentId, 500, 60_000);
+            }
+
+            @Override
+            protected void done() {
+                SchedulingJobQueue.JobResult result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                            "Could not check enrollment status: " + e.getMessage(),
+                            "Database Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (result == null || !result.status().isFinished()) {
+                    JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                            "⏳ Your enrollment for " + subject + " is still being scheduled.\n"
+                                    + "It will appear under your exams once it completes.",
+                            "Enrollment Queued", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                switch (result.status()) {
+                    case DONE -> {
+                        JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                                "✅ Enrollment successful!\n\nExam: " + subject +
+                                        "\nScheduled Date: " + result.date() +
+                                        "\nStart Time: " + result.start() +
+                                        "\nRoom: " + result.room() +
+                                        "\nSchedule ID: " + result.scheduleId(),
+                                "Exam Scheduled", JOptionPane.INFORMATION_MESSAGE);
+                        markEnrolled(examId);
+                    }
+                    case NO_CAPACITY -> {
+                        markStatus(examId, "Available");
+                        offerWaitlist(examId, subject);
+                    }
+                    case CONFLICT -> {
+                        markStatus(examId, "Available");
+                        JOptionPane.showMessageDialog(ManageExamsPanel.this, result.message(),
+                                "Scheduling Conflict", JOptionPane.WARNING_MESSAGE);
+                    }
+                    default -> {
+                        markStatus(examId, "Available");
+                        JOptionPane.showMessageDialog(ManageExamsPanel.this,
+                                "Error during enrollment: " + result.message(),
+                                "Database Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }
+        }.execute();
+    }
+
+    // No seat fits right now: the fee is only charged once the waitlist finds one
+    private void offerWaitlist(int examId, String subject) {
+        int choice = JOptionPane.showConfirmDialog(this,
+                "No seats are available for " + subject + " right now.\n"
+                        + "Join the waitlist? You will be enrolled automatically (₱" + EXAM_FEE
+                        + " charged) as soon as a seat frees up.",
+                "Exam Full", JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION)
+            return;
+        try {
+            int position = WaitlistService.join(studentId, examId, EXAM_FEE, 0);
+            JOptionPane.showMessageDialog(this,
+                    "⏳ You are #" + position + " on the waitlist for " + subject + ".",
+                    "Waitlisted", JOptionPane.INFORMATION_MESSAGE);
+            markStatus(examId, "Waitlisted");
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this, "Could not join the waitlist: " + e.getMessage(),
+                    "Waitlist", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Only the enrolled exam's row changes; no need to re-run the listing query
+    private void markEnrolled(int examId) {
+        markStatus(examId, "Enrolled");
+    }
+
+    private void markStatus(int examId, String status) {
+        DefaultTableModel model = (DefaultTableModel) examTable.getModel();
+        for (int i = 0; i < model.getRowCount(); i++) {
+            if (Integer.parseInt(model.getValueAt(i, 0).toString()) == examId) {
+                model.setValueAt(status, i, 2);
+                return;
             }
         }
     }
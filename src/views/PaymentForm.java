@@ -1,12 +1,15 @@
 package views;
 
-import dao.DatabaseConnection;
+import dao.Log;
+import dao.PaymentService;
 import java.awt.*;
 import java.sql.*;
 import javax.swing.*;
 
 public class PaymentForm extends JDialog {
 
+    private static final Log LOG = Log.get(PaymentForm.class);
+
     private final int studentId;
     private final double amount;
     private final String studentName;
@@ -65,8 +68,7 @@ public class PaymentForm extends JDialog {
         main.add(new JLabel("Payment Method:"), gbc);
 
         gbc.gridx = 1;
-        JComboBox<String> methodBox = new JComboBox<>(
-                new String[] { "GCash", "PayMaya", "Credit Card", "Bank Transfer", "Cash" });
+        JComboBox<String> methodBox = new JComboBox<>(PaymentService.METHODS.toArray(new String[0]));
         main.add(methodBox, gbc);
 
         // Reference number
@@ -108,11 +110,12 @@ public class PaymentForm extends JDialog {
         add(main, BorderLayout.CENTER);
 
         // Action listeners
-        btnConfirm.addActionListener(e -> processCashIn(methodBox, refField, amountField));
+        btnConfirm.addActionListener(e -> processCashIn(btnConfirm, methodBox, refField, amountField));
         btnCancel.addActionListener(e -> dispose());
     }
 
-    private void processCashIn(JComboBox<String> methodBox, JTextField refField, JTextField amountField) {
+    private void processCashIn(JButton btnConfirm, JComboBox<String> methodBox, JTextField refField,
+            JTextField amountField) {
         String method = (String) methodBox.getSelectedItem();
         String ref = refField.getText().trim();
         String amtStr = amountField.getText().trim();
@@ -147,63 +150,34 @@ public class PaymentForm extends JDialog {
         if (confirm != JOptionPane.YES_OPTION)
             return;
 
-        Connection conn = null;
+        // Disabled until the outcome is shown; a repeat is also refused by reference
+        btnConfirm.setEnabled(false);
         try {
-            conn = DatabaseConnection.getConnection();
-            if (conn == null) {
+            PaymentService.CashInResult result = PaymentService.cashIn(studentId, method, ref, cashInAmount);
+            PaymentService.Payment payment = result.payment();
+            if (result.duplicate() && !result.retry()) {
                 JOptionPane.showMessageDialog(this,
-                        "Cannot connect to database. Please check your connection.",
-                        "Connection Error",
-                        JOptionPane.ERROR_MESSAGE);
+                        String.format("Reference %s was already used for a %s payment of ₱%.2f on %s.\n"
+                                + "Nothing was credited. Please check the reference number.",
+                                payment.reference(), payment.method(), payment.amount(), payment.createdAt()),
+                        "Duplicate Reference", JOptionPane.WARNING_MESSAGE);
+                btnConfirm.setEnabled(true);
                 return;
             }
-
-            conn.setAutoCommit(false);
-
-            // Update student balance
-            PreparedStatement updateBal = conn.prepareStatement(
-                    "UPDATE students SET balance = balance + ? WHERE id = ?");
-            updateBal.setDouble(1, cashInAmount);
-            updateBal.setInt(2, studentId);
-            updateBal.executeUpdate();
-
-            // Optional: record payment transaction
-            PreparedStatement insertPayment = conn.prepareStatement(
-                    "INSERT INTO payments (student_id, amount, payment_method, reference_no) VALUES (?, ?, ?, ?)");
-            insertPayment.setInt(1, studentId);
-            insertPayment.setDouble(2, cashInAmount);
-            insertPayment.setString(3, method);
-            insertPayment.setString(4, ref);
-            insertPayment.executeUpdate();
-
-            conn.commit();
-
             JOptionPane.showMessageDialog(this,
-                    String.format("✅ Cash-In Successful!\n\nAmount Added: ₱%.2f\nMethod: %s\nReference: %s",
-                            cashInAmount, method, ref),
+                    String.format("✅ Cash-In %s!\n\nAmount Added: ₱%.2f\nMethod: %s\nReference: %s",
+                            result.duplicate() ? "Already Recorded" : "Successful", payment.amount(),
+                            payment.method(), payment.reference()),
                     "Success", JOptionPane.INFORMATION_MESSAGE);
 
             dispose();
 
         } catch (SQLException ex) {
-            ex.printStackTrace();
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ignored) {
-                }
-            }
+            LOG.error("Cash-in failed", ex);
+            btnConfirm.setEnabled(true);
             JOptionPane.showMessageDialog(this,
                     "Database error: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException ignored) {
-                }
-            }
         }
     }
 }
@@ -23,7 +23,8 @@ public class RoomManagementPanel extends JPanel {
     private JTable roomTable;
     private JTextField roomNameField;
     private JTextField capacityField;
-    private JButton addButton, editButton, deleteButton, refreshButton;
+    private JButton addButton, editButton, deleteButton, outageButton, refreshButton;
+    private EventCoalescer roomEvents;
 
     public RoomManagementPanel() {
         this.roomDAO = new RoomDAO();
@@ -32,6 +33,24 @@ public class RoomManagementPanel extends JPanel {
         loadRooms();
     }
 
+    // Subscribe while the panel is on screen; RoomDAO publishes every change
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (roomEvents == null) {
+            roomEvents = new EventCoalescer(this::applyRoomChanges).listen(DomainEvent.RoomChanged.class);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (roomEvents != null) {
+            roomEvents.close();
+            roomEvents = null;
+        }
+        super.removeNotify();
+    }
+
     private void initializePanel() {
         setLayout(new BorderLayout());
         setBackground(Color.WHITE);
@@ -171,9 +190,14 @@ public class RoomManagementPanel extends JPanel {
         deleteButton.addActionListener(e -> deleteRoom());
         deleteButton.setEnabled(false);
 
+        outageButton = createStyledButton("🚧 Outage", new Color(255, 140, 0));
+        outageButton.addActionListener(e -> showOutageDialog());
+        outageButton.setEnabled(false);
+
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(outageButton);
 
         buttonPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
         formPanel.add(buttonPanel);
@@ -210,19 +234,68 @@ public class RoomManagementPanel extends JPanel {
         List<Room> rooms = roomDAO.getAllRooms();
 
         for (Room room : rooms) {
-            String status = room.getCapacity() > 50 ? "Large" : room.getCapacity() > 20 ? "Medium" : "Small";
-
-            Object[] row = {
-                    room.getId(),
-                    room.getRoomName(),
-                    room.getCapacity(),
-                    status,
-                    "Actions" // This will be replaced by buttons
-            };
-            tableModel.addRow(row);
+            tableModel.addRow(toRow(room));
         }
     }
 
+    private Object[] toRow(Room room) {
+        String status = room.getCapacity() > 50 ? "Large" : room.getCapacity() > 20 ? "Medium" : "Small";
+
+        return new Object[] {
+                room.getId(),
+                room.getRoomName(),
+                room.getCapacity(),
+                status,
+                "Actions" // This will be replaced by buttons
+        };
+    }
+
+    /**
+     * Applies room changes row by row instead of reloading the table.
+     */
+    private void applyRoomChanges(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (!(event instanceof DomainEvent.RoomChanged change))
+                continue;
+            int row = findRow(change.roomId());
+            if (change.kind() == DomainEvent.ChangeKind.DELETED) {
+                if (row >= 0)
+                    tableModel.removeRow(row);
+                continue;
+            }
+            Room room = roomDAO.getRoomById(change.roomId());
+            if (room == null) {
+                if (row >= 0)
+                    tableModel.removeRow(row);
+            } else if (row >= 0) {
+                Object[] values = toRow(room);
+                for (int col = 1; col < values.length - 1; col++) {
+                    tableModel.setValueAt(values[col], row, col);
+                }
+            } else {
+                tableModel.insertRow(sortedPosition(room.getRoomName()), toRow(room));
+            }
+        }
+    }
+
+    private int findRow(int roomId) {
+        for (int i = 0; i < tableModel.getRowCount(); i++) {
+            if ((Integer) tableModel.getValueAt(i, 0) == roomId)
+                return i;
+        }
+        return -1;
+    }
+
+    // Table is ordered by room name (same as RoomDAO.getAllRooms)
+    private int sortedPosition(String roomName) {
+        int i = 0;
+        while (i < tableModel.getRowCount()
+                && ((String) tableModel.getValueAt(i, 1)).compareToIgnoreCase(roomName) <= 0) {
+            i++;
+        }
+        return i;
+    }
+
     private void addRoom() {
         String roomName = roomNameField.getText().trim();
         String capacityText = capacityField.getText().trim();
@@ -247,7 +320,6 @@ public class RoomManagementPanel extends JPanel {
                 JOptionPane.showMessageDialog(this, "Room added successfully!",
                         "Success", JOptionPane.INFORMATION_MESSAGE);
                 clearForm();
-                loadRooms();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to add room.",
                         "Error", JOptionPane.ERROR_MESSAGE);
@@ -291,7 +363,6 @@ public class RoomManagementPanel extends JPanel {
                 JOptionPane.showMessageDialog(this, "Room updated successfully!",
                         "Success", JOptionPane.INFORMATION_MESSAGE);
                 clearForm();
-                loadRooms();
                 resetFormForAdd();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to update room.",
@@ -319,16 +390,144 @@ public class RoomManagementPanel extends JPanel {
         if (option == JOptionPane.YES_OPTION) {
             int roomId = (Integer) tableModel.getValueAt(selectedRow, 0);
 
-            if (roomDAO.deleteRoom(roomId)) {
-                JOptionPane.showMessageDialog(this, "Room deleted successfully!",
+            // Upcoming sessions move to other rooms and the room goes in one
+            // transaction; a room with past sessions is retired, not deleted
+            RoomRelocationService.Retirement retirement;
+            try {
+                retirement = RoomRelocationService.retire(roomId);
+            } catch (Exception ex) {
+                JOptionPane.showMessageDialog(this, "Could not delete the room: " + ex.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            RoomRelocationService.Report report = retirement.report();
+            String relocation = report.sessions() > 0 ? "\n\n" + report.summary() : "";
+            if (retirement.deleted()) {
+                JOptionPane.showMessageDialog(this, "Room deleted successfully!" + relocation,
                         "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadRooms();
-                resetFormForAdd();
             } else {
-                JOptionPane.showMessageDialog(this, "Failed to delete room.",
-                        "Error", JOptionPane.ERROR_MESSAGE);
+                JOptionPane.showMessageDialog(this,
+                        "The room still holds exam sessions (past exams, or students who could not be moved),"
+                                + " so it was kept for the record and marked unavailable from today." + relocation,
+                        "Room Retired", JOptionPane.INFORMATION_MESSAGE);
             }
+            resetFormForAdd();
+        }
+    }
+
+    /**
+     * Marks the selected room unavailable for a date range and moves its
+     * sessions in that range to other rooms and slots.
+     */
+    private void showOutageDialog() {
+        int selectedRow = roomTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a room.",
+                    "Selection Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int roomId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        String roomName = (String) tableModel.getValueAt(selectedRow, 1);
+
+        JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "🚧 Room Outage - " + roomName,
+                true);
+        dialog.setLayout(new BorderLayout());
+        dialog.setSize(620, 460);
+        dialog.setLocationRelativeTo(this);
+
+        JPanel fieldsPanel = new JPanel(new GridBagLayout());
+        fieldsPanel.setBorder(new EmptyBorder(15, 20, 10, 20));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(6, 10, 6, 10);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        JTextField fromField = new JTextField(java.time.LocalDate.now().toString(), 15);
+        JTextField toField = new JTextField(java.time.LocalDate.now().plusDays(7).toString(), 15);
+        JTextField reasonField = new JTextField(20);
+        String[] labels = { "From (YYYY-MM-DD):", "To (YYYY-MM-DD):", "Reason:" };
+        JTextField[] fields = { fromField, toField, reasonField };
+        for (int i = 0; i < labels.length; i++) {
+            gbc.gridx = 0;
+            gbc.gridy = i;
+            fieldsPanel.add(new JLabel(labels[i]), gbc);
+            gbc.gridx = 1;
+            fieldsPanel.add(fields[i], gbc);
         }
+
+        JTextArea reportArea = new JTextArea(10, 50);
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JScrollPane reportScroll = new JScrollPane(reportArea);
+        reportScroll.setBorder(new EmptyBorder(0, 20, 0, 20));
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        JButton checkBtn = createStyledButton("🔍 Check", ACCENT_COLOR);
+        JButton applyBtn = createStyledButton("🚧 Apply", DANGER_COLOR);
+        JButton closeBtn = createStyledButton("❌ Close", TEXT_COLOR);
+
+        java.util.function.Consumer<Boolean> run = apply -> {
+            java.time.LocalDate from;
+            java.time.LocalDate to;
+            try {
+                from = java.time.LocalDate.parse(fromField.getText().trim());
+                to = java.time.LocalDate.parse(toField.getText().trim());
+            } catch (java.time.format.DateTimeParseException ex) {
+                reportArea.setText("⚠️ Dates must be YYYY-MM-DD");
+                return;
+            }
+            String reason = reasonField.getText().trim();
+            checkBtn.setEnabled(false);
+            applyBtn.setEnabled(false);
+            reportArea.setText(apply ? "Relocating sessions…" : "Planning relocation…");
+            new SwingWorker<RoomRelocationService.Report, Void>() {
+                @Override
+                protected RoomRelocationService.Report doInBackground() throws Exception {
+                    return apply ? RoomRelocationService.relocate(roomId, from, to, reason)
+                            : RoomRelocationService.preview(roomId, from, to);
+                }
+
+                @Override
+                protected void done() {
+                    checkBtn.setEnabled(true);
+                    applyBtn.setEnabled(true);
+                    try {
+                        RoomRelocationService.Report report = get();
+                        StringBuilder sb = new StringBuilder();
+                        sb.append(report.applied() ? "✅ " : "🔍 Would be: ").append(report.summary()).append('\n');
+                        if (report.applied())
+                            sb.append("🚧 ").append(roomName).append(" is unavailable from ").append(from)
+                                    .append(" to ").append(to).append('\n');
+                        for (RoomRelocationService.Unplaced u : report.unplaced()) {
+                            sb.append("❌ student ").append(u.studentId()).append(", exam ").append(u.examId())
+                                    .append(' ').append(u.date()).append(' ').append(u.start()).append(": ")
+                                    .append(u.reason()).append('\n');
+                        }
+                        reportArea.setText(sb.toString());
+                        reportArea.setCaretPosition(0);
+                    } catch (Exception ex) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        reportArea.setText("❌ " + cause.getMessage());
+                    }
+                }
+            }.execute();
+        };
+
+        checkBtn.addActionListener(e -> run.accept(false));
+        applyBtn.addActionListener(e -> run.accept(true));
+        closeBtn.addActionListener(e -> dialog.dispose());
+
+        buttonPanel.add(checkBtn);
+        buttonPanel.add(applyBtn);
+        buttonPanel.add(closeBtn);
+
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(reportScroll, BorderLayout.CENTER);
+        south.add(buttonPanel, BorderLayout.SOUTH);
+
+        dialog.add(fieldsPanel, BorderLayout.NORTH);
+        dialog.add(south, BorderLayout.CENTER);
+        dialog.setVisible(true);
     }
 
     private void fillFormForEdit(int row) {
@@ -342,12 +541,14 @@ public class RoomManagementPanel extends JPanel {
         addButton.setEnabled(false);
         editButton.setEnabled(true);
         deleteButton.setEnabled(true);
+        outageButton.setEnabled(true);
     }
 
     private void resetFormForAdd() {
         addButton.setEnabled(true);
         editButton.setEnabled(false);
         deleteButton.setEnabled(false);
+        outageButton.setEnabled(false);
         roomTable.clearSelection();
     }
 
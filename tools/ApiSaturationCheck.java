@@ -0,0 +1,132 @@
+package tools;
+
+import api.EnrollmentApiServer;
+import dao.ConnectionPool;
+import dao.DatabaseConnection;
+import dao.DatabaseSetup;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the enrollment API answers 503 with Retry-After, not 401, 422,
+ * 500 or a made-up 200, when its connection pool is exhausted. Needs a
+ * database (either backend).
+ *
+ * Seeds a course, an exam and a student, logs in while the pool is free, then
+ * borrows every pooled connection and calls /api/enroll, /api/login and
+ * /api/balance. Exits with status 1 if any answer is wrong.
+ *
+ * Run: java tools.ApiSaturationCheck [port] (default 18080)
+ */
+public class ApiSaturationCheck {
+
+    private static final int POOL_SIZE = 2;
+    private static final long BORROW_TIMEOUT_MS = 300;
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18080;
+        DatabaseSetup.ensureSchema();
+        ConnectionPool pool = DatabaseConnection.usePool(POOL_SIZE, BORROW_TIMEOUT_MS);
+        String tag = "saturation-" + Long.toString(System.currentTimeMillis(), 36);
+        int examId = seed(tag);
+
+        EnrollmentApiServer server = new EnrollmentApiServer(port);
+        server.start();
+        HttpClient http = HttpClient.newHttpClient();
+        String base = "http://localhost:" + port;
+        String login = "{\"email\": \"" + tag + "@example.com\", \"password\": \"check\"}";
+        List<String> failures = new ArrayList<>();
+        List<Connection> held = new ArrayList<>();
+        try {
+            HttpResponse<String> ok = http.send(post(base + "/api/login", login, null),
+                    HttpResponse.BodyHandlers.ofString());
+            if (ok.statusCode() != 200)
+                throw new IllegalStateException("Login with a free pool failed: " + ok.statusCode() + " " + ok.body());
+            String token = ok.body().replaceAll("(?s).*\"token\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+
+            for (int i = 0; i < pool.maxSize(); i++)
+                held.add(DatabaseConnection.getConnection());
+
+            expect503(http.send(post(base + "/api/enroll", "{\"examId\": " + examId + "}", token),
+                    HttpResponse.BodyHandlers.ofString()), "/api/enroll", failures);
+            expect503(http.send(post(base + "/api/login", login, null), HttpResponse.BodyHandlers.ofString()),
+                    "/api/login", failures);
+            expect503(http.send(HttpRequest.newBuilder(URI.create(base + "/api/balance"))
+                    .header("Authorization", "Bearer " + token).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()), "/api/balance", failures);
+        } finally {
+            for (Connection c : held)
+                c.close();
+            server.stop();
+        }
+
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("✅ Saturated pool answered 503 with Retry-After on every endpoint");
+    }
+
+    private static HttpRequest post(String url, String json, String token) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null)
+            b.header("Authorization", "Bearer " + token);
+        return b.build();
+    }
+
+    private static void expect503(HttpResponse<String> response, String path, List<String> failures) {
+        String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+        if (response.statusCode() != 503 || retryAfter == null)
+            failures.add("❌ " + path + ": expected 503 with Retry-After, got " + response.statusCode()
+                    + (retryAfter == null ? " without Retry-After" : "") + " " + response.body());
+        else
+            System.out.println("503 " + path + " (Retry-After " + retryAfter + ")");
+    }
+
+    private static int seed(String tag) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int courseId;
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO courses (name) VALUES (?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, tag);
+                ps.executeUpdate();
+                try (ResultSet gk = ps.getGeneratedKeys()) {
+                    gk.next();
+                    courseId = gk.getInt(1);
+                }
+            }
+            int examId;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO exams (exam_name, course_id, duration) VALUES (?, ?, '120 minutes')",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, tag + " Exam");
+                ps.setInt(2, courseId);
+                ps.executeUpdate();
+                try (ResultSet gk = ps.getGeneratedKeys()) {
+                    gk.next();
+                    examId = gk.getInt(1);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO students (name, email, password, course_id, balance) VALUES (?, ?, 'check', ?, 1000)")) {
+                ps.setString(1, tag);
+                ps.setString(2, tag + "@example.com");
+                ps.setInt(3, courseId);
+                ps.executeUpdate();
+            }
+            return examId;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package tools;
+
+import dao.BestFitRoomAllocator;
+import dao.LeastUsedRoomAllocator;
+import dao.RoomAllocator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Offline comparison of {@link RoomAllocator}s; needs no database.
+ *
+ * Simulates the testing-center flow: enrollment requests for a mix of small
+ * and large exam cohorts arrive in random order, each joins an open session of
+ * its exam with a free seat, or else a new session is opened in the first slot
+ * with a free room (chosen by the allocator). A request that finds no slot in
+ * the horizon is rejected.
+ *
+ * Run: java tools.RoomAllocatorBenchmark [seed] [rounds] [days]
+ * (fewer days = more contention for rooms; default 2)
+ */
+public class RoomAllocatorBenchmark {
+
+    // Sample rooms from DatabaseSetup
+    private static final int[] ROOM_CAPACITIES = { 30, 25, 100, 80, 20, 15 };
+    private static final int SLOTS_PER_DAY = 4;
+
+    private record Result(int sessions, int seatsOpened, int enrolled, int rejected) {
+    }
+
+    private static final class Session {
+        final int examId;
+        final int capacity;
+        int enrolled;
+
+        Session(int examId, int capacity) {
+            this.examId = examId;
+            this.capacity = capacity;
+        }
+    }
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42L;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int slots = SLOTS_PER_DAY * (args.length > 2 ? Integer.parseInt(args[2]) : 2);
+
+        Map<String, RoomAllocator> allocators = new LinkedHashMap<>();
+        allocators.put("least-used", new LeastUsedRoomAllocator());
+        allocators.put("best-fit", new BestFitRoomAllocator());
+
+        Map<String, long[]> totals = new HashMap<>();
+        Random random = new Random(seed);
+        for (int round = 0; round < rounds; round++) {
+            int[] cohorts = randomCohorts(random);
+            List<Integer> requests = shuffledRequests(cohorts, random);
+            for (Map.Entry<String, RoomAllocator> a : allocators.entrySet()) {
+                Result r = simulate(a.getValue(), cohorts, requests, slots);
+                long[] t = totals.computeIfAbsent(a.getKey(), k -> new long[5]);
+                t[0] += r.sessions();
+                t[1] += r.seatsOpened();
+                t[2] += r.enrolled();
+                t[3] += r.rejected();
+                t[4] += requests.size();
+            }
+        }
+
+        System.out.println("📊 Room allocation benchmark (" + rounds + " rounds, " + slots + " slots, seed " + seed + ")");
+        System.out.printf("%-12s %10s %14s %12s %10s%n", "allocator", "sessions", "utilization", "rejected", "reject %");
+        for (String name : allocators.keySet()) {
+            long[] t = totals.get(name);
+            System.out.printf("%-12s %10.1f %13.1f%% %12.1f %9.2f%%%n", name,
+                    (double) t[0] / rounds,
+                    t[1] == 0 ? 0 : 100.0 * t[2] / t[1],
+                    (double) t[3] / rounds,
+                    100.0 * t[3] / t[4]);
+        }
+    }
+
+    /** A few large cohorts among many small ones, as in a real exam week. */
+    private static int[] randomCohorts(Random random) {
+        int exams = 25 + random.nextInt(15);
+        int[] cohorts = new int[exams];
+        for (int i = 0; i < exams; i++) {
+            cohorts[i] = random.nextInt(10) < 2 ? 60 + random.nextInt(40) : 3 + random.nextInt(18);
+        }
+        return cohorts;
+    }
+
+    private static List<Integer> shuffledRequests(int[] cohorts, Random random) {
+        List<Integer> requests = new ArrayList<>();
+        for (int exam = 0; exam < cohorts.length; exam++) {
+            for (int i = 0; i < cohorts[exam]; i++)
+                requests.add(exam);
+        }
+        Collections.shuffle(requests, random);
+        return requests;
+    }
+
+    private static Result simulate(RoomAllocator allocator, int[] cohorts, List<Integer> requests, int slots) {
+        // roomBusy[slot][room]: a session already holds that room in that slot
+        boolean[][] roomBusy = new boolean[slots][ROOM_CAPACITIES.length];
+        int[] roomUsage = new int[ROOM_CAPACITIES.length];
+        int[] remaining = cohorts.clone();
+        List<Session> sessions = new ArrayList<>();
+        int seatsOpened = 0;
+        int enrolled = 0;
+        int rejected = 0;
+
+        for (int exam : requests) {
+            Session open = null;
+            for (Session s : sessions) {
+                if (s.examId == exam && s.enrolled < s.capacity) {
+                    open = s;
+                    break;
+                }
+            }
+            if (open == null) {
+                open = openSession(allocator, exam, remaining, roomBusy, roomUsage);
+                if (open == null) {
+                    rejected++;
+                    remaining[exam]--;
+                    continue;
+                }
+                sessions.add(open);
+                seatsOpened += open.capacity;
+            }
+            open.enrolled++;
+            enrolled++;
+            remaining[exam]--;
+        }
+        return new Result(sessions.size(), seatsOpened, enrolled, rejected);
+    }
+
+    private static Session openSession(RoomAllocator allocator, int exam, int[] remaining, boolean[][] roomBusy,
+            int[] roomUsage) {
+        List<Integer> others = new ArrayList<>();
+        for (int e = 0; e < remaining.length; e++) {
+            if (e != exam && remaining[e] > 0)
+                others.add(remaining[e]);
+        }
+        others.sort(Collections.reverseOrder());
+
+        for (int slot = 0; slot < roomBusy.length; slot++) {
+            List<RoomAllocator.Room> free = new ArrayList<>();
+            for (int r = 0; r < ROOM_CAPACITIES.length; r++) {
+                if (!roomBusy[slot][r])
+                    free.add(new RoomAllocator.Room(r, "R" + r, ROOM_CAPACITIES[r], roomUsage[r]));
+            }
+            // Same order SchedulingService loads rooms in: largest first
+            free.sort((a, b) -> Integer.compare(b.capacity(), a.capacity()));
+            RoomAllocator.Room room = allocator.choose(free, Math.max(1, remaining[exam]), others);
+            if (room != null) {
+                roomBusy[slot][room.id()] = true;
+                roomUsage[room.id()]++;
+                return new Session(exam, room.capacity());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,382 @@
+package tools;
+
+import dao.DatabaseConnection;
+import dao.DatabaseSetup;
+import dao.EventBus;
+import dao.NoCapacityException;
+import dao.ScheduleLocks;
+import dao.SchedulingService;
+import dao.StudentTimetableCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-JVM stress test for room booking.
+ *
+ * Seeds a fresh course with a few exams and students, then starts several
+ * child JVMs whose threads enroll every student into every exam through
+ * {@link SchedulingService#scheduleAndEnrollExam} at the same time, so they
+ * keep opening new sessions in the same rooms on the same days. Afterwards the
+ * parent checks every room/day touched by the run for overlapping sessions.
+ * It exits with status 1 on an overlap, or when a child saw an error or did
+ * not account for every one of its enrollments.
+ *
+ * By default the run gets a throwaway embedded database (H2 with
+ * AUTO_SERVER=TRUE, so every process can open it) in a temporary directory
+ * that is deleted afterwards. Passing -Dexam.db.url (and exam.db.backend)
+ * runs it against that database instead; the seeded course, exams, students
+ * and their sessions are deleted at the end either way.
+ *
+ * Run: java tools.ScheduleStressTest [processes] [threads] [studentsPerProcess]
+ * (defaults 4 4 40). Add -Dexam.scheduling.roomLocks=false to see what the
+ * run looks like without {@link ScheduleLocks}.
+ */
+public class ScheduleStressTest {
+
+    private static final int EXAMS = 6;
+    private static final int MAX_RETRIES = 5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            runChild(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]));
+            return;
+        }
+        int processes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int studentsPerProcess = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+
+        // Before anything touches DatabaseConnection; children inherit exam.* properties
+        Path scratch = null;
+        if (System.getProperty("exam.db.url") == null) {
+            scratch = Files.createTempDirectory("exam-stress");
+            System.setProperty("exam.db.backend", "embedded");
+            System.setProperty("exam.db.url", "jdbc:h2:" + scratch.resolve("exam").toAbsolutePath()
+                    + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;AUTO_SERVER=TRUE");
+            System.setProperty("exam.db.user", "sa");
+            System.setProperty("exam.db.password", "");
+        }
+        int status;
+        try {
+            status = run(processes, threads, studentsPerProcess);
+        } finally {
+            if (scratch != null)
+                deleteTree(scratch);
+        }
+        System.exit(status);
+    }
+
+    private static int run(int processes, int threads, int studentsPerProcess) throws Exception {
+        DatabaseSetup.ensureSchema();
+        int courseId = seed(processes * studentsPerProcess);
+        try {
+            return check(courseId, processes, threads, studentsPerProcess);
+        } finally {
+            cleanUp(courseId);
+        }
+    }
+
+    private static int check(int courseId, int processes, int threads, int studentsPerProcess) throws Exception {
+        System.out.println("📊 Stress run: course " + courseId + ", " + processes + " JVM(s) x " + threads
+                + " thread(s), " + processes * studentsPerProcess + " students x " + EXAMS + " exams, room locks "
+                + (ScheduleLocks.isEnabled() ? "on" : "off"));
+
+        long started = System.nanoTime();
+        List<Process> children = new ArrayList<>();
+        for (int i = 0; i < processes; i++) {
+            children.add(childProcess(courseId, i, processes, threads).inheritIO().start());
+        }
+        int failedChildren = 0;
+        for (Process p : children) {
+            if (p.waitFor() != 0)
+                failedChildren++;
+        }
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        int sessions = countSessions(courseId);
+        int doubleBooked = countDoubleBookings(courseId);
+        System.out.println("⏱️ " + millis + " ms, " + sessions + " session(s) created");
+        if (doubleBooked == 0 && failedChildren == 0) {
+            System.out.println("✅ No double-booked rooms");
+            return 0;
+        }
+        System.out.println("❌ " + doubleBooked + " overlapping session pair(s), " + failedChildren
+                + " failed process(es)");
+        return 1;
+    }
+
+    // ===== Parent =====
+
+    private static int seed(int students) throws SQLException {
+        String tag = "Stress " + Long.toString(System.currentTimeMillis(), 36);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No connection");
+            conn.setAutoCommit(false);
+            int courseId;
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO courses (name) VALUES (?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, tag);
+                ps.executeUpdate();
+                try (ResultSet gk = ps.getGeneratedKeys()) {
+                    gk.next();
+                    courseId = gk.getInt(1);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO exams (exam_name, course_id, duration) VALUES (?, ?, '120 minutes')")) {
+                for (int i = 1; i <= EXAMS; i++) {
+                    ps.setString(1, tag + " Exam " + i);
+                    ps.setInt(2, courseId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO students (name, email, password, course_id) VALUES (?, ?, 'stress', ?)")) {
+                String prefix = tag.replace(' ', '-').toLowerCase();
+                for (int i = 1; i <= students; i++) {
+                    ps.setString(1, tag + " Student " + i);
+                    ps.setString(2, prefix + "-" + i + "@example.com");
+                    ps.setInt(3, courseId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+            return courseId;
+        }
+    }
+
+    // Enrollments, holds and sessions go with their students and exams (ON DELETE CASCADE)
+    private static void cleanUp(int courseId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null)
+                throw new SQLException("No connection to remove stress course " + courseId);
+            for (String sql : List.of("DELETE FROM students WHERE course_id = ?", "DELETE FROM exams WHERE course_id = ?",
+                    "DELETE FROM courses WHERE id = ?")) {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, courseId);
+                    ps.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList())
+                Files.deleteIfExists(p);
+        }
+    }
+
+    private static ProcessBuilder childProcess(int courseId, int index, int processes, int threads) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(ProcessHandle.current().info().command()
+                .orElse(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java"));
+        // Same backend, URL and lock settings as the parent
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("exam."))
+                cmd.add("-D" + key + "=" + System.getProperty(key));
+        }
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(ScheduleStressTest.class.getName());
+        cmd.add("--child");
+        cmd.add(String.valueOf(courseId));
+        cmd.add(String.valueOf(index));
+        cmd.add(String.valueOf(processes));
+        cmd.add(String.valueOf(threads));
+        return new ProcessBuilder(cmd);
+    }
+
+    private static int countSessions(int courseId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "SELECT COUNT(*) FROM exam_schedules es JOIN exams e ON e.id = es.exam_id WHERE e.course_id = ?")) {
+            ps.setInt(1, courseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Overlapping pairs among all sessions in the rooms and days the run used
+     * (its own sessions and anything already booked there).
+     */
+    private static int countDoubleBookings(int courseId) throws SQLException {
+        String sql = """
+                SELECT es.id, es.room_id, es.scheduled_date, es.scheduled_time, e.duration
+                FROM exam_schedules es
+                JOIN exams e ON e.id = es.exam_id
+                WHERE EXISTS (SELECT 1 FROM exam_schedules s JOIN exams se ON se.id = s.exam_id
+                              WHERE se.course_id = ? AND s.room_id = es.room_id
+                                AND s.scheduled_date = es.scheduled_date)
+                ORDER BY es.room_id, es.scheduled_date, es.scheduled_time
+                """;
+        Map<String, List<int[]>> byRoomDay = new HashMap<>(); // {id, start, end} in seconds of day
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, courseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String duration = rs.getString("duration");
+                    int start = rs.getTime("scheduled_time").toLocalTime().toSecondOfDay();
+                    int end = start + 60 * SchedulingService.parseDurationMinutes(
+                            duration != null ? duration : "2 hours");
+                    byRoomDay.computeIfAbsent(rs.getInt("room_id") + "@" + rs.getDate("scheduled_date"),
+                            k -> new ArrayList<>()).add(new int[] { rs.getInt("id"), start, end });
+                }
+            }
+        }
+        int pairs = 0;
+        for (Map.Entry<String, List<int[]>> day : byRoomDay.entrySet()) {
+            List<int[]> sessions = day.getValue();
+            for (int i = 0; i < sessions.size(); i++) {
+                for (int j = i + 1; j < sessions.size(); j++) {
+                    int[] a = sessions.get(i);
+                    int[] b = sessions.get(j);
+                    if (a[1] < b[2] && b[1] < a[2]) {
+                        pairs++;
+                        System.out.println("   room/day " + day.getKey() + ": sessions " + a[0] + " and " + b[0]
+                                + " overlap");
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    // ===== Child =====
+
+    private static void runChild(int courseId, int index, int processes, int threads) throws Exception {
+        List<Integer> exams = new ArrayList<>();
+        List<Integer> students = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                System.err.println("   JVM " + index + ": could not open the database");
+                System.exit(2);
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM exams WHERE course_id = ? ORDER BY id")) {
+                ps.setInt(1, courseId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        exams.add(rs.getInt(1));
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT id FROM students WHERE course_id = ? ORDER BY id")) {
+                ps.setInt(1, courseId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    int row = 0;
+                    while (rs.next()) {
+                        if (row++ % processes == index)
+                            students.add(rs.getInt(1));
+                    }
+                }
+            }
+        }
+
+        // One (student, exam) task per enrollment, in an order that differs per process
+        List<int[]> tasks = new ArrayList<>();
+        for (int student : students) {
+            for (int exam : exams)
+                tasks.add(new int[] { student, exam });
+        }
+        Collections.shuffle(tasks, new Random(index));
+        ConcurrentLinkedQueue<int[]> queue = new ConcurrentLinkedQueue<>(tasks);
+
+        AtomicInteger enrolled = new AtomicInteger();
+        AtomicInteger full = new AtomicInteger();
+        AtomicInteger retries = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    if (conn == null)
+                        throw new SQLException("Could not open the database");
+                    int[] task;
+                    while ((task = queue.poll()) != null) {
+                        switch (enroll(task[0], task[1], conn, retries)) {
+                            case 0 -> enrolled.incrementAndGet();
+                            case 1 -> full.incrementAndGet();
+                            default -> errors.incrementAndGet();
+                        }
+                    }
+                } catch (SQLException | RuntimeException | Error e) {
+                    // Its remaining tasks stay queued and show up as unaccounted
+                    System.err.println("Stress worker failed: " + e);
+                    errors.incrementAndGet();
+                }
+            }, "stress-" + index + "-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers)
+            worker.join();
+
+        int unaccounted = tasks.size() - enrolled.get() - full.get();
+        System.out.println("   JVM " + index + ": " + tasks.size() + " task(s), " + enrolled + " enrolled, " + full
+                + " no capacity, " + retries + " retried, " + errors + " error(s), " + unaccounted
+                + " unaccounted");
+        System.exit(errors.get() == 0 && unaccounted == 0 && !tasks.isEmpty() ? 0 : 2);
+    }
+
+    /** 0 = enrolled, 1 = no capacity, 2 = error. */
+    private static int enroll(int studentId, int examId, Connection conn, AtomicInteger retries)
+            throws SQLException {
+        for (int attempt = 0;; attempt++) {
+            conn.setAutoCommit(false);
+            try {
+                SchedulingService.scheduleAndEnrollExam(studentId, examId, conn);
+                conn.commit();
+                EventBus.afterCommit(conn);
+                return 0;
+            } catch (NoCapacityException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                return 1;
+            } catch (SQLException e) {
+                conn.rollback();
+                EventBus.discard(conn);
+                // The timetable may hold rows from the rolled-back attempt
+                StudentTimetableCache.invalidate(studentId);
+                if (retryable(e) && attempt < MAX_RETRIES) {
+                    retries.incrementAndGet();
+                    continue;
+                }
+                System.err.println("Enrollment " + studentId + "/" + examId + " failed: " + e.getMessage());
+                return 2;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Deadlock victims and lock wait timeouts can simply run again
+    private static boolean retryable(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException || (state != null && state.startsWith("40"));
+    }
+}
@@ -0,0 +1,72 @@
+package tools;
+
+import dao.StudentTimetableCache.Entry;
+import dao.StudentTimetableCache.Timetable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks {@link Timetable#overlaps} for sessions that run past midnight, where
+ * start + duration wraps to an end time before the start. Needs no database.
+ *
+ * Exits with status 1 if any case answers wrong (or throws).
+ *
+ * Run: java tools.TimetableOverlapCheck
+ */
+public class TimetableOverlapCheck {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 6, 12);
+    private static final LocalDate NEXT_DAY = DAY.plusDays(1);
+
+    public static void main(String[] args) {
+        List<String> failures = new ArrayList<>();
+
+        Timetable lateBooking = timetable(DAY.atTime(23, 0), 120); // 23:00 - 01:00
+        expect(failures, "next-day candidate inside a booking that crossed midnight",
+                lateBooking, NEXT_DAY, LocalTime.of(0, 30), 60, true);
+        expect(failures, "next-day candidate after that booking ended",
+                lateBooking, NEXT_DAY, LocalTime.of(1, 0), 60, false);
+        expect(failures, "candidate before that booking starts, crossing nothing",
+                lateBooking, DAY, LocalTime.of(21, 0), 120, false);
+
+        Timetable earlyBooking = timetable(NEXT_DAY.atTime(0, 30), 90); // 00:30 - 02:00 next day
+        expect(failures, "candidate crossing midnight into a next-day booking",
+                earlyBooking, DAY, LocalTime.of(23, 30), 120, true);
+        expect(failures, "candidate ending exactly at midnight before a next-day booking",
+                timetable(NEXT_DAY.atTime(0, 0), 60), DAY, LocalTime.of(23, 0), 60, false);
+        expect(failures, "candidate crossing midnight, ending before a next-day booking",
+                timetable(NEXT_DAY.atTime(2, 0), 60), DAY, LocalTime.of(23, 30), 120, false);
+
+        expect(failures, "candidate crossing midnight over a same-day booking",
+                timetable(DAY.atTime(23, 15), 30), DAY, LocalTime.of(22, 0), 180, true);
+
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("✅ Overlap checks across midnight answered correctly");
+    }
+
+    private static Timetable timetable(LocalDateTime start, int minutes) {
+        return Timetable.of(List.of(new Entry(1, 1, 1, "Booked", start, start.plusMinutes(minutes), "Room",
+                minutes + " minutes", "Registered", true)));
+    }
+
+    private static void expect(List<String> failures, String name, Timetable timetable, LocalDate date,
+            LocalTime start, int minutes, boolean expected) {
+        LocalTime end = start.plusMinutes(minutes); // wraps past midnight, as the schedulers compute it
+        try {
+            boolean actual = timetable.overlaps(date, start, end);
+            if (actual != expected)
+                failures.add("❌ " + name + ": expected " + expected + ", got " + actual);
+            else
+                System.out.println(expected + "  " + name);
+        } catch (RuntimeException e) {
+            failures.add("❌ " + name + ": threw " + e);
+        }
+    }
+}